@@ -0,0 +1,65 @@
+package frc.robot.swervelib;
+
+import static frc.robot.Constants.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Benchmarks the kinematics and desaturation step of the drive periodic, comparing
+ * WPILib's SwerveDriveKinematics with PrimitiveSwerveKinematics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KinematicsBenchmark
+{
+    private static final double MAX_SPEED = 4.0;
+
+    private final Translation2d[] translations = {
+        new Translation2d(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0),
+        new Translation2d(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0),
+        new Translation2d(-DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0),
+        new Translation2d(-DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0)
+    };
+
+    private SwerveDriveKinematics       wpilibKinematics;
+    private PrimitiveSwerveKinematics   primitiveKinematics;
+
+    private double  vx = 3.0, vy = 1.5, omega = 2.0;
+
+    @Setup
+    public void setup()
+    {
+        wpilibKinematics = new SwerveDriveKinematics(translations);
+        primitiveKinematics = new PrimitiveSwerveKinematics(translations);
+    }
+
+    @Benchmark
+    public void wpilib(Blackhole blackhole)
+    {
+        SwerveModuleState[] states = wpilibKinematics.toSwerveModuleStates(new ChassisSpeeds(vx, vy, omega));
+
+        SwerveDriveKinematics.desaturateWheelSpeeds(states, MAX_SPEED);
+
+        blackhole.consume(states);
+    }
+
+    @Benchmark
+    public void primitive(Blackhole blackhole)
+    {
+        primitiveKinematics.toModuleStates(vx, vy, omega);
+
+        primitiveKinematics.desaturate(MAX_SPEED);
+
+        blackhole.consume(primitiveKinematics.getSpeed(0));
+        blackhole.consume(primitiveKinematics.getAngle(3));
+    }
+}
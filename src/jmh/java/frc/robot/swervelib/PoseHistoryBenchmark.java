@@ -0,0 +1,76 @@
+package frc.robot.swervelib;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks PoseHistory lookups in a full 2 second (400 pose) history: the
+ * allocation free lookup, the one returning a Pose2d, and adding a pose. Lookup times
+ * step through the history so the binary search does not always take the same path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PoseHistoryBenchmark
+{
+    private static final int    CAPACITY = 400;
+    private static final double PERIOD = 0.005;
+
+    private final double[]      pose = new double[3];
+
+    private PoseHistory         history;
+    private double              lookupTime, addTime;
+
+    @Setup
+    public void setup()
+    {
+        history = new PoseHistory(CAPACITY);
+
+        // A robot driving an arc while turning.
+        for (int i = 0; i < CAPACITY; i++)
+        {
+            double time = i * PERIOD;
+
+            history.add(time, Math.cos(time), Math.sin(time), time * 2.0);
+        }
+
+        addTime = CAPACITY * PERIOD;
+    }
+
+    private double nextLookupTime()
+    {
+        // Between samples, 0.0037 s at a time, wrapping over the history.
+        lookupTime += 0.0037;
+
+        if (lookupTime >= (CAPACITY - 1) * PERIOD) lookupTime -= (CAPACITY - 1) * PERIOD;
+
+        return lookupTime;
+    }
+
+    @Benchmark
+    public void getPoseAtPrimitive(Blackhole blackhole)
+    {
+        history.getPoseAt(nextLookupTime(), pose);
+
+        blackhole.consume(pose[0]);
+        blackhole.consume(pose[2]);
+    }
+
+    @Benchmark
+    public void getPoseAtPose2d(Blackhole blackhole)
+    {
+        blackhole.consume(history.getPoseAt(nextLookupTime()));
+    }
+
+    @Benchmark
+    public void add()
+    {
+        // Keeps timestamps increasing. Each benchmark has its own history, so this
+        // does not move the times the lookup benchmarks search.
+        history.add(addTime, 1.0, 2.0, 0.5);
+
+        addTime += PERIOD;
+    }
+}
@@ -0,0 +1,163 @@
+package frc.robot.swervelib;
+
+import java.lang.reflect.Proxy;
+
+import com.revrobotics.REVLibError;
+import com.revrobotics.RelativeEncoder;
+
+/**
+ * In-memory stand-ins for the motor controller and encoder objects so swervelib
+ * code can be benchmarked without vendor JNI or CAN hardware.
+ */
+public final class StandIns
+{
+    private StandIns() {}
+
+    /**
+     * In-memory relative encoder. Only position and velocity are modeled, every
+     * configuration call succeeds. Built as a proxy since it is only used off the
+     * measured path (module construction).
+     */
+    public static RelativeEncoder relativeEncoder()
+    {
+        double[] position = new double[1];
+
+        return (RelativeEncoder) Proxy.newProxyInstance(
+            RelativeEncoder.class.getClassLoader(),
+            new Class<?>[] {RelativeEncoder.class},
+            (proxy, method, args) ->
+            {
+                switch (method.getName())
+                {
+                    case "getPosition":
+                        return position[0];
+
+                    case "setPosition":
+                        position[0] = (Double) args[0];
+                        return REVLibError.kOk;
+
+                    default:
+                        Class<?> type = method.getReturnType();
+
+                        if (type == REVLibError.class) return REVLibError.kOk;
+                        if (type == double.class) return 0.0;
+                        if (type == int.class) return 0;
+                        if (type == boolean.class) return false;
+
+                        return null;
+                }
+            });
+    }
+
+    static class DriveControllerStandIn implements DriveController
+    {
+        double voltage, velocity, position;
+
+        @Override
+        public void setReferenceVoltage(double voltage)
+        {
+            this.voltage = voltage;
+        }
+
+        @Override
+        public void setReferenceVelocity(double velocity, double acceleration)
+        {
+            this.velocity = velocity;
+        }
+
+        @Override
+        public double getStateVelocity()
+        {
+            return velocity;
+        }
+
+        @Override
+        public double getStatePosition()
+        {
+            return position;
+        }
+
+        @Override
+        public void stop()
+        {
+            voltage = 0;
+        }
+
+        @Override
+        public void setStatePosition(double position)
+        {
+            this.position = position;
+        }
+
+        @Override
+        public void setBrakeMode(boolean on) {}
+    }
+
+    /**
+     * Steer controller that only stores the reference angle, so module benchmarks
+     * measure the module logic. The NEO steer controller itself is measured by
+     * rev.SteerControllerBenchmark.
+     */
+    static class SteerControllerStandIn implements SteerController
+    {
+        private final AbsoluteEncoder   absoluteEncoder = () -> 0.0;
+
+        double  encoderPosition, encoderVelocity;
+
+        private double referenceAngleRadians;
+
+        @Override
+        public double getReferenceAngle()
+        {
+            return referenceAngleRadians;
+        }
+
+        @Override
+        public void setReferenceAngle(double referenceAngleRadians, ModuleSensorSnapshot sensors)
+        {
+            this.referenceAngleRadians = referenceAngleRadians;
+        }
+
+        @Override
+        public void setStartingPosition(double steerOffset) {}
+
+        @Override
+        public double getStatePosition()
+        {
+            return encoderPosition;
+        }
+
+        @Override
+        public double getStateVelocity()
+        {
+            return encoderVelocity;
+        }
+
+        @Override
+        public void setStatePosition(double angle)
+        {
+            encoderPosition = angle;
+        }
+
+        @Override
+        public void stop() {}
+
+        @Override
+        public void setPidConstants(double proportional, double integral, double derivative) {}
+
+        @Override
+        public AbsoluteEncoder getAbsoluteEncoder()
+        {
+            return absoluteEncoder;
+        }
+
+        @Override
+        public void setBrakeMode(boolean on) {}
+
+        @Override
+        public boolean getBrakeMode()
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package frc.robot.swervelib;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import frc.robot.Constants.ModulePosition;
+
+/**
+ * Benchmarks SwerveModule.set() (ModuleImplementation) against stand-in controllers, and
+ * a full loop against the pure Java module model (SimModuleIO).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwerveModuleBenchmark
+{
+    private SwerveModule    module, simModule;
+    private double          angle;
+
+    @Setup
+    public void setup()
+    {
+        StandIns.DriveControllerStandIn driveController = new StandIns.DriveControllerStandIn();
+        StandIns.SteerControllerStandIn steerController = new StandIns.SteerControllerStandIn();
+
+        module = new SwerveModuleFactory<Integer, Integer>(
+            SdsModuleConfigurations.MK4I_L1,
+            (driveConfiguration, moduleConfiguration) -> driveController,
+            (steerConfiguration, moduleConfiguration) -> steerController
+        ).create(0, 0, 0.0, ModulePosition.FL);
+
+        simModule = SwerveModuleFactory.create(new SimModuleIO(0.02, 4.0, 0.0), 0.0, ModulePosition.FL);
+    }
+
+    @Benchmark
+    public double set()
+    {
+        // Sweep the target so both the flip and no flip branches are exercised.
+        angle += 0.1;
+
+        if (angle > 2.0 * Math.PI) angle -= 4.0 * Math.PI;
+
+        module.set(3.0, angle);
+
+        return module.getSteerAngle();
+    }
+
+    @Benchmark
+    public double readSensorsAndSet()
+    {
+        angle += 0.1;
+
+        if (angle > 2.0 * Math.PI) angle -= 4.0 * Math.PI;
+
+        module.readSensors();
+
+        module.set(3.0, angle);
+
+        return module.getSteerAngle();
+    }
+
+    @Benchmark
+    public double readSensorsAndSetSimModule()
+    {
+        angle += 0.1;
+
+        if (angle > 2.0 * Math.PI) angle -= 4.0 * Math.PI;
+
+        simModule.readSensors();
+
+        simModule.setVelocity(3.0, 0.0, angle);
+
+        return simModule.getSteerAngle();
+    }
+}
@@ -0,0 +1,83 @@
+package frc.robot.swervelib.rev;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import frc.robot.swervelib.Mk4ModuleConfiguration;
+import frc.robot.swervelib.ModuleSensorSnapshot;
+import frc.robot.swervelib.StandIns;
+import frc.robot.swervelib.SteerMotionProfile;
+import frc.robot.swervelib.SteerUtils;
+
+/**
+ * Benchmarks NeoSteerControllerFactoryBuilder.ControllerImplementation.setReferenceAngle():
+ * the periodic encoder reset check, reference angle unwrapping and, when profiled, the
+ * steer motion profile. The controller is the real one on a stand-in encoder and
+ * position loop, so the CAN/JNI calls are not included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SteerControllerBenchmark
+{
+    /**
+     * Position loop that just keeps the last reference.
+     */
+    private static class PositionLoopStandIn implements NeoSteerControllerFactoryBuilder.PositionLoop
+    {
+        double  reference;
+
+        @Override
+        public void setReference(double position, double feedforward)
+        {
+            reference = position;
+        }
+
+        @Override
+        public void setPidConstants(double proportional, double integral, double derivative) {}
+    }
+
+    @Param({"false", "true"})
+    public boolean profiled;
+
+    private NeoSteerControllerFactoryBuilder.ControllerImplementation controller;
+    private final PositionLoopStandIn   positionLoop = new PositionLoopStandIn();
+    private final ModuleSensorSnapshot  sensors = new ModuleSensorSnapshot();
+    private double                      reference;
+
+    @Setup
+    public void setup()
+    {
+        SteerMotionProfile profile = profiled ? new SteerMotionProfile(Mk4ModuleConfiguration.NEO_STEER_PROFILE_MAX_VELOCITY,
+            Mk4ModuleConfiguration.NEO_STEER_PROFILE_MAX_ACCELERATION, Mk4ModuleConfiguration.NEO_STEER_PROFILE_KV) : null;
+
+        controller = new NeoSteerControllerFactoryBuilder.ControllerImplementation(null, StandIns.relativeEncoder(), 
+            positionLoop, () -> 0.0, profile);
+
+        // Encoder well above 2pi as happens after the module spins a few turns.
+        sensors.set(0, 0, 7.5 * Math.PI, 0, 0);
+    }
+
+    @Benchmark
+    public double setReferenceAngle()
+    {
+        reference += 0.07;
+
+        if (reference >= 2.0 * Math.PI) reference = 0;
+
+        controller.setReferenceAngle(reference, sensors);
+
+        return positionLoop.reference;
+    }
+
+    @Benchmark
+    public double unwrapReferenceAngle()
+    {
+        reference += 0.07;
+
+        if (reference >= 2.0 * Math.PI) reference = 0;
+
+        return SteerUtils.unwrapReferenceAngle(reference, 7.5 * Math.PI);
+    }
+}
@@ -33,12 +33,18 @@ public final class Constants
      */
     public static final double DRIVETRAIN_WHEELBASE_METERS = .475; // Measure and set wheelbase
 
+    /**
+     * Swerve module positions. ML and MR (middle left/right) are for six module
+     * drives. Add positions here for other layouts.
+     */
     public enum ModulePosition 
     {
       FL,
       FR,
       BL,
-      BR
+      BR,
+      ML,
+      MR
     }
 
     public static final int FRONT_LEFT_MODULE_DRIVE_MOTOR = 1; // Set front left module drive motor ID
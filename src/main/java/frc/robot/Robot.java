@@ -12,6 +12,11 @@ import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.swervelib.DrivetrainScheduler;
+import frc.robot.telemetry.DriveInputLog;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.TelemetryLog;
+import frc.robot.telemetry.TelemetryPublisher;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -25,6 +30,14 @@ public class Robot extends TimedRobot
 
   private RobotContainer m_robotContainer;
 
+  // Loop phase timing. Subsystems and commands time themselves.
+  private final LoopTimer.Phase m_loopPhase = LoopTimer.getPhase("Loop");
+  private final LoopTimer.Phase m_robotPeriodicPhase = LoopTimer.getPhase("RobotPeriodic");
+  private final LoopTimer.Phase m_schedulerPhase = LoopTimer.getPhase("Scheduler");
+  private final LoopTimer.Phase m_buttonsPhase = LoopTimer.getPhase("Buttons");
+  private final LoopTimer.Phase m_dashboardPhase = LoopTimer.getPhase("Dashboard");
+  private final LoopTimer.Phase m_publishPhase = LoopTimer.getPhase("Publish");
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
@@ -41,6 +54,9 @@ public class Robot extends TimedRobot
       //Util.CustomLogger.setup("frc.");
     } catch (Exception e) { endCompetition(); }
 
+    // Start the binary telemetry log writer used by hot path code in place of console logging.
+    TelemetryLog.start();
+
     // Set Java to catch any uncaught exceptions and record them in our log file.
 
     Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() 
@@ -80,7 +96,50 @@ public class Robot extends TimedRobot
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
     
+    m_robotPeriodicPhase.start();
+
+    // The drive base and drive command record (or replay) their inputs during the run.
+    DriveInputLog.beginCycle();
+
+    m_schedulerPhase.start();
+    
     CommandScheduler.getInstance().run();
+
+    m_schedulerPhase.stop();
+
+    DriveInputLog.endCycle();
+
+    // What the scheduler spent outside of subsystem periodic and command execute
+    // is mostly button polling.
+    m_buttonsPhase.record(m_schedulerPhase.getLastNanos() - LoopTimer.takeSchedulerPhaseNanos());
+
+    LoopTimer.periodic();
+
+    // Rate limited dashboard values, written after the scheduler has updated them.
+    m_publishPhase.start();
+
+    TelemetryPublisher.publish();
+
+    m_publishPhase.stop();
+
+    m_robotPeriodicPhase.stop();
+  }
+
+  /**
+   * Wraps the base robot loop to time the whole loop. After robotPeriodic() the base
+   * loop updates SmartDashboard, LiveWindow and Shuffleboard, so that is what is left
+   * of the loop time once robotPeriodic() is taken out.
+   */
+  @Override
+  protected void loopFunc()
+  {
+    m_loopPhase.start();
+
+    super.loopFunc();
+
+    m_loopPhase.stop();
+
+    m_dashboardPhase.record(m_loopPhase.getLastNanos() - m_robotPeriodicPhase.getLastNanos());
   }
 
   /** This function is called once each time the robot enters Disabled mode. */
@@ -88,6 +147,12 @@ public class Robot extends TimedRobot
   public void disabledInit() 
   {
     Util.consoleLog();
+
+    // Dump loop timing collected since the last disable.
+    LoopTimer.logAll();
+
+    // Stop background drivetrain tasks, such as turning the wheels to their start position.
+    DrivetrainScheduler.getInstance().disabled();
   }
 
   @Override
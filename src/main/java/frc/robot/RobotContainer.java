@@ -4,15 +4,19 @@
 
 package frc.robot;
 
+import java.io.IOException;
+
 import Team4450.Lib.Util;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.button.Button;
+import frc.robot.commands.FollowTrajectoryCommand;
 import frc.robot.commands.ResetToAbsoluteCommand;
 import frc.robot.commands.ResetToForwardCommand;
 import frc.robot.commands.SwerveDriveCommand;
 import frc.robot.subsystems.SwerveDriveBase;
+import frc.robot.trajectory.MappedTrajectory;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -28,6 +32,11 @@ public class RobotContainer
 
   private final XboxController m_controller = new XboxController(0);
 
+  // Prebuilt trajectory driven in autonomous, from deploy/paths/example.path.
+  private static final String AUTONOMOUS_TRAJECTORY = "example";
+
+  private MappedTrajectory m_autonomousTrajectory;
+
   /**
    * The container for the robot. Contains subsystems, OI devices, and commands.
    */
@@ -56,6 +65,11 @@ public class RobotContainer
 
     // Configure the button bindings
     configureButtonBindings();
+
+    // Map the autonomous trajectory now so autonomousInit() has nothing to load.
+    try {
+      m_autonomousTrajectory = MappedTrajectory.load(AUTONOMOUS_TRAJECTORY);
+    } catch (IOException e) { Util.logException(e); }
   }
 
   /**
@@ -86,6 +100,10 @@ public class RobotContainer
     new Button(m_controller::getStartButton)
         .whenPressed(m_driveBase::toggleAutoReturnToZero);
 
+    // Right bumper toggles odometry between measured and commanded module states.
+    new Button(m_controller::getRightBumper)
+        .whenPressed(m_driveBase::toggleMeasuredOdometry);
+
     // Back button toggles field oriented driving mode.
     new Button(m_controller::getBackButton)
         .whenPressed(m_driveBase::toggleFieldOriented);
@@ -98,7 +116,9 @@ public class RobotContainer
    */
   public Command getAutonomousCommand()
   {
-    // An ExampleCommand will run in autonomous
-    return new InstantCommand();
+    // Drive the autonomous trajectory if it loaded.
+    if (m_autonomousTrajectory == null) return new InstantCommand();
+
+    return new FollowTrajectoryCommand(m_driveBase, m_autonomousTrajectory, true);
   }
 }
@@ -0,0 +1,114 @@
+package frc.robot.commands;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.SwerveDriveBase;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.trajectory.MappedTrajectory;
+import frc.robot.trajectory.TrajectorySample;
+
+/**
+ * Drives a prebuilt holonomic trajectory. Each loop the trajectory is sampled at the
+ * time since the command started, and the sample's field relative velocity is driven
+ * plus a proportional correction toward the sample's pose. The sample's acceleration
+ * is passed on for the drive feedforward.
+ */
+public class FollowTrajectoryCommand extends CommandBase
+{
+    // Correction in m/s per meter of position error, and rad/s per radian of heading error.
+    private static final double     TRANSLATION_P = 2.0, ROTATION_P = 3.0;
+
+    private final SwerveDriveBase   m_driveBase;
+    private final MappedTrajectory  m_trajectory;
+    private final boolean           m_resetOdometry;
+
+    private final Timer             m_timer = new Timer();
+    private final TrajectorySample  m_sample = new TrajectorySample();
+    private final ChassisSpeeds     m_speeds = new ChassisSpeeds();
+
+    private final LoopTimer.Phase   m_executePhase = LoopTimer.getSchedulerPhase("FollowTrajectoryCommand");
+
+    /**
+     * @param driveBase The drive base.
+     * @param trajectory Trajectory to follow.
+     * @param resetOdometry True to set the odometry pose to the trajectory's start when the
+     * command starts, as for the first path of an autonomous.
+     */
+    public FollowTrajectoryCommand(SwerveDriveBase driveBase, MappedTrajectory trajectory, boolean resetOdometry)
+    {
+        Util.consoleLog(trajectory.getName());
+
+        m_driveBase = driveBase;
+        m_trajectory = trajectory;
+        m_resetOdometry = resetOdometry;
+
+        addRequirements(driveBase);
+    }
+
+    @Override
+    public void initialize()
+    {
+        Util.consoleLog("FollowTrajectoryCommand-init: %s", m_trajectory.getName());
+
+        if (m_resetOdometry)
+        {
+            m_trajectory.sample(0, m_sample);
+
+            m_driveBase.setOdometry(new Pose2d(m_sample.getX(), m_sample.getY(), new Rotation2d(m_sample.getRotation())));
+        }
+
+        m_timer.reset();
+        m_timer.start();
+    }
+
+    @Override
+    public void execute()
+    {
+        m_executePhase.start();
+
+        m_trajectory.sample(m_timer.get(), m_sample);
+
+        Pose2d pose = m_driveBase.getPoseMeters();
+
+        double heading = pose.getRotation().getRadians();
+
+        double vx = m_sample.getVx() + TRANSLATION_P * (m_sample.getX() - pose.getX());
+        double vy = m_sample.getVy() + TRANSLATION_P * (m_sample.getY() - pose.getY());
+        double omega = m_sample.getOmega() + ROTATION_P * Math.IEEEremainder(m_sample.getRotation() - heading, 2 * Math.PI);
+
+        // Field relative to robot relative, as ChassisSpeeds.fromFieldRelativeSpeeds() without
+        // allocating.
+        double cos = Math.cos(heading), sin = Math.sin(heading);
+
+        m_speeds.vxMetersPerSecond = vx * cos + vy * sin;
+        m_speeds.vyMetersPerSecond = -vx * sin + vy * cos;
+        m_speeds.omegaRadiansPerSecond = omega;
+
+        m_driveBase.drive(m_speeds, m_sample.getAx() * cos + m_sample.getAy() * sin, 
+                          -m_sample.getAx() * sin + m_sample.getAy() * cos);
+
+        m_executePhase.stop();
+    }
+
+    @Override
+    public boolean isFinished()
+    {
+        return m_timer.hasElapsed(m_trajectory.getTotalTimeSeconds());
+    }
+
+    @Override
+    public void end(boolean interrupted)
+    {
+        m_speeds.vxMetersPerSecond = m_speeds.vyMetersPerSecond = m_speeds.omegaRadiansPerSecond = 0;
+
+        m_driveBase.drive(m_speeds);
+
+        m_timer.stop();
+
+        Util.consoleLog("FollowTrajectoryCommand-end: interrupted=%b", interrupted);
+    }
+}
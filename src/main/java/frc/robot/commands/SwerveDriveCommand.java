@@ -2,16 +2,17 @@ package frc.robot.commands;
 
 import edu.wpi.first.math.filter.SlewRateLimiter;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 
 import static frc.robot.Constants.*;
 import frc.robot.subsystems.SwerveDriveBase;
+import frc.robot.telemetry.DriveInputLog;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.TelemetryLog;
 
 import java.util.function.DoubleSupplier;
 
-import Team4450.Lib.LCD;
 import Team4450.Lib.Util;
 
 public class SwerveDriveCommand extends CommandBase 
@@ -27,6 +28,11 @@ public class SwerveDriveCommand extends CommandBase
     private final SlewRateLimiter m_slewY = new SlewRateLimiter(THROTTLE_SLEW);
     private final SlewRateLimiter m_slewRot = new SlewRateLimiter(ROTATION_SLEW);
 
+    private final LoopTimer.Phase m_executePhase = LoopTimer.getSchedulerPhase("SwerveDriveCommand");
+
+    private final TelemetryLog.Event m_inputEvent = TelemetryLog.registerEvent("SwerveDriveCommand",
+        "throttle", "strafe", "rotation", "heading");
+
     public SwerveDriveCommand(SwerveDriveBase driveBase,
                                DoubleSupplier throttleSupplier,
                                DoubleSupplier strafeSupplier,
@@ -47,25 +53,18 @@ public class SwerveDriveCommand extends CommandBase
     @Override
     public void execute() 
     {
-        LCD.printLine(1, "x=%.3f  y=%.3f  throttle=%.3f  strafe=%.3f  rot=%.3f",
-            m_controller.getLeftX(),
-            m_controller.getLeftY(),
-            m_throttleSupplier.getAsDouble(),
-            m_strafeSupplier.getAsDouble(),
-            m_rotationSupplier.getAsDouble()
-        );
-
-        LCD.printLine(2, "gyro=%.3f  yaw=%.3f",
-            m_driveBase.getGyroRotation2d().getDegrees(),
-            m_driveBase.getGyroYaw()
-        );
-
-        double throttle = -deadband(m_throttleSupplier.getAsDouble(), THROTTLE_DEADBAND);
-        double strafe = -deadband(m_strafeSupplier.getAsDouble(), THROTTLE_DEADBAND);
-        double rotation = -deadband(m_rotationSupplier.getAsDouble(), ROTATION_DEADBAND);
-
-        // Have to invert for sim...not sure why.
-        if (RobotBase.isSimulation()) rotation *= -1;
+        m_executePhase.start();
+
+        // Recorded for replay, or when replaying the recorded values.
+        double rawThrottle = DriveInputLog.input(DriveInputLog.THROTTLE, m_throttleSupplier);
+        double rawStrafe = DriveInputLog.input(DriveInputLog.STRAFE, m_strafeSupplier);
+        double rawRotation = DriveInputLog.input(DriveInputLog.ROTATION, m_rotationSupplier);
+
+        m_inputEvent.record(rawThrottle, rawStrafe, rawRotation, m_driveBase.getHeadingDegrees());
+
+        double throttle = -deadband(rawThrottle, THROTTLE_DEADBAND);
+        double strafe = -deadband(rawStrafe, THROTTLE_DEADBAND);
+        double rotation = -deadband(rawRotation, ROTATION_DEADBAND);
 
         // Both squaring inputs and slew rate limiters are ways to slow down
         // or smooth response to the joystick inputs. Will test both methods.
@@ -80,6 +79,8 @@ public class SwerveDriveCommand extends CommandBase
         rotation = m_slewRot.calculate(rotation);
 
         m_driveBase.drive(throttle, strafe, rotation);
+
+        m_executePhase.stop();
     }
 
     @Override
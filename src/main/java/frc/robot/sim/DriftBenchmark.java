@@ -0,0 +1,137 @@
+package frc.robot.sim;
+
+import static frc.robot.subsystems.SwerveDriveBase.SWERVE_MODULES;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.subsystems.SwerveDriveBase;
+import frc.robot.swervelib.ChassisSpeedsDiscretizer;
+import frc.robot.swervelib.PrimitiveSwerveKinematics;
+import frc.robot.swervelib.SwerveModuleDefinition;
+
+/**
+ * Measures how far the robot drifts off a straight field relative path while it
+ * spins, with the chassis speeds applied as commanded, discretized, and discretized
+ * with command latency compensation.
+ * <p>
+ * Field relative speeds are made robot relative with the heading from the previous loop,
+ * as when a drive command runs after the drive base periodic, then go through the drive
+ * base's kinematics and desaturation. The modules are taken to follow their commands
+ * exactly, so the only error is from the robot turning while the speeds are held for a
+ * loop. The robot is integrated in 1ms steps. Prints the largest and final distance from
+ * the commanded path. Runs on a PC.
+ * <p>
+ * Usage: ./gradlew driftBenchmark
+ */
+public final class DriftBenchmark
+{
+    private static final double[]   SPEED_FRACTIONS = {0.5, 1.0};
+    private static final double     RUN_SECONDS = 3.0;
+    private static final double     STEP_SECONDS = 0.001;
+
+    private enum Mode { RAW, DISCRETIZED, LATENCY_COMPENSATED }
+
+    private DriftBenchmark() {}
+
+    public static void main(String[] args)
+    {
+        System.out.printf("max velocity %.2f m/s, max angular velocity %.2f rad/s, loop %.0f ms%n",
+                          SwerveDriveBase.MAX_DRIVE_VELOCITY_METERS_PER_SECOND,
+                          SwerveDriveBase.MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND,
+                          TimedRobot.kDefaultPeriod * 1000);
+        System.out.println("speed  mode                  max error  final error");
+
+        for (double fraction : SPEED_FRACTIONS)
+            for (Mode mode : Mode.values())
+            {
+                double[] error = run(fraction, mode);
+
+                System.out.printf("%4.0f%%  %-20s  %7.3f m  %9.3f m%n", fraction * 100, mode, error[0], error[1]);
+            }
+    }
+
+    /**
+     * Drive along field X while spinning, both at the fraction of their maximums.
+     * @return Largest and final distance from the X axis in meters.
+     */
+    private static double[] run(double fraction, Mode mode)
+    {
+        PrimitiveSwerveKinematics kinematics =
+            new PrimitiveSwerveKinematics(SwerveModuleDefinition.getTranslations(SWERVE_MODULES));
+
+        int             count = kinematics.getModuleCount();
+        double[]        speeds = new double[count], angles = new double[count];
+        ChassisSpeeds   commanded = new ChassisSpeeds(), applied = new ChassisSpeeds();
+
+        double maxVelocity = SwerveDriveBase.MAX_DRIVE_VELOCITY_METERS_PER_SECOND;
+        double velocity = maxVelocity * fraction;
+        double omega = SwerveDriveBase.MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND * fraction *
+                       maxVelocity / SwerveDriveBase.MAX_VELOCITY_METERS_PER_SECOND;
+
+        double period = TimedRobot.kDefaultPeriod;
+        double y = 0, heading = 0, lastHeading = 0, maxError = 0;
+
+        int stepsPerLoop = (int) Math.round(period / STEP_SECONDS);
+
+        for (double time = 0; time < RUN_SECONDS; time += period)
+        {
+            // Field relative to robot relative with last loop's heading.
+            double cos = Math.cos(lastHeading), sin = Math.sin(lastHeading);
+
+            commanded.vxMetersPerSecond = velocity * cos;
+            commanded.vyMetersPerSecond = -velocity * sin;
+            commanded.omegaRadiansPerSecond = omega;
+
+            lastHeading = heading;
+
+            if (mode == Mode.RAW)
+            {
+                applied.vxMetersPerSecond = commanded.vxMetersPerSecond;
+                applied.vyMetersPerSecond = commanded.vyMetersPerSecond;
+                applied.omegaRadiansPerSecond = commanded.omegaRadiansPerSecond;
+            }
+            else
+            {
+                // Desaturated first, as the drive base periodic does.
+                kinematics.toModuleStates(commanded.vxMetersPerSecond, commanded.vyMetersPerSecond,
+                                          commanded.omegaRadiansPerSecond);
+
+                double scale = kinematics.getDesaturationScale(maxVelocity);
+
+                applied.vxMetersPerSecond = commanded.vxMetersPerSecond * scale;
+                applied.vyMetersPerSecond = commanded.vyMetersPerSecond * scale;
+                applied.omegaRadiansPerSecond = commanded.omegaRadiansPerSecond * scale;
+
+                ChassisSpeedsDiscretizer.discretize(applied, period, mode == Mode.LATENCY_COMPENSATED ? period : 0,
+                                                    applied);
+            }
+
+            // What the modules can actually do, as the drive base periodic limits them.
+            kinematics.toModuleStates(applied.vxMetersPerSecond, applied.vyMetersPerSecond, applied.omegaRadiansPerSecond);
+            kinematics.desaturate(maxVelocity);
+
+            for (int i = 0; i < count; i++)
+            {
+                speeds[i] = kinematics.getSpeed(i);
+                angles[i] = kinematics.getAngle(i);
+            }
+
+            kinematics.toChassisSpeeds(speeds, angles);
+
+            double vx = kinematics.getChassisVx(), vy = kinematics.getChassisVy(), w = kinematics.getChassisOmega();
+
+            for (int i = 0; i < stepsPerLoop; i++)
+            {
+                cos = Math.cos(heading);
+                sin = Math.sin(heading);
+
+                y += (vx * sin + vy * cos) * STEP_SECONDS;
+                heading += w * STEP_SECONDS;
+
+                maxError = Math.max(maxError, Math.abs(y));
+            }
+        }
+
+        return new double[] {maxError, Math.abs(y)};
+    }
+}
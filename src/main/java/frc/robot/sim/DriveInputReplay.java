@@ -0,0 +1,106 @@
+package frc.robot.sim;
+
+import java.io.File;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.Robot;
+import frc.robot.swervelib.DrivetrainScheduler;
+import frc.robot.telemetry.DriveInputLog;
+import frc.robot.telemetry.LoopTimer;
+
+/**
+ * Replays a drive input log recorded on the robot (see DriveInputLog) through the
+ * robot code in simulation, one robot loop per recorded loop.
+ * <p>
+ * Like the headless simulation tests, HAL timing is paused and stepped one loop at a time, with
+ * the robot mode set from each frame before its loop. The drive base takes its module
+ * sensor snapshots, time and heading from the frame and updates odometry from them
+ * once per loop, and the drive command takes its throttle, strafe and rotation from
+ * it, so the drive code runs through the same sequence of inputs as on the robot and
+ * the same way every replay. Prints the final odometry pose, to compare replays after
+ * a change, and the loop timing histograms, to profile the drive code offline.
+ * <p>
+ * Run with ./gradlew replayDriveInputs --args="drive-20220101-120000.dlog".
+ */
+public final class DriveInputReplay
+{
+    private static final double BOOT_TIMEOUT_SECONDS = 5;
+
+    private DriveInputReplay() {}
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length != 1)
+        {
+            System.err.println("usage: DriveInputReplay <drive input log>");
+            System.exit(1);
+        }
+
+        DriveInputLog.startReplay(new File(args[0]));
+
+        if (!HAL.initialize(500, 0)) throw new IllegalStateException("HAL initialization failed");
+
+        // Time only moves when stepped from here on.
+        SimHooks.pauseTiming();
+
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        Robot robot = new Robot();
+
+        Thread robotThread = new Thread(robot::startCompetition, "Robot");
+
+        robotThread.setDaemon(true);
+        robotThread.start();
+
+        // Returns once robotInit() has run.
+        SimHooks.waitForProgramStart();
+
+        if (!DrivetrainScheduler.getInstance().awaitIdle(BOOT_TIMEOUT_SECONDS))
+            throw new IllegalStateException("drivetrain boot tasks did not end");
+
+        int frames = DriveInputLog.getFrameCount(), gaps = 0;
+
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < frames && robotThread.isAlive(); i++)
+        {
+            int mode = (int) DriveInputLog.getFrameValue(i, DriveInputLog.MODE);
+
+            DriverStationSim.setEnabled((mode & DriveInputLog.ENABLED) != 0);
+            DriverStationSim.setAutonomous((mode & DriveInputLog.AUTONOMOUS) != 0);
+            DriverStationSim.setTest((mode & DriveInputLog.TEST) != 0);
+            DriverStationSim.notifyNewData();
+
+            // Frames dropped while recording, the replay skips those loops.
+            if (i > 0 && DriveInputLog.getFrameValue(i, DriveInputLog.CYCLE) != 
+                         DriveInputLog.getFrameValue(i - 1, DriveInputLog.CYCLE) + 1) gaps++;
+
+            // Runs one robot loop, which takes the next frame, and waits for it.
+            SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+        }
+
+        double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+        boolean stopped = !robotThread.isAlive();
+        double recordedSeconds = frames < 2 ? 0 : DriveInputLog.getFrameValue(frames - 1, DriveInputLog.TIMESTAMP) -
+                                                  DriveInputLog.getFrameValue(0, DriveInputLog.TIMESTAMP);
+
+        double[] pose = NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable("Field2d")
+                            .getEntry("Robot").getDoubleArray(new double[3]);
+
+        LoopTimer.logAll();
+
+        System.out.printf("%d frames (%.1f s recorded) replayed in %.1f s, %d gaps%s, final pose (%.3f, %.3f, %.1f)%n",
+                          frames, recordedSeconds, wallSeconds, gaps, stopped ? ", robot code stopped" : "",
+                          pose[0], pose[1], pose[2]);
+
+        robot.endCompetition();
+
+        System.exit(stopped ? 1 : 0);
+    }
+}
@@ -0,0 +1,98 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.swervelib.Mk4ModuleConfiguration;
+import frc.robot.swervelib.Mk4iSwerveModuleHelper;
+import frc.robot.swervelib.SteerMotionProfile;
+import frc.robot.swervelib.SteerUtils;
+
+/**
+ * Measures NEO steer step responses on the SwerveModuleSim model, with the target
+ * given directly to the position loop and through the steer motion profile, using the
+ * default NEO module configuration and, if it has no profile, the candidate profile
+ * in Mk4ModuleConfiguration. For each step size prints the time to settle
+ * within SETTLE_TOLERANCE_DEGREES (staying there) and the overshoot. Runs on a PC.
+ * <p>
+ * Usage: ./gradlew steerStepResponse
+ */
+public final class SteerStepResponse
+{
+    private static final double[]   STEPS_DEGREES = {15, 45, 90};
+    private static final double     SETTLE_TOLERANCE_DEGREES = 1.0;
+    private static final double     RUN_SECONDS = 1.5;
+    private static final double     STEP_SECONDS = 0.001;
+    private static final double     BUS_VOLTAGE = 12.0;
+
+    private SteerStepResponse() {}
+
+    public static void main(String[] args)
+    {
+        Mk4ModuleConfiguration configuration = Mk4ModuleConfiguration.getDefaultNeoConfig();
+
+        if (Double.isNaN(configuration.getSteerMaxVelocity()))
+            configuration.setSteerMotionProfile(Mk4ModuleConfiguration.NEO_STEER_PROFILE_MAX_VELOCITY,
+                                                Mk4ModuleConfiguration.NEO_STEER_PROFILE_MAX_ACCELERATION,
+                                                Mk4ModuleConfiguration.NEO_STEER_PROFILE_KV);
+
+        System.out.printf("steer P=%.3f D=%.3f, profile max velocity %.1f rad/s, max acceleration %.1f rad/s/s, kV %.2f%n",
+                          configuration.getSteerP(), configuration.getSteerD(), configuration.getSteerMaxVelocity(),
+                          configuration.getSteerMaxAcceleration(), configuration.getSteerKv());
+        System.out.println("step     direct settle  overshoot   profiled settle  overshoot");
+
+        for (double step : STEPS_DEGREES)
+        {
+            double[] direct = run(configuration, Math.toRadians(step), false);
+            double[] profiled = run(configuration, Math.toRadians(step), true);
+
+            System.out.printf("%4.0f deg  %8.0f ms  %6.2f deg  %10.0f ms  %6.2f deg%n", step,
+                              direct[0] * 1000, direct[1], profiled[0] * 1000, profiled[1]);
+        }
+    }
+
+    /**
+     * Step the module from rest at zero to the target.
+     * @return Settle time in seconds (NaN if it did not settle) and overshoot in degrees.
+     */
+    private static double[] run(Mk4ModuleConfiguration configuration, double target, boolean useProfile)
+    {
+        SwerveModuleSim sim = new SwerveModuleSim(DCMotor.getNEO(1), DCMotor.getNEO(1),
+                                                  Mk4iSwerveModuleHelper.GearRatio.L1.getConfiguration(), configuration);
+
+        SteerMotionProfile profile = new SteerMotionProfile(configuration.getSteerMaxVelocity(),
+                                                            configuration.getSteerMaxAcceleration(),
+                                                            configuration.getSteerKv());
+
+        profile.reset(0, 0);
+
+        double period = TimedRobot.kDefaultPeriod, tolerance = Math.toRadians(SETTLE_TOLERANCE_DEGREES);
+        double settleTime = 0, overshoot = 0, time = 0, setpoint = target, feedforward = 0;
+
+        int stepsPerLoop = (int) Math.round(period / STEP_SECONDS);
+
+        while (time < RUN_SECONDS)
+        {
+            // The robot loop gives the controller a new setpoint every 20ms.
+            if (useProfile)
+            {
+                setpoint = SteerUtils.normalizeAngle(profile.calculate(target, period));
+                feedforward = profile.getFeedforward();
+            }
+
+            for (int i = 0; i < stepsPerLoop; i++)
+            {
+                sim.updateSteer(setpoint, feedforward, BUS_VOLTAGE, STEP_SECONDS);
+
+                time += STEP_SECONDS;
+
+                double angle = sim.getSteerAngle();
+
+                overshoot = Math.max(overshoot, angle - target);
+
+                if (Math.abs(angle - target) > tolerance) settleTime = time;
+            }
+        }
+
+        return new double[] {settleTime >= RUN_SECONDS - period ? Double.NaN : settleTime, Math.toDegrees(overshoot)};
+    }
+}
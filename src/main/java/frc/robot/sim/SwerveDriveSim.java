@@ -0,0 +1,242 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.hal.simulation.SimDeviceDataJNI;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.BatterySim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import frc.robot.swervelib.Mk4ModuleConfiguration;
+import frc.robot.swervelib.ModuleConfiguration;
+import frc.robot.swervelib.SwerveDriveGroup;
+import frc.robot.swervelib.SwerveModule;
+
+/**
+ * Physics simulation of the swerve drive base.
+ * <p>
+ * Each module has a SwerveModuleSim for its motors, gearing and wheel. The chassis is
+ * a rigid body with mass and moment of inertia. At each module, the tread pushes the
+ * chassis along the wheel with a force set by wheel slip, and resists sideways motion
+ * with a scrub force, together limited by tread friction. Motor current loads the
+ * battery model, and the sagging battery voltage limits the motors.
+ * <p>
+ * The modules' commanded voltages or velocities, and angles, are the inputs. The results are written
+ * into the simulated motor controller encoders, CANCoders and navX, so robot code
+ * reads them through the same code paths as on the robot. Call update() once per
+ * robot loop from simulationPeriodic().
+ */
+public class SwerveDriveSim
+{
+    // Robot with battery and bumpers.
+    private static final double ROBOT_MASS_KG = 54;
+    private static final double ROBOT_MOI_KG_M2 = 5.5;
+
+    // Tread coefficient of friction on carpet.
+    private static final double TREAD_FRICTION = 1.1;
+
+    // Traction force per m/s of wheel slip, and scrub force per m/s of sideways motion.
+    private static final double SLIP_STIFFNESS = 700, SCRUB_STIFFNESS = 2000;
+
+    // Physics step. Matches the motor controllers' 1ms control loop.
+    private static final double STEP_SECONDS = 0.001;
+
+    private static final double GRAVITY = 9.81;
+
+    private final SwerveModule[]    modules;
+    private final SwerveModuleSim[] moduleSims;
+    private final double[]          moduleX, moduleY;
+    private final double[]          lastDistance, lastSteerAngle;
+    private final double[]          currents;
+    private final double            normalForce;
+
+    private final SimDouble         gyroYaw;
+
+    // Chassis state, field relative.
+    private double                  x, y, heading, vx, vy, omega;
+
+    /**
+     * Create the simulation.
+     * @param group The drive base modules.
+     * @param driveMotor Drive motor model, such as DCMotor.getNEO(1).
+     * @param steerMotor Steer motor model.
+     * @param moduleConfiguration Module gearing and wheel size.
+     * @param configuration Controller settings used to create the modules.
+     */
+    public SwerveDriveSim(SwerveDriveGroup group, DCMotor driveMotor, DCMotor steerMotor,
+                          ModuleConfiguration moduleConfiguration, Mk4ModuleConfiguration configuration)
+    {
+        modules = group.getModules();
+
+        int count = modules.length;
+
+        moduleSims = new SwerveModuleSim[count];
+        moduleX = new double[count];
+        moduleY = new double[count];
+        lastDistance = new double[count];
+        lastSteerAngle = new double[count];
+        currents = new double[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            Translation2d translation = group.getTranslation(i);
+
+            moduleX[i] = translation.getX();
+            moduleY[i] = translation.getY();
+
+            moduleSims[i] = new SwerveModuleSim(driveMotor, steerMotor, moduleConfiguration, configuration);
+        }
+
+        normalForce = ROBOT_MASS_KG * GRAVITY / count;
+
+        int device = SimDeviceDataJNI.getSimDeviceHandle("navX-Sensor[0]");
+
+        gyroYaw = new SimDouble(SimDeviceDataJNI.getSimValueHandle(device, "Yaw"));
+    }
+
+    /**
+     * Advance the simulation and write the results to the simulated devices.
+     * @param dtSeconds Time since the last update.
+     */
+    public void update(double dtSeconds)
+    {
+        double busVoltage = RobotController.getBatteryVoltage();
+        double startHeading = heading;
+
+        int steps = Math.max(1, (int) Math.round(dtSeconds / STEP_SECONDS));
+        double dt = dtSeconds / steps;
+
+        for (int step = 0; step < steps; step++) step(busVoltage, dt);
+
+        // Battery sag from this update's current draw limits the motors next update.
+        for (int i = 0; i < modules.length; i++) currents[i] = moduleSims[i].getCurrentDraw();
+
+        RoboRioSim.setVInVoltage(BatterySim.calculateDefaultBatteryLoadedVoltage(currents));
+
+        for (int i = 0; i < modules.length; i++)
+        {
+            SwerveModuleSim sim = moduleSims[i];
+
+            double distance = sim.getWheelDistance(), angle = sim.getSteerAngle();
+
+            modules[i].simulationUpdate(distance - lastDistance[i], sim.getWheelSpeed(), angle - lastSteerAngle[i],
+                                        sim.getSteerVelocity(), angle);
+
+            lastDistance[i] = distance;
+            lastSteerAngle[i] = angle;
+        }
+
+        // navX yaw is clockwise positive. Changed by the turn rather than set, so
+        // zeroing the navX still works.
+        double yaw = gyroYaw.get() - Math.toDegrees(heading - startHeading);
+
+        gyroYaw.set(Math.IEEEremainder(yaw, 360));
+    }
+
+    private void step(double busVoltage, double dt)
+    {
+        double cos = Math.cos(heading), sin = Math.sin(heading);
+
+        // Chassis velocity in robot frame.
+        double rvx = vx * cos + vy * sin, rvy = -vx * sin + vy * cos;
+
+        double fx = 0, fy = 0, torque = 0, maxForce = TREAD_FRICTION * normalForce;
+
+        for (int i = 0; i < modules.length; i++)
+        {
+            SwerveModuleSim sim = moduleSims[i];
+
+            sim.updateSteer(modules[i].getCommandedSteerAngle(), modules[i].getCommandedSteerFeedforward(), busVoltage, dt);
+            double velocity = modules[i].getCommandedDriveVelocity();
+
+            if (Double.isNaN(velocity))
+                sim.updateMotorForce(modules[i].getCommandedDriveVoltage(), busVoltage);
+            else
+                sim.updateMotorForce(sim.getVelocityLoopVoltage(velocity, modules[i].getCommandedDriveAcceleration()), 
+                                     busVoltage);
+
+            double angle = sim.getSteerAngle(), ux = Math.cos(angle), uy = Math.sin(angle);
+
+            // Ground velocity under the module, along and across the wheel.
+            double cvx = rvx - omega * moduleY[i], cvy = rvy + omega * moduleX[i];
+            double along = cvx * ux + cvy * uy, across = -cvx * uy + cvy * ux;
+
+            double traction = SLIP_STIFFNESS * (sim.getWheelSpeed() - along);
+            double scrub = -SCRUB_STIFFNESS * across;
+
+            // Friction circle: the tread can only push so hard in any direction.
+            double total = Math.hypot(traction, scrub);
+
+            if (total > maxForce)
+            {
+                traction *= maxForce / total;
+                scrub *= maxForce / total;
+            }
+
+            sim.updateWheel(traction, dt);
+
+            double mfx = traction * ux - scrub * uy, mfy = traction * uy + scrub * ux;
+
+            fx += mfx;
+            fy += mfy;
+            torque += moduleX[i] * mfy - moduleY[i] * mfx;
+        }
+
+        // Back to field frame.
+        double ax = (fx * cos - fy * sin) / ROBOT_MASS_KG, ay = (fx * sin + fy * cos) / ROBOT_MASS_KG;
+
+        vx += ax * dt;
+        vy += ay * dt;
+        omega += torque / ROBOT_MOI_KG_M2 * dt;
+
+        x += vx * dt;
+        y += vy * dt;
+        heading += omega * dt;
+    }
+
+    /**
+     * Place the simulated robot, at rest. Does not change the navX.
+     * @param pose Field pose.
+     */
+    public void resetPose(Pose2d pose)
+    {
+        x = pose.getX();
+        y = pose.getY();
+        heading = pose.getRotation().getRadians();
+        vx = vy = omega = 0;
+    }
+
+    /**
+     * @return The simulated robot's true pose, for comparing to odometry.
+     */
+    public Pose2d getPose()
+    {
+        return new Pose2d(x, y, new Rotation2d(heading));
+    }
+
+    /**
+     * @return True X position in meters.
+     */
+    public double getX()
+    {
+        return x;
+    }
+
+    /**
+     * @return True Y position in meters.
+     */
+    public double getY()
+    {
+        return y;
+    }
+
+    /**
+     * @return True heading in radians, CCW positive.
+     */
+    public double getHeading()
+    {
+        return heading;
+    }
+}
@@ -0,0 +1,226 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.swervelib.ModuleConfiguration;
+import frc.robot.swervelib.Mk4ModuleConfiguration;
+import frc.robot.swervelib.SteerUtils;
+
+/**
+ * Physics model of one swerve module: drive motor and wheel, and steer motor and
+ * module azimuth.
+ * <p>
+ * The drive wheel has its own speed, so it can spin faster or slower than the
+ * ground under it. The difference (slip) makes the traction force that SwerveDriveSim
+ * applies to the chassis, and the traction force loads the wheel back. Motor current
+ * is limited like the controllers' smart current limit. The steer motor is run by a
+ * model of the controller's onboard position PID, which a simulated SPARK MAX does
+ * not run, and drives the azimuth inertia through the steer reduction. Likewise the
+ * drive motor's onboard velocity loop is modelled for closed loop driving.
+ */
+public class SwerveModuleSim
+{
+    // Rotor inertia of a NEO or Falcon, kg m^2. Reflected through the reduction it
+    // is most of the drive inertia.
+    private static final double ROTOR_INERTIA = 0.00007;
+
+    // Wheel and tread inertia about the axle, kg m^2.
+    private static final double WHEEL_INERTIA = 0.0006;
+
+    // Module azimuth inertia about the steer axis, kg m^2.
+    private static final double STEER_INERTIA = 0.004;
+
+    // Rolling resistance of the wheel and drive gearing, newtons.
+    private static final double ROLLING_RESISTANCE = 2.0;
+
+    // Voltage lost to steer gearing and tread scrub friction.
+    private static final double STEER_FRICTION_VOLTS = 0.15;
+
+    private final DCMotor       driveMotor, steerMotor;
+    private final double        driveReduction, wheelRadius;
+    private final double        wheelMass;
+    private final double        driveCurrentLimit, steerCurrentLimit;
+    private final double        nominalSteerVoltage, steerP, steerD, steerGearing;
+    private final double        nominalDriveVoltage, driveVelocityP;
+    private final SimpleMotorFeedforward driveFeedforward;
+    private final DCMotorSim    steerSim;
+
+    private double              wheelSpeed, wheelDistance, motorForce;
+    private double              driveCurrent, steerCurrent, lastSteerError;
+
+    /**
+     * Create a module model.
+     * @param driveMotor Drive motor model.
+     * @param steerMotor Steer motor model.
+     * @param moduleConfiguration Module gearing and wheel size.
+     * @param configuration Controller settings: current limits, steer voltage and PID.
+     */
+    public SwerveModuleSim(DCMotor driveMotor, DCMotor steerMotor, ModuleConfiguration moduleConfiguration,
+                           Mk4ModuleConfiguration configuration)
+    {
+        this.driveMotor = driveMotor;
+        this.steerMotor = steerMotor;
+
+        driveReduction = moduleConfiguration.getDriveReduction();
+        wheelRadius = moduleConfiguration.getWheelDiameter() / 2;
+
+        // Drive inertia as an equivalent mass at the tread.
+        wheelMass = (ROTOR_INERTIA / (driveReduction * driveReduction) + WHEEL_INERTIA) / (wheelRadius * wheelRadius);
+
+        driveCurrentLimit = configuration.getDriveCurrentLimit();
+        steerCurrentLimit = configuration.getSteerCurrentLimit();
+        nominalSteerVoltage = configuration.getNominalSteerVoltage();
+        steerP = configuration.getSteerP();
+        steerD = configuration.getSteerD();
+
+        nominalDriveVoltage = configuration.getNominalDriveVoltage();
+        driveVelocityP = configuration.getDriveVelocityP();
+        driveFeedforward = new SimpleMotorFeedforward(configuration.getDriveKs(), configuration.getDriveKv(),
+                                                      configuration.getDriveKa());
+
+        steerGearing = 1 / moduleConfiguration.getSteerReduction();
+
+        steerSim = new DCMotorSim(steerMotor, steerGearing, STEER_INERTIA);
+    }
+
+    /**
+     * Drive voltage from the controller's onboard velocity loop, which a simulated
+     * controller does not run, plus the feedforward the robot code sends with the
+     * setpoint. The controller runs its loop every millisecond, so steps should be 1ms.
+     * @param velocity Commanded wheel velocity in m/s.
+     * @param acceleration Commanded wheel acceleration in m/s/s.
+     * @return Drive voltage.
+     */
+    double getVelocityLoopVoltage(double velocity, double acceleration)
+    {
+        double voltage = driveFeedforward.calculate(velocity, acceleration) + driveVelocityP * (velocity - wheelSpeed);
+
+        return clamp(voltage, nominalDriveVoltage);
+    }
+
+    /**
+     * Compute the drive motor's force at the tread for this step.
+     * @param voltage Commanded drive voltage.
+     * @param busVoltage Battery voltage.
+     * @return Force in newtons.
+     */
+    double updateMotorForce(double voltage, double busVoltage)
+    {
+        voltage = clamp(voltage, busVoltage);
+
+        double motorSpeed = wheelSpeed / wheelRadius / driveReduction;
+
+        driveCurrent = clamp(driveMotor.getCurrent(motorSpeed, voltage), driveCurrentLimit);
+
+        motorForce = driveMotor.getTorque(driveCurrent) / driveReduction / wheelRadius;
+
+        return motorForce;
+    }
+
+    /**
+     * Advance the wheel by one step.
+     * @param tractionForce Force of the ground on the tread, opposing the wheel, in newtons.
+     * @param dt Step in seconds.
+     */
+    void updateWheel(double tractionForce, double dt)
+    {
+        double rolling = ROLLING_RESISTANCE * Math.tanh(wheelSpeed / 0.05);
+
+        wheelSpeed += (motorForce - tractionForce - rolling) / wheelMass * dt;
+        wheelDistance += wheelSpeed * dt;
+    }
+
+    /**
+     * Advance the steer by one step, running the controller's position PID. The
+     * controller runs its loop every millisecond, so steps should be 1ms.
+     * @param targetAngle Commanded module angle in radians, NaN if the motor is stopped.
+     * @param feedforward Feedforward volts sent with the target.
+     * @param busVoltage Battery voltage.
+     * @param dt Step in seconds.
+     */
+    void updateSteer(double targetAngle, double feedforward, double busVoltage, double dt)
+    {
+        double angle = steerSim.getAngularPositionRad(), voltage = 0;
+
+        if (!Double.isNaN(targetAngle))
+        {
+            double error = SteerUtils.unwrapReferenceAngle(targetAngle, angle) - angle;
+
+            // The controller adds the feedforward to the PID output and limits the total.
+            voltage = clamp((steerP * error + steerD * (error - lastSteerError)) * nominalSteerVoltage + feedforward,
+                            nominalSteerVoltage);
+
+            lastSteerError = error;
+        }
+        else
+            lastSteerError = 0;
+
+        voltage = clamp(voltage, busVoltage);
+
+        double motorSpeed = steerSim.getAngularVelocityRadPerSec() * steerGearing;
+
+        // Current limit by reducing the voltage, as the controller does.
+        steerCurrent = steerMotor.getCurrent(motorSpeed, voltage);
+
+        if (Math.abs(steerCurrent) > steerCurrentLimit)
+        {
+            steerCurrent = Math.copySign(steerCurrentLimit, steerCurrent);
+            voltage = steerCurrent * steerMotor.rOhms + motorSpeed / steerMotor.KvRadPerSecPerVolt;
+        }
+
+        // Friction takes a little of the voltage, and holds the module still below it.
+        if (Math.abs(voltage) <= STEER_FRICTION_VOLTS && Math.abs(motorSpeed) < 1)
+            voltage = 0;
+        else
+            voltage -= Math.copySign(STEER_FRICTION_VOLTS, motorSpeed != 0 ? motorSpeed : voltage);
+
+        steerSim.setInputVoltage(voltage);
+        steerSim.update(dt);
+    }
+
+    /**
+     * @return Wheel tread speed in meters per second.
+     */
+    public double getWheelSpeed()
+    {
+        return wheelSpeed;
+    }
+
+    /**
+     * @return Wheel distance travelled in meters.
+     */
+    public double getWheelDistance()
+    {
+        return wheelDistance;
+    }
+
+    /**
+     * @return Module angle in radians, unbounded, zero is straight ahead.
+     */
+    public double getSteerAngle()
+    {
+        return steerSim.getAngularPositionRad();
+    }
+
+    /**
+     * @return Module angular velocity in radians per second.
+     */
+    public double getSteerVelocity()
+    {
+        return steerSim.getAngularVelocityRadPerSec();
+    }
+
+    /**
+     * @return Battery current drawn by both motors in amps.
+     */
+    public double getCurrentDraw()
+    {
+        return Math.abs(driveCurrent) + Math.abs(steerCurrent);
+    }
+
+    private static double clamp(double value, double limit)
+    {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
@@ -4,35 +4,64 @@
 
 package frc.robot.subsystems;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
 import com.ctre.phoenix.unmanaged.Unmanaged;
 import com.kauailabs.navx.frc.AHRS;
-import com.revrobotics.REVPhysicsSim;
 
+import frc.robot.sim.SwerveDriveSim;
+import frc.robot.swervelib.ChassisSpeedsDiscretizer;
+import frc.robot.swervelib.DefaultModuleStateOptimizer;
+import frc.robot.swervelib.DeviceConfigurator;
+import frc.robot.swervelib.DrivetrainScheduler;
+import frc.robot.swervelib.GyroIO;
+import frc.robot.swervelib.GyroInputs;
+import frc.robot.swervelib.GyroSampleBuffer;
+import frc.robot.swervelib.HardwareReadCounter;
+import frc.robot.swervelib.Mk4ModuleConfiguration;
 import frc.robot.swervelib.Mk4iSwerveModuleHelper;
+import frc.robot.swervelib.PrimitiveSwerveKinematics;
+import frc.robot.swervelib.PoseHistory;
+import frc.robot.swervelib.PrimitiveSwerveOdometry;
 import frc.robot.swervelib.SdsModuleConfigurations;
+import frc.robot.swervelib.StatusFrameManager;
+import frc.robot.swervelib.SwerveDriveGroup;
 import frc.robot.swervelib.SwerveModule;
+import frc.robot.swervelib.SwerveModuleDefinition;
+import frc.robot.swervelib.kauailabs.NavXGyroIO;
+import frc.robot.telemetry.AllocationMonitor;
+import frc.robot.telemetry.DriveInputLog;
+import frc.robot.telemetry.LoopTimer;
+import frc.robot.telemetry.TelemetryPublisher;
+import frc.robot.vision.NetworkTablesVisionSource;
+import frc.robot.vision.VisionObservationQueue;
+import frc.robot.vision.VisionPipeline;
+import frc.robot.vision.VisionReplaySource;
 
 import Team4450.Lib.LCD;
 import Team4450.Lib.Util;
 
-import edu.wpi.first.hal.SimDouble;
-import edu.wpi.first.hal.simulation.SimDeviceDataJNI;
-import edu.wpi.first.math.VecBuilder;
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.shuffleboard.BuiltInLayouts;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
 
 import static frc.robot.Constants.*;
 
@@ -42,7 +71,9 @@ public class SwerveDriveBase extends SubsystemBase
   private boolean       overrideExecute;
   private double        overrideTime;
 
-  private SimDouble     simAngle; // navx sim.
+  // Drive base physics model, simulation only.
+  private SwerveDriveSim  m_driveSim;
+  private double          m_simPoseError;
 
   /**
    * The maximum voltage that will be delivered to the drive motors.
@@ -51,6 +82,37 @@ public class SwerveDriveBase extends SubsystemBase
    */
   public static final double MAX_VOLTAGE = 6.0; //12.0;
 
+  // Module gearing, used to create the modules and by the simulation.
+  private static final Mk4iSwerveModuleHelper.GearRatio MODULE_GEAR_RATIO = Mk4iSwerveModuleHelper.GearRatio.L1;
+
+  // Number of devices configured at the same time at boot.
+  private static final int DEVICE_CONFIGURATION_THREADS = 4;
+
+  /**
+   * Drive base geometry table, one row per swerve module in kinematics order, built from
+   * the module positions, CAN IDs and steer offsets in Constants. Module translations,
+   * kinematics and module creation all come from this table. Any number of modules
+   * (3, 4, 6...) can be listed.
+   */
+  public static final SwerveModuleDefinition[] SWERVE_MODULES = {
+      new SwerveModuleDefinition(ModulePosition.FL, "Front Left Module",
+          DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0,
+          FRONT_LEFT_MODULE_DRIVE_MOTOR, FRONT_LEFT_MODULE_STEER_MOTOR, FRONT_LEFT_MODULE_STEER_ENCODER,
+          FRONT_LEFT_MODULE_STEER_OFFSET),
+      new SwerveModuleDefinition(ModulePosition.FR, "Front Right Module",
+          DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0,
+          FRONT_RIGHT_MODULE_DRIVE_MOTOR, FRONT_RIGHT_MODULE_STEER_MOTOR, FRONT_RIGHT_MODULE_STEER_ENCODER,
+          FRONT_RIGHT_MODULE_STEER_OFFSET),
+      new SwerveModuleDefinition(ModulePosition.BL, "Back Left Module",
+          -DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0,
+          BACK_LEFT_MODULE_DRIVE_MOTOR, BACK_LEFT_MODULE_STEER_MOTOR, BACK_LEFT_MODULE_STEER_ENCODER,
+          BACK_LEFT_MODULE_STEER_OFFSET),
+      new SwerveModuleDefinition(ModulePosition.BR, "Back Right Module",
+          -DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0,
+          BACK_RIGHT_MODULE_DRIVE_MOTOR, BACK_RIGHT_MODULE_STEER_MOTOR, BACK_RIGHT_MODULE_STEER_ENCODER,
+          BACK_RIGHT_MODULE_STEER_OFFSET)
+  };
+
   //  Measure the drivetrain's maximum velocity or calculate the theoretical.
   //  The formula for calculating the theoretical maximum velocity is:
   //   <Motor free speed RPM> / 60 * <Drive reduction> * <Wheel diameter meters> * pi
@@ -75,69 +137,346 @@ public class SwerveDriveBase extends SubsystemBase
    */
 
   // Here we calculate the theoretical maximum angular velocity. You can also replace this with a measured amount.
+  // The module farthest from robot center sets the maximum angular velocity.
   public static final double MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND = MAX_VELOCITY_METERS_PER_SECOND /
-          Math.hypot(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0);
-          
-  private final SwerveDriveKinematics m_kinematics = new SwerveDriveKinematics(
-          // Front left
-          new Translation2d(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0),
-          // Front right
-          new Translation2d(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0),
-          // Back left
-          new Translation2d(-DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0),
-          // Back right
-          new Translation2d(-DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0)
-  );
+          SwerveModuleDefinition.getMaxRadius(SWERVE_MODULES);
+
+  // Drive the modules with the drive motor controllers' onboard velocity loop and feedforward
+  // (kS/kV/kA in Mk4ModuleConfiguration). False drives open loop, scaling speed to voltage.
+  private static final boolean CLOSED_LOOP_DRIVE = true;
+
+  /**
+   * The speed limit when driving closed loop: the speed MAX_VOLTAGE gives open loop, so
+   * lowering MAX_VOLTAGE still caps the robot's speed.
+   */
+  public static final double MAX_DRIVE_VELOCITY_METERS_PER_SECOND = MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE / 12.0;
+
+  // Tread coefficient of friction on carpet.
+  private static final double TREAD_FRICTION = 1.1;
+
+  /**
+   * The fastest a wheel can change speed when driving closed loop, which bounds the
+   * acceleration given to the drive feedforward: the tread's grip, or the drive motor
+   * at MAX_VOLTAGE from a standstill, whichever is lower.
+   */
+  public static final double MAX_DRIVE_ACCELERATION_METERS_PER_SECOND_SQUARED = getMaxDriveAcceleration();
+
+  // Correct the chassis speeds for the robot turning during the loop they are applied for
+  // (see ChassisSpeedsDiscretizer), so translating while rotating does not drift sideways.
+  private static final boolean DISCRETIZE_CHASSIS_SPEEDS = true;
+
+  // Also correct field relative speeds for the robot turning between the heading reading
+  // they were made robot relative with and the periodic that applies them.
+  private static final boolean COMPENSATE_COMMAND_LATENCY = true;
+
+  // Latency beyond this is a stale command (robot disabled, loop overrun), not compensated.
+  private static final double MAX_COMMAND_LATENCY_SECONDS = 0.1;
+
+  // When every module speed is below this the robot is stopping and the drive commands
+  // are zeroed.
+  private static final double STOP_SPEED_METERS_PER_SECOND = 0.01;
+
+  // A module commanded slower than this holds its last steer angle (see
+  // DefaultModuleStateOptimizer) rather than chase the angles of tiny commands, so the
+  // wheels don't swing as the robot slows and stops.
+  private static final double HOLD_SPEED_METERS_PER_SECOND = 0.1;
+
+  // Steer error past 90 degrees before a module changes its decision to drive backwards.
+  private static final double FLIP_HYSTERESIS_DEGREES = 10.0;
+
+  // NetworkTables table the vision coprocessor publishes robot poses to, and the replay
+  // file (in the deploy directory) used instead in simulation if it exists.
+  private static final String VISION_TABLE = "vision";
+  private static final String VISION_REPLAY_FILE = "vision/replay.txt";
+
+  // Record every loop's drive inputs (sensor snapshots, heading, driver axes) on the
+  // robot, to replay in simulation with ./gradlew replayDriveInputs.
+  private static final boolean RECORD_DRIVE_INPUTS = true;
+
+  // WPILib kinematics (from the drive group) is used by the odometry thread's pose
+  // estimator. The periodic drive path uses the primitive version which does not allocate.
+  private final PrimitiveSwerveKinematics m_driveKinematics;
 
   // The important thing about how you configure your gyroscope is that rotating the robot counter-clockwise should
   // cause the angle reading to increase until it wraps back over to zero.
   
-  private final AHRS m_navx = new AHRS(SPI.Port.kMXP, (byte) 200); // NavX connected over MXP
+  // NavX connected over MXP. Null when the drive base is given its gyro.
+  private final AHRS m_navx;
+
+  // Every navX update (200hz), recorded by its data callback so the heading can be read
+  // at any time in the last 0.64 seconds. In simulation the navX sends no callbacks and
+  // the gyro IO feeds the buffer once per loop.
+  private final GyroSampleBuffer m_gyroSamples;
+
+  // The gyro as the drive logic reads it, and its readings for this cycle.
+  private final GyroIO           m_gyroIO;
+  private final GyroInputs       m_gyroInputs = new GyroInputs();
+
+  // These are our modules, one per row of the SWERVE_MODULES geometry table. We
+  // initialize them in the constructor. The array is the group's, in kinematics order.
+  private final SwerveDriveGroup m_driveGroup;
+  private final SwerveModule[]   m_modules;
+
+  // Switches the modules' CAN status frame rates with robot state and bus load.
+  private final StatusFrameManager m_statusFrameManager;
+
+  // Mutated in place by the drive() methods so the periodic path allocates nothing.
+  private final ChassisSpeeds m_chassisSpeeds = new ChassisSpeeds(0.0, 0.0, 0.0);
+
+  // The speeds periodic applies after discretization. Reused each cycle.
+  private final ChassisSpeeds m_discreteSpeeds = new ChassisSpeeds(0.0, 0.0, 0.0);
+
+  // Time of the sensor readings the chassis speeds were made robot relative with, and
+  // whether they are field relative (made robot relative with the heading at that time).
+  private double              m_chassisSpeedsTimestamp;
+  private boolean             m_chassisSpeedsFieldRelative;
+  private double              m_commandLatency;
+
+  // Robot relative acceleration planned with the chassis speeds (trajectories), NaN if
+  // none was given and the modules' acceleration is taken from the change in speed.
+  private double              m_chassisAx = Double.NaN, m_chassisAy = Double.NaN;
+
+  // Odometry runs on its own thread at a higher rate than this subsystem's periodic.
+  // Created in the constructor once the modules exist.
+  private final SwerveOdometryThread m_odometryThread;
+
+  // Commanded and measured module states, sampled once per periodic. Reused each cycle.
+  private final double[]  m_commandedSpeeds = new double[SWERVE_MODULES.length];
+  private final double[]  m_commandedAngles = new double[SWERVE_MODULES.length];
+  private final double[]  m_measuredSpeeds = new double[SWERVE_MODULES.length];
+  private final double[]  m_measuredAngles = new double[SWERVE_MODULES.length];
+
+  // Shadow odometry fed from whichever state source the odometry thread is not
+  // using, so commanded vs measured odometry can be compared live.
+  private final PrimitiveSwerveOdometry m_compareOdometry;
+
+  private double      odometryError;
 
-  // These are our modules. We initialize them in the constructor.
-  private final SwerveModule m_frontLeftModule;
-  private final SwerveModule m_frontRightModule;
-  private final SwerveModule m_backLeftModule;
-  private final SwerveModule m_backRightModule;
+  // navX readings taken once per cycle with the module sensor snapshots, and when.
+  private double      m_headingDegrees, m_sensorTimestamp;
 
-  private ChassisSpeeds m_chassisSpeeds = new ChassisSpeeds(0.0, 0.0, 0.0);
+  // The heading as a Rotation2d, built from the heading it was last asked for with.
+  private Rotation2d  m_headingRotation;
+  private double      m_headingRotationDegrees;
 
-  private final SwerveDrivePoseEstimator m_odometry = new SwerveDrivePoseEstimator(
-      getGyroRotation2d(),
-      new Pose2d(),
-      m_kinematics,
-      VecBuilder.fill(0.1, 0.1, 0.1),
-      VecBuilder.fill(0.05),
-      VecBuilder.fill(0.1, 0.1, 0.1));
+  // Module poses on the field for display. Robot pose is x, y, degrees and the
+  // module poses are x, y, degrees for each module in order.
+  private final double[]  m_robotPose = new double[3];
+  private final double[]  m_modulePoses = new double[SWERVE_MODULES.length * 3];
 
   private final Field2d     field2d = new Field2d();
 
+  // Values published by TelemetryPublisher at a limited rate. Sampled once per periodic.
+  private double          m_hardwareReads, m_allocBytes;
+
+  private final AllocationMonitor allocationMonitor = new AllocationMonitor("SwerveDriveBase", 500);
+
+  // Vision observations queued by the vision source, filtered each loop by the pipeline.
+  private final VisionObservationQueue  m_visionObservations = new VisionObservationQueue(32);
+  private VisionPipeline                m_visionPipeline;
+  private NetworkTablesVisionSource     m_visionSource;
+  private VisionReplaySource            m_visionReplay;
+
+  private final LoopTimer.Phase periodicPhase = LoopTimer.getSchedulerPhase("SwerveDriveBase");
+  private final LoopTimer.Phase field2dPhase = LoopTimer.getSchedulerPhase("SwerveDriveBase.field2d");
+
   public SwerveDriveBase() 
+  {
+    this(new AHRS(SPI.Port.kMXP, (byte) 200), null, null);
+  }
+
+  /**
+   * Create the drive base on the given gyro and modules instead of the robot's devices,
+   * to run the drive logic on simulated or no-op IO (SimGyroIO, SimModuleIO) with no
+   * vendor libraries. There is no physics model or vision source.
+   * @param gyroIO The gyro.
+   * @param modules The modules, one per row of the SWERVE_MODULES geometry table, in order.
+   */
+  public SwerveDriveBase(GyroIO gyroIO, SwerveModule... modules)
+  {
+    this(null, gyroIO, modules);
+  }
+
+  private SwerveDriveBase(AHRS navx, GyroIO gyroIO, SwerveModule[] modules)
   {
     Util.consoleLog();
 
-    // This thread will wait a bit and then reset the gyro while this constructor
+    m_navx = navx;
+
+    if (navx != null)
+    {
+      NavXGyroIO navxIO = new NavXGyroIO(navx, new GyroSampleBuffer(128));
+
+      navxIO.start();
+
+      gyroIO = navxIO;
+    }
+
+    m_gyroIO = gyroIO;
+    m_gyroSamples = gyroIO.getSamples();
+
+    // Reset the gyro in a second, on the drivetrain scheduler, while this constructor
     // continues to run. We do this because we have to wait a bit to reset the
-    // gyro after creating it.
+    // gyro after creating it. The robot starts disabled, so don't cancel on disable.
 
-    new Thread(() -> {
-      try {
-        Thread.sleep(1000);
-        zeroGyro();
-      } catch (Exception e) { }
-    }).start();
+    DrivetrainScheduler.getInstance().schedule("Zero gyro", 1.0, false, this::zeroGyro);
 
     ShuffleboardTab tab = Shuffleboard.getTab("Drivetrain");
 
-    if (RobotBase.isSimulation()) 
+    SmartDashboard.putData("Field2d", field2d);
+
+    NetworkTable fieldTable = NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable("Field2d");
+
+    // Field2d entries are published directly from reused arrays. Field2d.setPoses() allocates.
+    TelemetryPublisher.addDoubleArray(fieldTable.getEntry("Robot"), m_robotPose, TelemetryPublisher.POSE_HZ, 0.001);
+    TelemetryPublisher.addDoubleArray(fieldTable.getEntry("Swerve Modules"), m_modulePoses, TelemetryPublisher.POSE_HZ, 0.001);
+
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Odometry Error"), this::getOdometryError, 
+                                 TelemetryPublisher.DIAGNOSTIC_HZ, 0.001);
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Drive Alloc Bytes"), () -> m_allocBytes, 
+                                 TelemetryPublisher.DIAGNOSTIC_HZ, 0);
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Drive Hardware Reads"), () -> m_hardwareReads, 
+                                 TelemetryPublisher.DIAGNOSTIC_HZ, 0);
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Drive Command Latency"), () -> m_commandLatency, 
+                                 TelemetryPublisher.DIAGNOSTIC_HZ, 0.001);
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Drive Task Jitter"), 
+                                 DrivetrainScheduler.getInstance()::getMaxJitterMs, TelemetryPublisher.DIAGNOSTIC_HZ, 0.01);
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Drive Task Deadline Misses"), 
+                                 DrivetrainScheduler.getInstance()::getDeadlineMisses, TelemetryPublisher.DIAGNOSTIC_HZ, 0);
+
+    // Count device reads made on this (the robot main) thread.
+    HardwareReadCounter.setLoopThread(Thread.currentThread());
+
+    // These never change so print them once rather than every periodic.
+    LCD.printLine(3, "max vel=%.3fms  max ang vel=%.3frs  voltage=%.1f",
+        MAX_VELOCITY_METERS_PER_SECOND,
+        MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND,
+        MAX_VOLTAGE);
+
+    // Create a module for each row of the geometry table. The group sets each module's
+    // translation and builds the kinematics from the same table. The modules' motor
+    // controllers and encoders are configured concurrently to shorten boot time.
+
+    if (modules == null)
     {
-      var dev = SimDeviceDataJNI.getSimDeviceHandle("navX-Sensor[0]");
+      DeviceConfigurator configurator = new DeviceConfigurator(DEVICE_CONFIGURATION_THREADS);
 
-      simAngle = new SimDouble((SimDeviceDataJNI.getSimValueHandle(dev, "Yaw")));
+      m_driveGroup = SwerveDriveGroup.create(SWERVE_MODULES, configurator, 
+          (definition, index) -> createModule(configurator, tab, definition, index));
     }
+    else
+    {
+      if (modules.length != SWERVE_MODULES.length)
+        throw new IllegalArgumentException(modules.length + " modules for " + SWERVE_MODULES.length + " table rows");
 
-    SmartDashboard.putData("Field2d", field2d);
+      m_driveGroup = new SwerveDriveGroup(SWERVE_MODULES, (definition, index) -> modules[index]);
+    }
+
+    m_modules = m_driveGroup.getModules();
+
+    m_statusFrameManager = new StatusFrameManager(m_driveGroup);
+
+    // Drive commands are m/s closed loop, volts open loop.
+    double holdDrive = CLOSED_LOOP_DRIVE ? HOLD_SPEED_METERS_PER_SECOND 
+                                         : HOLD_SPEED_METERS_PER_SECOND / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE;
 
+    m_driveGroup.setStateOptimizer(new DefaultModuleStateOptimizer(holdDrive, Math.toRadians(FLIP_HYSTERESIS_DEGREES), 
+                                                                   true));
+
+    m_driveKinematics = m_driveGroup.createPrimitiveKinematics();
+    m_compareOdometry = new PrimitiveSwerveOdometry(m_driveGroup.createPrimitiveKinematics());
+
+    // In simulation the drive base physics model feeds the modules' encoders and the
+    // navX, so the rest of the code runs as on the robot.
+    if (RobotBase.isSimulation() && navx != null)
+    {
+      m_driveSim = new SwerveDriveSim(m_driveGroup, DCMotor.getNEO(1), DCMotor.getNEO(1), 
+                                      MODULE_GEAR_RATIO.getConfiguration(), Mk4ModuleConfiguration.getDefaultNeoConfig());
+
+      TelemetryPublisher.addNumber(SmartDashboard.getEntry("Sim Pose Error"), () -> m_simPoseError, 
+                                   TelemetryPublisher.DIAGNOSTIC_HZ, 0.001);
+    }
+
+    resetModuleEncoders();
+    //setModulesToAbsolute();
+
+    readSensors();
+
+    // The odometry thread runs faster than the loop so takes the latest gyro sample itself.
+    m_odometryThread = new SwerveOdometryThread(m_driveGroup.getKinematics(), 
+        () -> getHeadingDegreesAt(Timer.getFPGATimestamp()), m_modules);
+
+    // Set starting position on field.
+    setOdometry(new Pose2d(1.03, 2.825, new Rotation2d(0)));
+
+    // Replaying, the loop updates odometry from the replayed snapshots instead.
+    if (DriveInputLog.isReplaying())
+    {
+      if (DriveInputLog.getModuleCount() != m_modules.length)
+        throw new IllegalStateException("drive input log has " + DriveInputLog.getModuleCount() + " modules");
+    }
+    else
+      m_odometryThread.start();
+
+    // Log every loop's inputs on the robot, to replay in simulation.
+    if (RECORD_DRIVE_INPUTS && RobotBase.isReal()) DriveInputLog.startRecording(m_modules.length);
+
+    m_visionPipeline = new VisionPipeline(m_visionObservations, m_gyroSamples, m_odometryThread.getPoseHistory());
+
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Vision Accepted"), m_visionPipeline::getAcceptedCount, 
+                                 TelemetryPublisher.DIAGNOSTIC_HZ, 0);
+    TelemetryPublisher.addNumber(SmartDashboard.getEntry("Vision Rejected"), m_visionPipeline::getRejectedCount, 
+                                 TelemetryPublisher.DIAGNOSTIC_HZ, 0);
+
+    // Given its gyro and modules the drive base has no camera, the pipeline has no source.
+    if (navx != null) startVision();
+    
+    updateDS();
+  }
+
+  private static double getMaxDriveAcceleration()
+  {
+    Mk4ModuleConfiguration configuration = Mk4ModuleConfiguration.getDefaultNeoConfig();
+
+    return Math.min(TREAD_FRICTION * 9.81, (MAX_VOLTAGE - configuration.getDriveKs()) / configuration.getDriveKa());
+  }
+
+  /**
+   * Start the vision source: the coprocessor over NetworkTables, or in simulation the
+   * replay file if there is one.
+   */
+  private void startVision()
+  {
+    File replayFile = new File(Filesystem.getDeployDirectory(), VISION_REPLAY_FILE);
+
+    // Vision is not in drive input logs, so a drive input replay runs without it.
+    if (RobotBase.isSimulation() && replayFile.exists() && !DriveInputLog.isReplaying())
+    {
+      try
+      {
+        m_visionReplay = new VisionReplaySource(replayFile, m_visionObservations);
+      }
+      catch (IOException e) { Util.logException(e); }
+    }
+    else
+    {
+      m_visionSource = new NetworkTablesVisionSource(NetworkTableInstance.getDefault().getTable(VISION_TABLE), 
+                                                     m_visionObservations);
+      m_visionSource.start();
+    }
+  }
+
+  /**
+   * Start creating the swerve module for one row of the geometry table.
+   * @param configurator Configures the module's devices.
+   * @param tab Dashboard tab for the module's layout.
+   * @param definition The module's geometry table row.
+   * @param index The module's index in the table.
+   * @return Future completed with the module.
+   */
+  private static CompletableFuture<SwerveModule> createModule(DeviceConfigurator configurator, ShuffleboardTab tab, 
+                                                              SwerveModuleDefinition definition, int index)
+  {
     // There are 4 methods you can call to create your swerve modules.
     // The method you use depends on what motors you are using.
     //
@@ -159,81 +498,27 @@ public class SwerveDriveBase extends SubsystemBase
     // The Mk4ModuleConfiguration object contains all of the configurable tuning parameters available for
     // modules. If you wish to adjust this configuration, create a Mk4MmoduleConfiguration object here and
     // call it's methods to set the parameters you wish to adjust and then pass that configuration object 
-    // to each of the createNeo calls below, adding the configuration object just ahead of the GearRatio
+    // to the createNeo call below, adding the configuration object just ahead of the GearRatio
     // parameter. The default Mk4ModuleConfiguration is currently customized for Neos.
-    
-    m_frontLeftModule = Mk4iSwerveModuleHelper.createNeo(
-            ModulePosition.FL,
+
+    return Mk4iSwerveModuleHelper.createNeo(
+            configurator,
+            definition.getPosition(),
             // This parameter is optional, but will allow you to see the current state of the module on the dashboard.
-            tab.getLayout("Front Left Module", BuiltInLayouts.kList)
+            tab.getLayout(definition.getName(), BuiltInLayouts.kList)
                     .withSize(2, 4)
-                    .withPosition(0, 0),
+                    .withPosition(index * 2, 0),
             // This can either be STANDARD or FAST depending on your gear configuration
-            Mk4iSwerveModuleHelper.GearRatio.L1,
+            MODULE_GEAR_RATIO,
             // This is the ID of the drive motor
-            FRONT_LEFT_MODULE_DRIVE_MOTOR,
+            definition.getDriveMotorId(),
             // This is the ID of the steer motor
-            FRONT_LEFT_MODULE_STEER_MOTOR,
+            definition.getSteerMotorId(),
             // This is the ID of the steer encoder
-            FRONT_LEFT_MODULE_STEER_ENCODER,
+            definition.getSteerEncoderId(),
             // This is how much the steer encoder is offset from true zero (In our case, zero is facing straight forward)
-            FRONT_LEFT_MODULE_STEER_OFFSET
-    );
-
-    // Sets the module center translation from center of robot.
-    m_frontLeftModule.setTranslation2d(new Translation2d(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0));
-    
-    // We will do the same for the other modules
-
-    m_frontRightModule = Mk4iSwerveModuleHelper.createNeo(
-            ModulePosition.FR,
-            tab.getLayout("Front Right Module", BuiltInLayouts.kList)
-                    .withSize(2, 4)
-                    .withPosition(2, 0),
-            Mk4iSwerveModuleHelper.GearRatio.L1,
-            FRONT_RIGHT_MODULE_DRIVE_MOTOR,
-            FRONT_RIGHT_MODULE_STEER_MOTOR,
-            FRONT_RIGHT_MODULE_STEER_ENCODER,
-            FRONT_RIGHT_MODULE_STEER_OFFSET
+            definition.getSteerOffset()
     );
-
-    m_frontRightModule.setTranslation2d(new Translation2d(DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0));
-    
-    m_backLeftModule = Mk4iSwerveModuleHelper.createNeo(
-            ModulePosition.BL,
-            tab.getLayout("Back Left Module", BuiltInLayouts.kList)
-                    .withSize(2, 4)
-                    .withPosition(4, 0),
-            Mk4iSwerveModuleHelper.GearRatio.L1,
-            BACK_LEFT_MODULE_DRIVE_MOTOR,
-            BACK_LEFT_MODULE_STEER_MOTOR,
-            BACK_LEFT_MODULE_STEER_ENCODER,
-            BACK_LEFT_MODULE_STEER_OFFSET
-    );
-
-    m_backLeftModule.setTranslation2d(new Translation2d(-DRIVETRAIN_TRACKWIDTH_METERS / 2.0, DRIVETRAIN_WHEELBASE_METERS / 2.0));
-
-    m_backRightModule = Mk4iSwerveModuleHelper.createNeo(
-            ModulePosition.BR,
-            tab.getLayout("Back Right Module", BuiltInLayouts.kList)
-                    .withSize(2, 4)
-                    .withPosition(6, 0),
-            Mk4iSwerveModuleHelper.GearRatio.L1,
-            BACK_RIGHT_MODULE_DRIVE_MOTOR,
-            BACK_RIGHT_MODULE_STEER_MOTOR,
-            BACK_RIGHT_MODULE_STEER_ENCODER,
-            BACK_RIGHT_MODULE_STEER_OFFSET
-    );
-
-    m_backRightModule.setTranslation2d(new Translation2d(-DRIVETRAIN_TRACKWIDTH_METERS / 2.0, -DRIVETRAIN_WHEELBASE_METERS / 2.0));
-    
-    resetModuleEncoders();
-    //setModulesToAbsolute();
-
-    // Set starting position on field.
-    setOdometry(new Pose2d(1.03, 2.825, new Rotation2d(0)));
-    
-    updateDS();
   }
 
   /**
@@ -244,12 +529,18 @@ public class SwerveDriveBase extends SubsystemBase
   {
     Util.consoleLog();
 
-    m_navx.zeroYaw();
+    m_gyroIO.zero();
   }
 
+  /**
+   * Returns the navX fused (compass) heading if the magnetometer is calibrated. Otherwise
+   * returns this cycle's heading, as getHeadingRotation2d(): the navX angle interpolated
+   * from its samples, made zero by zeroGyro() and CCW positive, rather than a fresh read
+   * of the navX yaw.
+   */
   public Rotation2d getGyroRotation2d() 
   {
-    if (m_navx.isMagnetometerCalibrated()) 
+    if (m_navx != null && m_navx.isMagnetometerCalibrated()) 
     {
      // We will only get valid fused headings if the magnetometer is calibrated
      return Rotation2d.fromDegrees(m_navx.getFusedHeading());
@@ -257,31 +548,124 @@ public class SwerveDriveBase extends SubsystemBase
 
     // We have to invert the angle of the NavX so that rotating the robot counter-clockwise makes the angle increase.
     //return Rotation2d.fromDegrees(360.0 - m_navx.getYaw());
-    return Rotation2d.fromDegrees(-m_navx.getYaw());
+    return getHeadingRotation2d();
   }
 
+  /**
+   * Returns the gyro yaw read at the start of this cycle. The drive base reads the gyro
+   * once per cycle, so this is the same reading as getHeadingDegrees(): zeroed by
+   * zeroGyro() and CCW positive.
+   * @return Yaw in degrees, range [-180, 180], CCW positive.
+   */
   public double getGyroYaw()
   {
-    return -m_navx.getYaw();
+    return m_headingDegrees;
   }
 
+  /**
+   * Returns the robot heading read at the start of this cycle.
+   * @return Heading in degrees, range [-180, 180], CCW positive.
+   */
   public double getHeadingDegrees() 
   {
-    return Math.IEEEremainder((-m_navx.getAngle()), 360);
+    return m_headingDegrees;
+  }
+
+  /**
+   * Returns the robot heading at a recent time, interpolated from the navX samples.
+   * Read by odometry and vision to match the heading to their own timestamps.
+   * @param timestamp FPGA time in seconds. Times after the newest sample get the newest.
+   * @return Heading in degrees, range [-180, 180], CCW positive.
+   */
+  public double getHeadingDegreesAt(double timestamp)
+  {
+    return m_gyroIO.getHeadingAt(timestamp);
   }
 
+  /**
+   * Returns the navX samples, for reading heading, rate and acceleration at a time.
+   */
+  public GyroSampleBuffer getGyroSamples()
+  {
+    return m_gyroSamples;
+  }
+
+  /**
+   * Read every drive base sensor once for this cycle: each module's encoders and
+   * the navX. Everything else in the cycle uses these readings.
+   */
+  private void readSensors()
+  {
+    // Replaying a drive input log, the snapshots, time and heading are the recorded ones.
+    if (DriveInputLog.replaySensors(m_modules))
+    {
+      m_sensorTimestamp = DriveInputLog.get(DriveInputLog.TIMESTAMP);
+
+      m_gyroSamples.add(m_sensorTimestamp, DriveInputLog.get(DriveInputLog.HEADING), 0, 0, 0, 0);
+
+      m_gyroInputs.headingDegrees = getHeadingDegreesAt(m_sensorTimestamp);
+    }
+    else
+    {
+      m_driveGroup.readSensors();
+
+      m_sensorTimestamp = Timer.getFPGATimestamp();
+
+      m_gyroIO.updateInputs(m_sensorTimestamp, m_gyroInputs);
+    }
+
+    // One gyro reading for the whole cycle, so every heading read this cycle agrees.
+    m_headingDegrees = m_gyroInputs.headingDegrees;
+
+    DriveInputLog.recordSensors(m_sensorTimestamp, m_headingDegrees, m_modules);
+  }
+
+  /**
+   * Returns the robot heading read at the start of this cycle. The same object all cycle.
+   * The drive logic uses getHeadingDegrees(), the Rotation2d is only built when asked
+   * for and the heading has changed since it was last built.
+   */
   public Rotation2d getHeadingRotation2d() 
   {
-    return Rotation2d.fromDegrees(getHeadingDegrees());
+    if (m_headingRotation == null || m_headingRotationDegrees != m_headingDegrees)
+    {
+      m_headingRotationDegrees = m_headingDegrees;
+      m_headingRotation = Rotation2d.fromDegrees(m_headingDegrees);
+    }
+
+    return m_headingRotation;
   }
 
   /**
-   * Set the chassis speeds object that the periodic function executes.
+   * Set the chassis speeds object that the periodic function executes. The speeds are
+   * taken to be field relative speeds made robot relative with this cycle's heading.
    * @param chassisSpeeds ChassisSpeeds object to execute.
    */
   public void drive(ChassisSpeeds chassisSpeeds) 
   {
-    m_chassisSpeeds = chassisSpeeds;
+    drive(chassisSpeeds, Double.NaN, Double.NaN);
+  }
+
+  /**
+   * Set the chassis speeds object that the periodic function executes, with the
+   * acceleration planned with them, as by a trajectory, for the drive feedforward.
+   * The speeds are taken to be field relative speeds made robot relative with this
+   * cycle's heading.
+   * @param chassisSpeeds ChassisSpeeds object to execute.
+   * @param axMetersPerSecondSquared Robot relative forward acceleration, NaN if not known.
+   * @param ayMetersPerSecondSquared Robot relative left acceleration, NaN if not known.
+   */
+  public void drive(ChassisSpeeds chassisSpeeds, double axMetersPerSecondSquared, double ayMetersPerSecondSquared) 
+  {
+    m_chassisSpeeds.vxMetersPerSecond = chassisSpeeds.vxMetersPerSecond;
+    m_chassisSpeeds.vyMetersPerSecond = chassisSpeeds.vyMetersPerSecond;
+    m_chassisSpeeds.omegaRadiansPerSecond = chassisSpeeds.omegaRadiansPerSecond;
+
+    m_chassisAx = axMetersPerSecondSquared;
+    m_chassisAy = ayMetersPerSecondSquared;
+
+    m_chassisSpeedsTimestamp = m_sensorTimestamp;
+    m_chassisSpeedsFieldRelative = true;
   }
 
   /**
@@ -318,15 +702,37 @@ public class SwerveDriveBase extends SubsystemBase
   {
     // Convert joystick values into speeds.
 
-    throttle *= MAX_VELOCITY_METERS_PER_SECOND;
-    strafe   *= MAX_VELOCITY_METERS_PER_SECOND;
-    rotation *= MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND;
+    // Closed loop, full stick is the capped speed, the speed MAX_VOLTAGE gave full stick open loop.
+    double maxVelocity = CLOSED_LOOP_DRIVE ? MAX_DRIVE_VELOCITY_METERS_PER_SECOND : MAX_VELOCITY_METERS_PER_SECOND;
+
+    throttle *= maxVelocity;
+    strafe   *= maxVelocity;
+    rotation *= MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND * maxVelocity / MAX_VELOCITY_METERS_PER_SECOND;
+
+    // Set chassis speeds in either field or robot drive orientation. Field
+    // oriented is the same math as ChassisSpeeds.fromFieldRelativeSpeeds()
+    // done in place.
+
+    if (fieldOriented)
+    {
+      double heading = Math.toRadians(getHeadingDegrees());
+      double cos = Math.cos(heading), sin = Math.sin(heading);
+
+      m_chassisSpeeds.vxMetersPerSecond = throttle * cos + strafe * sin;
+      m_chassisSpeeds.vyMetersPerSecond = -throttle * sin + strafe * cos;
+    }
+    else
+    {
+      m_chassisSpeeds.vxMetersPerSecond = throttle;
+      m_chassisSpeeds.vyMetersPerSecond = strafe;
+    }
+
+    m_chassisSpeeds.omegaRadiansPerSecond = rotation;
 
-    // Create chassis speeds in either field or robot drive orientation.
+    m_chassisAx = m_chassisAy = Double.NaN;
 
-    m_chassisSpeeds = fieldOriented
-        ? ChassisSpeeds.fromFieldRelativeSpeeds(throttle, strafe, rotation, getHeadingRotation2d())
-        : new ChassisSpeeds(throttle, strafe, rotation);
+    m_chassisSpeedsTimestamp = m_sensorTimestamp;
+    m_chassisSpeedsFieldRelative = fieldOriented;
   }
 
   /**
@@ -335,42 +741,110 @@ public class SwerveDriveBase extends SubsystemBase
   @Override
   public void periodic() 
   {    
+    // Timed and checked for allocation from the start, the sensor reads are the most
+    // expensive part of the loop.
+    periodicPhase.start();
+
+    allocationMonitor.begin();
+
+    // Device reads made over the whole previous cycle, then this cycle's reads.
+    m_hardwareReads = HardwareReadCounter.takeLoopReads();
+
+    readSensors();
+
+    if (DriveInputLog.hasReplayFrame()) m_odometryThread.updateFromSnapshots(m_sensorTimestamp, m_headingDegrees);
+
+    m_statusFrameManager.periodic();
+
+    // Vision observations that arrived since the last loop, filtered in one batch and
+    // handed to the odometry thread's estimator.
+    double now = Timer.getFPGATimestamp();
+
+    if (m_visionReplay != null) m_visionReplay.update(now);
+
+    m_visionPipeline.process(getPoseMeters(), now, m_odometryThread.getVisionMeasurementQueue());
+
     if (overrideExecute)
     {
         if (Util.getElaspedTime(overrideTime) > 2.0)
             overrideExecute = false;
         else
+        {
+            periodicPhase.stop();
+
+            m_allocBytes = allocationMonitor.end();
+
             return;
+        }
     }
 
-    LCD.printLine(3, "max vel=%.3fms  max ang vel=%.3frs  voltage=%.1f",
-        MAX_VELOCITY_METERS_PER_SECOND,
-        MAX_ANGULAR_VELOCITY_RADIANS_PER_SECOND,
-        MAX_VOLTAGE);
+    double maxSpeed = CLOSED_LOOP_DRIVE ? MAX_DRIVE_VELOCITY_METERS_PER_SECOND : MAX_VELOCITY_METERS_PER_SECOND;
+
+    ChassisSpeeds speeds = m_chassisSpeeds;
+
+    if (DISCRETIZE_CHASSIS_SPEEDS)
+    {
+      // Scale the speeds to what the modules can reach first. The correction is for the
+      // rotation the robot will actually make, which desaturating afterwards would reduce.
+      m_driveKinematics.toModuleStates(m_chassisSpeeds.vxMetersPerSecond, m_chassisSpeeds.vyMetersPerSecond, 
+                                       m_chassisSpeeds.omegaRadiansPerSecond);
+
+      double scale = m_driveKinematics.getDesaturationScale(maxSpeed);
+
+      m_discreteSpeeds.vxMetersPerSecond = m_chassisSpeeds.vxMetersPerSecond * scale;
+      m_discreteSpeeds.vyMetersPerSecond = m_chassisSpeeds.vyMetersPerSecond * scale;
+      m_discreteSpeeds.omegaRadiansPerSecond = m_chassisSpeeds.omegaRadiansPerSecond * scale;
+
+      // Commands run after subsystems, so the speeds were made robot relative with
+      // the previous cycle's heading, about one loop ago.
+      m_commandLatency = m_sensorTimestamp - m_chassisSpeedsTimestamp;
+
+      boolean compensate = COMPENSATE_COMMAND_LATENCY && m_chassisSpeedsFieldRelative &&
+                           m_commandLatency > 0 && m_commandLatency < MAX_COMMAND_LATENCY_SECONDS;
+
+      ChassisSpeedsDiscretizer.discretize(m_discreteSpeeds, TimedRobot.kDefaultPeriod, 
+                                          compensate ? m_commandLatency : 0, m_discreteSpeeds);
 
-    SwerveModuleState[] states = m_kinematics.toSwerveModuleStates(m_chassisSpeeds);
+      speeds = m_discreteSpeeds;
+    }
+
+    m_driveKinematics.toModuleStates(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, 
+                                     speeds.omegaRadiansPerSecond);
     
-    SwerveDriveKinematics.desaturateWheelSpeeds(states, MAX_VELOCITY_METERS_PER_SECOND);
+    m_driveKinematics.desaturate(maxSpeed);
 
-    if (!autoReturnToZero && states[0].speedMetersPerSecond < 0.01)
-        m_frontLeftModule.stop();
-    else
-        m_frontLeftModule.set(states[0].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE, states[0].angle.getRadians());
-        
-    if (!autoReturnToZero && states[1].speedMetersPerSecond < 0.01)
-        m_frontRightModule.stop();
-    else
-        m_frontRightModule.set(states[1].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE, states[1].angle.getRadians());
-  
-    if (!autoReturnToZero && states[2].speedMetersPerSecond < 0.01)
-        m_backLeftModule.stop();
-    else
-        m_backLeftModule.set(states[2].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE, states[2].angle.getRadians());
+    // When the whole robot is stopping the drive is zeroed, and the modules, under the
+    // hold speed, keep their steer angles instead of being stopped and losing them. A
+    // slow module while the robot moves (near the center of a turn) also holds its angle.
+    boolean stopping = !autoReturnToZero && m_driveKinematics.getMaxSpeed() < STOP_SPEED_METERS_PER_SECOND;
 
-    if (!autoReturnToZero && states[3].speedMetersPerSecond < 0.01)
-        m_backRightModule.stop();
-    else
-        m_backRightModule.set(states[3].speedMetersPerSecond / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE, states[3].angle.getRadians());
+    for (int i = 0; i < m_modules.length; i++)
+    {
+      double speed = stopping ? 0 : m_driveKinematics.getSpeed(i), angle = m_driveKinematics.getAngle(i);
+
+      // Wheel acceleration for the drive feedforward: the planned acceleration if there
+      // is one, else the change in commanded velocity along the module's new direction,
+      // so a module reversing direction decelerates. Limited to what the wheel can do,
+      // a setpoint step would otherwise give the feedforward any voltage.
+      double acceleration;
+
+      if (!Double.isNaN(m_chassisAx))
+        acceleration = m_driveKinematics.getAcceleration(i, m_chassisAx, m_chassisAy, 0);
+      else
+        acceleration = (speed - m_commandedSpeeds[i] * Math.cos(angle - m_commandedAngles[i])) / 
+                       TimedRobot.kDefaultPeriod;
+
+      acceleration = MathUtil.clamp(acceleration, -MAX_DRIVE_ACCELERATION_METERS_PER_SECOND_SQUARED, 
+                                    MAX_DRIVE_ACCELERATION_METERS_PER_SECOND_SQUARED);
+
+      m_commandedSpeeds[i] = speed;
+      m_commandedAngles[i] = angle;
+
+      if (CLOSED_LOOP_DRIVE)
+        m_modules[i].setVelocity(speed, acceleration, angle);
+      else
+        m_modules[i].set(speed / MAX_VELOCITY_METERS_PER_SECOND * MAX_VOLTAGE, angle);
+    }
 
     // Auto return to zero override is in effect for 1 second so motors can move independantly
     // of auto return setting.
@@ -381,92 +855,150 @@ public class SwerveDriveBase extends SubsystemBase
         overrideAutoReturnToZero = false;
     }
 
-    updateOdometry(states);
+    // Odometry itself is updated by the odometry thread. Here we hand it the
+    // commanded states, update the comparison odometry and refresh the module
+    // poses for display.
+    m_odometryThread.setCommandedStates(m_commandedSpeeds, m_commandedAngles);
+
+    updateOdometryCompare();
+
+    periodicPhase.stop();
+
+    // Dashboard work is timed separately. The poses are published by TelemetryPublisher.
+    field2dPhase.start();
+
+    updateModulePoses();
 
-    field2d.setRobotPose(getPoseMeters());
+    field2dPhase.stop();
 
-    setField2dModulePoses();
+    // Bytes allocated by this periodic. Should be zero once warmed up.
+    m_allocBytes = allocationMonitor.end();
   }
 
   /**
-   * Update robot pose (position & rotation) on the field. Used to drive
-   * the field2d object.
-   * @param states Array of module state objects.
+   * Copy the measured state of each module from this cycle's sensor snapshots
+   * into the reusable measured state arrays.
    */
-  public void updateOdometry(SwerveModuleState[] states)
+  private void sampleMeasuredStates()
   {
-    m_odometry.update(getHeadingRotation2d(), states);
+    for (int i = 0; i < m_modules.length; i++)
+    {
+      m_measuredSpeeds[i] = m_modules[i].getDriveVelocity();
+      m_measuredAngles[i] = m_modules[i].getSteerAngle();
+    }
+  }
 
-    updateModulePose(m_frontLeftModule);
-    updateModulePose(m_frontRightModule);
-    updateModulePose(m_backLeftModule);
-    updateModulePose(m_backRightModule);
+  /**
+   * Integrate the state source not used by the odometry thread into the
+   * comparison odometry and publish the distance between the two poses.
+   */
+  private void updateOdometryCompare()
+  {
+    sampleMeasuredStates();
+
+    if (m_odometryThread.getUseMeasuredStates())
+      m_compareOdometry.update(Timer.getFPGATimestamp(), Math.toRadians(getHeadingDegrees()),
+                               m_commandedSpeeds, m_commandedAngles);
+    else
+      m_compareOdometry.update(Timer.getFPGATimestamp(), Math.toRadians(getHeadingDegrees()),
+                               m_measuredSpeeds, m_measuredAngles);
+
+    Pose2d pose = getPoseMeters();
+
+    odometryError = Math.hypot(m_compareOdometry.getX() - pose.getX(), m_compareOdometry.getY() - pose.getY());
   }
 
   /**
-   * Update the pose of a swerve module on the field2d object. Module
-   * pose is connected to the robot pose so they move together on the
-   * field sim but this code will rotate the module icon to direction wheel
-   * is pointing.
-   * @param module Swerve module to update.
+   * Returns the distance in meters between the odometry thread pose and the
+   * comparison odometry fed from the other state source.
    */
-  private void updateModulePose(SwerveModule module)
+  public double getOdometryError()
   {
-    Translation2d modulePosition = module.getTranslation2d()
-        //.rotateBy(getHeadingRotation2d())
-        .rotateBy(getPoseMeters().getRotation())
-        .plus(getPoseMeters().getTranslation());
-    
-    module.setModulePose(
-        new Pose2d(modulePosition, module.getHeadingRotation2d().plus(getHeadingRotation2d())));
+    return odometryError;
   }
 
-  private void setField2dModulePoses()
+  /**
+   * Update the module poses on the field from the latest odometry pose. Used
+   * to drive the field2d object. Module pose is connected to the robot pose so
+   * they move together on the field sim but each module icon is rotated to the
+   * direction its wheel is pointing.
+   */
+  private void updateModulePoses()
   {
-    Pose2d      modulePoses[] = new Pose2d[4];
-    
-    modulePoses[0] = m_frontLeftModule.getPose();
-    modulePoses[1] = m_frontRightModule.getPose();
-    modulePoses[2] = m_backLeftModule.getPose();
-    modulePoses[3] = m_backRightModule.getPose();
+    Pose2d  pose = getPoseMeters();
+    double  robotHeading = pose.getRotation().getRadians();
+    double  cos = Math.cos(robotHeading), sin = Math.sin(robotHeading);
+    double  headingDegrees = getHeadingDegrees();
+
+    m_robotPose[0] = pose.getX();
+    m_robotPose[1] = pose.getY();
+    m_robotPose[2] = pose.getRotation().getDegrees();
+
+    for (int i = 0; i < m_modules.length; i++)
+    {
+      Translation2d translation = m_driveGroup.getTranslation(i);
+      double x = translation.getX(), y = translation.getY();
 
-    field2d.getObject("Swerve Modules").setPoses(modulePoses);
+      m_modulePoses[i * 3] = x * cos - y * sin + pose.getX();
+      m_modulePoses[i * 3 + 1] = x * sin + y * cos + pose.getY();
+      m_modulePoses[i * 3 + 2] = m_modules[i].getHeadingDegrees() + headingDegrees;
+    }
   }
 
+  /**
+   * Returns the latest pose published by the odometry thread. Never blocks.
+   * @return The estimated robot pose.
+   */
   public Pose2d getPoseMeters() 
   {
-    return m_odometry.getEstimatedPosition();
+    return m_odometryThread.getPose();
   }
 
-  public SwerveDrivePoseEstimator getOdometry() 
+  /**
+   * Returns where odometry had the robot at a recent time, interpolated from the pose
+   * history. Allocates, use getPoseHistory().getPoseAt(double, double[]) on the periodic path.
+   * @param timestamp FPGA time in seconds. Times outside the last 2 seconds get the
+   * nearest pose kept.
+   * @return The pose, or the current pose if none have been recorded yet.
+   */
+  public Pose2d getPoseAt(double timestamp)
+  {
+    Pose2d pose = m_odometryThread.getPoseHistory().getPoseAt(timestamp);
+
+    return pose == null ? getPoseMeters() : pose;
+  }
+
+  /**
+   * Returns the odometry pose history, readable from any thread without locking.
+   */
+  public PoseHistory getPoseHistory()
   {
-    return m_odometry;
+    return m_odometryThread.getPoseHistory();
   }
 
   public void setOdometry(Pose2d pose) 
   {
-    m_odometry.resetPosition(pose, pose.getRotation());
-    m_navx.reset();
+    m_odometryThread.resetPose(pose);
+    m_compareOdometry.resetPosition(pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+                                    pose.getRotation().getRadians());
+    m_gyroIO.zero();
+
+    if (m_driveSim != null) m_driveSim.resetPose(pose);
   }  
 
   @Override
   public void simulationPeriodic() 
   {
-    // Assumes Neos. SIM for 500s not implemented.
-    //REVPhysicsSim.getInstance().run();
- 
-    // want to simulate navX gyro changing as robot turns
-    // information available is radians per second and this happens every 20ms
-    // radians/2pi = 360 degrees so 1 degree per second is radians / 2pi
-    // increment is made every 20 ms so radian adder would be (rads/sec) *(20/1000)
-    // degree adder would be radian adder * 360/2pi
-    // so degree increment multiplier is 360/100pi = 1.1459
-
-    double temp = m_chassisSpeeds.omegaRadiansPerSecond * 1.1459155;
+    // Given its gyro and modules, their IO is the model.
+    if (m_driveSim != null)
+    {
+      m_driveSim.update(TimedRobot.kDefaultPeriod);
 
-    temp += simAngle.get();
+      Pose2d pose = getPoseMeters();
 
-    simAngle.set(temp);
+      // Distance between where odometry thinks the robot is and where it really is.
+      m_simPoseError = Math.hypot(m_driveSim.getX() - pose.getX(), m_driveSim.getY() - pose.getY());
+    }
 
     Unmanaged.feedEnable(20);
   }
@@ -499,20 +1031,42 @@ public class SwerveDriveBase extends SubsystemBase
       return fieldOriented;
   }
 
+  /**
+   * Toggle the odometry thread between measured (encoder) module states and
+   * commanded module states. The other source feeds the comparison odometry.
+   */
+  public void toggleMeasuredOdometry()
+  {
+      Util.consoleLog();
+
+      m_odometryThread.setUseMeasuredStates(!m_odometryThread.getUseMeasuredStates());
+
+      // Restart the comparison from where we are now.
+      Pose2d pose = getPoseMeters();
+
+      m_compareOdometry.resetPosition(pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+                                      Math.toRadians(getHeadingDegrees()));
+
+      updateDS();
+  }
+
+  public boolean getMeasuredOdometry()
+  {
+      return m_odometryThread.getUseMeasuredStates();
+  }
+
   public void updateDS()
   {
       SmartDashboard.putBoolean("Field Oriented", fieldOriented);
       SmartDashboard.putBoolean("Auto Return To Zero", autoReturnToZero);
+      SmartDashboard.putBoolean("Measured Odometry", m_odometryThread.getUseMeasuredStates());
   }
 
   public void resetModuleEncoders() 
   {
       Util.consoleLog();
     
-      m_frontLeftModule.resetMotorEncoders(); 
-      m_frontRightModule.resetMotorEncoders(); 
-      m_backLeftModule.resetMotorEncoders(); 
-      m_backRightModule.resetMotorEncoders(); 
+      m_driveGroup.resetMotorEncoders();
   }
   
   public void setModulesToAbsolute() 
@@ -522,10 +1076,7 @@ public class SwerveDriveBase extends SubsystemBase
       overrideExecute = true;
       overrideTime = Util.timeStamp();
 
-      m_frontLeftModule.resetSteerAngleToAbsolute();
-      m_frontRightModule.resetSteerAngleToAbsolute();
-      m_backLeftModule.resetSteerAngleToAbsolute();
-      m_backRightModule.resetSteerAngleToAbsolute();
+      m_driveGroup.resetSteerAnglesToAbsolute();
   }
 
   public void setModulesToForward()
@@ -542,9 +1093,6 @@ public class SwerveDriveBase extends SubsystemBase
     overrideExecute = true;
     overrideTime = Util.timeStamp();
 
-    m_frontLeftModule.setStartingPosition();
-    m_frontRightModule.setStartingPosition();
-    m_backLeftModule.setStartingPosition();
-    m_backRightModule.setStartingPosition();
+    m_driveGroup.setStartingPositions();
   }
 }
@@ -0,0 +1,299 @@
+package frc.robot.subsystems;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.DoubleSupplier;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.swervelib.PoseHistory;
+import frc.robot.swervelib.SwerveModule;
+import frc.robot.vision.VisionObservation;
+import frc.robot.vision.VisionObservationQueue;
+
+/**
+ * Runs the drive base odometry on its own Notifier thread at a higher rate than the
+ * 20ms scheduler loop. Each pass samples the module encoders and the gyro and updates
+ * a pose estimator that only this thread touches. The resulting pose is published as
+ * an immutable snapshot so the main loop can read it without ever waiting on this thread.
+ * Vision measurements accepted by the main loop are queued to this thread and added to
+ * the estimator at its next update, where they are applied at the time they were taken.
+ * Each pose is also recorded in a PoseHistory, so any thread can look up past poses.
+ * When a drive input log is replayed the thread is not started and the main loop
+ * updates it from the replayed sensor snapshots instead.
+ */
+class SwerveOdometryThread
+{
+    /**
+     * Odometry update period in seconds (200hz).
+     */
+    public static final double  PERIOD_SECONDS = 0.005;
+
+    private final Notifier                  notifier;
+    private final SwerveDrivePoseEstimator  estimator;
+    private final SwerveModule[]            modules;
+    private final SwerveModuleState[]       states;
+    private final DoubleSupplier            headingDegrees;
+
+    private final AtomicReference<Pose2d>   pendingReset = new AtomicReference<>();
+
+    // Vision measurements from the main loop, and the one being added. Read by this thread only.
+    private final VisionObservationQueue    visionMeasurements = new VisionObservationQueue(16);
+    private final VisionObservation         visionMeasurement = new VisionObservation();
+
+    // Commanded states handed over from the main loop. Guarded by a sequence
+    // counter (odd while being written) so neither side ever blocks.
+    private final double[]                  commandedSpeeds, commandedAngles;
+    private volatile long                   commandedSequence;
+
+    private volatile boolean                useMeasuredStates = true;
+    private volatile long                   updateCount;
+
+    // The pose readers see, and the pose this thread last published or took a reset
+    // to. Only replaced by this thread if it still holds that pose, so a reset
+    // published in the middle of an update is never overwritten by the old estimate.
+    private final AtomicReference<Pose2d>   pose = new AtomicReference<>(new Pose2d());
+    private Pose2d                          publishedPose = pose.get();
+
+    // About 2 seconds of poses. Written by this thread only.
+    private final PoseHistory               poseHistory = new PoseHistory(400);
+
+    /**
+     * Create the odometry thread. Call start() to begin updating.
+     * @param kinematics Kinematics of the drive base, module order must match modules.
+     * @param headingDegrees Supplies the gyro heading in degrees, CCW positive.
+     * @param modules The swerve modules to sample.
+     */
+    SwerveOdometryThread(SwerveDriveKinematics kinematics, DoubleSupplier headingDegrees, SwerveModule... modules)
+    {
+        Util.consoleLog();
+
+        this.modules = modules;
+        this.headingDegrees = headingDegrees;
+
+        states = new SwerveModuleState[modules.length];
+        commandedSpeeds = new double[modules.length];
+        commandedAngles = new double[modules.length];
+
+        for (int i = 0; i < modules.length; i++) states[i] = new SwerveModuleState();
+
+        estimator = new SwerveDrivePoseEstimator(
+            Rotation2d.fromDegrees(headingDegrees.getAsDouble()),
+            new Pose2d(),
+            kinematics,
+            VecBuilder.fill(0.1, 0.1, 0.1),
+            VecBuilder.fill(0.05),
+            VecBuilder.fill(0.1, 0.1, 0.1),
+            PERIOD_SECONDS);
+
+        notifier = new Notifier(this::update);
+
+        notifier.setName("SwerveOdometry");
+    }
+
+    void start()
+    {
+        Util.consoleLog();
+
+        notifier.startPeriodic(PERIOD_SECONDS);
+    }
+
+    void stop()
+    {
+        Util.consoleLog();
+
+        notifier.stop();
+    }
+
+    /**
+     * Returns the most recent pose computed by the odometry thread. Never blocks.
+     * @return The estimated robot pose.
+     */
+    Pose2d getPose()
+    {
+        return pose.get();
+    }
+
+    /**
+     * Number of odometry updates performed since start.
+     */
+    long getUpdateCount()
+    {
+        return updateCount;
+    }
+
+    /**
+     * Select the module state source the estimator integrates.
+     * @param measured True to use measured module states (encoders), false to
+     * use the commanded states passed to setCommandedStates().
+     */
+    void setUseMeasuredStates(boolean measured)
+    {
+        useMeasuredStates = measured;
+    }
+
+    boolean getUseMeasuredStates()
+    {
+        return useMeasuredStates;
+    }
+
+    /**
+     * Hand the latest commanded (setpoint) module states to the odometry thread.
+     * Called from the main loop. Copies the values so the caller may reuse the arrays.
+     * @param speeds Commanded module speeds in m/s in module order.
+     * @param angles Commanded module angles in radians in module order.
+     */
+    void setCommandedStates(double[] speeds, double[] angles)
+    {
+        long sequence = commandedSequence;
+
+        commandedSequence = sequence + 1;
+
+        VarHandle.storeStoreFence();
+
+        for (int i = 0; i < commandedSpeeds.length; i++)
+        {
+            commandedSpeeds[i] = speeds[i];
+            commandedAngles[i] = angles[i];
+        }
+
+        commandedSequence = sequence + 2;
+    }
+
+    /**
+     * Returns the history of poses computed by this thread. Read from any thread.
+     */
+    PoseHistory getPoseHistory()
+    {
+        return poseHistory;
+    }
+
+    /**
+     * Returns the queue of vision measurements to add to the estimator. The main loop
+     * is its only producer. Measurements must have standard deviations set.
+     */
+    VisionObservationQueue getVisionMeasurementQueue()
+    {
+        return visionMeasurements;
+    }
+
+    /**
+     * Request the estimator be reset to the given pose. The reset is applied by
+     * the odometry thread at its next update so the caller never waits. getPose()
+     * returns the new pose from now on.
+     * @param newPose The pose to reset to.
+     */
+    void resetPose(Pose2d newPose)
+    {
+        // Published first, so the odometry thread can't publish an estimate over it
+        // without having taken the reset. An update already running skips its publish.
+        pose.set(newPose);
+
+        pendingReset.set(newPose);
+    }
+
+    private void update()
+    {
+        if (useMeasuredStates)
+            for (int i = 0; i < modules.length; i++) modules[i].getState(states[i]);
+        else
+            readCommandedStates();
+
+        estimate(Timer.getFPGATimestamp(), headingDegrees.getAsDouble());
+    }
+
+    /**
+     * Update once from the modules' sensor snapshots instead of the devices, for
+     * replaying a drive input log. Called from the main loop after the snapshots are
+     * set, with the thread not started, so odometry runs once per loop the same way
+     * every replay.
+     * @param timestamp FPGA time of the snapshots in seconds.
+     * @param heading Gyro heading at that time in degrees, CCW positive.
+     */
+    void updateFromSnapshots(double timestamp, double heading)
+    {
+        if (useMeasuredStates)
+            for (int i = 0; i < modules.length; i++)
+            {
+                states[i].speedMetersPerSecond = modules[i].getSensors().getDriveVelocity();
+                states[i].angle = new Rotation2d(modules[i].getSensors().getSteerAngle());
+            }
+        else
+            readCommandedStates();
+
+        estimate(timestamp, heading);
+    }
+
+    private void estimate(double now, double heading)
+    {
+        Pose2d reset = pendingReset.getAndSet(null);
+
+        if (reset != null)
+        {
+            estimator.resetPosition(reset, reset.getRotation());
+
+            // Measurements and poses from before the reset are in the old frame.
+            visionMeasurements.clear();
+            poseHistory.clear();
+
+            // resetPose() published it before handing it over.
+            publishedPose = reset;
+        }
+
+        Pose2d estimate = estimator.updateWithTime(now, Rotation2d.fromDegrees(heading), states);
+
+        // The estimator replays its history from each measurement's timestamp.
+        boolean corrected = false;
+
+        while (visionMeasurements.poll(visionMeasurement))
+        {
+            double translationStdDev = visionMeasurement.getTranslationStdDev();
+
+            estimator.addVisionMeasurement(
+                new Pose2d(visionMeasurement.getX(), visionMeasurement.getY(), new Rotation2d(visionMeasurement.getRotation())),
+                visionMeasurement.getTimestampSeconds(),
+                VecBuilder.fill(translationStdDev, translationStdDev, visionMeasurement.getRotationStdDev()));
+
+            corrected = true;
+        }
+
+        if (corrected) estimate = estimator.getEstimatedPosition();
+
+        // A reset was requested during this update. This estimate is from before it,
+        // the next update applies the reset.
+        if (!pose.compareAndSet(publishedPose, estimate)) return;
+
+        publishedPose = estimate;
+
+        poseHistory.add(now, estimate.getX(), estimate.getY(), estimate.getRotation().getRadians());
+
+        updateCount++;
+    }
+
+    private void readCommandedStates()
+    {
+        long sequence;
+
+        do
+        {
+            sequence = commandedSequence;
+
+            if ((sequence & 1) != 0) continue;  // Writer in progress.
+
+            for (int i = 0; i < states.length; i++)
+            {
+                states[i].speedMetersPerSecond = commandedSpeeds[i];
+                states[i].angle = new Rotation2d(commandedAngles[i]);
+            }
+
+            VarHandle.loadLoadFence();
+        } while (sequence != commandedSequence || (sequence & 1) != 0);
+    }
+}
@@ -9,4 +9,26 @@ public interface AbsoluteEncoder
      * @return The current angle in radians. Range: [0, 2pi)
      */
     double getAbsoluteAngle();
+
+    /**
+     * Sets the encoder's status frame period. Does not wait for the device.
+     * @param profile The frame periods.
+     */
+    default void setStatusFrameProfile(StatusFrameProfile profile) {}
+
+    /**
+     * Estimates the status frames per second the encoder sends with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    default double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return 0;
+    }
+
+    /**
+     * Simulation only. Sets the simulated encoder reading.
+     * @param absoluteAngle Angle the encoder should report in radians.
+     */
+    default void simulationUpdate(double absoluteAngle) {}
 }
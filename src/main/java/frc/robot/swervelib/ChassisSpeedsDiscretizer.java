@@ -0,0 +1,60 @@
+package frc.robot.swervelib;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Corrects chassis speeds for the robot turning while they are applied.
+ * <p>
+ * Robot relative speeds are held for a whole loop, but the robot rotates during the
+ * loop, so a robot that translates while it spins travels on an arc and drifts off the
+ * commanded direction, more the faster it goes. Treating the commanded speeds as the
+ * motion wanted over one loop (dx, dy, dtheta), this finds the constant robot relative
+ * speeds whose arc (the twist exponential) ends there, which is the Pose2d.log() of that
+ * motion. It can also rotate the translation back by the heading change expected before
+ * the speeds are applied, to compensate for field relative speeds computed from an old
+ * heading. Same math as the WPILib classes, done in place so it does not allocate.
+ */
+public final class ChassisSpeedsDiscretizer
+{
+    private ChassisSpeedsDiscretizer() {}
+
+    /**
+     * Discretize chassis speeds.
+     * @param speeds Robot relative speeds wanted over the period.
+     * @param periodSeconds Time the speeds will be applied for, normally the robot loop period.
+     * @param latencySeconds Time from the heading the speeds were made robot relative with to
+     * when they are applied, zero for no compensation.
+     * @param result Set to the corrected speeds. May be the same object as speeds.
+     */
+    public static void discretize(ChassisSpeeds speeds, double periodSeconds, double latencySeconds, ChassisSpeeds result)
+    {
+        double vx = speeds.vxMetersPerSecond, vy = speeds.vyMetersPerSecond, omega = speeds.omegaRadiansPerSecond;
+
+        // The robot turns omega * latency before these speeds are applied, so turn the
+        // translation back by that much to keep it pointing the same way on the field.
+        if (latencySeconds > 0 && omega != 0)
+        {
+            double lag = -omega * latencySeconds, cos = Math.cos(lag), sin = Math.sin(lag);
+            double x = vx * cos - vy * sin;
+
+            vy = vx * sin + vy * cos;
+            vx = x;
+        }
+
+        double dx = vx * periodSeconds, dy = vy * periodSeconds, dtheta = omega * periodSeconds;
+
+        // Pose2d.log() of (dx, dy, dtheta).
+        double halfDtheta = dtheta / 2.0, cosMinusOne = Math.cos(dtheta) - 1.0;
+        double halfThetaByTanOfHalfDtheta;
+
+        if (Math.abs(cosMinusOne) < 1E-9)
+            halfThetaByTanOfHalfDtheta = 1.0 - dtheta * dtheta / 12.0;
+        else
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+
+        // Translation rotated by -halfDtheta and scaled by hypot(a, halfDtheta).
+        result.vxMetersPerSecond = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / periodSeconds;
+        result.vyMetersPerSecond = (dy * halfThetaByTanOfHalfDtheta - dx * halfDtheta) / periodSeconds;
+        result.omegaRadiansPerSecond = omega;
+    }
+}
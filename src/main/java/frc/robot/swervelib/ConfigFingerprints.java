@@ -0,0 +1,129 @@
+package frc.robot.swervelib;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Properties;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+
+/**
+ * Persisted fingerprints of the configuration last saved to each motor controller.
+ * <p>
+ * A fingerprint is a hash of everything a controller factory applies to a device
+ * (CAN id, the effective Mk4ModuleConfiguration settings and the ModuleConfiguration).
+ * After a controller is fully configured and its settings saved to its flash, the
+ * fingerprint is stored in a small file in the deploy directory. On the next boot, if
+ * the fingerprint is unchanged, the factory only does a cheap verification read
+ * instead of restoring defaults and reapplying every setting.
+ * <p>
+ * Only used on the real robot, simulated controllers keep no settings between runs.
+ * Thread safe, devices may be configured concurrently.
+ */
+public final class ConfigFingerprints
+{
+    private static final String FILE_NAME = "config-fingerprints.properties";
+
+    private static Properties   fingerprints;
+
+    private ConfigFingerprints() {}
+
+    /**
+     * Computes the fingerprint of a device configuration.
+     * @param parts Every value that goes into the configuration.
+     * @return Hex string fingerprint.
+     */
+    public static String fingerprint(Object... parts)
+    {
+        StringBuilder text = new StringBuilder();
+
+        for (Object part : parts) text.append(part).append('|');
+
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder hex = new StringBuilder();
+
+            for (byte b : hash) hex.append(String.format("%02x", b));
+
+            return hex.toString();
+        }
+        catch (Exception e) { throw new IllegalStateException(e); }
+    }
+
+    /**
+     * Returns true if the device was last configured with this fingerprint.
+     * @param device Device name, unique per device (type and CAN id).
+     * @param fingerprint Fingerprint of the configuration about to be applied.
+     */
+    public static synchronized boolean matches(String device, String fingerprint)
+    {
+        if (!RobotBase.isReal()) return false;
+
+        return fingerprint.equals(load().getProperty(device));
+    }
+
+    /**
+     * Records that the device now holds the configuration with this fingerprint.
+     * @param device Device name.
+     * @param fingerprint Fingerprint of the applied configuration.
+     */
+    public static synchronized void store(String device, String fingerprint)
+    {
+        if (!RobotBase.isReal()) return;
+
+        load().setProperty(device, fingerprint);
+
+        save();
+    }
+
+    /**
+     * Forgets the device's fingerprint so it is fully configured next boot.
+     * @param device Device name.
+     */
+    public static synchronized void clear(String device)
+    {
+        if (!RobotBase.isReal() || load().remove(device) == null) return;
+
+        save();
+    }
+
+    private static Properties load()
+    {
+        if (fingerprints != null) return fingerprints;
+
+        fingerprints = new Properties();
+
+        File file = getFile();
+
+        if (file.exists())
+            try (InputStream in = new FileInputStream(file))
+            {
+                fingerprints.load(in);
+            }
+            catch (Exception e) { Util.logException(e); }
+
+        return fingerprints;
+    }
+
+    private static void save()
+    {
+        try (OutputStream out = new FileOutputStream(getFile()))
+        {
+            fingerprints.store(out, "Motor controller configuration fingerprints, delete to force full configuration");
+        }
+        catch (Exception e) { Util.logException(e); }
+    }
+
+    private static File getFile()
+    {
+        return new File(Filesystem.getDeployDirectory(), FILE_NAME);
+    }
+}
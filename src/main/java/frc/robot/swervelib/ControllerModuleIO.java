@@ -0,0 +1,124 @@
+package frc.robot.swervelib;
+
+/**
+ * ModuleIO on the module's motor controllers and encoders: the drive and steer
+ * controllers the controller factories create. The only ModuleIO that touches vendor
+ * objects.
+ */
+public class ControllerModuleIO implements ModuleIO
+{
+    private final DriveController   driveController;
+    private final SteerController   steerController;
+
+    public ControllerModuleIO(DriveController driveController, SteerController steerController)
+    {
+        this.driveController = driveController;
+        this.steerController = steerController;
+    }
+
+    @Override
+    public void updateInputs(ModuleSensorSnapshot inputs)
+    {
+        inputs.read(driveController, steerController);
+    }
+
+    @Override
+    public double readDriveVelocity()
+    {
+        return driveController.getStateVelocity();
+    }
+
+    @Override
+    public double readSteerAngle()
+    {
+        return steerController.getStateAngle();
+    }
+
+    @Override
+    public double readAbsoluteAngle()
+    {
+        return steerController.getAbsoluteEncoder().getAbsoluteAngle();
+    }
+
+    @Override
+    public void setDriveVoltage(double voltage)
+    {
+        driveController.setReferenceVoltage(voltage);
+    }
+
+    @Override
+    public void setDriveVelocity(double velocity, double acceleration)
+    {
+        driveController.setReferenceVelocity(velocity, acceleration);
+    }
+
+    @Override
+    public void setSteerAngle(double angle, ModuleSensorSnapshot inputs)
+    {
+        steerController.setReferenceAngle(angle, inputs);
+    }
+
+    @Override
+    public double getSteerSetpointAngle()
+    {
+        return steerController.getSetpointAngle();
+    }
+
+    @Override
+    public double getSteerSetpointFeedforward()
+    {
+        return steerController.getSetpointFeedforward();
+    }
+
+    @Override
+    public void stop()
+    {
+        driveController.stop();
+        steerController.stop();
+    }
+
+    @Override
+    public void setDrivePosition(double position)
+    {
+        driveController.setStatePosition(position);
+    }
+
+    @Override
+    public void setSteerPosition(double angle)
+    {
+        steerController.setStatePosition(angle);
+    }
+
+    @Override
+    public void setStartingPosition(double steerOffset)
+    {
+        steerController.setStartingPosition(steerOffset);
+    }
+
+    @Override
+    public void setSteerPidConstants(double proportional, double integral, double derivative)
+    {
+        steerController.setPidConstants(proportional, integral, derivative);
+    }
+
+    @Override
+    public void setStatusFrameProfile(StatusFrameProfile profile)
+    {
+        driveController.setStatusFrameProfile(profile);
+        steerController.setStatusFrameProfile(profile);
+    }
+
+    @Override
+    public double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return driveController.getStatusFrameRate(profile) + steerController.getStatusFrameRate(profile);
+    }
+
+    @Override
+    public void simulationUpdate(double driveDistanceDelta, double driveVelocity, double steerAngleDelta,
+                                 double steerVelocity, double absoluteAngle)
+    {
+        driveController.simulationUpdate(driveDistanceDelta, driveVelocity);
+        steerController.simulationUpdate(steerAngleDelta, steerVelocity, absoluteAngle);
+    }
+}
@@ -0,0 +1,73 @@
+package frc.robot.swervelib;
+
+/**
+ * Module state optimizer that, on top of turning the wheel around to steer less:
+ * <ul>
+ * <li>Scales the drive command by the cosine of the steer error, so a wheel still
+ * steering does not push the robot sideways, and is at full drive once it is there.</li>
+ * <li>Holds the last steer angle when the drive command is near zero, so the wheels
+ * do not chase the noisy angles of tiny commands or swing when the robot stops.</li>
+ * <li>Only changes its flip decision once the steer error is past 90 degrees by the
+ * hysteresis, so a target near 90 degrees away does not flip the wheel back and forth.</li>
+ * </ul>
+ */
+public class DefaultModuleStateOptimizer implements ModuleStateOptimizer
+{
+    private static final double HALF_PI = Math.PI / 2.0;
+
+    private final double    holdDrive, flipHysteresis;
+    private final boolean   cosineScaling;
+
+    /**
+     * Create the optimizer.
+     * @param holdDrive Drive commands smaller than this hold the last steer angle. In the
+     * units of the drive commands, volts or m/s.
+     * @param flipHysteresis Radians past 90 degrees of steer error before the flip decision changes.
+     * @param cosineScaling True to scale the drive command by the cosine of the steer error.
+     */
+    public DefaultModuleStateOptimizer(double holdDrive, double flipHysteresis, boolean cosineScaling)
+    {
+        this.holdDrive = holdDrive;
+        this.flipHysteresis = flipHysteresis;
+        this.cosineScaling = cosineScaling;
+    }
+
+    @Override
+    public void optimize(double drive, double targetAngle, double currentAngle, ModuleSetpoint setpoint)
+    {
+        boolean reverse = setpoint.isReversed();
+        double  angle;
+
+        if (Math.abs(drive) < holdDrive)
+        {
+            // Keep steering where we were going, or where the wheel is if stopped since.
+            angle = setpoint.isValid() ? setpoint.getAngle() : currentAngle;
+
+            if (!setpoint.isValid()) reverse = false;
+        }
+        else
+        {
+            double error = Math.abs(Math.IEEEremainder(targetAngle - currentAngle, 2.0 * Math.PI));
+
+            if (reverse)
+                reverse = error > HALF_PI - flipHysteresis;
+            else
+                reverse = error > HALF_PI + flipHysteresis;
+
+            angle = SteerUtils.normalizeAngle(reverse ? targetAngle + Math.PI : targetAngle);
+        }
+
+        double scale = 1.0;
+
+        // How much of the wheel's push is along the target direction, from where the
+        // wheel points now. Never negative, a wheel pointing the wrong way does not drive.
+        if (cosineScaling)
+        {
+            double wheelAngle = reverse ? currentAngle + Math.PI : currentAngle;
+
+            scale = Math.max(0.0, Math.cos(targetAngle - wheelAngle));
+        }
+
+        setpoint.set(angle, reverse ? -scale : scale, reverse);
+    }
+}
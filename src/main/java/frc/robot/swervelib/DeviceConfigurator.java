@@ -0,0 +1,231 @@
+package frc.robot.swervelib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import Team4450.Lib.Util;
+
+/**
+ * Configures independent CAN devices concurrently at robot boot.
+ * <p>
+ * Each device's configuration (construction, factory default restore, settings)
+ * is submitted as its own task and runs on a small fixed pool of threads, so the
+ * CAN round trips and timeouts of different devices overlap instead of adding up.
+ * Each device is still configured by one thread, in the same order as the serial
+ * path, so the final configuration is the same.
+ * <p>
+ * Every task is timed. Configuration errors reported through checkNeoError or
+ * checkCtreError while a task runs are collected against that device. If a task
+ * throws, tasks not yet started are cancelled and awaitAll() throws one exception
+ * with every failure attached. Work that must run on the robot main thread, such as
+ * adding Shuffleboard entries, is queued with onCaller() and run by awaitAll().
+ * <p>
+ * Use once: submit all devices, then call awaitAll() from the main thread.
+ */
+public class DeviceConfigurator
+{
+    private static final long   TIMEOUT_SECONDS = 30;
+
+    private static final ThreadLocal<DeviceReport> currentDevice = new ThreadLocal<>();
+
+    private final ExecutorService           executor;
+    private final List<DeviceReport>        reports = new ArrayList<>();
+    private final List<CompletableFuture<?>> futures = new ArrayList<>();
+    private final List<Runnable>            callerActions = new ArrayList<>();
+    private final long                      startNanos = System.nanoTime();
+
+    private volatile boolean                failed;
+
+    /**
+     * Create a configurator.
+     * @param threads Maximum devices configured at the same time.
+     */
+    public DeviceConfigurator(int threads)
+    {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        executor = Executors.newFixedThreadPool(threads, runnable ->
+        {
+            Thread thread = new Thread(runnable, "DeviceConfig-" + threadNumber.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+
+    /**
+     * Submit one device's configuration.
+     * @param device Device name for the report.
+     * @param task Creates and configures the device.
+     * @return Future completed with the task's result.
+     */
+    public synchronized <T> CompletableFuture<T> submit(String device, Supplier<T> task)
+    {
+        DeviceReport report = new DeviceReport(device);
+
+        reports.add(report);
+
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(() ->
+        {
+            // Fail fast, do not start more devices once one has failed.
+            if (failed) throw new IllegalStateException(device + " skipped after an earlier failure");
+
+            report.startNanos = System.nanoTime();
+            report.thread = Thread.currentThread().getName();
+
+            currentDevice.set(report);
+
+            try
+            {
+                return task.get();
+            }
+            catch (RuntimeException e)
+            {
+                failed = true;
+                report.failure = e;
+                throw e;
+            }
+            finally
+            {
+                currentDevice.remove();
+                report.endNanos = System.nanoTime();
+            }
+        }, executor);
+
+        futures.add(future);
+
+        return future;
+    }
+
+    /**
+     * Queue an action to run on the thread calling awaitAll(), after every device
+     * is configured. For work that is not thread safe, like dashboard setup.
+     * @param action The action.
+     */
+    public synchronized void onCaller(Runnable action)
+    {
+        callerActions.add(action);
+    }
+
+    /**
+     * Wait for every submitted device, log the timing report and run the queued
+     * caller actions. Shuts the thread pool down.
+     * @throws IllegalStateException if any device failed, with each failure added
+     * as a suppressed exception.
+     */
+    public void awaitAll()
+    {
+        List<CompletableFuture<?>> pending;
+
+        synchronized (this) { pending = new ArrayList<>(futures); }
+
+        try
+        {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        catch (Exception e)
+        {
+            // Failures are collected from the reports below.
+            if (!failed)
+            {
+                failed = true;
+                pending.forEach(future -> future.cancel(false));
+                Util.logException(e);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        logReport();
+
+        IllegalStateException failure = null;
+
+        for (DeviceReport report : reports)
+            if (report.failure != null)
+            {
+                if (failure == null) failure = new IllegalStateException("Device configuration failed");
+
+                failure.addSuppressed(report.failure);
+            }
+
+        if (failure == null && failed) failure = new IllegalStateException("Device configuration timed out");
+
+        if (failure != null) throw failure;
+
+        for (Runnable action : callerActions) action.run();
+    }
+
+    private void logReport()
+    {
+        double totalMs = (System.nanoTime() - startNanos) / 1_000_000.0, deviceMs = 0;
+
+        for (DeviceReport report : reports)
+        {
+            if (report.endNanos == 0)
+            {
+                Util.consoleLog("%s: not run", report.device);
+                continue;
+            }
+
+            double ms = (report.endNanos - report.startNanos) / 1_000_000.0;
+
+            deviceMs += ms;
+
+            Util.consoleLog("%s: %.1fms start=%.1fms on %s errors=%d%s", report.device, ms,
+                (report.startNanos - startNanos) / 1_000_000.0, report.thread, report.errors.size(),
+                report.failure == null ? "" : " FAILED " + report.failure);
+
+            for (String error : report.errors) Util.consoleLog("%s:   %s", report.device, error);
+        }
+
+        Util.consoleLog("%d devices configured in %.1fms, %.1fms if serial", reports.size(), totalMs, deviceMs);
+    }
+
+    /**
+     * Record a configuration error against the device being configured on this
+     * thread, if any. Called by the vendor error check helpers.
+     * @param message The error.
+     */
+    public static void reportError(String message)
+    {
+        DeviceReport report = currentDevice.get();
+
+        if (report != null) report.errors.add(message);
+    }
+
+    /**
+     * Unwraps the exception thrown by CompletableFuture.join().
+     * @param e The exception.
+     * @return The original exception.
+     */
+    public static RuntimeException unwrap(CompletionException e)
+    {
+        return e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+
+    private static class DeviceReport
+    {
+        private final String        device;
+        private final List<String>  errors = new ArrayList<>();
+
+        private volatile long       startNanos, endNanos;
+        private volatile String     thread;
+        private volatile RuntimeException failure;
+
+        private DeviceReport(String device)
+        {
+            this.device = device;
+        }
+    }
+}
@@ -1,22 +1,57 @@
 package frc.robot.swervelib;
 
-import com.ctre.phoenix.motorcontrol.can.TalonFX;
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.RelativeEncoder;
-
 public interface DriveController 
 {
     void setReferenceVoltage(double voltage);
 
+    /**
+     * Runs the drive at a velocity with the motor controller's onboard velocity loop,
+     * which runs every millisecond on the controller. The kS, kV and kA feedforward is
+     * computed here and sent with the setpoint as an arbitrary feedforward voltage, so
+     * the loop only corrects what the feedforward misses.
+     * @param velocity Wheel velocity in m/s.
+     * @param acceleration Wheel acceleration in m/s/s, for the kA term.
+     */
+    void setReferenceVelocity(double velocity, double acceleration);
+
     double getStateVelocity();
 
-    void stop();
-    
-    public RelativeEncoder getEncoder();
+    /**
+     * Reads the drive wheel distance from the motor encoder.
+     * @return Distance in meters.
+     */
+    double getStatePosition();
 
-    public CANSparkMax getMotorNeo();
+    /**
+     * Sets the drive wheel distance the motor encoder reads.
+     * @param position Distance in meters.
+     */
+    void setStatePosition(double position);
 
-    public TalonFX getMotor500();
+    void stop();
 
     public void setBrakeMode(boolean on);
+
+    /**
+     * Sets the controller's status frame periods. Does not wait for the device.
+     * @param profile The frame periods.
+     */
+    default void setStatusFrameProfile(StatusFrameProfile profile) {}
+
+    /**
+     * Estimates the status frames per second the controller sends with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    default double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return 0;
+    }
+
+    /**
+     * Simulation only. Advances the simulated drive encoder.
+     * @param distanceDelta Wheel distance moved since the last update in meters.
+     * @param velocity Wheel velocity in meters per second.
+     */
+    default void simulationUpdate(double distanceDelta, double velocity) {}
 }
@@ -1,20 +1,28 @@
 package frc.robot.swervelib;
 
 import Team4450.Lib.Util;
+import frc.robot.telemetry.TelemetryPublisher;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
 
 @FunctionalInterface
 public interface DriveControllerFactory<Controller extends DriveController, DriveConfiguration> 
 {
-    default void addDashboardEntries(ShuffleboardContainer container, Controller controller) 
+    /**
+     * Adds the controller's dashboard entries. Entries read the module's sensor
+     * snapshot rather than the device and are published at a limited rate.
+     */
+    default void addDashboardEntries(ShuffleboardContainer container, Controller controller, 
+                                     ModuleSensorSnapshot sensors) 
     {
         Util.consoleLog();
     
-        container.addNumber("Current Velocity", controller::getStateVelocity);
+        TelemetryPublisher.addNumber(container, "Current Velocity", sensors::getDriveVelocity, 
+                                     TelemetryPublisher.DIAGNOSTIC_HZ, 0.01);
     }
 
     default Controller create(
             ShuffleboardContainer container,
+            ModuleSensorSnapshot sensors,
             DriveConfiguration driveConfiguration,
             ModuleConfiguration moduleConfiguration) 
     {
@@ -22,7 +30,7 @@ public interface DriveControllerFactory<Controller extends DriveController, Driv
     
         var controller = create(driveConfiguration, moduleConfiguration);
         
-        addDashboardEntries(container, controller);
+        addDashboardEntries(container, controller, sensors);
 
         return controller;
     }
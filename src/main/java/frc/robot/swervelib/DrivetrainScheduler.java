@@ -0,0 +1,338 @@
+package frc.robot.swervelib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Threads;
+
+/**
+ * Runs the drivetrain's background tasks, such as zeroing the gyro once it has
+ * settled or turning the wheels to their starting position, on a small pool of named
+ * threads instead of a new thread per task.
+ * <p>
+ * A task runs once after a delay, or periodically at a fixed rate until it reports it
+ * is done. Every run is timed against the time it was scheduled for: how late it
+ * started (jitter), how long it ran and whether it finished after the task's deadline.
+ * A task's timing is logged when it ends. Tasks scheduled to be cancelled on disable
+ * are cancelled by disabled(), which the robot calls when it is disabled. A task's
+ * finish() is called once whether it ends or is cancelled, so it can stop its motors.
+ * <p>
+ * On the roboRIO the threads run at a real time priority, above the main robot thread,
+ * so a long robot loop does not delay them. Tasks must be short: one run should do a
+ * few CAN reads and writes, never sleep or wait.
+ */
+public final class DrivetrainScheduler
+{
+    /** Deadline of tasks run once, seconds after the time they were scheduled for. */
+    public static final double  ONE_SHOT_DEADLINE = 0.02;
+
+    private static final int    THREADS = 2;
+    // Linux SCHED_FIFO priority, 1-99. The main robot thread is not real time,
+    // the HAL notifier that wakes it runs at 40.
+    private static final int    REAL_TIME_PRIORITY = 15;
+
+    private static DrivetrainScheduler  instance;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final List<Task>            tasks = new ArrayList<>();
+
+    // Since the last disabled().
+    private final LongAccumulator       maxLatenessNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder             deadlineMisses = new LongAdder();
+
+    /**
+     * Returns the scheduler shared by the drivetrain, creating it if needed.
+     * @return The scheduler.
+     */
+    public static synchronized DrivetrainScheduler getInstance()
+    {
+        if (instance == null) instance = new DrivetrainScheduler("Drivetrain", THREADS, REAL_TIME_PRIORITY);
+
+        return instance;
+    }
+
+    /**
+     * Create a scheduler.
+     * @param name Thread name prefix.
+     * @param threads Maximum tasks run at the same time.
+     * @param realTimePriority Real time priority of the threads on the roboRIO (1-99),
+     * zero to leave them at normal priority.
+     */
+    public DrivetrainScheduler(String name, int threads, int realTimePriority)
+    {
+        Util.consoleLog("%s threads=%d priority=%d", name, threads, realTimePriority);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        executor = new ScheduledThreadPoolExecutor(threads, runnable ->
+        {
+            Thread thread = new Thread(() ->
+            {
+                if (realTimePriority > 0 && RobotBase.isReal() && !Threads.setCurrentThreadPriority(true, realTimePriority))
+                    Util.consoleLog("%s: real time priority not set", Thread.currentThread().getName());
+
+                runnable.run();
+            }, name + "-" + threadNumber.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Run a task once.
+     * @param name Task name for the log.
+     * @param delaySeconds Time to wait before running it.
+     * @param cancelOnDisable True to cancel the task if the robot is disabled before it runs.
+     * @param action The task.
+     * @return The task, to cancel it.
+     */
+    public Task schedule(String name, double delaySeconds, boolean cancelOnDisable, Runnable action)
+    {
+        return start(new Task(name, 0, ONE_SHOT_DEADLINE, cancelOnDisable, () -> { action.run(); return true; }),
+                     delaySeconds);
+    }
+
+    /**
+     * Run a task periodically, at a fixed rate, until it reports it is done or is
+     * cancelled. The first run is right away.
+     * @param name Task name for the log.
+     * @param periodSeconds Time between runs.
+     * @param deadlineSeconds Time after the scheduled time of a run it must finish by.
+     * @param cancelOnDisable True to cancel the task when the robot is disabled.
+     * @param action The task.
+     * @return The task, to cancel it.
+     */
+    public Task schedulePeriodic(String name, double periodSeconds, double deadlineSeconds, boolean cancelOnDisable,
+                                 PeriodicTask action)
+    {
+        return start(new Task(name, periodSeconds, deadlineSeconds, cancelOnDisable, action), 0);
+    }
+
+    private Task start(Task task, double delaySeconds)
+    {
+        long delayNanos = (long) (delaySeconds * 1e9);
+
+        synchronized (tasks)
+        {
+            tasks.add(task);
+        }
+
+        // Runs wait on the task's lock, so the first can't start before the future is set.
+        synchronized (task)
+        {
+            task.scheduledNanos = System.nanoTime() + delayNanos;
+
+            if (task.periodNanos > 0)
+                task.future = executor.scheduleAtFixedRate(task::run, delayNanos, task.periodNanos, TimeUnit.NANOSECONDS);
+            else
+                task.future = executor.schedule(task::run, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        return task;
+    }
+
+    /**
+     * Cancel the tasks scheduled to be cancelled on disable, and reset the jitter and
+     * deadline miss totals. Call when the robot is disabled.
+     */
+    public void disabled()
+    {
+        List<Task> cancelled = new ArrayList<>();
+
+        synchronized (tasks)
+        {
+            for (Task task : tasks) if (task.cancelOnDisable) cancelled.add(task);
+        }
+
+        // Outside the list lock, a task ending takes its own lock and then the list's.
+        for (Task task : cancelled) task.cancel();
+
+        Util.consoleLog("cancelled=%d max jitter=%.2fms deadline misses=%d", cancelled.size(), getMaxJitterMs(),
+                        getDeadlineMisses());
+
+        maxLatenessNanos.reset();
+        deadlineMisses.reset();
+    }
+
+    /**
+     * Wait for every task to end, such as the boot tasks before a simulation starts.
+     * @param timeoutSeconds Longest time to wait.
+     * @return True if every task ended, false on timeout.
+     */
+    public boolean awaitIdle(double timeoutSeconds) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + (long) (timeoutSeconds * 1e9);
+
+        while (getActiveCount() > 0)
+        {
+            if (System.nanoTime() > deadline) return false;
+
+            Thread.sleep(5);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return Number of tasks scheduled that have not ended.
+     */
+    public int getActiveCount()
+    {
+        synchronized (tasks)
+        {
+            return tasks.size();
+        }
+    }
+
+    /**
+     * @return Latest any task run started after the time it was scheduled for, since
+     * the last disabled(), in milliseconds.
+     */
+    public double getMaxJitterMs()
+    {
+        return maxLatenessNanos.get() / 1e6;
+    }
+
+    /**
+     * @return Task runs that finished after their deadline since the last disabled().
+     */
+    public long getDeadlineMisses()
+    {
+        return deadlineMisses.sum();
+    }
+
+    /**
+     * A task run periodically.
+     */
+    public interface PeriodicTask
+    {
+        /**
+         * Called each period on a scheduler thread.
+         * @return True when the task is done, to stop running it.
+         */
+        boolean run();
+
+        /**
+         * Called once when the task ends, after its last run, or when it is cancelled,
+         * which may be before it has run. Never at the same time as run().
+         * @param cancelled True if the task was cancelled.
+         */
+        default void finish(boolean cancelled) {}
+    }
+
+    /**
+     * A scheduled task and its timing.
+     */
+    public final class Task
+    {
+        private final String        name;
+        private final long          periodNanos, deadlineNanos;
+        private final boolean       cancelOnDisable;
+        private final PeriodicTask  action;
+
+        // Guarded by this.
+        private ScheduledFuture<?>  future;
+        private long                scheduledNanos, runs, latenessNanos, maxLatenessNanos, maxRunNanos, misses;
+        private boolean             done;
+
+        private Task(String name, double periodSeconds, double deadlineSeconds, boolean cancelOnDisable,
+                     PeriodicTask action)
+        {
+            this.name = name;
+            this.periodNanos = (long) (periodSeconds * 1e9);
+            this.deadlineNanos = (long) (deadlineSeconds * 1e9);
+            this.cancelOnDisable = cancelOnDisable;
+            this.action = action;
+        }
+
+        private synchronized void run()
+        {
+            if (done) return;
+
+            long startNanos = System.nanoTime();
+            long lateness = Math.max(0, startNanos - scheduledNanos);
+            boolean finished;
+
+            try {
+                finished = action.run();
+            } catch (Exception e) { Util.logException(e); finished = true; }
+
+            long endNanos = System.nanoTime();
+
+            runs++;
+            latenessNanos += lateness;
+            maxLatenessNanos = Math.max(maxLatenessNanos, lateness);
+            maxRunNanos = Math.max(maxRunNanos, endNanos - startNanos);
+
+            DrivetrainScheduler.this.maxLatenessNanos.accumulate(lateness);
+
+            if (endNanos - scheduledNanos > deadlineNanos)
+            {
+                misses++;
+                deadlineMisses.increment();
+            }
+
+            // Fixed rate: a late run does not move the ones after it.
+            scheduledNanos += periodNanos;
+
+            if (finished || periodNanos == 0) end(false);
+        }
+
+        /**
+         * Cancel the task. Waits for a run in progress to finish. Does nothing if the
+         * task has ended.
+         */
+        public synchronized void cancel()
+        {
+            end(true);
+        }
+
+        private void end(boolean cancelled)
+        {
+            if (done) return;
+
+            done = true;
+
+            future.cancel(false);
+
+            try {
+                action.finish(cancelled);
+            } catch (Exception e) { Util.logException(e); }
+
+            synchronized (tasks)
+            {
+                tasks.remove(this);
+            }
+
+            Util.consoleLog("%s %s: runs=%d jitter avg=%.2fms max=%.2fms run max=%.2fms deadline misses=%d",
+                            name, cancelled ? "cancelled" : "done", runs,
+                            runs == 0 ? 0 : latenessNanos / 1e6 / runs, maxLatenessNanos / 1e6, maxRunNanos / 1e6,
+                            misses);
+        }
+
+        /**
+         * @return True if the task has ended or been cancelled.
+         */
+        public synchronized boolean isDone()
+        {
+            return done;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package frc.robot.swervelib;
+
+/**
+ * The drive base gyro, as the drive logic sees it: readings taken into GyroInputs once
+ * per loop, and the heading at recent times for code with its own timestamps (odometry,
+ * vision). Nothing here names a vendor type, so the drive logic runs the same against
+ * the navX (frc.robot.swervelib.kauailabs.NavXGyroIO), a settable heading (SimGyroIO) or
+ * nothing at all (NoOpGyroIO).
+ */
+public interface GyroIO
+{
+    /**
+     * Read the gyro once for this loop.
+     * @param timestamp FPGA time of the loop's sensor reads in seconds.
+     * @param inputs Readings to fill in.
+     */
+    void updateInputs(double timestamp, GyroInputs inputs);
+
+    /**
+     * Heading at a recent time. Called from any thread.
+     * @param timestamp FPGA time in seconds.
+     * @return Heading in degrees, range [-180, 180], CCW positive.
+     */
+    double getHeadingAt(double timestamp);
+
+    /**
+     * The samples getHeadingAt() interpolates, for reading heading, rate and
+     * acceleration at a time.
+     */
+    GyroSampleBuffer getSamples();
+
+    /**
+     * Make the current heading zero.
+     */
+    void zero();
+}
@@ -0,0 +1,16 @@
+package frc.robot.swervelib;
+
+/**
+ * The gyro readings taken once at the start of a robot loop cycle, filled in by a
+ * GyroIO. Everything that needs the heading during the cycle reads it from here.
+ * Written and read on the robot main thread only.
+ */
+public final class GyroInputs
+{
+    /** Heading in degrees, range [-180, 180], CCW positive. */
+    public double   headingDegrees;
+    /** Yaw rate in degrees per second, CCW positive. */
+    public double   rateDegreesPerSecond;
+    /** False if the gyro is not talking to the robot. */
+    public boolean  connected;
+}
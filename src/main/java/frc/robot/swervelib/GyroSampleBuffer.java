@@ -0,0 +1,180 @@
+package frc.robot.swervelib;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed size ring of timestamped gyro samples in primitive arrays, for reading the
+ * heading (or rate or acceleration) at any recent time by interpolation.
+ * <p>
+ * One thread adds samples, such as the gyro's data callback thread, and any thread
+ * reads. Reads never block: they retry if a sample was added while they read, using a
+ * sequence counter that is odd while a sample is being written. Nothing is allocated
+ * after construction.
+ */
+public final class GyroSampleBuffer
+{
+    /** Heading in degrees, CCW positive. */
+    public static final int     HEADING = 0;
+    /** Yaw rate in degrees per second, CCW positive. */
+    public static final int     RATE = 1;
+    /** Linear acceleration in g, robot relative. */
+    public static final int     ACCEL_X = 2, ACCEL_Y = 3, ACCEL_Z = 4;
+
+    private static final int    FIELDS = 5;
+
+    private final int           capacity;
+    private final double[]      timestamps;
+    private final double[][]    values;
+
+    // Samples written, as a count. The newest sample is at (count - 1) % capacity.
+    private long                count;
+    private volatile long       sequence;
+
+    /**
+     * Create a buffer.
+     * @param capacity Number of samples kept. At 200hz, 128 keeps 0.64 seconds.
+     */
+    public GyroSampleBuffer(int capacity)
+    {
+        this.capacity = capacity;
+
+        timestamps = new double[capacity];
+        values = new double[FIELDS][capacity];
+    }
+
+    /**
+     * Add a sample. Samples must be added in time order, from one thread.
+     * @param timestamp FPGA time of the sample in seconds.
+     * @param heading Heading in degrees, CCW positive, any range. Stored continuous, so
+     * interpolating across the +-180 wrap turns the short way.
+     * @param rate Yaw rate in degrees per second, CCW positive.
+     * @param accelX Linear acceleration along robot X in g.
+     * @param accelY Linear acceleration along robot Y in g.
+     * @param accelZ Linear acceleration along robot Z in g.
+     */
+    public void add(double timestamp, double heading, double rate, double accelX, double accelY, double accelZ)
+    {
+        long n = count;
+
+        if (n > 0)
+        {
+            double last = values[HEADING][(int) ((n - 1) % capacity)];
+
+            heading = last + Math.IEEEremainder(heading - last, 360.0);
+        }
+
+        int slot = (int) (n % capacity);
+
+        sequence++;
+
+        VarHandle.storeStoreFence();
+
+        timestamps[slot] = timestamp;
+        values[HEADING][slot] = heading;
+        values[RATE][slot] = rate;
+        values[ACCEL_X][slot] = accelX;
+        values[ACCEL_Y][slot] = accelY;
+        values[ACCEL_Z][slot] = accelZ;
+
+        count = n + 1;
+
+        sequence++;
+    }
+
+    /**
+     * Heading at a time, interpolated between the samples either side of it. Times
+     * before the oldest or after the newest sample get that sample's heading.
+     * @param timestamp FPGA time in seconds.
+     * @return Heading in degrees, range [-180, 180], CCW positive. NaN if there are no samples.
+     */
+    public double getHeadingAt(double timestamp)
+    {
+        return Math.IEEEremainder(getAt(HEADING, timestamp), 360.0);
+    }
+
+    /**
+     * A value at a time, interpolated between the samples either side of it. Times
+     * before the oldest or after the newest sample get that sample's value.
+     * @param field HEADING (continuous, not wrapped), RATE, ACCEL_X, ACCEL_Y or ACCEL_Z.
+     * @param timestamp FPGA time in seconds.
+     * @return The value, NaN if there are no samples.
+     */
+    public double getAt(int field, double timestamp)
+    {
+        double[] fieldValues = values[field];
+
+        while (true)
+        {
+            long s = sequence;
+
+            VarHandle.loadLoadFence();
+
+            double result = interpolate(fieldValues, timestamp);
+
+            VarHandle.loadLoadFence();
+
+            if ((s & 1) == 0 && s == sequence) return result;
+
+            Thread.onSpinWait();
+        }
+    }
+
+    private double interpolate(double[] fieldValues, double timestamp)
+    {
+        long n = count;
+
+        if (n == 0) return Double.NaN;
+
+        long oldest = Math.max(0, n - capacity), newest = n - 1;
+
+        if (timestamp >= timestamps[(int) (newest % capacity)]) return fieldValues[(int) (newest % capacity)];
+        if (timestamp <= timestamps[(int) (oldest % capacity)]) return fieldValues[(int) (oldest % capacity)];
+
+        // Find the last sample at or before the time.
+        long low = oldest, high = newest;
+
+        while (high - low > 1)
+        {
+            long middle = (low + high) >>> 1;
+
+            if (timestamps[(int) (middle % capacity)] <= timestamp) low = middle; else high = middle;
+        }
+
+        int before = (int) (low % capacity), after = (int) (high % capacity);
+
+        double span = timestamps[after] - timestamps[before];
+        double t = span > 0 ? (timestamp - timestamps[before]) / span : 1.0;
+
+        return fieldValues[before] + (fieldValues[after] - fieldValues[before]) * t;
+    }
+
+    /**
+     * @return FPGA time of the newest sample in seconds, NaN if there are none.
+     */
+    public double getLatestTimestamp()
+    {
+        while (true)
+        {
+            long s = sequence;
+
+            VarHandle.loadLoadFence();
+
+            long n = count;
+            double result = n == 0 ? Double.NaN : timestamps[(int) ((n - 1) % capacity)];
+
+            VarHandle.loadLoadFence();
+
+            if ((s & 1) == 0 && s == sequence) return result;
+
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return Number of samples added since the buffer was created.
+     */
+    public long getSampleCount()
+    {
+        return sequence >>> 1;
+    }
+}
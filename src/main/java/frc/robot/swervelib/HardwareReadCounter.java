@@ -0,0 +1,46 @@
+package frc.robot.swervelib;
+
+/**
+ * Counts device reads (JNI calls to motor controllers and encoders) made on the
+ * robot loop thread, so the number of reads per cycle can be watched on the
+ * dashboard. Reads made on other threads, like the odometry thread, are not
+ * counted. Every hardware read in swervelib calls record().
+ */
+public final class HardwareReadCounter
+{
+    private static volatile Thread  loopThread;
+    private static long             loopReads;
+
+    private HardwareReadCounter() {}
+
+    /**
+     * Set the thread whose reads are counted, normally the robot main thread.
+     * @param thread The loop thread.
+     */
+    public static void setLoopThread(Thread thread)
+    {
+        loopThread = thread;
+    }
+
+    /**
+     * Record one device read.
+     */
+    public static void record()
+    {
+        if (Thread.currentThread() == loopThread) loopReads++;
+    }
+
+    /**
+     * Returns the reads counted since the last call and restarts the count.
+     * Call once per cycle from the loop thread.
+     * @return Device reads in the cycle.
+     */
+    public static long takeLoopReads()
+    {
+        long reads = loopReads;
+
+        loopReads = 0;
+
+        return reads;
+    }
+}
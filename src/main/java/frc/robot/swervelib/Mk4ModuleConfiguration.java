@@ -34,6 +34,40 @@ public class Mk4ModuleConfiguration
     private double steerI = DEFAULT_NEO_I; 
     private double steerD = DEFAULT_NEO_D;
 
+    // Drive velocity feedforward: kS volts to overcome friction, kV volts per m/s and
+    // kA volts per m/s/s. Defaults are the motors' theoretical kV through Mk4i L1 gearing
+    // and typical kS and kA. Characterize the robot with SysId and set the measured values.
+    // The velocity P is the controller's onboard velocity loop gain in volts per m/s of error.
+    private static final double DEFAULT_NEO_KS = 0.15;
+    private static final double DEFAULT_NEO_KV = 3.2;
+    private static final double DEFAULT_NEO_KA = 0.4;
+    private static final double DEFAULT_NEO_VELOCITY_P = 1.0;
+
+    private static final double DEFAULT_500_KS = 0.15;
+    private static final double DEFAULT_500_KV = 2.9;
+    private static final double DEFAULT_500_KA = 0.4;
+    private static final double DEFAULT_500_VELOCITY_P = 1.0;
+
+    /**
+     * Candidate NEO steer motion profile: maximum module steer velocity (rad/s) and
+     * acceleration (rad/s/s), and feedforward volts per rad/s (theoretical for the Mk4i
+     * steer reduction). Not measured, so the default configuration leaves the profile off
+     * (NaN, the steer position loop is given the target directly). Compare settle time and
+     * overshoot with ./gradlew steerStepResponse before turning it on with setSteerMotionProfile().
+     */
+    public static final double NEO_STEER_PROFILE_MAX_VELOCITY = 12.0;
+    public static final double NEO_STEER_PROFILE_MAX_ACCELERATION = 120.0;
+    public static final double NEO_STEER_PROFILE_KV = 0.43;
+
+    private double steerMaxVelocity = Double.NaN;
+    private double steerMaxAcceleration = Double.NaN;
+    private double steerKv = Double.NaN;
+
+    private double driveKs = DEFAULT_NEO_KS;
+    private double driveKv = DEFAULT_NEO_KV;
+    private double driveKa = DEFAULT_NEO_KA;
+    private double driveVelocityP = DEFAULT_NEO_VELOCITY_P;
+
     // Private constructor prevents this class from being created with the new
     // operator. Use the static factory methods below to create new instances.
     private Mk4ModuleConfiguration () {}
@@ -49,6 +83,32 @@ public class Mk4ModuleConfiguration
         steerD = d;
     }
 
+    public double getSteerMaxVelocity() { return steerMaxVelocity; }
+    public double getSteerMaxAcceleration() { return steerMaxAcceleration; }
+    public double getSteerKv() { return steerKv; }
+
+    public void setSteerMotionProfile(double maxVelocity, double maxAcceleration, double kV)
+    {
+        steerMaxVelocity = maxVelocity;
+        steerMaxAcceleration = maxAcceleration;
+        steerKv = kV;
+    }
+
+    public double getDriveKs() { return driveKs; }
+    public double getDriveKv() { return driveKv; }
+    public double getDriveKa() { return driveKa; }
+
+    public void setDriveFeedforward(double kS, double kV, double kA)
+    {
+        driveKs = kS;
+        driveKv = kV;
+        driveKa = kA;
+    }
+
+    public double getDriveVelocityP() { return driveVelocityP; }
+
+    public void setDriveVelocityP(double p) { this.driveVelocityP = p; }
+
     public double getNominalDriveVoltage() { return nominalDriveVoltage; }
 
     public void setNominalDriveVoltage(double nominalVoltage) { this.nominalDriveVoltage = nominalVoltage; }
@@ -89,6 +149,13 @@ public class Mk4ModuleConfiguration
                               Double.compare(that.getSteerP(), getSteerP()) == 0 && 
                               Double.compare(that.getSteerI(), getSteerI()) == 0 && 
                               Double.compare(that.getSteerD(), getSteerD()) == 0 && 
+                              Double.compare(that.getSteerMaxVelocity(), getSteerMaxVelocity()) == 0 && 
+                              Double.compare(that.getSteerMaxAcceleration(), getSteerMaxAcceleration()) == 0 && 
+                              Double.compare(that.getSteerKv(), getSteerKv()) == 0 && 
+                              Double.compare(that.getDriveKs(), getDriveKs()) == 0 && 
+                              Double.compare(that.getDriveKv(), getDriveKv()) == 0 && 
+                              Double.compare(that.getDriveKa(), getDriveKa()) == 0 && 
+                              Double.compare(that.getDriveVelocityP(), getDriveVelocityP()) == 0 && 
                               Double.compare(that.getDriveCurrentLimit(), getDriveCurrentLimit()) == 0 && 
                               Double.compare(that.getSteerCurrentLimit(), getSteerCurrentLimit()) == 0;
     }
@@ -98,7 +165,9 @@ public class Mk4ModuleConfiguration
     {
         return Objects.hash(getNominalDriveVoltage(), getNominalSteerVoltage(), getDriveCurrentLimit(), 
                             getSteerCurrentLimit(), getDriveRampRate(), getSteerRampRate(), getSteerP(),
-                            getSteerI(), getSteerD());
+                            getSteerI(), getSteerD(), getSteerMaxVelocity(), getSteerMaxAcceleration(), 
+                            getSteerKv(), getDriveKs(), getDriveKv(), getDriveKa(), 
+                            getDriveVelocityP());
     }
 
     @Override
@@ -112,6 +181,9 @@ public class Mk4ModuleConfiguration
                 ", driveRampRate=" + driveRampRate +
                 ", steerRampRate" + steerRampRate +
                 ", p=" + steerP + ", i=" + steerI + ", d=" + steerD +
+                ", steerMaxVelocity=" + steerMaxVelocity + ", steerMaxAcceleration=" + steerMaxAcceleration +
+                ", steerKv=" + steerKv +
+                ", kS=" + driveKs + ", kV=" + driveKv + ", kA=" + driveKa + ", velocityP=" + driveVelocityP +
                 '}';
     }
 
@@ -120,6 +192,8 @@ public class Mk4ModuleConfiguration
         Mk4ModuleConfiguration config = new Mk4ModuleConfiguration();
 
         config.setSteerPid(DEFAULT_500_P, DEFAULT_500_I, DEFAULT_500_D);
+        config.setDriveFeedforward(DEFAULT_500_KS, DEFAULT_500_KV, DEFAULT_500_KA);
+        config.setDriveVelocityP(DEFAULT_500_VELOCITY_P);
 
         return config;
     }
@@ -129,6 +203,8 @@ public class Mk4ModuleConfiguration
         Mk4ModuleConfiguration config = new Mk4ModuleConfiguration();
 
         config.setSteerPid(DEFAULT_NEO_P, DEFAULT_NEO_I, DEFAULT_NEO_D);
+        config.setDriveFeedforward(DEFAULT_NEO_KS, DEFAULT_NEO_KV, DEFAULT_NEO_KA);
+        config.setDriveVelocityP(DEFAULT_NEO_VELOCITY_P);
 
         return config;
     }
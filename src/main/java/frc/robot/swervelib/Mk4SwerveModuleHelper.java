@@ -16,6 +16,8 @@ public final class Mk4SwerveModuleHelper
         return new Falcon500DriveControllerFactoryBuilder()
                 .withVoltageCompensation(configuration.getNominalDriveVoltage())
                 .withCurrentLimit(configuration.getDriveCurrentLimit())
+                .withVelocityControl(configuration.getDriveKs(), configuration.getDriveKv(), configuration.getDriveKa(),
+                                     configuration.getDriveVelocityP())
                 .build();
     }
 
@@ -36,6 +38,8 @@ public final class Mk4SwerveModuleHelper
                 .withVoltageCompensation(configuration.getNominalDriveVoltage())
                 .withCurrentLimit(configuration.getDriveCurrentLimit())
                 .withRampRate(configuration.getDriveRampRate())
+                .withVelocityControl(configuration.getDriveKs(), configuration.getDriveKv(), configuration.getDriveKa(),
+                                     configuration.getDriveVelocityP())
                 .build();
     }
 
@@ -44,6 +48,8 @@ public final class Mk4SwerveModuleHelper
         return new NeoSteerControllerFactoryBuilder()
                 .withVoltageCompensation(configuration.getNominalSteerVoltage())
                 .withPidConstants(configuration.getSteerP(), configuration.getSteerI(), configuration.getSteerD()) // PID parms customized by 4450.
+                .withMotionProfile(configuration.getSteerMaxVelocity(), configuration.getSteerMaxAcceleration(),
+                                   configuration.getSteerKv())
                 .withCurrentLimit(configuration.getSteerCurrentLimit())
                 .withRampRate(configuration.getSteerRampRate())
                 .build(new CanCoderFactoryBuilder()
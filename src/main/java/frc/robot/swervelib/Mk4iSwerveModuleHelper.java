@@ -1,5 +1,7 @@
 package frc.robot.swervelib;
 
+import java.util.concurrent.CompletableFuture;
+
 import frc.robot.Constants.ModulePosition;
 import frc.robot.swervelib.ctre.*;
 import frc.robot.swervelib.rev.NeoDriveControllerFactoryBuilder;
@@ -19,6 +21,8 @@ public final class Mk4iSwerveModuleHelper
                 .withVoltageCompensation(configuration.getNominalDriveVoltage())
                 .withCurrentLimit(configuration.getDriveCurrentLimit())
                 .withRampRate(configuration.getDriveRampRate())
+                .withVelocityControl(configuration.getDriveKs(), configuration.getDriveKv(), configuration.getDriveKa(),
+                                     configuration.getDriveVelocityP())
                 .build();
     }
 
@@ -42,6 +46,8 @@ public final class Mk4iSwerveModuleHelper
                 .withVoltageCompensation(configuration.getNominalDriveVoltage())
                 .withCurrentLimit(configuration.getDriveCurrentLimit())
                 .withRampRate(configuration.getDriveRampRate())
+                .withVelocityControl(configuration.getDriveKs(), configuration.getDriveKv(), configuration.getDriveKa(),
+                                     configuration.getDriveVelocityP())
                 .build();
     }
 
@@ -52,6 +58,8 @@ public final class Mk4iSwerveModuleHelper
         return new NeoSteerControllerFactoryBuilder()
                 .withVoltageCompensation(configuration.getNominalSteerVoltage())
                 .withPidConstants(configuration.getSteerP(), configuration.getSteerI(), configuration.getSteerD())
+                .withMotionProfile(configuration.getSteerMaxVelocity(), configuration.getSteerMaxAcceleration(),
+                                   configuration.getSteerKv())
                 .withCurrentLimit(configuration.getSteerCurrentLimit())
                 .withRampRate(configuration.getSteerRampRate())
                 .build(new CanCoderFactoryBuilder()
@@ -268,6 +276,89 @@ public final class Mk4iSwerveModuleHelper
             steerOffset);
     }
 
+    /**
+     * Creates a Mk4i swerve module that uses NEOs for driving and steering, with the
+     * drive and steer controllers configured concurrently by the configurator.
+     * Module information is displayed in the specified ShuffleBoard container once
+     * configurator.awaitAll() is called.
+     *
+     * @param configurator     Configures the module's devices.
+     * @param container        The container to display module information in.
+     * @param configuration    Module configuration parameters to use.
+     * @param gearRatio        The gearing configuration the module is in.
+     * @param driveMotorPort   The CAN ID of the drive NEO.
+     * @param steerMotorPort   The CAN ID of the steer NEO.
+     * @param steerEncoderPort The CAN ID of the steer CANCoder.
+     * @param steerOffset      The offset of the CANCoder in radians.
+     * @return Future completed with the configured swerve module.
+     */
+    public static CompletableFuture<SwerveModule> createNeo(
+            DeviceConfigurator configurator,
+            ModulePosition position,
+            ShuffleboardLayout container,
+            Mk4ModuleConfiguration configuration,
+            GearRatio gearRatio,
+            int driveMotorPort,
+            int steerMotorPort,
+            int steerEncoderPort,
+            double steerOffset)
+    {
+        Util.consoleLog();
+    
+        return new SwerveModuleFactory<>(
+                gearRatio.getConfiguration(),
+                getNeoDriveFactory(configuration),
+                getNeoSteerFactory(configuration)
+        ).create(
+                configurator,
+                container,
+                driveMotorPort,
+                new NeoSteerConfiguration<>(
+                        steerMotorPort,
+                        new CanCoderAbsoluteConfiguration(steerEncoderPort, steerOffset)
+                ),
+                steerOffset,
+                position
+        );
+    }
+
+    /**
+     * Creates a Mk4i swerve module that uses NEOs for driving and steering, with the
+     * drive and steer controllers configured concurrently by the configurator.
+     * Module information is displayed in the specified ShuffleBoard container once
+     * configurator.awaitAll() is called.
+     *
+     * @param configurator     Configures the module's devices.
+     * @param container        The container to display module information in.
+     * @param gearRatio        The gearing configuration the module is in.
+     * @param driveMotorPort   The CAN ID of the drive NEO.
+     * @param steerMotorPort   The CAN ID of the steer NEO.
+     * @param steerEncoderPort The CAN ID of the steer CANCoder.
+     * @param steerOffset      The offset of the CANCoder in radians.
+     * @return Future completed with the configured swerve module.
+     */
+    public static CompletableFuture<SwerveModule> createNeo(
+            DeviceConfigurator configurator,
+            ModulePosition position,
+            ShuffleboardLayout container,
+            GearRatio gearRatio,
+            int driveMotorPort,
+            int steerMotorPort,
+            int steerEncoderPort,
+            double steerOffset) 
+    {
+        return createNeo(
+            configurator,
+            position, 
+            container, 
+            Mk4ModuleConfiguration.getDefaultNeoConfig(), 
+            gearRatio, 
+            driveMotorPort, 
+            steerMotorPort, 
+            steerEncoderPort, 
+            steerOffset);
+    }
+
     /**
      * Creates a Mk4i swerve module that uses NEOs for driving and steering.
      *
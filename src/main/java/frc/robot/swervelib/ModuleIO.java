@@ -0,0 +1,122 @@
+package frc.robot.swervelib;
+
+/**
+ * The hardware of one swerve module, as the module logic (SwerveModule) sees it: sensor
+ * inputs read into a ModuleSensorSnapshot once per loop, and drive and steer outputs.
+ * Nothing here names a vendor type, so the module logic runs the same against the motor
+ * controllers (ControllerModuleIO), a pure Java model (SimModuleIO) or nothing at all
+ * (NoOpModuleIO), in the robot, a simulation, a replay or a benchmark.
+ */
+public interface ModuleIO
+{
+    /**
+     * Read every sensor once for this loop.
+     * @param inputs Snapshot to read into.
+     */
+    void updateInputs(ModuleSensorSnapshot inputs);
+
+    /**
+     * Reads the drive velocity now, rather than from the loop's snapshot. Called from
+     * the odometry thread.
+     * @return Wheel velocity in m/s.
+     */
+    double readDriveVelocity();
+
+    /**
+     * Reads the steer angle now, rather than from the loop's snapshot. Called from the
+     * odometry thread.
+     * @return Angle in radians, range [0, 2pi).
+     */
+    double readSteerAngle();
+
+    /**
+     * Reads the absolute (CANCoder) steer angle now. Not for the periodic path.
+     * @return Angle in radians, range [0, 2pi).
+     */
+    double readAbsoluteAngle();
+
+    /**
+     * Drive open loop.
+     * @param voltage Drive motor volts.
+     */
+    void setDriveVoltage(double voltage);
+
+    /**
+     * Drive at a velocity with the controller's velocity loop.
+     * @param velocity Wheel velocity in m/s.
+     * @param acceleration Wheel acceleration in m/s/s, for the feedforward.
+     */
+    void setDriveVelocity(double velocity, double acceleration);
+
+    /**
+     * Steer to an angle.
+     * @param angle Target angle in radians, range [0, 2pi).
+     * @param inputs This loop's sensor snapshot.
+     */
+    void setSteerAngle(double angle, ModuleSensorSnapshot inputs);
+
+    /**
+     * Returns the angle the steer position loop was last given, which trails the target
+     * when the steer is motion profiled.
+     * @return Angle in radians, range [0, 2pi).
+     */
+    double getSteerSetpointAngle();
+
+    /**
+     * Returns the feedforward sent with the last steer setpoint.
+     * @return Volts.
+     */
+    double getSteerSetpointFeedforward();
+
+    /**
+     * Stop the drive and steer motors.
+     */
+    void stop();
+
+    /**
+     * Set the drive encoder position.
+     * @param position Wheel distance in meters.
+     */
+    void setDrivePosition(double position);
+
+    /**
+     * Set the steer encoder position.
+     * @param angle Angle in radians.
+     */
+    void setSteerPosition(double angle);
+
+    /**
+     * Turn the wheel to its start position in the background.
+     * @param steerOffset The module's absolute encoder offset in radians.
+     */
+    void setStartingPosition(double steerOffset);
+
+    void setSteerPidConstants(double proportional, double integral, double derivative);
+
+    /**
+     * Sets the status frame periods of the module's devices. Does not wait for them.
+     * @param profile The frame periods.
+     */
+    default void setStatusFrameProfile(StatusFrameProfile profile) {}
+
+    /**
+     * Estimates the status frames per second the module's devices send with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    default double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return 0;
+    }
+
+    /**
+     * Simulation only. Sets the simulated sensors from the drive base physics model.
+     * @param driveDistanceDelta Wheel distance moved since the last update in meters.
+     * @param driveVelocity Wheel velocity in m/s.
+     * @param steerAngleDelta Module angle moved since the last update in radians.
+     * @param steerVelocity Module angular velocity in rad/s.
+     * @param absoluteAngle Angle the absolute encoder should report in radians.
+     */
+    default void simulationUpdate(double driveDistanceDelta, double driveVelocity, double steerAngleDelta,
+                                  double steerVelocity, double absoluteAngle) {}
+}
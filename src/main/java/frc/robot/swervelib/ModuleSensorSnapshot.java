@@ -0,0 +1,100 @@
+package frc.robot.swervelib;
+
+/**
+ * The sensor readings of one swerve module taken once at the start of a robot
+ * loop cycle.
+ * <p>
+ * Each device signal is read over JNI once per cycle by read(). Everything that
+ * needs a module sensor value during the cycle (the module's set() logic, the steer
+ * controller, odometry comparison, dashboard entries) reads it from here instead of
+ * from the device. Written and read on the robot main thread only.
+ */
+public final class ModuleSensorSnapshot
+{
+    double  drivePosition, driveVelocity;
+    double  steerPosition, steerVelocity;
+    double  absoluteAngle;
+
+    /**
+     * Read every sensor of a module once.
+     * @param driveController The module's drive controller.
+     * @param steerController The module's steer controller.
+     */
+    void read(DriveController driveController, SteerController steerController)
+    {
+        drivePosition = driveController.getStatePosition();
+        driveVelocity = driveController.getStateVelocity();
+        steerPosition = steerController.getStatePosition();
+        steerVelocity = steerController.getStateVelocity();
+
+        AbsoluteEncoder absoluteEncoder = steerController.getAbsoluteEncoder();
+
+        if (absoluteEncoder != null) absoluteAngle = absoluteEncoder.getAbsoluteAngle();
+    }
+
+    /**
+     * Set every reading, in place of read(), as when replaying a drive input log.
+     * @param drivePosition Drive wheel distance in meters.
+     * @param driveVelocity Drive wheel velocity in m/s.
+     * @param steerPosition Steer motor encoder angle in radians, unbounded.
+     * @param steerVelocity Steer angular velocity in rad/s.
+     * @param absoluteAngle Absolute (CANCoder) steer angle in radians, range [0, 2pi).
+     */
+    public void set(double drivePosition, double driveVelocity, double steerPosition, double steerVelocity,
+                    double absoluteAngle)
+    {
+        this.drivePosition = drivePosition;
+        this.driveVelocity = driveVelocity;
+        this.steerPosition = steerPosition;
+        this.steerVelocity = steerVelocity;
+        this.absoluteAngle = absoluteAngle;
+    }
+
+    /**
+     * @return Drive wheel distance in meters.
+     */
+    public double getDrivePosition()
+    {
+        return drivePosition;
+    }
+
+    /**
+     * @return Drive wheel velocity in m/s.
+     */
+    public double getDriveVelocity()
+    {
+        return driveVelocity;
+    }
+
+    /**
+     * @return Steer motor encoder angle in radians, unbounded (can go above 2pi or below zero).
+     */
+    public double getSteerPosition()
+    {
+        return steerPosition;
+    }
+
+    /**
+     * @return Steer angle in radians, range [0, 2pi).
+     */
+    public double getSteerAngle()
+    {
+        return SteerUtils.normalizeAngle(steerPosition);
+    }
+
+    /**
+     * @return Steer angular velocity in rad/s.
+     */
+    public double getSteerVelocity()
+    {
+        return steerVelocity;
+    }
+
+    /**
+     * @return Absolute (CANCoder) steer angle in radians, range [0, 2pi).
+     */
+    public double getAbsoluteAngle()
+    {
+        return absoluteAngle;
+    }
+}
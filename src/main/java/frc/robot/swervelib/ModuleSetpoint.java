@@ -0,0 +1,70 @@
+package frc.robot.swervelib;
+
+/**
+ * The steer angle and drive scale a ModuleStateOptimizer chose for one module.
+ * <p>
+ * Each module keeps one and passes it to the optimizer every command, so the
+ * optimizer can see its previous choice (to hold an angle or keep a flip decision)
+ * without keeping per module state itself, and nothing is allocated per command.
+ */
+public final class ModuleSetpoint
+{
+    private double  angle, driveScale = 1.0;
+    private boolean reversed, valid;
+
+    /**
+     * Set the result of an optimization.
+     * @param angle Steer angle in radians, range [0, 2pi).
+     * @param driveScale Factor for the drive command, negative to drive the wheel backwards.
+     * @param reversed True if the wheel was turned to the opposite of the target angle.
+     */
+    public void set(double angle, double driveScale, boolean reversed)
+    {
+        this.angle = angle;
+        this.driveScale = driveScale;
+        this.reversed = reversed;
+
+        valid = true;
+    }
+
+    /**
+     * Forget the previous result, as when the module is stopped.
+     */
+    public void clear()
+    {
+        driveScale = 1.0;
+        reversed = valid = false;
+    }
+
+    /**
+     * @return True if set() has been called since the last clear().
+     */
+    public boolean isValid()
+    {
+        return valid;
+    }
+
+    /**
+     * @return Steer angle in radians, range [0, 2pi).
+     */
+    public double getAngle()
+    {
+        return angle;
+    }
+
+    /**
+     * @return Factor for the drive command, negative to drive the wheel backwards.
+     */
+    public double getDriveScale()
+    {
+        return driveScale;
+    }
+
+    /**
+     * @return True if the wheel was turned to the opposite of the target angle.
+     */
+    public boolean isReversed()
+    {
+        return reversed;
+    }
+}
@@ -0,0 +1,34 @@
+package frc.robot.swervelib;
+
+/**
+ * Chooses how a module carries out a drive command and target angle: which way to
+ * steer, whether to turn the wheel around and drive it backwards, and how much of
+ * the drive command to apply. Set per drivetrain with SwerveDriveGroup.setStateOptimizer().
+ * <p>
+ * Optimizers work on plain numbers and keep no hardware references, so they can be
+ * run and checked off the robot.
+ */
+public interface ModuleStateOptimizer
+{
+    /**
+     * Turn the wheel around whenever that is less than 90 degrees of steering, and
+     * always apply the full drive command.
+     */
+    ModuleStateOptimizer SHORTEST_PATH = (drive, targetAngle, currentAngle, setpoint) ->
+    {
+        double error = Math.IEEEremainder(targetAngle - currentAngle, 2.0 * Math.PI);
+        boolean reverse = Math.abs(error) > Math.PI / 2.0;
+
+        setpoint.set(SteerUtils.normalizeAngle(reverse ? targetAngle + Math.PI : targetAngle), reverse ? -1.0 : 1.0,
+                     reverse);
+    };
+
+    /**
+     * Optimize one module command.
+     * @param drive The drive command, in volts or m/s, not negative from kinematics.
+     * @param targetAngle Target wheel angle in radians.
+     * @param currentAngle Measured steer angle in radians, range [0, 2pi).
+     * @param setpoint The module's previous result, set to the new result.
+     */
+    void optimize(double drive, double targetAngle, double currentAngle, ModuleSetpoint setpoint);
+}
@@ -0,0 +1,33 @@
+package frc.robot.swervelib;
+
+/**
+ * GyroIO with no gyro: the heading is always zero and never connected.
+ */
+public class NoOpGyroIO implements GyroIO
+{
+    // Never has a sample.
+    private final GyroSampleBuffer  samples = new GyroSampleBuffer(1);
+
+    @Override
+    public void updateInputs(double timestamp, GyroInputs inputs)
+    {
+        inputs.headingDegrees = 0;
+        inputs.rateDegreesPerSecond = 0;
+        inputs.connected = false;
+    }
+
+    @Override
+    public double getHeadingAt(double timestamp)
+    {
+        return 0;
+    }
+
+    @Override
+    public GyroSampleBuffer getSamples()
+    {
+        return samples;
+    }
+
+    @Override
+    public void zero() {}
+}
@@ -0,0 +1,77 @@
+package frc.robot.swervelib;
+
+/**
+ * ModuleIO with no hardware: the encoders never change from where they were set, the
+ * absolute angle is zero and outputs go nowhere. For running the module logic alone,
+ * as in benchmarks, or a drive base with a module missing.
+ */
+public class NoOpModuleIO implements ModuleIO
+{
+    private double  drivePosition, steerPosition;
+
+    @Override
+    public void updateInputs(ModuleSensorSnapshot inputs)
+    {
+        inputs.set(drivePosition, 0, steerPosition, 0, 0);
+    }
+
+    @Override
+    public double readDriveVelocity()
+    {
+        return 0;
+    }
+
+    @Override
+    public double readSteerAngle()
+    {
+        return SteerUtils.normalizeAngle(steerPosition);
+    }
+
+    @Override
+    public double readAbsoluteAngle()
+    {
+        return 0;
+    }
+
+    @Override
+    public void setDriveVoltage(double voltage) {}
+
+    @Override
+    public void setDriveVelocity(double velocity, double acceleration) {}
+
+    @Override
+    public void setSteerAngle(double angle, ModuleSensorSnapshot inputs) {}
+
+    @Override
+    public double getSteerSetpointAngle()
+    {
+        return SteerUtils.normalizeAngle(steerPosition);
+    }
+
+    @Override
+    public double getSteerSetpointFeedforward()
+    {
+        return 0;
+    }
+
+    @Override
+    public void stop() {}
+
+    @Override
+    public void setDrivePosition(double position)
+    {
+        drivePosition = position;
+    }
+
+    @Override
+    public void setSteerPosition(double angle)
+    {
+        steerPosition = angle;
+    }
+
+    @Override
+    public void setStartingPosition(double steerOffset) {}
+
+    @Override
+    public void setSteerPidConstants(double proportional, double integral, double derivative) {}
+}
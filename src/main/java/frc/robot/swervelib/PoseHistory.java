@@ -0,0 +1,193 @@
+package frc.robot.swervelib;
+
+import java.lang.invoke.VarHandle;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Time indexed history of robot poses, for asking where the robot was at an earlier
+ * time, such as when a camera image was taken or a shot was fired.
+ * <p>
+ * A fixed size ring of timestamp, x, y and heading primitive arrays. The odometry
+ * update adds each pose it computes, and any thread reads. Lookups are a binary
+ * search (O(log n)) and interpolate between the poses either side of the time. Reads
+ * never block: they retry if a pose was added while they read, using a sequence
+ * counter that is odd while a pose is being written. Nothing is allocated after
+ * construction except by the getPoseAt() that returns a Pose2d.
+ */
+public final class PoseHistory
+{
+    private final int       capacity;
+    private final double[]  timestamps, xs, ys, rotations;
+
+    // Poses written, as a count. The newest pose is at (count - 1) % capacity.
+    private long            count;
+    private volatile long   sequence;
+
+    /**
+     * Create a history.
+     * @param capacity Number of poses kept. At the 200hz odometry rate, 400 keeps 2 seconds.
+     */
+    public PoseHistory(int capacity)
+    {
+        this.capacity = capacity;
+
+        timestamps = new double[capacity];
+        xs = new double[capacity];
+        ys = new double[capacity];
+        rotations = new double[capacity];
+    }
+
+    /**
+     * Add a pose. Poses must be added in time order, from one thread.
+     * @param timestamp FPGA time of the pose in seconds.
+     * @param x X in meters.
+     * @param y Y in meters.
+     * @param rotation Heading in radians, any range. Stored continuous, so interpolating
+     * across the +-pi wrap turns the short way.
+     */
+    public void add(double timestamp, double x, double y, double rotation)
+    {
+        long n = count;
+
+        if (n > 0)
+        {
+            double last = rotations[(int) ((n - 1) % capacity)];
+
+            rotation = last + Math.IEEEremainder(rotation - last, 2.0 * Math.PI);
+        }
+
+        int slot = (int) (n % capacity);
+
+        sequence++;
+
+        VarHandle.storeStoreFence();
+
+        timestamps[slot] = timestamp;
+        xs[slot] = x;
+        ys[slot] = y;
+        rotations[slot] = rotation;
+
+        count = n + 1;
+
+        sequence++;
+    }
+
+    /**
+     * Forget every pose, as when the odometry is reset to a new pose. Writer thread only.
+     */
+    public void clear()
+    {
+        sequence++;
+
+        count = 0;
+
+        sequence++;
+    }
+
+    /**
+     * Pose at a time, interpolated between the poses either side of it. Times before
+     * the oldest or after the newest pose get that pose.
+     * @param timestamp FPGA time in seconds.
+     * @param pose Set to x meters, y meters and heading radians (range [-pi, pi]).
+     * @return False if there are no poses, pose is then not meaningful.
+     */
+    public boolean getPoseAt(double timestamp, double[] pose)
+    {
+        while (true)
+        {
+            long s = sequence;
+
+            VarHandle.loadLoadFence();
+
+            boolean found = interpolate(timestamp, pose);
+
+            VarHandle.loadLoadFence();
+
+            if ((s & 1) == 0 && s == sequence)
+            {
+                if (found) pose[2] = Math.IEEEremainder(pose[2], 2.0 * Math.PI);
+
+                return found;
+            }
+
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Pose at a time, interpolated between the poses either side of it. Allocates,
+     * use getPoseAt(double, double[]) on the periodic path.
+     * @param timestamp FPGA time in seconds.
+     * @return The pose, null if there are no poses.
+     */
+    public Pose2d getPoseAt(double timestamp)
+    {
+        double[] pose = new double[3];
+
+        return getPoseAt(timestamp, pose) ? new Pose2d(pose[0], pose[1], new Rotation2d(pose[2])) : null;
+    }
+
+    private boolean interpolate(double timestamp, double[] pose)
+    {
+        long n = count;
+
+        if (n == 0) return false;
+
+        long oldest = Math.max(0, n - capacity), newest = n - 1;
+
+        int before, after;
+
+        if (timestamp >= timestamps[(int) (newest % capacity)])
+            before = after = (int) (newest % capacity);
+        else if (timestamp <= timestamps[(int) (oldest % capacity)])
+            before = after = (int) (oldest % capacity);
+        else
+        {
+            // Find the last pose at or before the time.
+            long low = oldest, high = newest;
+
+            while (high - low > 1)
+            {
+                long middle = (low + high) >>> 1;
+
+                if (timestamps[(int) (middle % capacity)] <= timestamp) low = middle; else high = middle;
+            }
+
+            before = (int) (low % capacity);
+            after = (int) (high % capacity);
+        }
+
+        double span = timestamps[after] - timestamps[before];
+        double t = span > 0 ? (timestamp - timestamps[before]) / span : 0.0;
+
+        pose[0] = xs[before] + (xs[after] - xs[before]) * t;
+        pose[1] = ys[before] + (ys[after] - ys[before]) * t;
+        pose[2] = rotations[before] + (rotations[after] - rotations[before]) * t;
+
+        return true;
+    }
+
+    /**
+     * @return FPGA time of the oldest pose kept in seconds, NaN if there are none.
+     */
+    public double getOldestTimestamp()
+    {
+        while (true)
+        {
+            long s = sequence;
+
+            VarHandle.loadLoadFence();
+
+            long n = count;
+            double result = n == 0 ? Double.NaN : timestamps[(int) (Math.max(0, n - capacity) % capacity)];
+
+            VarHandle.loadLoadFence();
+
+            if ((s & 1) == 0 && s == sequence) return result;
+
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package frc.robot.swervelib;
+
+import org.ejml.simple.SimpleMatrix;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Swerve kinematics computed into preallocated primitive arrays.
+ * <p>
+ * Does the same math as SwerveDriveKinematics but without creating any objects
+ * per call, so it can be used on the periodic drive path without generating
+ * garbage. Module order is the order of the translations passed to the constructor.
+ * Not thread safe, each thread should use its own instance.
+ */
+public class PrimitiveSwerveKinematics
+{
+    private final int       moduleCount;
+    private final double[]  moduleX, moduleY;
+
+    // Forward kinematics (module velocities -> chassis speeds) least squares solution,
+    // 3 rows (vx, vy, omega) by 2 * moduleCount columns.
+    private final double[]  forward;
+
+    private final double[]  speeds, angles;
+
+    private double          chassisVx, chassisVy, chassisOmega;
+
+    /**
+     * Creates kinematics for the given module locations relative to robot center.
+     * @param moduleTranslations Module locations in meters, +X forward, +Y left.
+     */
+    public PrimitiveSwerveKinematics(Translation2d... moduleTranslations)
+    {
+        if (moduleTranslations.length < 2)
+            throw new IllegalArgumentException("A swerve drive requires at least two modules");
+
+        moduleCount = moduleTranslations.length;
+
+        moduleX = new double[moduleCount];
+        moduleY = new double[moduleCount];
+        speeds = new double[moduleCount];
+        angles = new double[moduleCount];
+
+        SimpleMatrix inverse = new SimpleMatrix(moduleCount * 2, 3);
+
+        for (int i = 0; i < moduleCount; i++)
+        {
+            moduleX[i] = moduleTranslations[i].getX();
+            moduleY[i] = moduleTranslations[i].getY();
+
+            inverse.setRow(i * 2, 0, 1, 0, -moduleY[i]);
+            inverse.setRow(i * 2 + 1, 0, 0, 1, moduleX[i]);
+        }
+
+        SimpleMatrix pseudoInverse = inverse.pseudoInverse();
+
+        forward = new double[3 * moduleCount * 2];
+
+        for (int row = 0; row < 3; row++)
+            for (int col = 0; col < moduleCount * 2; col++)
+                forward[row * moduleCount * 2 + col] = pseudoInverse.get(row, col);
+    }
+
+    public int getModuleCount()
+    {
+        return moduleCount;
+    }
+
+    /**
+     * Computes module speeds and angles for the given robot relative chassis speeds.
+     * Results are read with getSpeed() and getAngle(). If all speeds are zero the
+     * module angles are left as they were so the wheels do not snap to zero.
+     * @param vx Forward velocity in m/s.
+     * @param vy Left velocity in m/s.
+     * @param omega Counter-clockwise angular velocity in rad/s.
+     */
+    public void toModuleStates(double vx, double vy, double omega)
+    {
+        if (vx == 0.0 && vy == 0.0 && omega == 0.0)
+        {
+            for (int i = 0; i < moduleCount; i++) speeds[i] = 0.0;
+
+            return;
+        }
+
+        for (int i = 0; i < moduleCount; i++)
+        {
+            double x = vx - omega * moduleY[i];
+            double y = vy + omega * moduleX[i];
+
+            speeds[i] = Math.hypot(x, y);
+            angles[i] = Math.atan2(y, x);
+        }
+    }
+
+    /**
+     * Scales all module speeds down proportionally if any module exceeds the
+     * maximum attainable speed.
+     * @param maxSpeed Maximum attainable module speed in m/s.
+     */
+    public void desaturate(double maxSpeed)
+    {
+        double scale = getDesaturationScale(maxSpeed);
+
+        if (scale < 1.0)
+            for (int i = 0; i < moduleCount; i++) speeds[i] *= scale;
+    }
+
+    /**
+     * The factor desaturate() would scale the module speeds by, which scales the chassis
+     * speeds passed to toModuleStates() to ones the modules can reach.
+     * @param maxSpeed Maximum attainable module speed in m/s.
+     * @return Scale factor, 1 if no module exceeds the maximum.
+     */
+    public double getDesaturationScale(double maxSpeed)
+    {
+        double realMaxSpeed = getMaxSpeed();
+
+        return realMaxSpeed > maxSpeed ? maxSpeed / realMaxSpeed : 1.0;
+    }
+
+    /**
+     * The fastest module speed from the last call to toModuleStates() or desaturate().
+     * @return Speed in m/s.
+     */
+    public double getMaxSpeed()
+    {
+        double realMaxSpeed = 0.0;
+
+        for (int i = 0; i < moduleCount; i++) realMaxSpeed = Math.max(realMaxSpeed, Math.abs(speeds[i]));
+
+        return realMaxSpeed;
+    }
+
+    /**
+     * Module speed from the last call to toModuleStates().
+     * @param module Module index.
+     * @return Speed in m/s.
+     */
+    public double getSpeed(int module)
+    {
+        return speeds[module];
+    }
+
+    /**
+     * Module angle from the last call to toModuleStates().
+     * @param module Module index.
+     * @return Angle in radians, range (-pi, pi].
+     */
+    public double getAngle(int module)
+    {
+        return angles[module];
+    }
+
+    /**
+     * Module acceleration along the module's direction from the last call to
+     * toModuleStates(), for robot relative chassis accelerations. This is what the
+     * drive feedforward needs. The centripetal part, across the wheel, is left out.
+     * @param module Module index.
+     * @param ax Forward acceleration in m/s/s.
+     * @param ay Left acceleration in m/s/s.
+     * @param alpha Counter-clockwise angular acceleration in rad/s/s.
+     * @return Acceleration in m/s/s, negative when the module is slowing.
+     */
+    public double getAcceleration(int module, double ax, double ay, double alpha)
+    {
+        double x = ax - alpha * moduleY[module];
+        double y = ay + alpha * moduleX[module];
+
+        return x * Math.cos(angles[module]) + y * Math.sin(angles[module]);
+    }
+
+    /**
+     * Computes robot relative chassis speeds from module speeds and angles.
+     * Results are read with getChassisVx(), getChassisVy() and getChassisOmega().
+     * @param moduleSpeeds Module speeds in m/s.
+     * @param moduleAngles Module angles in radians.
+     */
+    public void toChassisSpeeds(double[] moduleSpeeds, double[] moduleAngles)
+    {
+        int columns = moduleCount * 2;
+
+        chassisVx = chassisVy = chassisOmega = 0.0;
+
+        for (int i = 0; i < moduleCount; i++)
+        {
+            double x = moduleSpeeds[i] * Math.cos(moduleAngles[i]);
+            double y = moduleSpeeds[i] * Math.sin(moduleAngles[i]);
+
+            chassisVx += forward[i * 2] * x + forward[i * 2 + 1] * y;
+            chassisVy += forward[columns + i * 2] * x + forward[columns + i * 2 + 1] * y;
+            chassisOmega += forward[columns * 2 + i * 2] * x + forward[columns * 2 + i * 2 + 1] * y;
+        }
+    }
+
+    public double getChassisVx()
+    {
+        return chassisVx;
+    }
+
+    public double getChassisVy()
+    {
+        return chassisVy;
+    }
+
+    public double getChassisOmega()
+    {
+        return chassisOmega;
+    }
+}
@@ -0,0 +1,100 @@
+package frc.robot.swervelib;
+
+/**
+ * Swerve odometry kept in primitive fields.
+ * <p>
+ * Integrates module speeds and gyro heading the same way SwerveDriveOdometry does
+ * (pose exponential of the chassis twist) without creating any objects per update.
+ * Not thread safe.
+ */
+public class PrimitiveSwerveOdometry
+{
+    private final PrimitiveSwerveKinematics kinematics;
+
+    private double  x, y, headingRadians, gyroOffsetRadians;
+    private double  lastTimeSeconds = -1.0;
+
+    public PrimitiveSwerveOdometry(PrimitiveSwerveKinematics kinematics)
+    {
+        this.kinematics = kinematics;
+    }
+
+    /**
+     * Resets the pose.
+     * @param x Field X in meters.
+     * @param y Field Y in meters.
+     * @param headingRadians Robot heading in radians.
+     * @param gyroRadians Current gyro reading in radians.
+     */
+    public void resetPosition(double x, double y, double headingRadians, double gyroRadians)
+    {
+        this.x = x;
+        this.y = y;
+        this.headingRadians = headingRadians;
+
+        gyroOffsetRadians = headingRadians - gyroRadians;
+        lastTimeSeconds = -1.0;
+    }
+
+    /**
+     * Integrates module states over the time since the last update.
+     * @param timeSeconds Current time in seconds.
+     * @param gyroRadians Current gyro reading in radians, CCW positive.
+     * @param moduleSpeeds Module speeds in m/s.
+     * @param moduleAngles Module angles in radians.
+     */
+    public void update(double timeSeconds, double gyroRadians, double[] moduleSpeeds, double[] moduleAngles)
+    {
+        double period = lastTimeSeconds >= 0.0 ? timeSeconds - lastTimeSeconds : 0.0;
+
+        lastTimeSeconds = timeSeconds;
+
+        double newHeading = gyroRadians + gyroOffsetRadians;
+
+        kinematics.toChassisSpeeds(moduleSpeeds, moduleAngles);
+
+        double dx = kinematics.getChassisVx() * period;
+        double dy = kinematics.getChassisVy() * period;
+        double dtheta = newHeading - headingRadians;
+
+        // Pose exponential, see Pose2d.exp().
+        double sinTheta = Math.sin(dtheta), cosTheta = Math.cos(dtheta);
+        double s, c;
+
+        if (Math.abs(dtheta) < 1E-9)
+        {
+            s = 1.0 - 1.0 / 6.0 * dtheta * dtheta;
+            c = 0.5 * dtheta;
+        }
+        else
+        {
+            s = sinTheta / dtheta;
+            c = (1 - cosTheta) / dtheta;
+        }
+
+        double localX = dx * s - dy * c;
+        double localY = dx * c + dy * s;
+
+        double sinHeading = Math.sin(headingRadians), cosHeading = Math.cos(headingRadians);
+
+        x += localX * cosHeading - localY * sinHeading;
+        y += localX * sinHeading + localY * cosHeading;
+
+        headingRadians = newHeading;
+    }
+
+    public double getX()
+    {
+        return x;
+    }
+
+    public double getY()
+    {
+        return y;
+    }
+
+    public double getHeadingRadians()
+    {
+        return headingRadians;
+    }
+}
@@ -0,0 +1,68 @@
+package frc.robot.swervelib;
+
+/**
+ * GyroIO on a heading set by a model, for running the drive logic with no vendor
+ * libraries or HAL. The model sets the yaw rate (or the heading directly) and each
+ * updateInputs() integrates the rate over the time since the last one and records a
+ * sample, so getHeadingAt() interpolates like the navX does.
+ */
+public class SimGyroIO implements GyroIO
+{
+    private final GyroSampleBuffer  samples = new GyroSampleBuffer(128);
+
+    private double                  heading, rate, lastTimestamp = Double.NaN;
+
+    /**
+     * Set the heading.
+     * @param headingDegrees Heading in degrees, CCW positive.
+     */
+    public void setHeading(double headingDegrees)
+    {
+        heading = headingDegrees;
+    }
+
+    /**
+     * Set the yaw rate, integrated into the heading by each updateInputs().
+     * @param rateDegreesPerSecond Yaw rate in degrees per second, CCW positive.
+     */
+    public void setRate(double rateDegreesPerSecond)
+    {
+        rate = rateDegreesPerSecond;
+    }
+
+    @Override
+    public void updateInputs(double timestamp, GyroInputs inputs)
+    {
+        if (!Double.isNaN(lastTimestamp)) heading += rate * (timestamp - lastTimestamp);
+
+        lastTimestamp = timestamp;
+
+        heading = Math.IEEEremainder(heading, 360.0);
+
+        samples.add(timestamp, heading, rate, 0, 0, 0);
+
+        inputs.headingDegrees = heading;
+        inputs.rateDegreesPerSecond = rate;
+        inputs.connected = true;
+    }
+
+    @Override
+    public double getHeadingAt(double timestamp)
+    {
+        double result = samples.getHeadingAt(timestamp);
+
+        return Double.isNaN(result) ? Math.IEEEremainder(heading, 360.0) : result;
+    }
+
+    @Override
+    public GyroSampleBuffer getSamples()
+    {
+        return samples;
+    }
+
+    @Override
+    public void zero()
+    {
+        heading = 0;
+    }
+}
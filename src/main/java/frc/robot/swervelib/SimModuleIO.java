@@ -0,0 +1,147 @@
+package frc.robot.swervelib;
+
+/**
+ * ModuleIO on a simple pure Java module model, for running the drive logic at full
+ * speed with no vendor libraries or HAL: tests, benchmarks and replay on a PC.
+ * <p>
+ * Each updateInputs() advances the model one fixed period, so a run is the same every
+ * time whatever the speed of the computer. The wheel velocity approaches the commanded
+ * velocity (or, open loop, the voltage's share of the maximum velocity) with a first
+ * order lag, and the steer angle approaches its target the short way round the same
+ * way. For how a real module responds use the drive base physics model
+ * (frc.robot.sim.SwerveDriveSim) with ControllerModuleIO instead.
+ */
+public class SimModuleIO implements ModuleIO
+{
+    /** Drive and steer first order time constants, seconds. */
+    public static final double  DRIVE_TIME_CONSTANT = 0.1, STEER_TIME_CONSTANT = 0.05;
+
+    private static final double NOMINAL_VOLTAGE = 12.0;
+
+    private final double        maxVelocity, absoluteOffset;
+    private final double        driveResponse, steerResponse, period;
+
+    private double              commandedVoltage, commandedVelocity = Double.NaN, steerTarget = Double.NaN;
+    private double              drivePosition, steerVelocity;
+
+    // Read by the odometry thread.
+    private volatile double     driveVelocity, steerPosition;
+
+    /**
+     * Create a module model.
+     * @param periodSeconds Time each updateInputs() advances the model.
+     * @param maxVelocity Wheel velocity at nominal voltage in m/s.
+     * @param absoluteOffset Absolute encoder reading with the wheel at zero, radians.
+     */
+    public SimModuleIO(double periodSeconds, double maxVelocity, double absoluteOffset)
+    {
+        this.period = periodSeconds;
+        this.maxVelocity = maxVelocity;
+        this.absoluteOffset = absoluteOffset;
+
+        driveResponse = 1.0 - Math.exp(-periodSeconds / DRIVE_TIME_CONSTANT);
+        steerResponse = 1.0 - Math.exp(-periodSeconds / STEER_TIME_CONSTANT);
+    }
+
+    @Override
+    public void updateInputs(ModuleSensorSnapshot inputs)
+    {
+        double target = Double.isNaN(commandedVelocity) ? commandedVoltage / NOMINAL_VOLTAGE * maxVelocity
+                                                        : commandedVelocity;
+
+        double velocity = driveVelocity + (target - driveVelocity) * driveResponse;
+
+        drivePosition += (driveVelocity + velocity) / 2.0 * period;
+        driveVelocity = velocity;
+
+        double steerDelta = Double.isNaN(steerTarget) ? 0
+                            : Math.IEEEremainder(steerTarget - steerPosition, 2.0 * Math.PI) * steerResponse;
+
+        steerVelocity = steerDelta / period;
+        steerPosition += steerDelta;
+
+        inputs.set(drivePosition, driveVelocity, steerPosition, steerVelocity, readAbsoluteAngle());
+    }
+
+    @Override
+    public double readDriveVelocity()
+    {
+        return driveVelocity;
+    }
+
+    @Override
+    public double readSteerAngle()
+    {
+        return SteerUtils.normalizeAngle(steerPosition);
+    }
+
+    @Override
+    public double readAbsoluteAngle()
+    {
+        return SteerUtils.normalizeAngle(steerPosition + absoluteOffset);
+    }
+
+    @Override
+    public void setDriveVoltage(double voltage)
+    {
+        commandedVoltage = voltage;
+        commandedVelocity = Double.NaN;
+    }
+
+    @Override
+    public void setDriveVelocity(double velocity, double acceleration)
+    {
+        commandedVelocity = velocity;
+    }
+
+    @Override
+    public void setSteerAngle(double angle, ModuleSensorSnapshot inputs)
+    {
+        steerTarget = angle;
+    }
+
+    @Override
+    public double getSteerSetpointAngle()
+    {
+        return Double.isNaN(steerTarget) ? readSteerAngle() : steerTarget;
+    }
+
+    @Override
+    public double getSteerSetpointFeedforward()
+    {
+        return 0;
+    }
+
+    @Override
+    public void stop()
+    {
+        commandedVoltage = 0;
+        commandedVelocity = Double.NaN;
+        steerTarget = Double.NaN;
+    }
+
+    @Override
+    public void setDrivePosition(double position)
+    {
+        drivePosition = position;
+    }
+
+    @Override
+    public void setSteerPosition(double angle)
+    {
+        // The wheel doesn't move, the encoder is renumbered, so the target moves with it.
+        if (!Double.isNaN(steerTarget)) steerTarget += angle - steerPosition;
+
+        steerPosition = angle;
+    }
+
+    @Override
+    public void setStartingPosition(double steerOffset)
+    {
+        // The start position is an absolute angle of zero.
+        steerTarget = SteerUtils.normalizeAngle(-absoluteOffset);
+    }
+
+    @Override
+    public void setSteerPidConstants(double proportional, double integral, double derivative) {}
+}
@@ -0,0 +1,139 @@
+package frc.robot.swervelib;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.RobotState;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.telemetry.TelemetryPublisher;
+
+/**
+ * Switches the swerve module devices' CAN status frame profile with the robot state
+ * and the measured CAN bus load.
+ * <p>
+ * Disabled uses the DISABLED profile. Enabled uses HIGH_RATE_ODOMETRY so the odometry
+ * thread gets fresh sensor data, unless its estimated load is too high or the measured
+ * bus utilization (from RobotController.getCANStatus()) goes over HIGH_LOAD, in which
+ * case it falls back to TELEOP until the bus drops below LOW_LOAD. The estimated load of
+ * the module devices and the measured load of the whole bus are published so the
+ * difference (other devices, bus errors) can be watched.
+ * <p>
+ * Call periodic() from the main robot thread once per loop.
+ */
+public class StatusFrameManager
+{
+    // Bits in a CAN frame with an extended id and 8 data bytes, with typical bit stuffing.
+    private static final double BITS_PER_FRAME = 130;
+    private static final double BUS_BITS_PER_SECOND = 1_000_000;
+
+    // Bus utilization (0-1) where high rate frames are turned off, and back on.
+    private static final double HIGH_LOAD = 0.70, LOW_LOAD = 0.50;
+
+    // Largest estimated module device load allowed for the high rate profile.
+    private static final double MAX_ESTIMATED_LOAD = 0.60;
+
+    // Read the bus status every 25 loops (0.5 seconds).
+    private static final int    CHECK_CYCLES = 25;
+
+    private final SwerveDriveGroup  group;
+    private final double[]          estimatedLoad = new double[StatusFrameProfile.values().length];
+
+    private StatusFrameProfile      profile;
+    private double                  measuredLoad;
+    private boolean                 loadLimited;
+    private int                     cycles;
+
+    /**
+     * Create the manager. Profiles are applied from the first periodic() call.
+     * @param group The modules whose devices are managed.
+     */
+    public StatusFrameManager(SwerveDriveGroup group)
+    {
+        this.group = group;
+
+        for (StatusFrameProfile p : StatusFrameProfile.values())
+        {
+            estimatedLoad[p.ordinal()] = group.getStatusFrameRate(p) * BITS_PER_FRAME / BUS_BITS_PER_SECOND;
+
+            Util.consoleLog("%s estimated load=%.1f%%", p, estimatedLoad[p.ordinal()] * 100);
+        }
+
+        TelemetryPublisher.addNumber(SmartDashboard.getEntry("CAN Load Estimated"),
+            () -> profile == null ? 0 : estimatedLoad[profile.ordinal()] * 100, TelemetryPublisher.DIAGNOSTIC_HZ, 0.1);
+        TelemetryPublisher.addNumber(SmartDashboard.getEntry("CAN Load Measured"),
+            () -> measuredLoad * 100, TelemetryPublisher.DIAGNOSTIC_HZ, 0.1);
+    }
+
+    /**
+     * Check the robot state and bus load and switch profiles if needed.
+     */
+    public void periodic()
+    {
+        if (++cycles >= CHECK_CYCLES)
+        {
+            cycles = 0;
+
+            CANStatus status = RobotController.getCANStatus();
+
+            measuredLoad = status.percentBusUtilization;
+
+            if (measuredLoad > HIGH_LOAD && !loadLimited)
+            {
+                loadLimited = true;
+                Util.consoleLog("bus load %.1f%%, high rate frames off", measuredLoad * 100);
+            }
+            else if (measuredLoad < LOW_LOAD && loadLimited)
+            {
+                loadLimited = false;
+                Util.consoleLog("bus load %.1f%%, high rate frames allowed", measuredLoad * 100);
+            }
+        }
+
+        StatusFrameProfile wanted;
+
+        if (RobotState.isDisabled())
+            wanted = StatusFrameProfile.DISABLED;
+        else if (loadLimited || estimatedLoad[StatusFrameProfile.HIGH_RATE_ODOMETRY.ordinal()] > MAX_ESTIMATED_LOAD)
+            wanted = StatusFrameProfile.TELEOP;
+        else
+            wanted = StatusFrameProfile.HIGH_RATE_ODOMETRY;
+
+        if (wanted != profile) setProfile(wanted);
+    }
+
+    private void setProfile(StatusFrameProfile profile)
+    {
+        Util.consoleLog("%s estimated load=%.1f%% measured=%.1f%%", profile, estimatedLoad[profile.ordinal()] * 100,
+                        measuredLoad * 100);
+
+        this.profile = profile;
+
+        group.setStatusFrameProfile(profile);
+
+        SmartDashboard.putString("Status Frame Profile", profile.toString());
+    }
+
+    /**
+     * @return The profile in use, null before the first periodic() call.
+     */
+    public StatusFrameProfile getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * @return Estimated bus utilization (0-1) of the module devices with the current profile.
+     */
+    public double getEstimatedLoad()
+    {
+        return profile == null ? 0 : estimatedLoad[profile.ordinal()];
+    }
+
+    /**
+     * @return Bus utilization (0-1) last measured.
+     */
+    public double getMeasuredLoad()
+    {
+        return measuredLoad;
+    }
+}
@@ -0,0 +1,57 @@
+package frc.robot.swervelib;
+
+/**
+ * CAN status frame periods for the swerve module devices, by robot state.
+ * <p>
+ * Each motor controller and CANCoder sends its sensor readings in periodic status
+ * frames. Faster frames feed odometry fresher data but use more of the CAN bus, so
+ * the periods are switched with the robot state by StatusFrameManager.
+ */
+public enum StatusFrameProfile
+{
+    /** Robot disabled. Enough for the dashboard and wheel alignment. */
+    DISABLED(250, 100, 100, 100, 100),
+
+    /** Driving with sensor data at the robot loop rate. */
+    TELEOP(100, 20, 20, 20, 20),
+
+    /** Driving with sensor data faster than the loop, for the odometry thread. */
+    HIGH_RATE_ODOMETRY(100, 10, 10, 10, 10);
+
+    /** NEO frames 3 and 4 (analog sensor, alternate encoder), which we don't use. */
+    public static final int     NEO_UNUSED_FRAME_MS = 500;
+
+    /** Falcon general frame (applied output, faults). */
+    public static final int     FALCON_GENERAL_FRAME_MS = 250;
+
+    /** NEO status 0 (applied output, faults), in milliseconds. */
+    public final int    neoStatus0Ms;
+    /** NEO status 1 (velocity), in milliseconds. */
+    public final int    neoStatus1Ms;
+    /** NEO status 2 (position), in milliseconds. */
+    public final int    neoStatus2Ms;
+    /** Falcon Status_2_Feedback0 (selected sensor position and velocity), in milliseconds. */
+    public final int    falconFeedbackMs;
+    /** CANCoder sensor data, in milliseconds. */
+    public final int    canCoderMs;
+
+    private StatusFrameProfile(int neoStatus0Ms, int neoStatus1Ms, int neoStatus2Ms, int falconFeedbackMs,
+                               int canCoderMs)
+    {
+        this.neoStatus0Ms = neoStatus0Ms;
+        this.neoStatus1Ms = neoStatus1Ms;
+        this.neoStatus2Ms = neoStatus2Ms;
+        this.falconFeedbackMs = falconFeedbackMs;
+        this.canCoderMs = canCoderMs;
+    }
+
+    /**
+     * Converts a frame period to frames per second.
+     * @param periodMs Frame period in milliseconds.
+     * @return Frames per second.
+     */
+    public static double framesPerSecond(int periodMs)
+    {
+        return 1000.0 / periodMs;
+    }
+}
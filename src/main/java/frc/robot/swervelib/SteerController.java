@@ -1,26 +1,98 @@
 package frc.robot.swervelib;
 
-import com.revrobotics.RelativeEncoder;
-
 public interface SteerController 
 {
     double getReferenceAngle();
 
-    void setReferenceAngle(double referenceAngleRadians);
+    /**
+     * Sets the steer angle target.
+     * @param referenceAngleRadians Target angle in the range [0, 2pi).
+     * @param sensors This cycle's sensor readings for the module.
+     */
+    void setReferenceAngle(double referenceAngleRadians, ModuleSensorSnapshot sensors);
+
+    /**
+     * Returns the angle the controller's position loop was last given: the motion
+     * profile setpoint if the controller steers through a profile, else the reference.
+     * @return Angle in radians, range [0, 2pi).
+     */
+    default double getSetpointAngle()
+    {
+        return getReferenceAngle();
+    }
+
+    /**
+     * Returns the feedforward sent with the last position setpoint.
+     * @return Volts.
+     */
+    default double getSetpointFeedforward()
+    {
+        return 0;
+    }
 
     void setStartingPosition(double steerOffset);
 
-    double getStateAngle();
+    /**
+     * Reads the steer motor encoder angle.
+     * @return Angle in radians, unbounded (can go above 2pi or below zero).
+     */
+    double getStatePosition();
+
+    /**
+     * Reads the steer motor encoder velocity.
+     * @return Angular velocity in rad/s.
+     */
+    double getStateVelocity();
+
+    /**
+     * Sets the angle the steer motor encoder reads.
+     * @param angle Angle in radians, unbounded.
+     */
+    void setStatePosition(double angle);
+
+    /**
+     * Reads the steer angle.
+     * @return Angle in radians, range [0, 2pi).
+     */
+    default double getStateAngle()
+    {
+        return SteerUtils.normalizeAngle(getStatePosition());
+    }
 
     void stop();
 
     void setPidConstants(double proportional, double integral, double derivative);
 
-    RelativeEncoder getMotorEncoder();
-
     AbsoluteEncoder getAbsoluteEncoder();
 
     void setBrakeMode(boolean on);
 
     boolean getBrakeMode();
+
+    /**
+     * Sets the status frame periods of the controller and its absolute encoder.
+     * Does not wait for the devices.
+     * @param profile The frame periods.
+     */
+    default void setStatusFrameProfile(StatusFrameProfile profile) {}
+
+    /**
+     * Estimates the status frames per second the controller and its absolute
+     * encoder send with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    default double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return 0;
+    }
+
+    /**
+     * Simulation only. Advances the simulated steer motor encoder and sets the
+     * absolute encoder reading.
+     * @param angleDelta Module angle moved since the last update in radians.
+     * @param velocity Module angular velocity in radians per second.
+     * @param absoluteAngle Angle the absolute encoder should report in radians.
+     */
+    default void simulationUpdate(double angleDelta, double velocity, double absoluteAngle) {}
 }
@@ -1,23 +1,32 @@
 package frc.robot.swervelib;
 
 import Team4450.Lib.Util;
+import frc.robot.telemetry.TelemetryPublisher;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
 
 @FunctionalInterface
 public interface SteerControllerFactory<Controller extends SteerController, SteerConfiguration> 
 {
+    /**
+     * Adds the controller's dashboard entries. Entries read the module's sensor
+     * snapshot rather than the device and are published at a limited rate.
+     */
     default void addDashboardEntries(
             ShuffleboardContainer container,
-            Controller controller) 
+            Controller controller,
+            ModuleSensorSnapshot sensors) 
     {
         Util.consoleLog();
     
-        container.addNumber("Current Angle", () -> Math.toDegrees(controller.getStateAngle()));
-        container.addNumber("Target Angle", () -> Math.toDegrees(controller.getReferenceAngle()));
+        TelemetryPublisher.addNumber(container, "Current Angle", () -> Math.toDegrees(sensors.getSteerAngle()), 
+                                     TelemetryPublisher.DIAGNOSTIC_HZ, 0.1);
+        TelemetryPublisher.addNumber(container, "Target Angle", () -> Math.toDegrees(controller.getReferenceAngle()), 
+                                     TelemetryPublisher.DIAGNOSTIC_HZ, 0.1);
     }
 
     default Controller create(
             ShuffleboardContainer dashboardContainer,
+            ModuleSensorSnapshot sensors,
             SteerConfiguration steerConfiguration,
             ModuleConfiguration moduleConfiguration) 
     {
@@ -25,7 +34,7 @@ public interface SteerControllerFactory<Controller extends SteerController, Stee
     
         var controller = create(steerConfiguration, moduleConfiguration);
 
-        addDashboardEntries(dashboardContainer, controller);
+        addDashboardEntries(dashboardContainer, controller, sensors);
 
         return controller;
     }
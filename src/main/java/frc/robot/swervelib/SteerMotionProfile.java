@@ -0,0 +1,122 @@
+package frc.robot.swervelib;
+
+/**
+ * Trapezoidal motion profile for a steer motor's position loop, stepped once per
+ * robot loop on the RIO.
+ * <p>
+ * Each step moves the setpoint toward the goal, accelerating and cruising within the
+ * maximum acceleration and velocity, and braking so it arrives at rest. The setpoint
+ * is sent to the motor controller's position loop with a kV feedforward for the
+ * setpoint velocity, so a large steer change is a smooth move the position loop only
+ * has to trim, instead of a step its PID overshoots. The goal can change every step.
+ * State is kept in place, calculate() does not allocate.
+ */
+public class SteerMotionProfile
+{
+    private final double    maxVelocity, maxAcceleration, kV;
+
+    private double          position, velocity;
+    private boolean         active;
+
+    /**
+     * Create a profile.
+     * @param maxVelocity Maximum steer velocity in rad/s.
+     * @param maxAcceleration Maximum steer acceleration in rad/s/s.
+     * @param kV Feedforward volts per rad/s of steer velocity.
+     */
+    public SteerMotionProfile(double maxVelocity, double maxAcceleration, double kV)
+    {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.kV = kV;
+    }
+
+    /**
+     * Start the profile from a measured state.
+     * @param position Steer position in radians, unbounded.
+     * @param velocity Steer velocity in rad/s.
+     */
+    public void reset(double position, double velocity)
+    {
+        this.position = position;
+        this.velocity = Math.max(-maxVelocity, Math.min(maxVelocity, velocity));
+
+        active = true;
+    }
+
+    /**
+     * Stop using the current state. The next use must reset() first.
+     */
+    public void clear()
+    {
+        active = false;
+    }
+
+    /**
+     * @return True if reset() has been called since the last clear().
+     */
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Advance the setpoint one step toward the goal.
+     * @param goal Goal position in radians, unbounded.
+     * @param dt Step in seconds.
+     * @return The new setpoint position.
+     */
+    public double calculate(double goal, double dt)
+    {
+        double distance = goal - position;
+
+        // Fastest speed from which the goal can still be reached at rest.
+        double brakingSpeed = Math.sqrt(2 * maxAcceleration * Math.abs(distance));
+        double targetVelocity = Math.copySign(Math.min(maxVelocity, brakingSpeed), distance);
+
+        double maxChange = maxAcceleration * dt;
+        double nextVelocity = velocity + Math.max(-maxChange, Math.min(maxChange, targetVelocity - velocity));
+        double nextPosition = position + (velocity + nextVelocity) / 2 * dt;
+
+        // Arrived, or reached the goal slowly enough to stop on it this step. Passing
+        // the goal faster (the goal moved behind us) brakes and comes back instead.
+        boolean passed = (goal - nextPosition) * distance <= 0;
+
+        if (passed && Math.abs(nextVelocity) <= maxChange)
+        {
+            position = goal;
+            velocity = 0;
+        }
+        else
+        {
+            position = nextPosition;
+            velocity = nextVelocity;
+        }
+
+        return position;
+    }
+
+    /**
+     * @return Setpoint position in radians, unbounded.
+     */
+    public double getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * @return Setpoint velocity in rad/s.
+     */
+    public double getVelocity()
+    {
+        return velocity;
+    }
+
+    /**
+     * @return Feedforward volts for the setpoint velocity.
+     */
+    public double getFeedforward()
+    {
+        return kV * velocity;
+    }
+}
@@ -0,0 +1,47 @@
+package frc.robot.swervelib;
+
+/**
+ * Steering angle math shared by the module and steer controller implementations.
+ */
+public final class SteerUtils
+{
+    private static final double TWO_PI = 2.0 * Math.PI;
+
+    private SteerUtils() {}
+
+    /**
+     * Puts an angle in the range [0, 2pi).
+     * @param angleRadians Angle in radians.
+     * @return Equivalent angle in the range [0, 2pi).
+     */
+    public static double normalizeAngle(double angleRadians)
+    {
+        angleRadians %= TWO_PI;
+
+        if (angleRadians < 0.0) angleRadians += TWO_PI;
+
+        return angleRadians;
+    }
+
+    /**
+     * Converts a reference angle in the range [0, 2pi) into a motor encoder target
+     * closest to the current (unbounded) encoder angle, since the motor encoder can
+     * go above 2pi or below zero.
+     * @param referenceAngleRadians Target angle in the range [0, 2pi).
+     * @param currentAngleRadians Current motor encoder angle in radians, unbounded.
+     * @return Target for the motor encoder in radians.
+     */
+    public static double unwrapReferenceAngle(double referenceAngleRadians, double currentAngleRadians)
+    {
+        double currentAngleRadiansMod = normalizeAngle(currentAngleRadians);
+
+        double adjustedReferenceAngleRadians = referenceAngleRadians + currentAngleRadians - currentAngleRadiansMod;
+
+        if (referenceAngleRadians - currentAngleRadiansMod > Math.PI)
+            adjustedReferenceAngleRadians -= TWO_PI;
+        else if (referenceAngleRadians - currentAngleRadiansMod < -Math.PI)
+            adjustedReferenceAngleRadians += TWO_PI;
+
+        return adjustedReferenceAngleRadians;
+    }
+}
@@ -0,0 +1,223 @@
+package frc.robot.swervelib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import frc.robot.Constants.ModulePosition;
+
+/**
+ * The swerve modules of a drive base, held in arrays in geometry table order.
+ * <p>
+ * Works for any number of modules (3, 4, 6...). Translations and kinematics come
+ * from the same geometry table the modules are created from, so they always agree.
+ * Modules can be looked up by index (kinematics order) or by ModulePosition. Every
+ * operation applied to all modules is a single loop over the module array.
+ */
+public class SwerveDriveGroup
+{
+    private final SwerveModule[]            modules;
+    private final SwerveModuleDefinition[]  definitions;
+    private final Translation2d[]           translations;
+    private final int[]                     indexByPosition;
+    private final SwerveDriveKinematics     kinematics;
+
+    /**
+     * Creates the modules of a drive base.
+     * @param definitions Geometry table, one row per module.
+     * @param moduleFactory Creates the module for a table row. Gets the row and its index.
+     */
+    public SwerveDriveGroup(SwerveModuleDefinition[] definitions,
+                            BiFunction<SwerveModuleDefinition, Integer, SwerveModule> moduleFactory)
+    {
+        Util.consoleLog("%d modules", definitions.length);
+
+        this.definitions = definitions.clone();
+
+        modules = new SwerveModule[definitions.length];
+        translations = SwerveModuleDefinition.getTranslations(definitions);
+        indexByPosition = new int[ModulePosition.values().length];
+
+        Arrays.fill(indexByPosition, -1);
+
+        for (int i = 0; i < definitions.length; i++)
+        {
+            ModulePosition position = definitions[i].getPosition();
+
+            if (indexByPosition[position.ordinal()] != -1)
+                throw new IllegalArgumentException("Duplicate swerve module position " + position);
+
+            indexByPosition[position.ordinal()] = i;
+
+            modules[i] = moduleFactory.apply(definitions[i], i);
+
+            modules[i].setTranslation2d(translations[i]);
+        }
+
+        kinematics = new SwerveDriveKinematics(translations);
+    }
+
+    /**
+     * Creates the modules of a drive base with their devices configured concurrently.
+     * Waits for every device, logs the configurator's timing report and runs its
+     * queued dashboard setup before returning.
+     * @param definitions Geometry table, one row per module.
+     * @param configurator Configures the modules' devices.
+     * @param moduleFactory Starts creating the module for a table row. Gets the row and
+     * its index. Called on this thread.
+     * @return The group.
+     * @throws IllegalStateException if any device failed to configure.
+     */
+    public static SwerveDriveGroup create(SwerveModuleDefinition[] definitions, DeviceConfigurator configurator,
+        BiFunction<SwerveModuleDefinition, Integer, CompletableFuture<SwerveModule>> moduleFactory)
+    {
+        List<CompletableFuture<SwerveModule>> futures = new ArrayList<>();
+
+        for (int i = 0; i < definitions.length; i++) futures.add(moduleFactory.apply(definitions[i], i));
+
+        configurator.awaitAll();
+
+        try
+        {
+            return new SwerveDriveGroup(definitions, (definition, index) -> futures.get(index).join());
+        }
+        catch (CompletionException e) { throw DeviceConfigurator.unwrap(e); }
+    }
+
+    /**
+     * @return Number of modules.
+     */
+    public int size()
+    {
+        return modules.length;
+    }
+
+    /**
+     * Returns the module array in kinematics order. Do not modify.
+     * @return The modules.
+     */
+    public SwerveModule[] getModules()
+    {
+        return modules;
+    }
+
+    public SwerveModule getModule(int index)
+    {
+        return modules[index];
+    }
+
+    /**
+     * Returns the module at a position.
+     * @param position Module position.
+     * @return The module, or null if the drive has no module at that position.
+     */
+    public SwerveModule getModule(ModulePosition position)
+    {
+        int index = indexByPosition[position.ordinal()];
+
+        return index < 0 ? null : modules[index];
+    }
+
+    public SwerveModuleDefinition getDefinition(int index)
+    {
+        return definitions[index];
+    }
+
+    /**
+     * Returns module translation from robot center.
+     * @param index Module index.
+     * @return The translation.
+     */
+    public Translation2d getTranslation(int index)
+    {
+        return translations[index];
+    }
+
+    /**
+     * Returns a copy of the module translations in kinematics order.
+     * @return Module translations.
+     */
+    public Translation2d[] getTranslations()
+    {
+        return translations.clone();
+    }
+
+    /**
+     * WPILib kinematics for this group's modules. Its methods allocate, so keep it
+     * off the periodic path.
+     * @return Kinematics in module order.
+     */
+    public SwerveDriveKinematics getKinematics()
+    {
+        return kinematics;
+    }
+
+    /**
+     * Creates a new allocation free kinematics instance for this group's modules.
+     * Each thread using kinematics should have its own.
+     * @return Primitive kinematics in module order.
+     */
+    public PrimitiveSwerveKinematics createPrimitiveKinematics()
+    {
+        return new PrimitiveSwerveKinematics(translations);
+    }
+
+    public void readSensors()
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].readSensors();
+    }
+
+    public void stop()
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].stop();
+    }
+
+    /**
+     * Sets the module state optimizer of every module.
+     * @param optimizer The optimizer, shared by the modules.
+     */
+    public void setStateOptimizer(ModuleStateOptimizer optimizer)
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].setStateOptimizer(optimizer);
+    }
+
+    public void resetMotorEncoders()
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].resetMotorEncoders();
+    }
+
+    public void resetSteerAnglesToAbsolute()
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].resetSteerAngleToAbsolute();
+    }
+
+    public void setStartingPositions()
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].setStartingPosition();
+    }
+
+    public void setStatusFrameProfile(StatusFrameProfile profile)
+    {
+        for (int i = 0; i < modules.length; i++) modules[i].setStatusFrameProfile(profile);
+    }
+
+    /**
+     * Estimates the status frames per second all module devices send with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    public double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        double rate = 0;
+
+        for (int i = 0; i < modules.length; i++) rate += modules[i].getStatusFrameRate(profile);
+
+        return rate;
+    }
+}
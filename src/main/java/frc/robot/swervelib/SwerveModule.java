@@ -1,19 +1,60 @@
 package frc.robot.swervelib;
 
-import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
 import frc.robot.Constants.ModulePosition;
 
 public interface SwerveModule 
 {
+    /**
+     * Read every sensor of this module once into its sensor snapshot. Call at the
+     * start of each robot loop cycle, before anything uses the module's readings.
+     */
+    void readSensors();
+
+    /**
+     * Returns this module's sensor snapshot from the last readSensors().
+     * @return The module's sensor readings.
+     */
+    ModuleSensorSnapshot getSensors();
+
+    /**
+     * Returns drive velocity (m/s) from the last readSensors().
+     */
     double getDriveVelocity();
 
+    /**
+     * Returns steer angle (radians, range [0, 2pi)) from the last readSensors().
+     */
+
     double getSteerAngle();
 
+    /**
+     * Fill in the supplied state with the measured drive velocity (m/s) and
+     * steer angle of this module. Lets callers reuse state objects.
+     * @param state The state object to update.
+     */
+    void getState(SwerveModuleState state);
+
     void set(double driveVoltage, double steerAngle);
 
+    /**
+     * Drives at a velocity, closed loop on the drive motor controller, and steers to an angle.
+     * @param driveVelocity Wheel velocity in m/s.
+     * @param driveAcceleration Wheel acceleration in m/s/s, for the feedforward.
+     * @param steerAngle Steer angle in radians.
+     */
+    void setVelocity(double driveVelocity, double driveAcceleration, double steerAngle);
+
     void stop();
+
+    /**
+     * Sets how set() and setVelocity() choose the steer angle and drive direction.
+     * Default is ModuleStateOptimizer.SHORTEST_PATH.
+     * @param optimizer The optimizer.
+     */
+    void setStateOptimizer(ModuleStateOptimizer optimizer);
         
     void setSteerPidConstants(double proportional, double integral, double derivative);
 
@@ -25,10 +66,6 @@ public interface SwerveModule
 
     Rotation2d getHeadingRotation2d() ;
 
-    void setModulePose(Pose2d pose) ;
-
-    Pose2d getPose();
-
     void resetSteerAngleToAbsolute();
 
     void resetMotorEncoders();
@@ -38,4 +75,60 @@ public interface SwerveModule
     double getAbsoluteOffset();
 
     void setStartingPosition();
+
+    /**
+     * Sets the status frame periods of the module's devices.
+     * @param profile The frame periods.
+     */
+    void setStatusFrameProfile(StatusFrameProfile profile);
+
+    /**
+     * Estimates the status frames per second the module's devices send with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    double getStatusFrameRate(StatusFrameProfile profile);
+
+    /**
+     * Returns the drive voltage last commanded by set(), after the module's
+     * direction optimization. Zero after stop(), NaN after setVelocity().
+     */
+    double getCommandedDriveVoltage();
+
+    /**
+     * Returns the drive velocity (m/s) last commanded by setVelocity(), after the
+     * module's direction optimization. NaN after set() or stop().
+     */
+    double getCommandedDriveVelocity();
+
+    /**
+     * Returns the drive acceleration (m/s/s) last commanded by setVelocity(), after
+     * the module's direction optimization.
+     */
+    double getCommandedDriveAcceleration();
+
+    /**
+     * Returns the steer angle (radians, range [0, 2pi)) last given to the steer
+     * controller's position loop by set() or setVelocity(), after the module's
+     * direction optimization. With a steer motion profile this is the profile
+     * setpoint. NaN after stop().
+     */
+    double getCommandedSteerAngle();
+
+    /**
+     * Returns the feedforward volts sent with the last steer position setpoint.
+     */
+    double getCommandedSteerFeedforward();
+
+    /**
+     * Simulation only. Feeds the simulated module motion into the module's
+     * simulated encoders so it is read back through the same code as on the robot.
+     * @param driveDistanceDelta Wheel distance moved since the last update in meters.
+     * @param driveVelocity Wheel velocity in meters per second.
+     * @param steerAngleDelta Module angle moved since the last update in radians.
+     * @param steerVelocity Module angular velocity in radians per second.
+     * @param steerAngle Module angle in radians, zero is straight ahead.
+     */
+    void simulationUpdate(double driveDistanceDelta, double driveVelocity, double steerAngleDelta, 
+                          double steerVelocity, double steerAngle);
 }
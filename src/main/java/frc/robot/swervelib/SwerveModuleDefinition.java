@@ -0,0 +1,106 @@
+package frc.robot.swervelib;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.ModulePosition;
+
+/**
+ * One row of the drive base geometry table: where a module sits on the robot and
+ * the CAN ids and steer offset of its hardware.
+ */
+public class SwerveModuleDefinition
+{
+    private final ModulePosition    position;
+    private final String            name;
+    private final double            x, y;
+    private final int               driveMotorId, steerMotorId, steerEncoderId;
+    private final double            steerOffset;
+
+    /**
+     * Define a module.
+     * @param position Module position key.
+     * @param name Display name, used for the module's dashboard layout.
+     * @param x Module center distance forward of robot center in meters.
+     * @param y Module center distance left of robot center in meters.
+     * @param driveMotorId CAN id of the drive motor.
+     * @param steerMotorId CAN id of the steer motor.
+     * @param steerEncoderId CAN id of the steer CANCoder.
+     * @param steerOffset Offset of the CANCoder in radians.
+     */
+    public SwerveModuleDefinition(ModulePosition position, String name, double x, double y,
+                                  int driveMotorId, int steerMotorId, int steerEncoderId, double steerOffset)
+    {
+        this.position = position;
+        this.name = name;
+        this.x = x;
+        this.y = y;
+        this.driveMotorId = driveMotorId;
+        this.steerMotorId = steerMotorId;
+        this.steerEncoderId = steerEncoderId;
+        this.steerOffset = steerOffset;
+    }
+
+    public ModulePosition getPosition()
+    {
+        return position;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public Translation2d getTranslation()
+    {
+        return new Translation2d(x, y);
+    }
+
+    public int getDriveMotorId()
+    {
+        return driveMotorId;
+    }
+
+    public int getSteerMotorId()
+    {
+        return steerMotorId;
+    }
+
+    public int getSteerEncoderId()
+    {
+        return steerEncoderId;
+    }
+
+    public double getSteerOffset()
+    {
+        return steerOffset;
+    }
+
+    /**
+     * Returns the module translations of a geometry table, in table order.
+     * @param definitions The module definitions.
+     * @return Module translations from robot center.
+     */
+    public static Translation2d[] getTranslations(SwerveModuleDefinition[] definitions)
+    {
+        Translation2d[] translations = new Translation2d[definitions.length];
+
+        for (int i = 0; i < definitions.length; i++) translations[i] = definitions[i].getTranslation();
+
+        return translations;
+    }
+
+    /**
+     * Returns the distance of the module farthest from robot center, which sets the
+     * robot's maximum angular velocity for a given wheel speed.
+     * @param definitions The module definitions.
+     * @return Largest module radius in meters.
+     */
+    public static double getMaxRadius(SwerveModuleDefinition[] definitions)
+    {
+        double radius = 0;
+
+        for (SwerveModuleDefinition definition : definitions)
+            radius = Math.max(radius, Math.hypot(definition.x, definition.y));
+
+        return radius;
+    }
+}
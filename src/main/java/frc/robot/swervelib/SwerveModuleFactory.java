@@ -1,15 +1,14 @@
 package frc.robot.swervelib;
 
-import com.revrobotics.REVPhysicsSim;
+import java.util.concurrent.CompletableFuture;
 
 import Team4450.Lib.Util;
-import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardLayout;
 import frc.robot.Constants.ModulePosition;
+import frc.robot.telemetry.TelemetryLog;
 
 public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration> 
 {
@@ -36,7 +35,8 @@ public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration>
         var driveController = driveControllerFactory.create(driveConfiguration, moduleConfiguration);
         var steerController = steerControllerFactory.create(steerConfiguration, moduleConfiguration);
 
-        return new ModuleImplementation(driveController, steerController, steerOffset, position);
+        return new ModuleImplementation(new ControllerModuleIO(driveController, steerController), 
+                                        new ModuleSensorSnapshot(), steerOffset, position);
     }
 
     public SwerveModule create(ShuffleboardLayout container, DriveConfiguration driveConfiguration, 
@@ -45,115 +45,227 @@ public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration>
     {
         Util.consoleLog();
     
+        var sensors = new ModuleSensorSnapshot();
+
         var driveController = driveControllerFactory.create(
                 container,
+                sensors,
                 driveConfiguration,
                 moduleConfiguration
         );
 
         var steerContainer = steerControllerFactory.create(
                 container,
+                sensors,
                 steerConfiguration,
                 moduleConfiguration
         );
 
-        return new ModuleImplementation(driveController, steerContainer, steerOffset, position);
+        return new ModuleImplementation(new ControllerModuleIO(driveController, steerContainer), sensors, 
+                                        steerOffset, position);
+    }
+
+    /**
+     * Creates a module with its drive and steer controllers configured concurrently
+     * by the configurator. Dashboard entries, if a container is given, are added on
+     * the thread that calls configurator.awaitAll().
+     * @return Future completed with the module once both controllers are configured.
+     */
+    public CompletableFuture<SwerveModule> create(DeviceConfigurator configurator, ShuffleboardLayout container, 
+                                                  DriveConfiguration driveConfiguration, 
+                                                  SteerConfiguration steerConfiguration, double steerOffset,
+                                                  ModulePosition position)
+    {
+        Util.consoleLog("%s", position);
+
+        var sensors = new ModuleSensorSnapshot();
+
+        var driveController = configurator.submit(position + " drive", 
+            () -> driveControllerFactory.create(driveConfiguration, moduleConfiguration));
+
+        var steerController = configurator.submit(position + " steer", 
+            () -> steerControllerFactory.create(steerConfiguration, moduleConfiguration));
+
+        if (container != null)
+            configurator.onCaller(() ->
+            {
+                addDriveDashboardEntries(driveControllerFactory, container, driveController.join(), sensors);
+                addSteerDashboardEntries(steerControllerFactory, container, steerController.join(), sensors);
+            });
+
+        return driveController.thenCombine(steerController, 
+            (drive, steer) -> new ModuleImplementation(new ControllerModuleIO(drive, steer), sensors, 
+                                                       steerOffset, position));
+    }
+
+    /**
+     * Creates a module on any ModuleIO, such as SimModuleIO or NoOpModuleIO to run the
+     * module logic without hardware.
+     * @param io The module's hardware.
+     * @param steerOffset The module's absolute encoder offset in radians.
+     * @param position The module's position on the robot.
+     * @return The module.
+     */
+    public static SwerveModule create(ModuleIO io, double steerOffset, ModulePosition position)
+    {
+        return new ModuleImplementation(io, new ModuleSensorSnapshot(), steerOffset, position);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Controller extends DriveController> void addDriveDashboardEntries(
+        DriveControllerFactory<Controller, ?> factory, ShuffleboardLayout container, DriveController controller,
+        ModuleSensorSnapshot sensors)
+    {
+        factory.addDashboardEntries(container, (Controller) controller, sensors);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <Controller extends SteerController> void addSteerDashboardEntries(
+        SteerControllerFactory<Controller, ?> factory, ShuffleboardLayout container, SteerController controller,
+        ModuleSensorSnapshot sensors)
+    {
+        factory.addDashboardEntries(container, (Controller) controller, sensors);
     }
 
     private static class ModuleImplementation implements SwerveModule 
     {
-        private final DriveController driveController;
-        private final SteerController steerController;
+        private static final TelemetryLog.Event STEER_RESET_EVENT = TelemetryLog.registerEvent("SteerReset",
+            "module", "absoluteDegrees", "offsetDegrees", "resultDegrees");
+
+        private final ModuleIO              io;
+        private final ModuleSensorSnapshot  sensors;
 
         private Translation2d         translation2d;
-        private double                actualAngleDegrees, steerOffset;
-        private Pose2d                pose;
+        private double                steerOffset;
         private ModulePosition        position;
 
-        private ModuleImplementation(DriveController driveController, SteerController steerController,
-                                     double steerOffset, ModulePosition position) 
+        private ModuleStateOptimizer  stateOptimizer = ModuleStateOptimizer.SHORTEST_PATH;
+        private final ModuleSetpoint  setpoint = new ModuleSetpoint();
+
+        // Last set() or setVelocity() command, read by the drive simulation.
+        private double                commandedDriveVoltage, commandedSteerAngle = Double.NaN;
+        private double                commandedDriveVelocity = Double.NaN, commandedDriveAcceleration;
+        private double                commandedSteerFeedforward;
+
+        private ModuleImplementation(ModuleIO io, ModuleSensorSnapshot sensors, double steerOffset, 
+                                     ModulePosition position) 
         {
             Util.consoleLog();
     
-            this.driveController = driveController;
-            this.steerController = steerController;
+            this.io = io;
+            this.sensors = sensors;
             this.steerOffset = steerOffset;
             this.position = position;
 
-            if (RobotBase.isSimulation()) 
-            {
-                // Only Neo implemented.
-                //REVPhysicsSim.getInstance().addSparkMax(driveController.getMotorNeo(), DCMotor.getNEO(1));
+            resetSteerAngleToAbsolute();
 
-                //driveController.getMotorNeo().getPIDController().setP(1, 3);
-            }
+            readSensors();
+        }
 
-            resetSteerAngleToAbsolute();
+        @Override
+        public void readSensors()
+        {
+            io.updateInputs(sensors);
+        }
+
+        @Override
+        public ModuleSensorSnapshot getSensors()
+        {
+            return sensors;
         }
 
         @Override
         public double getDriveVelocity() 
         {
-            return driveController.getStateVelocity();
+            return sensors.getDriveVelocity();
         }
 
         @Override
         public double getSteerAngle() 
         {
-            return steerController.getStateAngle(); // Radians.
+            return sensors.getSteerAngle(); // Radians.
         }
 
         @Override
-        public void set(double driveVoltage, double steerAngle) 
+        public void getState(SwerveModuleState state)
         {
-            steerAngle %= (2.0 * Math.PI);
+            // Called from the odometry thread at its own rate so this reads the devices
+            // directly rather than the loop's snapshot.
+            state.speedMetersPerSecond = io.readDriveVelocity();
+            state.angle = new Rotation2d(io.readSteerAngle());
+        }
 
-            if (steerAngle < 0.0) steerAngle += 2.0 * Math.PI;
+        @Override
+        public void set(double driveVoltage, double steerAngle) 
+        {
+            driveVoltage *= steerTo(driveVoltage, steerAngle);
 
-            double difference = steerAngle - getSteerAngle();
+            io.setDriveVoltage(driveVoltage);
 
-            // Change the target angle so the difference is in the range [-pi, pi) instead of [0, 2pi)
+            commandedDriveVoltage = driveVoltage;
+            commandedDriveVelocity = Double.NaN;
+        }
 
-            if (difference >= Math.PI) 
-                steerAngle -= 2.0 * Math.PI;
-            else if (difference < -Math.PI) 
-                steerAngle += 2.0 * Math.PI;
-           
-            difference = steerAngle - getSteerAngle(); // Recalculate difference
+        @Override
+        public void setVelocity(double driveVelocity, double driveAcceleration, double steerAngle) 
+        {
+            double driveScale = steerTo(driveVelocity, steerAngle);
 
-            // If the difference is greater than 90 deg or less than -90 deg the drive can be inverted so the total
-            // movement of the module is less than 90 deg
+            driveVelocity *= driveScale;
+            driveAcceleration *= driveScale;
 
-            if (difference > Math.PI / 2.0 || difference < -Math.PI / 2.0) 
-            {
-                // Only need to add 180 deg here because the target angle will be put back into the range [0, 2pi)
-                steerAngle += Math.PI;
-                driveVoltage *= -1.0;
-            }
+            io.setDriveVelocity(driveVelocity, driveAcceleration);
 
-            // Put the target angle back into the range [0, 2pi)
+            commandedDriveVoltage = Double.NaN;
+            commandedDriveVelocity = driveVelocity;
+            commandedDriveAcceleration = driveAcceleration;
+        }
 
-            steerAngle %= (2.0 * Math.PI);
+        /**
+         * Steer as the state optimizer chooses for a drive command and target angle.
+         * @param drive The drive command, volts or m/s.
+         * @param steerAngle Target wheel angle in radians.
+         * @return Factor to apply to the drive command, negative if the module was
+         * turned to the opposite angle and the drive must be reversed.
+         */
+        private double steerTo(double drive, double steerAngle)
+        {
+            stateOptimizer.optimize(drive, steerAngle, sensors.getSteerAngle(), setpoint);
 
-            if (steerAngle < 0.0) steerAngle += 2.0 * Math.PI;
+            io.setSteerAngle(setpoint.getAngle(), sensors);
 
-            driveController.setReferenceVoltage(driveVoltage);
-            steerController.setReferenceAngle(steerAngle);
+            // The angle the controller is driving to now, which trails the target when profiled.
+            commandedSteerAngle = io.getSteerSetpointAngle();
+            commandedSteerFeedforward = io.getSteerSetpointFeedforward();
 
-            actualAngleDegrees = Math.toDegrees(steerAngle);
+            return setpoint.getDriveScale();
         }
 
         @Override
         public void stop()
         {
-            driveController.stop();
-            steerController.stop();
+            io.stop();
+
+            commandedDriveVoltage = 0;
+            commandedDriveVelocity = Double.NaN;
+            commandedSteerAngle = Double.NaN;
+            commandedSteerFeedforward = 0;
+
+            setpoint.clear();
+        }
+
+        @Override
+        public void setStateOptimizer(ModuleStateOptimizer optimizer)
+        {
+            stateOptimizer = optimizer;
+
+            setpoint.clear();
         }
 
         @Override
         public void setSteerPidConstants(double proportional, double integral, double derivative)
         {
-            steerController.setPidConstants(proportional, integral, derivative);
+            io.setSteerPidConstants(proportional, integral, derivative);
         }
 
         @Override
@@ -171,10 +283,7 @@ public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration>
         @Override
         public double getHeadingDegrees() 
         {
-            if (RobotBase.isReal())
-                return steerController.getMotorEncoder().getPosition();
-            else
-                return actualAngleDegrees;
+            return Math.toDegrees(sensors.getSteerAngle());
         }
 
         @Override
@@ -183,28 +292,17 @@ public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration>
             return Rotation2d.fromDegrees(getHeadingDegrees());
         }
 
-        @Override
-        public void setModulePose(Pose2d pose) 
-        {
-            this.pose = pose;
-        }
-
-        @Override
-        public Pose2d getPose()
-        {
-            return pose;
-        }
-
         @Override     
         public void resetSteerAngleToAbsolute() 
         {
-            double angleRad = steerController.getAbsoluteEncoder().getAbsoluteAngle() - steerOffset;
-            
-            Util.consoleLog("aa=%.3f  off=%.3f  result=%.3f rad=%.3f",
-                Math.toDegrees(steerController.getAbsoluteEncoder().getAbsoluteAngle()), 
-                Math.toDegrees(steerOffset), Math.toDegrees(angleRad), angleRad);
+            // Not on the periodic path, read the encoder now rather than use the snapshot.
+            double absoluteAngle = io.readAbsoluteAngle();
+            double angleRad = absoluteAngle - steerOffset;
 
-            steerController.getMotorEncoder().setPosition(angleRad);
+            STEER_RESET_EVENT.record(position.ordinal(), Math.toDegrees(absoluteAngle), Math.toDegrees(steerOffset),
+                                     Math.toDegrees(angleRad));
+
+            io.setSteerPosition(angleRad);
         }
 
         @Override
@@ -212,8 +310,8 @@ public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration>
         {
             Util.consoleLog();
     
-            driveController.getEncoder().setPosition(0);
-            steerController.getMotorEncoder().setPosition(0);
+            io.setDrivePosition(0);
+            io.setSteerPosition(0);
         }
 
         @Override
@@ -231,7 +329,59 @@ public class SwerveModuleFactory<DriveConfiguration, SteerConfiguration>
         @Override
         public void setStartingPosition() 
         {
-            steerController.setStartingPosition(steerOffset);
+            io.setStartingPosition(steerOffset);
+        }
+
+        @Override
+        public void setStatusFrameProfile(StatusFrameProfile profile)
+        {
+            io.setStatusFrameProfile(profile);
+        }
+
+        @Override
+        public double getStatusFrameRate(StatusFrameProfile profile)
+        {
+            return io.getStatusFrameRate(profile);
+        }
+
+        @Override
+        public double getCommandedDriveVoltage()
+        {
+            return commandedDriveVoltage;
+        }
+
+        @Override
+        public double getCommandedDriveVelocity()
+        {
+            return commandedDriveVelocity;
+        }
+
+        @Override
+        public double getCommandedDriveAcceleration()
+        {
+            return commandedDriveAcceleration;
+        }
+
+        @Override
+        public double getCommandedSteerAngle()
+        {
+            return commandedSteerAngle;
+        }
+
+        @Override
+        public double getCommandedSteerFeedforward()
+        {
+            return commandedSteerFeedforward;
+        }
+
+        @Override
+        public void simulationUpdate(double driveDistanceDelta, double driveVelocity, double steerAngleDelta, 
+                                     double steerVelocity, double steerAngle)
+        {
+            // The absolute encoder reads the module angle plus the offset removed by
+            // resetSteerAngleToAbsolute().
+            io.simulationUpdate(driveDistanceDelta, driveVelocity, steerAngleDelta, steerVelocity,
+                                SteerUtils.normalizeAngle(steerAngle + steerOffset));
         }
     }
 } 
@@ -8,6 +8,8 @@ import com.ctre.phoenix.sensors.CANCoderStatusFrame;
 import Team4450.Lib.Util;
 import frc.robot.swervelib.AbsoluteEncoder;
 import frc.robot.swervelib.AbsoluteEncoderFactory;
+import frc.robot.swervelib.HardwareReadCounter;
+import frc.robot.swervelib.StatusFrameProfile;
 
 public class CanCoderFactoryBuilder 
 {
@@ -45,19 +47,25 @@ public class CanCoderFactoryBuilder
             CtreUtils.checkCtreError(encoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, periodMilliseconds, 
                                      250), "Failed to configure CANCoder update rate");
 
-            return new EncoderImplementation(encoder);
+            return new EncoderImplementation(encoder, config.magnetOffsetDegrees, config.sensorDirection);
         };
     }
 
     private static class EncoderImplementation implements AbsoluteEncoder 
     {
+        private static final double TICKS_PER_ROTATION = 4096;
+
         private final WPI_CANCoder  encoder;
+        private final double        magnetOffsetDegrees;
+        private final boolean       clockwise;
 
-        private EncoderImplementation(WPI_CANCoder encoder) 
+        private EncoderImplementation(WPI_CANCoder encoder, double magnetOffsetDegrees, boolean clockwise) 
         {
             Util.consoleLog();
     
             this.encoder = encoder;
+            this.magnetOffsetDegrees = magnetOffsetDegrees;
+            this.clockwise = clockwise;
         }
 
         /**
@@ -67,6 +75,8 @@ public class CanCoderFactoryBuilder
         @Override
         public double getAbsoluteAngle() 
         {
+            HardwareReadCounter.record();
+
             double angle = Math.toRadians(encoder.getAbsolutePosition());
 
             // TODO: This call is supposed to be equivalent to above due to configuration settings
@@ -82,6 +92,31 @@ public class CanCoderFactoryBuilder
 
             return angle;
         }
+
+        @Override
+        public void setStatusFrameProfile(StatusFrameProfile profile)
+        {
+            CtreUtils.checkCtreError(encoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, profile.canCoderMs, 0), 
+                                     "Failed to configure CANCoder update rate");
+        }
+
+        @Override
+        public double getStatusFrameRate(StatusFrameProfile profile)
+        {
+            // Sensor data plus the vbat and fault frame at its default 100ms.
+            return StatusFrameProfile.framesPerSecond(profile.canCoderMs) + StatusFrameProfile.framesPerSecond(100);
+        }
+
+        @Override
+        public void simulationUpdate(double absoluteAngle)
+        {
+            // Raw position is before the magnet offset and direction are applied.
+            double degrees = Math.toDegrees(absoluteAngle) - magnetOffsetDegrees;
+
+            if (clockwise) degrees = -degrees;
+
+            encoder.getSimCollection().setRawPosition((int) Math.round(degrees / 360.0 * TICKS_PER_ROTATION));
+        }
     }
 
     public enum Direction 
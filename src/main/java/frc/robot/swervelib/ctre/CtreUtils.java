@@ -1,13 +1,21 @@
 package frc.robot.swervelib.ctre;
 
 import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
 
 import Team4450.Lib.Util;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.swervelib.DeviceConfigurator;
+import frc.robot.swervelib.StatusFrameProfile;
 
 public final class CtreUtils 
 {
+    // Falcon frames left at their default periods (temperature, battery, motion profile...), approximate.
+    private static final double FALCON_OTHER_FRAMES_PER_SECOND = 20;
+
     private CtreUtils() 
     {
     }
@@ -20,6 +28,50 @@ public final class CtreUtils
                 DriverStation.reportError(String.format("%s: %s", message, errorCode.toString()), false);
             
             Util.consoleLog(String.format("%s: %s", message, errorCode.toString()));
+
+            DeviceConfigurator.reportError(String.format("%s: %s", message, errorCode.toString()));
         }
     }
+
+    /**
+     * Sets a Falcon's status frame periods.
+     * @param motor The Falcon.
+     * @param profile The frame periods.
+     * @param timeoutMs Time to wait for the Falcon to confirm, 0 to not wait.
+     */
+    public static void setStatusFrames(TalonFX motor, StatusFrameProfile profile, int timeoutMs)
+    {
+        checkCtreError(motor.setStatusFramePeriod(StatusFrameEnhanced.Status_1_General, 
+                       StatusFrameProfile.FALCON_GENERAL_FRAME_MS, timeoutMs), "Failed to configure Falcon status frame period");
+        checkCtreError(motor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, profile.falconFeedbackMs, 
+                       timeoutMs), "Failed to configure Falcon feedback frame period");
+    }
+
+    /**
+     * Estimates the status frames per second a Falcon sends with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    public static double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return StatusFrameProfile.framesPerSecond(StatusFrameProfile.FALCON_GENERAL_FRAME_MS) +
+               StatusFrameProfile.framesPerSecond(profile.falconFeedbackMs) + FALCON_OTHER_FRAMES_PER_SECOND;
+    }
+
+    /**
+     * Simulation only. Advances a Falcon's simulated integrated sensor. The sim
+     * collection works in the motor's own direction, so inversion is applied here.
+     * @param motor The Falcon.
+     * @param ticksDelta Sensor ticks moved since the last update.
+     * @param ticksPer100ms Sensor velocity.
+     */
+    public static void simulationUpdate(TalonFX motor, double ticksDelta, double ticksPer100ms)
+    {
+        double sign = motor.getInverted() ? -1 : 1;
+
+        TalonFXSimCollection sim = motor.getSimCollection();
+
+        sim.addIntegratedSensorPosition((int) Math.round(sign * ticksDelta));
+        sim.setIntegratedSensorVelocity((int) Math.round(sign * ticksPer100ms));
+    }
 }
@@ -3,24 +3,35 @@ package frc.robot.swervelib.ctre;
 import com.ctre.phoenix.motorcontrol.*;
 import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.revrobotics.CANSparkMax;
-import com.revrobotics.RelativeEncoder;
 
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import frc.robot.swervelib.DriveController;
 import frc.robot.swervelib.DriveControllerFactory;
+import frc.robot.swervelib.HardwareReadCounter;
 import frc.robot.swervelib.ModuleConfiguration;
+import frc.robot.swervelib.StatusFrameProfile;
 
 public final class Falcon500DriveControllerFactoryBuilder 
 {
     private static final double TICKS_PER_ROTATION = 2048.0;
 
     private static final int CAN_TIMEOUT_MS = 250;
-    private static final int STATUS_FRAME_GENERAL_PERIOD_MS = 250;
+
+    // Talon closed loop output units for full output.
+    private static final double FULL_OUTPUT = 1023.0;
+
+    // Voltage percent output is relative to without voltage compensation.
+    private static final double NOMINAL_VOLTAGE = 12.0;
 
     private double nominalVoltage   = Double.NaN;
     private double currentLimit     = Double.NaN;
     private double rampRate         = Double.NaN;
 
+    private double kS               = Double.NaN;
+    private double kV               = Double.NaN;
+    private double kA               = Double.NaN;
+    private double velocityP        = Double.NaN;
+
     public Falcon500DriveControllerFactoryBuilder withVoltageCompensation(double nominalVoltage) 
     {
         this.nominalVoltage = nominalVoltage;
@@ -59,6 +70,27 @@ public final class Falcon500DriveControllerFactoryBuilder
         return Double.isFinite(rampRate);
     }
 
+    /**
+     * Enables setReferenceVelocity().
+     * @param kS Feedforward volts to overcome friction.
+     * @param kV Feedforward volts per m/s.
+     * @param kA Feedforward volts per m/s/s.
+     * @param velocityP Onboard velocity loop gain in volts per m/s of error.
+     */
+    public Falcon500DriveControllerFactoryBuilder withVelocityControl(double kS, double kV, double kA, double velocityP) 
+    {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.velocityP = velocityP;
+        return this;
+    }
+
+    public boolean hasVelocityControl() 
+    {
+        return Double.isFinite(kS) && Double.isFinite(kV) && Double.isFinite(kA) && Double.isFinite(velocityP);
+    }
+
     private class FactoryImplementation implements DriveControllerFactory<ControllerImplementation, Integer> 
     {
         @Override
@@ -73,6 +105,18 @@ public final class Falcon500DriveControllerFactoryBuilder
 
             if (hasRampRate()) motorConfiguration.closedloopRamp = rampRate;
 
+            // Velocity loop in slot 0. The Talon's P gain is in output units (1023 full) per
+            // sensor tick per 100ms of error. Feedforward is sent with each setpoint.
+            if (hasVelocityControl())
+            {
+                double nominal = hasVoltageCompensation() ? nominalVoltage : NOMINAL_VOLTAGE;
+
+                motorConfiguration.slot0.kP = velocityP / nominal * FULL_OUTPUT * sensorVelocityCoefficient;
+                motorConfiguration.slot0.kI = 0;
+                motorConfiguration.slot0.kD = 0;
+                motorConfiguration.slot0.kF = 0;
+            }
+
             if (hasCurrentLimit()) {
                 motorConfiguration.supplyCurrLimit.currentLimit = currentLimit;
                 motorConfiguration.supplyCurrLimit.enable = true;
@@ -88,30 +132,30 @@ public final class Falcon500DriveControllerFactoryBuilder
             motor.setInverted(moduleConfiguration.isDriveInverted() ? TalonFXInvertType.Clockwise : TalonFXInvertType.CounterClockwise);
             motor.setSensorPhase(true);
 
-            // Reduce CAN status frame rates
-            CtreUtils.checkCtreError(
-                    motor.setStatusFramePeriod(
-                            StatusFrameEnhanced.Status_1_General,
-                            STATUS_FRAME_GENERAL_PERIOD_MS,
-                            CAN_TIMEOUT_MS
-                    ),
-                    "Failed to configure Falcon status frame period"
-            );
-
-            return new ControllerImplementation(motor, sensorVelocityCoefficient);
+            // Reduce CAN status frame rates. The StatusFrameManager switches profiles
+            // with the robot state once running.
+            CtreUtils.setStatusFrames(motor, StatusFrameProfile.TELEOP, CAN_TIMEOUT_MS);
+
+            return new ControllerImplementation(motor, sensorPositionCoefficient, sensorVelocityCoefficient,
+                                                hasVelocityControl() ? new SimpleMotorFeedforward(kS, kV, kA) : null);
         }
     }
 
     private class ControllerImplementation implements DriveController 
     {
         private final WPI_TalonFX motor;
+        private final double sensorPositionCoefficient;
         private final double sensorVelocityCoefficient;
+        private final SimpleMotorFeedforward feedforward;
         private final double nominalVoltage = hasVoltageCompensation() ? Falcon500DriveControllerFactoryBuilder.this.nominalVoltage : 12.0;
 
-        private ControllerImplementation(WPI_TalonFX motor, double sensorVelocityCoefficient) 
+        private ControllerImplementation(WPI_TalonFX motor, double sensorPositionCoefficient, 
+                                         double sensorVelocityCoefficient, SimpleMotorFeedforward feedforward) 
         {
             this.motor = motor;
+            this.sensorPositionCoefficient = sensorPositionCoefficient;
             this.sensorVelocityCoefficient = sensorVelocityCoefficient;
+            this.feedforward = feedforward;
         }
 
         @Override
@@ -121,35 +165,40 @@ public final class Falcon500DriveControllerFactoryBuilder
         }
 
         @Override
-        public double getStateVelocity() 
+        public void setReferenceVelocity(double velocity, double acceleration) 
         {
-            return motor.getSelectedSensorVelocity() * sensorVelocityCoefficient;
+            if (feedforward == null) throw new IllegalStateException("Falcon drive velocity control not configured");
+
+            motor.set(TalonFXControlMode.Velocity, velocity / sensorVelocityCoefficient, 
+                      DemandType.ArbitraryFeedForward, feedforward.calculate(velocity, acceleration) / nominalVoltage);
         }
 
         @Override
-        public void stop()
+        public double getStateVelocity() 
         {
-            motor.set(TalonFXControlMode.PercentOutput, 0);
+            HardwareReadCounter.record();
+
+            return motor.getSelectedSensorVelocity() * sensorVelocityCoefficient;
         }
 
         @Override
-        public RelativeEncoder getEncoder() 
+        public double getStatePosition() 
         {
-            // TODO Auto-generated method stub
-            return null;
+            HardwareReadCounter.record();
+
+            return motor.getSelectedSensorPosition() * sensorPositionCoefficient;
         }
 
         @Override
-        public CANSparkMax getMotorNeo() 
+        public void stop()
         {
-            // TODO
-            return null;
+            motor.set(TalonFXControlMode.PercentOutput, 0);
         }
 
         @Override
-        public WPI_TalonFX getMotor500() 
+        public void setStatePosition(double position)
         {
-            return motor;
+            motor.setSelectedSensorPosition(position / sensorPositionCoefficient);
         }
 
         @Override
@@ -160,5 +209,24 @@ public final class Falcon500DriveControllerFactoryBuilder
             else
                 motor.setNeutralMode(NeutralMode.Coast);
         }
+
+        @Override
+        public void setStatusFrameProfile(StatusFrameProfile profile)
+        {
+            CtreUtils.setStatusFrames(motor, profile, 0);
+        }
+
+        @Override
+        public double getStatusFrameRate(StatusFrameProfile profile)
+        {
+            return CtreUtils.getStatusFrameRate(profile);
+        }
+
+        @Override
+        public void simulationUpdate(double distanceDelta, double velocity)
+        {
+            CtreUtils.simulationUpdate(motor, distanceDelta / sensorPositionCoefficient, 
+                                       velocity / sensorVelocityCoefficient);
+        }
     }
 }
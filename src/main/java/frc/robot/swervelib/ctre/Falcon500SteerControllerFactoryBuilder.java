@@ -3,9 +3,9 @@ package frc.robot.swervelib.ctre;
 import com.ctre.phoenix.motorcontrol.*;
 import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.revrobotics.RelativeEncoder;
 
 import frc.robot.swervelib.*;
+import frc.robot.telemetry.TelemetryPublisher;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
 
 import static frc.robot.swervelib.ctre.CtreUtils.checkCtreError;
@@ -13,7 +13,6 @@ import static frc.robot.swervelib.ctre.CtreUtils.checkCtreError;
 public final class Falcon500SteerControllerFactoryBuilder 
 {
     private static final int CAN_TIMEOUT_MS = 250;
-    private static final int STATUS_FRAME_GENERAL_PERIOD_MS = 250;
 
     private static final double TICKS_PER_ROTATION = 2048.0;
 
@@ -105,10 +104,12 @@ public final class Falcon500SteerControllerFactoryBuilder
         }
 
         @Override
-        public void addDashboardEntries(ShuffleboardContainer container, ControllerImplementation controller) 
+        public void addDashboardEntries(ShuffleboardContainer container, ControllerImplementation controller,
+                                        ModuleSensorSnapshot sensors) 
         {
-            SteerControllerFactory.super.addDashboardEntries(container, controller);
-            container.addNumber("Absolute Encoder Angle", () -> Math.toDegrees(controller.absoluteEncoder.getAbsoluteAngle()));
+            SteerControllerFactory.super.addDashboardEntries(container, controller, sensors);
+            TelemetryPublisher.addNumber(container, "Absolute Encoder Angle", () -> Math.toDegrees(sensors.getAbsoluteAngle()), 
+                                         TelemetryPublisher.DIAGNOSTIC_HZ, 0.1);
         }
 
         @Override
@@ -169,15 +170,9 @@ public final class Falcon500SteerControllerFactoryBuilder
                     absoluteEncoder.getAbsoluteAngle() / sensorPositionCoefficient, 0, CAN_TIMEOUT_MS), 
                     "Failed to set Falcon 500 encoder position");
 
-            // Reduce CAN status frame rates
-            CtreUtils.checkCtreError(
-                    motor.setStatusFramePeriod(
-                            StatusFrameEnhanced.Status_1_General,
-                            STATUS_FRAME_GENERAL_PERIOD_MS,
-                            CAN_TIMEOUT_MS
-                    ),
-                    "Failed to configure Falcon status frame period"
-            );
+            // Reduce CAN status frame rates. The StatusFrameManager switches profiles
+            // with the robot state once running.
+            CtreUtils.setStatusFrames(motor, StatusFrameProfile.TELEOP, CAN_TIMEOUT_MS);
 
             return new ControllerImplementation(motor,
                     sensorPositionCoefficient,
@@ -223,20 +218,20 @@ public final class Falcon500SteerControllerFactoryBuilder
         }
 
         @Override
-        public void setReferenceAngle(double referenceAngleRadians) 
+        public void setReferenceAngle(double referenceAngleRadians, ModuleSensorSnapshot sensors) 
         {
-            double currentAngleRadians = motor.getSelectedSensorPosition() * motorEncoderPositionCoefficient;
+            double currentAngleRadians = sensors.getSteerPosition();
 
             // Reset the Falcons encoder periodically when the module is not rotating.
             // Sometimes (~5% of the time) when we initialize, the absolute encoder isn't fully set up, and we don't
             // end up getting a good reading. If we reset periodically this won't matter anymore.
             
-            if (motor.getSelectedSensorVelocity() * motorEncoderVelocityCoefficient < ENCODER_RESET_MAX_ANGULAR_VELOCITY) 
+            if (sensors.getSteerVelocity() < ENCODER_RESET_MAX_ANGULAR_VELOCITY) 
             {
                 if (++resetIteration >= ENCODER_RESET_ITERATIONS) 
                 {
                     resetIteration = 0;
-                    double absoluteAngle = absoluteEncoder.getAbsoluteAngle();
+                    double absoluteAngle = sensors.getAbsoluteAngle();
                     motor.setSelectedSensorPosition(absoluteAngle / motorEncoderPositionCoefficient);
                     currentAngleRadians = absoluteAngle;
                 }
@@ -244,17 +239,8 @@ public final class Falcon500SteerControllerFactoryBuilder
                 resetIteration = 0;
             }
 
-            double currentAngleRadiansMod = currentAngleRadians % (2.0 * Math.PI);
-            
-            if (currentAngleRadiansMod < 0.0) currentAngleRadiansMod += 2.0 * Math.PI;
-
-            // The reference angle has the range [0, 2pi) but the Falcon's encoder can go above that
-            double adjustedReferenceAngleRadians = referenceAngleRadians + currentAngleRadians - currentAngleRadiansMod;
-            
-            if (referenceAngleRadians - currentAngleRadiansMod > Math.PI) 
-                adjustedReferenceAngleRadians -= 2.0 * Math.PI;
-             else if (referenceAngleRadians - currentAngleRadiansMod < -Math.PI) 
-                adjustedReferenceAngleRadians += 2.0 * Math.PI;
+            // The reference angle has the range [0, 2pi) but the motor's encoder can go above that
+            double adjustedReferenceAngleRadians = SteerUtils.unwrapReferenceAngle(referenceAngleRadians, currentAngleRadians);
 
             motor.set(motorControlMode, adjustedReferenceAngleRadians / motorEncoderPositionCoefficient);
 
@@ -262,15 +248,19 @@ public final class Falcon500SteerControllerFactoryBuilder
         }
 
         @Override
-        public double getStateAngle() 
+        public double getStatePosition() 
         {
-            double motorAngleRadians = motor.getSelectedSensorPosition() * motorEncoderPositionCoefficient;
+            HardwareReadCounter.record();
 
-            motorAngleRadians %= 2.0 * Math.PI;
+            return motor.getSelectedSensorPosition() * motorEncoderPositionCoefficient;
+        }
 
-            if (motorAngleRadians < 0.0) motorAngleRadians += 2.0 * Math.PI;
+        @Override
+        public double getStateVelocity() 
+        {
+            HardwareReadCounter.record();
 
-            return motorAngleRadians;
+            return motor.getSelectedSensorVelocity() * motorEncoderVelocityCoefficient;
         }
         
         @Override
@@ -290,17 +280,15 @@ public final class Falcon500SteerControllerFactoryBuilder
         }
 
         @Override
-        public RelativeEncoder getMotorEncoder() 
+        public void setStatePosition(double angle)
         {
-            // TODO Auto-generated method stub
-            return null;
+            motor.setSelectedSensorPosition(angle / motorEncoderPositionCoefficient);
         }
 
         @Override
         public AbsoluteEncoder getAbsoluteEncoder() 
         {
-            // TODO Auto-generated method stub
-            return null;
+            return absoluteEncoder;
         }
         
         @Override
@@ -312,6 +300,29 @@ public final class Falcon500SteerControllerFactoryBuilder
                 motor.setNeutralMode(NeutralMode.Coast);
         }
 
+        @Override
+        public void setStatusFrameProfile(StatusFrameProfile profile)
+        {
+            CtreUtils.setStatusFrames(motor, profile, 0);
+
+            absoluteEncoder.setStatusFrameProfile(profile);
+        }
+
+        @Override
+        public double getStatusFrameRate(StatusFrameProfile profile)
+        {
+            return CtreUtils.getStatusFrameRate(profile) + absoluteEncoder.getStatusFrameRate(profile);
+        }
+
+        @Override
+        public void simulationUpdate(double angleDelta, double velocity, double absoluteAngle)
+        {
+            CtreUtils.simulationUpdate(motor, angleDelta / motorEncoderPositionCoefficient, 
+                                       velocity / motorEncoderVelocityCoefficient);
+
+            absoluteEncoder.simulationUpdate(absoluteAngle);
+        }
+
         @Override
         public boolean getBrakeMode() 
         {
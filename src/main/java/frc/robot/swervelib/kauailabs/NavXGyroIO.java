@@ -0,0 +1,91 @@
+package frc.robot.swervelib.kauailabs;
+
+import com.kauailabs.navx.frc.AHRS;
+
+import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.swervelib.GyroIO;
+import frc.robot.swervelib.GyroInputs;
+import frc.robot.swervelib.GyroSampleBuffer;
+import frc.robot.swervelib.HardwareReadCounter;
+
+/**
+ * GyroIO on the navX. Headings come from the samples NavXSampler records from every
+ * navX update, interpolated to the time asked for. Before the first sample (the navX
+ * is still starting) the navX is read directly. The simulated navX sends no updates,
+ * so in simulation updateInputs() samples it once per loop instead.
+ */
+public class NavXGyroIO implements GyroIO
+{
+    private final AHRS              navx;
+    private final GyroSampleBuffer  samples;
+    private final NavXSampler       sampler;
+
+    /**
+     * Create the gyro. Call start() to begin recording samples.
+     * @param navx The navX.
+     * @param samples Buffer to record samples in.
+     */
+    public NavXGyroIO(AHRS navx, GyroSampleBuffer samples)
+    {
+        this.navx = navx;
+        this.samples = samples;
+
+        sampler = new NavXSampler(navx, samples);
+    }
+
+    public void start()
+    {
+        sampler.start();
+    }
+
+    public void stop()
+    {
+        sampler.stop();
+    }
+
+    @Override
+    public void updateInputs(double timestamp, GyroInputs inputs)
+    {
+        if (RobotBase.isSimulation()) samples.add(timestamp, readHeading(), 0, 0, 0, 0);
+
+        double rate = samples.getAt(GyroSampleBuffer.RATE, timestamp);
+
+        inputs.headingDegrees = getHeadingAt(timestamp);
+        inputs.rateDegreesPerSecond = Double.isNaN(rate) ? 0 : rate;
+        inputs.connected = navx.isConnected();
+    }
+
+    @Override
+    public double getHeadingAt(double timestamp)
+    {
+        double heading = samples.getHeadingAt(timestamp);
+
+        // No samples yet, the navX is still starting.
+        if (Double.isNaN(heading)) heading = readHeading();
+
+        return heading;
+    }
+
+    @Override
+    public GyroSampleBuffer getSamples()
+    {
+        return samples;
+    }
+
+    @Override
+    public void zero()
+    {
+        navx.zeroYaw();
+    }
+
+    /**
+     * Reads the heading from the navX now.
+     * @return Heading in degrees, range [-180, 180], CCW positive.
+     */
+    private double readHeading()
+    {
+        HardwareReadCounter.record();
+
+        return Math.IEEEremainder(-navx.getAngle(), 360);
+    }
+}
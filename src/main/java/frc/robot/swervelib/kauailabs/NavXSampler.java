@@ -0,0 +1,80 @@
+package frc.robot.swervelib.kauailabs;
+
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
+import com.kauailabs.navx.frc.AHRS;
+import com.kauailabs.navx.frc.ITimestampedDataSubscriber;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.swervelib.GyroSampleBuffer;
+
+/**
+ * Records every navX update into a GyroSampleBuffer as it arrives, through the navX
+ * timestamped data callback, so the heading can be read at any recent time rather
+ * than only polled once per loop.
+ * <p>
+ * The callback runs on the navX IO thread at the navX update rate. Samples are
+ * timestamped with the FPGA time the callback runs. Yaw rate is computed from the
+ * change in yaw over the navX's own sensor timestamps. Heading is the negated yaw
+ * (CCW positive) as the board reports it. Current navX firmware zeroes yaw on the
+ * board for AHRS.zeroYaw(), so the samples follow it as -AHRS.getYaw() does.
+ */
+public class NavXSampler implements ITimestampedDataSubscriber
+{
+    private final AHRS              navx;
+    private final GyroSampleBuffer  samples;
+
+    // Used on the navX IO thread only.
+    private double                  lastHeading = Double.NaN;
+    private long                    lastSensorTimestamp;
+
+    /**
+     * Create the sampler. Call start() to begin recording.
+     * @param navx The navX.
+     * @param samples Buffer to record samples in.
+     */
+    public NavXSampler(AHRS navx, GyroSampleBuffer samples)
+    {
+        Util.consoleLog();
+
+        this.navx = navx;
+        this.samples = samples;
+    }
+
+    public void start()
+    {
+        Util.consoleLog();
+
+        if (!navx.registerCallback(this, null)) Util.consoleLog("navX callback not registered");
+    }
+
+    public void stop()
+    {
+        Util.consoleLog();
+
+        navx.deregisterCallback(this);
+    }
+
+    /**
+     * @return The buffer samples are recorded in.
+     */
+    public GyroSampleBuffer getSamples()
+    {
+        return samples;
+    }
+
+    @Override
+    public void timestampedDataReceived(long systemTimestamp, long sensorTimestamp, AHRSUpdateBase data, Object context)
+    {
+        double now = Timer.getFPGATimestamp();
+        double heading = -data.yaw, rate = 0;
+
+        if (!Double.isNaN(lastHeading) && sensorTimestamp > lastSensorTimestamp)
+            rate = Math.IEEEremainder(heading - lastHeading, 360.0) / ((sensorTimestamp - lastSensorTimestamp) / 1000.0);
+
+        lastHeading = heading;
+        lastSensorTimestamp = sensorTimestamp;
+
+        samples.add(now, heading, rate, data.linear_accel_x, data.linear_accel_y, data.linear_accel_z);
+    }
+}
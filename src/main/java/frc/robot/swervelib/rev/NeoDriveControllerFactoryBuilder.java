@@ -1,24 +1,39 @@
 package frc.robot.swervelib.rev;
 
-import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel;
 import com.revrobotics.RelativeEncoder;
+import com.revrobotics.SparkMaxPIDController;
 import com.revrobotics.CANSparkMax.IdleMode;
 
 import Team4450.Lib.Util;
+import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import frc.robot.swervelib.ConfigFingerprints;
 import frc.robot.swervelib.DriveController;
 import frc.robot.swervelib.DriveControllerFactory;
+import frc.robot.swervelib.HardwareReadCounter;
 import frc.robot.swervelib.ModuleConfiguration;
+import frc.robot.swervelib.StatusFrameProfile;
 
 import static frc.robot.swervelib.rev.RevUtils.checkNeoError;
 
 public final class NeoDriveControllerFactoryBuilder 
 {
+    // Change when create() applies settings differently, to force full configuration.
+    private static final int FINGERPRINT_VERSION = 2;
+
+    // Voltage the controller's duty cycle is relative to without voltage compensation.
+    private static final double NOMINAL_VOLTAGE = 12.0;
+
     private double nominalVoltage   = Double.NaN;
     private double currentLimit     = Double.NaN;
     private double rampRate         = Double.NaN;
 
+    private double kS               = Double.NaN;
+    private double kV               = Double.NaN;
+    private double kA               = Double.NaN;
+    private double velocityP        = Double.NaN;
+
     public NeoDriveControllerFactoryBuilder withVoltageCompensation(double nominalVoltage) 
     {
         Util.consoleLog();
@@ -55,6 +70,27 @@ public final class NeoDriveControllerFactoryBuilder
         return Double.isFinite(rampRate);
     }
 
+    /**
+     * Enables setReferenceVelocity().
+     * @param kS Feedforward volts to overcome friction.
+     * @param kV Feedforward volts per m/s.
+     * @param kA Feedforward volts per m/s/s.
+     * @param velocityP Onboard velocity loop gain in volts per m/s of error.
+     */
+    public NeoDriveControllerFactoryBuilder withVelocityControl(double kS, double kV, double kA, double velocityP) 
+    {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.velocityP = velocityP;
+        return this;
+    }
+
+    public boolean hasVelocityControl() 
+    {
+        return Double.isFinite(kS) && Double.isFinite(kV) && Double.isFinite(kA) && Double.isFinite(velocityP);
+    }
+
     public DriveControllerFactory<ControllerImplementation, Integer> build() 
     {
         Util.consoleLog();
@@ -71,48 +107,149 @@ public final class NeoDriveControllerFactoryBuilder
     
             CANSparkMax motor = new CANSparkMax(id, CANSparkMaxLowLevel.MotorType.kBrushless);
 
-            motor.restoreFactoryDefaults(); // 4450
+            RelativeEncoder encoder = motor.getEncoder();
+            double positionConversionFactor = Math.PI * moduleConfiguration.getWheelDiameter() * moduleConfiguration.getDriveReduction();
+
+            String device = "NeoDrive-" + id;
+            String fingerprint = ConfigFingerprints.fingerprint(FINGERPRINT_VERSION, id, moduleConfiguration, 
+                                                                nominalVoltage, currentLimit, rampRate, velocityP);
+
+            // Settings saved in the controller's flash survive power off. If they are the ones
+            // we would apply, read them back instead of resetting and reapplying all.
+            if (ConfigFingerprints.matches(device, fingerprint) && verify(motor, encoder, moduleConfiguration, positionConversionFactor))
+            {
+                Util.consoleLog("%s configuration unchanged", device);
+
+                // The current limit can't be read back to verify, so always send it.
+                if (hasCurrentLimit()) 
+                    checkNeoError(motor.setSmartCurrentLimit((int) currentLimit), "Failed to set current limit for NEO");
+            }
+            else
+            {
+                Util.consoleLog("%s full configuration", device);
+
+                if (configure(motor, encoder, moduleConfiguration, positionConversionFactor) &&
+                    checkNeoError(motor.burnFlash(), "Failed to save NEO configuration"))
+                    ConfigFingerprints.store(device, fingerprint);
+                else
+                    ConfigFingerprints.clear(device);
+            }
+
+            // Status frame periods are not saved by burnFlash so always set them. The
+            // StatusFrameManager switches profiles with the robot state once running.
+            RevUtils.setStatusFrames(motor, StatusFrameProfile.TELEOP);
+
+            return new ControllerImplementation(motor, encoder, 
+                                                hasVelocityControl() ? new SimpleMotorFeedforward(kS, kV, kA) : null);
+        }
+
+        /**
+         * Restore factory defaults and apply every setting.
+         * @return True if all settings were applied without error.
+         */
+        private boolean configure(CANSparkMax motor, RelativeEncoder encoder, ModuleConfiguration moduleConfiguration,
+                                  double positionConversionFactor)
+        {
+            boolean ok = checkNeoError(motor.restoreFactoryDefaults(), "Failed to restore NEO factory defaults"); // 4450
 
             motor.setInverted(moduleConfiguration.isDriveInverted());
 
             // Setup voltage compensation
             if (hasVoltageCompensation())
-                checkNeoError(motor.enableVoltageCompensation(nominalVoltage), "Failed to enable voltage compensation");
+                ok &= checkNeoError(motor.enableVoltageCompensation(nominalVoltage), "Failed to enable voltage compensation");
 
             if (hasCurrentLimit()) 
-                checkNeoError(motor.setSmartCurrentLimit((int) currentLimit), "Failed to set current limit for NEO");
+                ok &= checkNeoError(motor.setSmartCurrentLimit((int) currentLimit), "Failed to set current limit for NEO");
             
             if (hasRampRate())
-                checkNeoError(motor.setOpenLoopRampRate(rampRate), "Failed to set NEO ramp rate");
+            {
+                ok &= checkNeoError(motor.setOpenLoopRampRate(rampRate), "Failed to set NEO ramp rate");
+                ok &= checkNeoError(motor.setClosedLoopRampRate(rampRate), "Failed to set NEO closed loop ramp rate");
+            }
+
+            // Velocity loop in slot 0. The P gain is in duty cycle per m/s of error (the encoder's
+            // converted units). Feedforward is sent with each setpoint, so the slot's FF is zero.
+            if (hasVelocityControl())
+            {
+                SparkMaxPIDController pid = motor.getPIDController();
+
+                ok &= checkNeoError(pid.setP(getVelocityPDutyCycle()), "Failed to set NEO velocity P");
+                ok &= checkNeoError(pid.setI(0), "Failed to set NEO velocity I");
+                ok &= checkNeoError(pid.setD(0), "Failed to set NEO velocity D");
+                ok &= checkNeoError(pid.setFF(0), "Failed to set NEO velocity FF");
+            }
 
-            checkNeoError(motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus0, 100), "Failed to set periodic status frame 0 rate");
-            checkNeoError(motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus1, 20), "Failed to set periodic status frame 1 rate");
-            checkNeoError(motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus2, 20), "Failed to set periodic status frame 2 rate");
-            
             // Set neutral mode to brake
-            motor.setIdleMode(CANSparkMax.IdleMode.kBrake);
+            ok &= checkNeoError(motor.setIdleMode(CANSparkMax.IdleMode.kBrake), "Failed to set NEO idle mode");
 
             // Setup encoder
-            RelativeEncoder encoder = motor.getEncoder();
-            double positionConversionFactor = Math.PI * moduleConfiguration.getWheelDiameter() * moduleConfiguration.getDriveReduction();
-            encoder.setPositionConversionFactor(positionConversionFactor);
-            encoder.setVelocityConversionFactor(positionConversionFactor / 60.0);
+            ok &= checkNeoError(encoder.setPositionConversionFactor(positionConversionFactor), "Failed to set NEO encoder conversion factor");
+            ok &= checkNeoError(encoder.setVelocityConversionFactor(positionConversionFactor / 60.0), "Failed to set NEO encoder conversion factor");
 
-            return new ControllerImplementation(motor, encoder);
+            return ok;
+        }
+
+        /**
+         * Reads back every saved setting that can be read, to catch a controller that was
+         * swapped or reset since its fingerprint was stored. The current limit can't be,
+         * the caller sends it again.
+         * @return True if the controller is configured.
+         */
+        private boolean verify(CANSparkMax motor, RelativeEncoder encoder, ModuleConfiguration moduleConfiguration,
+                               double positionConversionFactor)
+        {
+            boolean ok = motor.getInverted() == moduleConfiguration.isDriveInverted() &&
+                         motor.getIdleMode() == CANSparkMax.IdleMode.kBrake &&
+                         Math.abs(encoder.getPositionConversionFactor() - positionConversionFactor) < 1e-6 &&
+                         Math.abs(encoder.getVelocityConversionFactor() - positionConversionFactor / 60.0) < 1e-6;
+
+            if (hasVoltageCompensation())
+                ok &= Math.abs(motor.getVoltageCompensationNominalVoltage() - nominalVoltage) < 1e-3;
+
+            if (hasRampRate())
+                ok &= Math.abs(motor.getOpenLoopRampRate() - rampRate) < 1e-3 &&
+                      Math.abs(motor.getClosedLoopRampRate() - rampRate) < 1e-3;
+
+            if (hasVelocityControl())
+            {
+                SparkMaxPIDController pid = motor.getPIDController();
+
+                ok &= Math.abs(pid.getP() - getVelocityPDutyCycle()) < 1e-6 &&
+                      Math.abs(pid.getI()) < 1e-9 && Math.abs(pid.getD()) < 1e-9 && Math.abs(pid.getFF()) < 1e-9;
+            }
+
+            if (!ok) Util.consoleLog("verify failed");
+
+            return ok;
         }
     }
 
+    /**
+     * @return Velocity loop P converted from volts to duty cycle per m/s of error.
+     */
+    private double getVelocityPDutyCycle()
+    {
+        return velocityP / (hasVoltageCompensation() ? nominalVoltage : NOMINAL_VOLTAGE);
+    }
+
     private static class ControllerImplementation implements DriveController 
     {
         private final CANSparkMax motor;
         private final RelativeEncoder encoder;
+        private final SparkMaxPIDController pidController;
+        private final SimpleMotorFeedforward feedforward;
 
-        private ControllerImplementation(CANSparkMax motor, RelativeEncoder encoder) 
+        private SparkMaxSim sim;
+
+        private ControllerImplementation(CANSparkMax motor, RelativeEncoder encoder, SimpleMotorFeedforward feedforward) 
         {
             Util.consoleLog();
     
             this.motor = motor;
             this.encoder = encoder;
+            this.feedforward = feedforward;
+
+            pidController = motor.getPIDController();
         }
 
         @Override
@@ -122,33 +259,41 @@ public final class NeoDriveControllerFactoryBuilder
         }
 
         @Override
-        public double getStateVelocity() 
+        public void setReferenceVelocity(double velocity, double acceleration) 
         {
-            return encoder.getVelocity();
+            if (feedforward == null) throw new IllegalStateException("NEO drive velocity control not configured");
+
+            pidController.setReference(velocity, CANSparkMax.ControlType.kVelocity, 0, 
+                                       feedforward.calculate(velocity, acceleration), 
+                                       SparkMaxPIDController.ArbFFUnits.kVoltage);
         }
 
         @Override
-        public void stop()
+        public double getStateVelocity() 
         {
-            motor.stopMotor();
+            HardwareReadCounter.record();
+
+            return encoder.getVelocity();
         }
 
         @Override
-        public RelativeEncoder getEncoder() 
+        public double getStatePosition() 
         {
-            return encoder;
+            HardwareReadCounter.record();
+
+            return encoder.getPosition();
         }
 
         @Override
-        public CANSparkMax getMotorNeo() 
+        public void stop()
         {
-            return motor;
+            motor.stopMotor();
         }
 
         @Override
-        public TalonFX getMotor500() 
+        public void setStatePosition(double position)
         {
-            return null;
+            encoder.setPosition(position);
         }
 
         @Override
@@ -161,5 +306,25 @@ public final class NeoDriveControllerFactoryBuilder
             else
                 motor.setIdleMode(IdleMode.kCoast);
         }
+
+        @Override
+        public void setStatusFrameProfile(StatusFrameProfile profile)
+        {
+            RevUtils.setStatusFrames(motor, profile);
+        }
+
+        @Override
+        public double getStatusFrameRate(StatusFrameProfile profile)
+        {
+            return RevUtils.getStatusFrameRate(profile);
+        }
+
+        @Override
+        public void simulationUpdate(double distanceDelta, double velocity)
+        {
+            if (sim == null) sim = new SparkMaxSim(motor);
+
+            sim.update(distanceDelta, velocity);
+        }
     }
 }
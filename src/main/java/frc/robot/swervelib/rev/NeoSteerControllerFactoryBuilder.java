@@ -5,13 +5,18 @@ import com.revrobotics.CANSparkMax.IdleMode;
 
 import Team4450.Lib.Util;
 import frc.robot.swervelib.*;
+import frc.robot.telemetry.TelemetryPublisher;
 import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
 
 import static frc.robot.swervelib.rev.RevUtils.checkNeoError;
 
 public final class NeoSteerControllerFactoryBuilder
 {
+    // Change when create() applies settings differently, to force full configuration.
+    private static final int FINGERPRINT_VERSION = 1;
+
     // PID configuration
     private double pidProportional  = Double.NaN;
     private double pidIntegral      = Double.NaN;
@@ -21,6 +26,11 @@ public final class NeoSteerControllerFactoryBuilder
     private double currentLimit     = Double.NaN;
     private double rampRate         = Double.NaN;
 
+    // Motion profile
+    private double maxVelocity      = Double.NaN;
+    private double maxAcceleration  = Double.NaN;
+    private double velocityKv       = Double.NaN;
+
     public NeoSteerControllerFactoryBuilder withPidConstants(double proportional, double integral, double derivative) 
     {
         Util.consoleLog();
@@ -37,6 +47,26 @@ public final class NeoSteerControllerFactoryBuilder
         return Double.isFinite(pidProportional) && Double.isFinite(pidIntegral) && Double.isFinite(pidDerivative);
     }
 
+    /**
+     * Steer through a trapezoidal motion profile computed on the RIO instead of giving
+     * the position loop the target angle directly.
+     * @param maxVelocity Maximum steer velocity in rad/s.
+     * @param maxAcceleration Maximum steer acceleration in rad/s/s.
+     * @param kV Feedforward volts per rad/s of steer velocity.
+     */
+    public NeoSteerControllerFactoryBuilder withMotionProfile(double maxVelocity, double maxAcceleration, double kV) 
+    {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.velocityKv = kV;
+        return this;
+    }
+
+    public boolean hasMotionProfile() 
+    {
+        return Double.isFinite(maxVelocity) && Double.isFinite(maxAcceleration) && Double.isFinite(velocityKv);
+    }
+
     public NeoSteerControllerFactoryBuilder withVoltageCompensation(double nominalVoltage) 
     {
         this.nominalVoltage = nominalVoltage;
@@ -89,14 +119,15 @@ public final class NeoSteerControllerFactoryBuilder
         }
 
         @Override
-        public void addDashboardEntries(ShuffleboardContainer container, ControllerImplementation controller) 
+        public void addDashboardEntries(ShuffleboardContainer container, ControllerImplementation controller,
+                                        ModuleSensorSnapshot sensors) 
         {
             Util.consoleLog();
     
-            container.addNumber("Absolute Encoder Angle", 
-                    () -> Math.toDegrees(controller.absoluteEncoder.getAbsoluteAngle()));
+            TelemetryPublisher.addNumber(container, "Absolute Encoder Angle", () -> Math.toDegrees(sensors.getAbsoluteAngle()), 
+                                         TelemetryPublisher.DIAGNOSTIC_HZ, 0.1);
 
-            SteerControllerFactory.super.addDashboardEntries(container, controller);
+            SteerControllerFactory.super.addDashboardEntries(container, controller, sensors);
         }
 
         @Override
@@ -106,44 +137,116 @@ public final class NeoSteerControllerFactoryBuilder
     
             AbsoluteEncoder absoluteEncoder = encoderFactory.create(steerConfiguration.getEncoderConfiguration());
 
-            CANSparkMax motor = new CANSparkMax(steerConfiguration.getMotorPort(), CANSparkMaxLowLevel.MotorType.kBrushless);
+            int port = steerConfiguration.getMotorPort();
+
+            CANSparkMax motor = new CANSparkMax(port, CANSparkMaxLowLevel.MotorType.kBrushless);
+
+            RelativeEncoder integratedEncoder = motor.getEncoder();
+            SparkMaxPIDController controller = motor.getPIDController();
+
+            String device = "NeoSteer-" + port;
+            String fingerprint = ConfigFingerprints.fingerprint(FINGERPRINT_VERSION, port, moduleConfiguration, nominalVoltage, 
+                                                                currentLimit, rampRate, pidProportional, pidIntegral, pidDerivative);
+
+            // Settings saved in the controller's flash survive power off. If they are the ones
+            // we would apply, read them back instead of resetting and reapplying all.
+            if (ConfigFingerprints.matches(device, fingerprint) && verify(motor, integratedEncoder, controller, moduleConfiguration))
+            {
+                Util.consoleLog("%s configuration unchanged", device);
+
+                // The current limit can't be read back to verify, so always send it.
+                if (hasCurrentLimit())
+                    checkNeoError(motor.setSmartCurrentLimit((int) Math.round(currentLimit)), "Failed to set NEO current limits");
+            }
+            else
+            {
+                Util.consoleLog("%s full configuration", device);
+
+                if (configure(motor, integratedEncoder, controller, moduleConfiguration) &&
+                    checkNeoError(motor.burnFlash(), "Failed to save NEO configuration"))
+                    ConfigFingerprints.store(device, fingerprint);
+                else
+                    ConfigFingerprints.clear(device);
+            }
 
-            motor.restoreFactoryDefaults(); // 4450
+            // Status frame periods are not saved by burnFlash so always set them. The
+            // StatusFrameManager switches profiles with the robot state once running.
+            RevUtils.setStatusFrames(motor, StatusFrameProfile.TELEOP);
+
+            // Encoder position is not a setting, always seed it from the absolute encoder.
+            checkNeoError(integratedEncoder.setPosition(absoluteEncoder.getAbsoluteAngle()), "Failed to set NEO encoder position");
+
+            return new ControllerImplementation(motor, absoluteEncoder, 
+                hasMotionProfile() ? new SteerMotionProfile(maxVelocity, maxAcceleration, velocityKv) : null);
+        }
 
-            checkNeoError(motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus0, 100), "Failed to set periodic status frame 0 rate");
-            checkNeoError(motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus1, 20), "Failed to set periodic status frame 1 rate");
-            checkNeoError(motor.setPeriodicFramePeriod(CANSparkMaxLowLevel.PeriodicFrame.kStatus2, 20), "Failed to set periodic status frame 2 rate");
-            checkNeoError(motor.setIdleMode(CANSparkMax.IdleMode.kBrake), "Failed to set NEO idle mode");
+        /**
+         * Restore factory defaults and apply every setting.
+         * @return True if all settings were applied without error.
+         */
+        private boolean configure(CANSparkMax motor, RelativeEncoder integratedEncoder, SparkMaxPIDController controller,
+                                  ModuleConfiguration moduleConfiguration)
+        {
+            boolean ok = checkNeoError(motor.restoreFactoryDefaults(), "Failed to restore NEO factory defaults"); // 4450
+
+            ok &= checkNeoError(motor.setIdleMode(CANSparkMax.IdleMode.kBrake), "Failed to set NEO idle mode");
             
             motor.setInverted(!moduleConfiguration.isSteerInverted());
             
             if (hasVoltageCompensation()) 
-                checkNeoError(motor.enableVoltageCompensation(nominalVoltage), "Failed to enable voltage compensation");
+                ok &= checkNeoError(motor.enableVoltageCompensation(nominalVoltage), "Failed to enable voltage compensation");
             
             if (hasCurrentLimit())
-                checkNeoError(motor.setSmartCurrentLimit((int) Math.round(currentLimit)), "Failed to set NEO current limits");
+                ok &= checkNeoError(motor.setSmartCurrentLimit((int) Math.round(currentLimit)), "Failed to set NEO current limits");
             
             if (hasRampRate())
-                checkNeoError(motor.setOpenLoopRampRate(rampRate), "Failed to set NEO ramp rate");
+                ok &= checkNeoError(motor.setOpenLoopRampRate(rampRate), "Failed to set NEO ramp rate");
             
-            RelativeEncoder integratedEncoder = motor.getEncoder();
-
-            checkNeoError(integratedEncoder.setPositionConversionFactor(2.0 * Math.PI * moduleConfiguration.getSteerReduction()), "Failed to set NEO encoder conversion factor");
-            checkNeoError(integratedEncoder.setVelocityConversionFactor(2.0 * Math.PI * moduleConfiguration.getSteerReduction() / 60.0), "Failed to set NEO encoder conversion factor");
-            checkNeoError(integratedEncoder.setPosition(absoluteEncoder.getAbsoluteAngle()), "Failed to set NEO encoder position");
-
-            SparkMaxPIDController controller = motor.getPIDController();
+            ok &= checkNeoError(integratedEncoder.setPositionConversionFactor(2.0 * Math.PI * moduleConfiguration.getSteerReduction()), "Failed to set NEO encoder conversion factor");
+            ok &= checkNeoError(integratedEncoder.setVelocityConversionFactor(2.0 * Math.PI * moduleConfiguration.getSteerReduction() / 60.0), "Failed to set NEO encoder conversion factor");
 
             if (hasPidConstants()) 
             {
-                checkNeoError(controller.setP(pidProportional), "Failed to set NEO PID proportional constant");
-                checkNeoError(controller.setI(pidIntegral), "Failed to set NEO PID integral constant");
-                checkNeoError(controller.setD(pidDerivative), "Failed to set NEO PID derivative constant");
+                ok &= checkNeoError(controller.setP(pidProportional), "Failed to set NEO PID proportional constant");
+                ok &= checkNeoError(controller.setI(pidIntegral), "Failed to set NEO PID integral constant");
+                ok &= checkNeoError(controller.setD(pidDerivative), "Failed to set NEO PID derivative constant");
             }
 
-            checkNeoError(controller.setFeedbackDevice(integratedEncoder), "Failed to set NEO PID feedback device");
+            ok &= checkNeoError(controller.setFeedbackDevice(integratedEncoder), "Failed to set NEO PID feedback device");
 
-            return new ControllerImplementation(motor, absoluteEncoder);
+            return ok;
+        }
+
+        /**
+         * Reads back every saved setting that can be read, to catch a controller that was
+         * swapped or reset since its fingerprint was stored. The current limit can't be,
+         * the caller sends it again.
+         * @return True if the controller is configured.
+         */
+        private boolean verify(CANSparkMax motor, RelativeEncoder integratedEncoder, SparkMaxPIDController controller,
+                               ModuleConfiguration moduleConfiguration)
+        {
+            boolean ok = motor.getInverted() == !moduleConfiguration.isSteerInverted() &&
+                         motor.getIdleMode() == CANSparkMax.IdleMode.kBrake &&
+                         Math.abs(integratedEncoder.getPositionConversionFactor() - 
+                                  2.0 * Math.PI * moduleConfiguration.getSteerReduction()) < 1e-6 &&
+                         Math.abs(integratedEncoder.getVelocityConversionFactor() - 
+                                  2.0 * Math.PI * moduleConfiguration.getSteerReduction() / 60.0) < 1e-6;
+
+            if (hasVoltageCompensation())
+                ok &= Math.abs(motor.getVoltageCompensationNominalVoltage() - nominalVoltage) < 1e-3;
+
+            if (hasRampRate())
+                ok &= Math.abs(motor.getOpenLoopRampRate() - rampRate) < 1e-3;
+
+            if (hasPidConstants())
+                ok &= Math.abs(controller.getP() - pidProportional) < 1e-6 &&
+                      Math.abs(controller.getI() - pidIntegral) < 1e-6 &&
+                      Math.abs(controller.getD() - pidDerivative) < 1e-6;
+
+            if (!ok) Util.consoleLog("verify failed");
+
+            return ok;
         }
     }
 
@@ -152,29 +255,65 @@ public final class NeoSteerControllerFactoryBuilder
         private static final int ENCODER_RESET_ITERATIONS = 500;
         private static final double ENCODER_RESET_MAX_ANGULAR_VELOCITY = Math.toRadians(0.5);
 
+        // Restart the motion profile from the measured angle if the module is this far
+        // from the profile setpoint (held or pushed, or the encoder was reset).
+        private static final double PROFILE_RESET_ERROR = Math.toRadians(30);
+
+        // Starting position task run period and time limit, seconds.
+        private static final double STARTING_POSITION_PERIOD = 0.02;
+        private static final double STARTING_POSITION_TIMEOUT = 2.0;
+
         @SuppressWarnings({"FieldCanBeLocal", "unused"})
         private final CANSparkMax           motor;
-        private final SparkMaxPIDController controller;
+        private final PositionLoop          positionLoop;
         private final RelativeEncoder       motorEncoder;
         private final AbsoluteEncoder       absoluteEncoder;
+        private final SteerMotionProfile    profile;
 
         private double referenceAngleRadians = 0;
         private double resetIteration = 0;
 
-        public ControllerImplementation(CANSparkMax motor, AbsoluteEncoder absoluteEncoder) 
+        private SparkMaxSim sim;
+
+        private DrivetrainScheduler.Task startingPositionTask;
+
+        /**
+         * @param motor The steer motor controller.
+         * @param absoluteEncoder The module's absolute encoder.
+         * @param profile Steer motion profile, null to give the position loop the target directly.
+         */
+        public ControllerImplementation(CANSparkMax motor, AbsoluteEncoder absoluteEncoder, SteerMotionProfile profile) 
+        {
+            this(motor, motor.getEncoder(), new SparkMaxPositionLoop(motor.getPIDController()), absoluteEncoder, profile);
+        }
+
+        /**
+         * Create with the motor's encoder and position loop given separately, so the
+         * controller can be run on stand-ins for them (benchmarks).
+         * @param motor The steer motor controller, null if only setReferenceAngle() is used.
+         * @param motorEncoder The steer motor's encoder.
+         * @param positionLoop The steer motor's position loop.
+         * @param absoluteEncoder The module's absolute encoder.
+         * @param profile Steer motion profile, null to give the position loop the target directly.
+         */
+        ControllerImplementation(CANSparkMax motor, RelativeEncoder motorEncoder, PositionLoop positionLoop, 
+                                 AbsoluteEncoder absoluteEncoder, SteerMotionProfile profile) 
         {
             Util.consoleLog();
     
             this.motor = motor;
-            this.controller = motor.getPIDController();
-            this.motorEncoder = motor.getEncoder();
+            this.motorEncoder = motorEncoder;
+            this.positionLoop = positionLoop;
             this.absoluteEncoder = absoluteEncoder;
+            this.profile = profile;
         }
 
         @Override
         public void stop()
         {
             motor.stopMotor();
+
+            if (profile != null) profile.clear();
         }
 
         @Override
@@ -182,9 +321,7 @@ public final class NeoSteerControllerFactoryBuilder
         {
             Util.consoleLog();
     
-            checkNeoError(controller.setP(proportional), "Failed to set NEO PID proportional constant");
-            checkNeoError(controller.setI(integral), "Failed to set NEO PID integral constant");
-            checkNeoError(controller.setD(derivative), "Failed to set NEO PID derivative constant");
+            positionLoop.setPidConstants(proportional, integral, derivative);
         }
 
         @Override
@@ -194,60 +331,84 @@ public final class NeoSteerControllerFactoryBuilder
         }
 
         @Override
-        public void setReferenceAngle(double referenceAngleRadians) 
+        public void setReferenceAngle(double referenceAngleRadians, ModuleSensorSnapshot sensors) 
         {
-            double currentAngleRadians = motorEncoder.getPosition();
+            double currentAngleRadians = sensors.getSteerPosition();
 
             // Reset the NEO's encoder periodically when the module is not rotating.
             // Sometimes (~5% of the time) when we initialize, the absolute encoder isn't fully set up, and we don't
             // end up getting a good reading. If we reset periodically this won't matter anymore.
             
-            if (motorEncoder.getVelocity() < ENCODER_RESET_MAX_ANGULAR_VELOCITY) 
+            if (sensors.getSteerVelocity() < ENCODER_RESET_MAX_ANGULAR_VELOCITY) 
             {
                 if (++resetIteration >= ENCODER_RESET_ITERATIONS) 
                 {
                     resetIteration = 0;
-                    double absoluteAngle = absoluteEncoder.getAbsoluteAngle();
+                    double absoluteAngle = sensors.getAbsoluteAngle();
                     motorEncoder.setPosition(absoluteAngle);
                     currentAngleRadians = absoluteAngle;
+
+                    if (profile != null) profile.clear();
                 }
             } else {
                 resetIteration = 0;
             }
 
-            double currentAngleRadiansMod = currentAngleRadians % (2.0 * Math.PI);
-            
-            if (currentAngleRadiansMod < 0.0) currentAngleRadiansMod += 2.0 * Math.PI;
+            this.referenceAngleRadians = referenceAngleRadians;
 
-            // The reference angle has the range [0, 2pi) but the Neo's encoder can go above that
-            double adjustedReferenceAngleRadians = referenceAngleRadians + currentAngleRadians - currentAngleRadiansMod;
-            
-            if (referenceAngleRadians - currentAngleRadiansMod > Math.PI) 
-                adjustedReferenceAngleRadians -= 2.0 * Math.PI;
-            else if (referenceAngleRadians - currentAngleRadiansMod < -Math.PI) 
-                adjustedReferenceAngleRadians += 2.0 * Math.PI;
+            if (profile == null)
+            {
+                // The reference angle has the range [0, 2pi) but the motor's encoder can go above that
+                double adjustedReferenceAngleRadians = SteerUtils.unwrapReferenceAngle(referenceAngleRadians, currentAngleRadians);
 
-            this.referenceAngleRadians = referenceAngleRadians;
+                positionLoop.setReference(adjustedReferenceAngleRadians, 0);
 
-            controller.setReference(adjustedReferenceAngleRadians, CANSparkMax.ControlType.kPosition);
+                return;
+            }
+
+            if (!profile.isActive() || Math.abs(profile.getPosition() - currentAngleRadians) > PROFILE_RESET_ERROR)
+                profile.reset(currentAngleRadians, sensors.getSteerVelocity());
+
+            // Unwrapped around the setpoint so the profile goal is continuous with it.
+            double goal = SteerUtils.unwrapReferenceAngle(referenceAngleRadians, profile.getPosition());
+
+            profile.calculate(goal, TimedRobot.kDefaultPeriod);
+
+            positionLoop.setReference(profile.getPosition(), profile.getFeedforward());
         }
 
         @Override
-        public double getStateAngle() 
+        public double getSetpointAngle()
         {
-            double motorAngleRadians = motorEncoder.getPosition();
+            return profile == null ? referenceAngleRadians : SteerUtils.normalizeAngle(profile.getPosition());
+        }
 
-            motorAngleRadians %= 2.0 * Math.PI;
+        @Override
+        public double getSetpointFeedforward()
+        {
+            return profile == null ? 0 : profile.getFeedforward();
+        }
 
-            if (motorAngleRadians < 0.0) motorAngleRadians += 2.0 * Math.PI;
+        @Override
+        public double getStatePosition() 
+        {
+            HardwareReadCounter.record();
+
+            return motorEncoder.getPosition();
+        }
 
-            return motorAngleRadians;
+        @Override
+        public double getStateVelocity() 
+        {
+            HardwareReadCounter.record();
+
+            return motorEncoder.getVelocity();
         }
 
         @Override
-        public RelativeEncoder getMotorEncoder()
+        public void setStatePosition(double angle)
         {
-            return motorEncoder;
+            motorEncoder.setPosition(angle);
         }
 
         @Override
@@ -265,6 +426,30 @@ public final class NeoSteerControllerFactoryBuilder
                 motor.setIdleMode(IdleMode.kCoast);
         }
 
+        @Override
+        public void setStatusFrameProfile(StatusFrameProfile profile)
+        {
+            RevUtils.setStatusFrames(motor, profile);
+
+            absoluteEncoder.setStatusFrameProfile(profile);
+        }
+
+        @Override
+        public double getStatusFrameRate(StatusFrameProfile profile)
+        {
+            return RevUtils.getStatusFrameRate(profile) + absoluteEncoder.getStatusFrameRate(profile);
+        }
+
+        @Override
+        public void simulationUpdate(double angleDelta, double velocity, double absoluteAngle)
+        {
+            if (sim == null) sim = new SparkMaxSim(motor);
+
+            sim.update(angleDelta, velocity);
+
+            absoluteEncoder.simulationUpdate(absoluteAngle);
+        }
+
         @Override        
         public boolean getBrakeMode() 
         {
@@ -275,64 +460,115 @@ public final class NeoSteerControllerFactoryBuilder
         }
 
         /**
-         * This method launches a thread that uses a PID control to turn the
-         * wheel to the "start" position, which represents wheel aligned straight
-         * ahead and wheel gear on the left side of the chassis. The start position
-         * is CanCoder absolute angle = 360 or 0.
+         * This method schedules a task on the drivetrain scheduler that uses a PID
+         * control to turn the wheel to the "start" position, which represents wheel
+         * aligned straight ahead and wheel gear on the left side of the chassis. The
+         * start position is CanCoder absolute angle = 360 or 0. The task runs every
+         * 20ms until on target or timed out, and is cancelled if the robot is disabled.
+         * Calling again cancels a task still running.
          */
         @Override
         public void setStartingPosition(double steerOffset) 
         {
-            new Thread(() -> 
+            if (startingPositionTask != null) startingPositionTask.cancel();
+
+            startingPositionTask = DrivetrainScheduler.getInstance().schedulePeriodic("Steer start position " + motor.getDeviceId(),
+                STARTING_POSITION_PERIOD, STARTING_POSITION_PERIOD, true, new DrivetrainScheduler.PeriodicTask()
             {
-                PIDController pid = new PIDController(.01, 0, 0);
-                
-                pid.setTolerance(0.5);
-                pid.enableContinuousInput(0, 360);
+                private final PIDController pid = new PIDController(.01, 0, 0);
+                private final double        startTime = Util.timeStamp();
+                private String              result = "";
 
-                double  power, angle, startTime = Util.timeStamp();
-                String  result = "";
+                {
+                    pid.setTolerance(0.5);
+                    pid.enableContinuousInput(0, 360);
+                }
 
-                try {
-                    while (true)
+                @Override
+                public boolean run()
+                {
+                    double angle = Math.toDegrees(absoluteEncoder.getAbsoluteAngle());
+
+                    double power = pid.calculate(angle, 360);
+
+                    power = Util.clampValue(power, .20);
+
+                    motor.set(power);
+
+                    if (pid.atSetpoint())
                     {
-                        angle = Math.toDegrees(absoluteEncoder.getAbsoluteAngle());
+                        motor.stopMotor();
+                        motorEncoder.setPosition(absoluteEncoder.getAbsoluteAngle());
+                        result = "on target";
+                        return true;
+                    }
 
-                        power = pid.calculate(angle, 360);
+                    if (Util.getElaspedTime(startTime) > STARTING_POSITION_TIMEOUT) 
+                    {
+                        result = "timeout";
+                        return true;
+                    }
 
-                        power = Util.clampValue(power, .20);
+                    Util.consoleLog("angle=%.3f  target=360  error=%.3f  pwr=%.3f",
+                        angle, 
+                        pid.getPositionError(), power);
 
-                        motor.set(power);
+                    return false;
+                }
 
-                        if (pid.atSetpoint())
-                        {
-                            motor.stopMotor();
-                            motorEncoder.setPosition(absoluteEncoder.getAbsoluteAngle());
-                            result = "on target";
-                            break;
-                        }
+                @Override
+                public void finish(boolean cancelled)
+                {
+                    motor.stopMotor();
 
-                        if (Util.getElaspedTime(startTime) > 2.0) 
-                        {
-                            motor.stopMotor();
-                            result = "timeout";
-                            break;
-                        }
+                    pid.close();
 
-                        Util.consoleLog("angle=%.3f  target=360  error=%.3f  pwr=%.3f",
-                            angle, 
-                            pid.getPositionError(), power);
+                    Util.consoleLog(cancelled ? "cancelled" : result);
+                }
+            });
+        }
+    }
 
-                        Thread.sleep(20);
-                    }
-                } catch (Exception e) { Util.logException(e); }
+    /**
+     * The steer motor's position loop, as ControllerImplementation uses it.
+     */
+    interface PositionLoop
+    {
+        /**
+         * Set the position reference.
+         * @param position Steer motor encoder position in radians.
+         * @param feedforward Arbitrary feedforward in volts.
+         */
+        void setReference(double position, double feedforward);
 
-                motor.stopMotor();
+        void setPidConstants(double proportional, double integral, double derivative);
+    }
+
+    /**
+     * The SPARK MAX's onboard position loop.
+     */
+    private static class SparkMaxPositionLoop implements PositionLoop
+    {
+        private final SparkMaxPIDController controller;
 
-                pid.close();
+        SparkMaxPositionLoop(SparkMaxPIDController controller)
+        {
+            this.controller = controller;
+        }
+
+        @Override
+        public void setReference(double position, double feedforward)
+        {
+            controller.setReference(position, CANSparkMax.ControlType.kPosition, 0, feedforward, 
+                                    SparkMaxPIDController.ArbFFUnits.kVoltage);
+        }
 
-                Util.consoleLog(result);
-            }).start();
+        @Override
+        public void setPidConstants(double proportional, double integral, double derivative)
+        {
+            checkNeoError(controller.setP(proportional), "Failed to set NEO PID proportional constant");
+            checkNeoError(controller.setI(integral), "Failed to set NEO PID integral constant");
+            checkNeoError(controller.setD(derivative), "Failed to set NEO PID derivative constant");
         }
     }
 }
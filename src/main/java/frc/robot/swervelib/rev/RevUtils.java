@@ -1,23 +1,64 @@
 package frc.robot.swervelib.rev;
 
+import com.revrobotics.CANSparkMax;
 import com.revrobotics.REVLibError;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
 
 import Team4450.Lib.Util;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.swervelib.DeviceConfigurator;
+import frc.robot.swervelib.StatusFrameProfile;
 
 public final class RevUtils 
 {
     private RevUtils() {}
 
-    public static void checkNeoError(REVLibError error, String message) 
+    /**
+     * Reports a REVLib error, if any.
+     * @return True if there was no error.
+     */
+    public static boolean checkNeoError(REVLibError error, String message) 
     {
         if (error != REVLibError.kOk) 
         {
             Util.consoleLog("%s: %s", message, error.toString());
 
+            DeviceConfigurator.reportError(String.format("%s: %s", message, error.toString()));
+
             if (RobotBase.isReal()) 
                 DriverStation.reportError(String.format("%s: %s", message, error.toString()), false);
+
+            return false;
         }
+
+        return true;
+    }
+
+    /**
+     * Sets a NEO's status frame periods.
+     * @param motor The NEO.
+     * @param profile The frame periods.
+     */
+    public static void setStatusFrames(CANSparkMax motor, StatusFrameProfile profile)
+    {
+        checkNeoError(motor.setPeriodicFramePeriod(PeriodicFrame.kStatus0, profile.neoStatus0Ms), "Failed to set periodic status frame 0 rate");
+        checkNeoError(motor.setPeriodicFramePeriod(PeriodicFrame.kStatus1, profile.neoStatus1Ms), "Failed to set periodic status frame 1 rate");
+        checkNeoError(motor.setPeriodicFramePeriod(PeriodicFrame.kStatus2, profile.neoStatus2Ms), "Failed to set periodic status frame 2 rate");
+        checkNeoError(motor.setPeriodicFramePeriod(PeriodicFrame.kStatus3, StatusFrameProfile.NEO_UNUSED_FRAME_MS), "Failed to set periodic status frame 3 rate");
+        checkNeoError(motor.setPeriodicFramePeriod(PeriodicFrame.kStatus4, StatusFrameProfile.NEO_UNUSED_FRAME_MS), "Failed to set periodic status frame 4 rate");
+    }
+
+    /**
+     * Estimates the status frames per second a NEO sends with a profile.
+     * @param profile The frame periods.
+     * @return Frames per second.
+     */
+    public static double getStatusFrameRate(StatusFrameProfile profile)
+    {
+        return StatusFrameProfile.framesPerSecond(profile.neoStatus0Ms) +
+               StatusFrameProfile.framesPerSecond(profile.neoStatus1Ms) +
+               StatusFrameProfile.framesPerSecond(profile.neoStatus2Ms) +
+               StatusFrameProfile.framesPerSecond(StatusFrameProfile.NEO_UNUSED_FRAME_MS) * 2;
     }
 }
@@ -0,0 +1,44 @@
+package frc.robot.swervelib.rev;
+
+import com.revrobotics.CANSparkMax;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.hal.SimDouble;
+import edu.wpi.first.wpilibj.simulation.SimDeviceSim;
+
+/**
+ * Writes simulated encoder readings into a SPARK MAX's simulation device, so the
+ * controller's RelativeEncoder returns them as it would on the robot.
+ * <p>
+ * REVLib's simulated SPARK MAX does not apply the encoder conversion factors, so
+ * values are written in the encoder's converted units. Position is advanced by
+ * deltas so encoder setPosition() calls made by robot code still take effect.
+ */
+class SparkMaxSim
+{
+    private final SimDouble position, velocity;
+
+    SparkMaxSim(CANSparkMax motor)
+    {
+        SimDeviceSim device = new SimDeviceSim("SPARK MAX [" + motor.getDeviceId() + "]");
+
+        position = device.getDouble("Position");
+        velocity = device.getDouble("Velocity");
+
+        if (position == null || velocity == null) Util.consoleLog("no sim device for SPARK MAX %d", motor.getDeviceId());
+    }
+
+    /**
+     * Advance the simulated encoder.
+     * @param positionDelta Position moved since the last update, in converted units.
+     * @param velocity Velocity in converted units.
+     */
+    void update(double positionDelta, double velocity)
+    {
+        if (position == null || this.velocity == null) return;
+
+        position.set(position.get() + positionDelta);
+
+        this.velocity.set(velocity);
+    }
+}
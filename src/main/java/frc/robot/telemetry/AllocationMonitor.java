@@ -0,0 +1,108 @@
+package frc.robot.telemetry;
+
+import java.lang.management.ManagementFactory;
+
+import Team4450.Lib.Util;
+
+/**
+ * Measures heap bytes allocated by the current thread across a section of code.
+ * <p>
+ * Used to verify the periodic drive path is allocation free once warmed up. The
+ * probe itself may allocate a few bytes on some JVMs, so that overhead is measured
+ * at construction and subtracted. Call begin() and end() around the measured code
+ * on the same thread each time.
+ */
+public class AllocationMonitor
+{
+    private final String    name;
+    private final int       warmupCycles;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private long    probeOverhead, startBytes, lastBytes, cycles, steadyStateCycles, steadyStateBytes;
+    private boolean reported;
+
+    /**
+     * Create a monitor.
+     * @param name Name used when logging.
+     * @param warmupCycles Cycles ignored before steady state accounting starts.
+     */
+    public AllocationMonitor(String name, int warmupCycles)
+    {
+        this.name = name;
+        this.warmupCycles = warmupCycles;
+
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean &&
+            ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+        {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+
+            // Calibrate the cost of the probe itself.
+            long first = allocatedBytes();
+            long second = allocatedBytes();
+
+            probeOverhead = second - first;
+        }
+        else
+        {
+            threadBean = null;
+
+            Util.consoleLog("%s: thread allocation measurement not supported", name);
+        }
+    }
+
+    private long allocatedBytes()
+    {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void begin()
+    {
+        if (threadBean != null) startBytes = allocatedBytes();
+    }
+
+    /**
+     * End measurement of one cycle. Logs once if allocation is seen after warm up.
+     * @return Bytes allocated since begin().
+     */
+    public long end()
+    {
+        if (threadBean == null) return 0;
+
+        lastBytes = Math.max(0, allocatedBytes() - startBytes - probeOverhead);
+
+        if (++cycles > warmupCycles)
+        {
+            steadyStateCycles++;
+            steadyStateBytes += lastBytes;
+
+            if (lastBytes > 0 && !reported)
+            {
+                reported = true;
+                Util.consoleLog("%s: %d bytes allocated in steady state cycle %d", name, lastBytes, cycles);
+            }
+        }
+
+        return lastBytes;
+    }
+
+    /**
+     * Bytes allocated in the last measured cycle.
+     */
+    public long getLastBytes()
+    {
+        return lastBytes;
+    }
+
+    /**
+     * Average bytes allocated per cycle after warm up.
+     */
+    public double getSteadyStateBytesPerCycle()
+    {
+        return steadyStateCycles == 0 ? 0 : (double) steadyStateBytes / steadyStateCycles;
+    }
+}
@@ -0,0 +1,400 @@
+package frc.robot.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.swervelib.ModuleSensorSnapshot;
+import frc.robot.swervelib.SwerveModule;
+
+/**
+ * Records every input the drive base and drive command consume each robot loop, to
+ * replay them cycle for cycle in simulation.
+ * <p>
+ * A frame is one loop: the robot mode, the time and navX heading the drive base read,
+ * each module's sensor snapshot and the driver's throttle, strafe and rotation axes.
+ * The robot calls beginCycle() at the start of robotPeriodic() and endCycle() after
+ * the command scheduler has run. While recording, the drive base and drive command
+ * fill in the frame as they read their inputs and endCycle() copies it into a ring a
+ * background thread writes to a binary file, so the loop never waits on the file. If
+ * the writer falls behind and the ring fills, frames are dropped and counted.
+ * <p>
+ * A log is about 10KB a second, so each is limited to MAX_FILE_BYTES, about 25
+ * minutes, after which frames are no longer written, and the oldest logs are deleted
+ * to keep them all within MAX_TOTAL_BYTES (see LogFiles).
+ * <p>
+ * While replaying (see frc.robot.sim.DriveInputReplay), each beginCycle() moves to the
+ * next frame of a log loaded into memory, and the drive base and drive command take
+ * their inputs from it instead of the hardware and joysticks. Everything is called on
+ * the robot main thread.
+ * <p>
+ * File format (little endian): 8 byte magic "4450DLOG", int version, int module
+ * count, then frames of (FIRST_MODULE + MODULE_FIELDS * module count) doubles, fields
+ * as given by the constants below.
+ */
+public final class DriveInputLog
+{
+    public static final int     VERSION = 1;
+    public static final byte[]  MAGIC = "4450DLOG".getBytes(StandardCharsets.US_ASCII);
+
+    /** Frame fields. CYCLE counts recorded loops, a gap in replay means dropped frames. */
+    public static final int     CYCLE = 0, TIMESTAMP = 1, MODE = 2, HEADING = 3, THROTTLE = 4, STRAFE = 5,
+                                ROTATION = 6, FIRST_MODULE = 7;
+    /** Module fields, after FIRST_MODULE in module order, as in ModuleSensorSnapshot. */
+    public static final int     DRIVE_POSITION = 0, DRIVE_VELOCITY = 1, STEER_POSITION = 2, STEER_VELOCITY = 3,
+                                ABSOLUTE_ANGLE = 4, MODULE_FIELDS = 5;
+    /** MODE bits. */
+    public static final int     ENABLED = 1, AUTONOMOUS = 2, TEST = 4;
+    /** Most bytes written to one log, and kept in all drive input logs. */
+    public static final long    MAX_FILE_BYTES = 16L << 20, MAX_TOTAL_BYTES = 64L << 20;
+
+    private static final int    HEADER_BYTES = 8 + 4 + 4;
+    private static final int    CAPACITY = 256;         // Frames, about 5 seconds.
+    private static final long   DRAIN_PERIOD_MS = 100;
+
+    private static int          moduleCount, frameSize;
+    private static double[]     frame;
+
+    // Recording: frames written by the main thread, read by the writer thread.
+    private static double[]     ring;
+    private static volatile long writeIndex, readIndex;
+    private static long         cycle, dropped;
+    private static boolean      recording;
+    private static FileChannel  channel;
+    private static ByteBuffer   buffer;
+    private static long         fileBytes;
+
+    // Replaying: every frame of the log, and the index of the current one.
+    private static double[]     frames;
+    private static int          frameCount, frameIndex = -1;
+    private static boolean      replaying;
+
+    private DriveInputLog() {}
+
+    /**
+     * Start recording to a new file under /home/lvuser/telemetry (or ./telemetry in
+     * simulation), deleting the oldest logs past MAX_TOTAL_BYTES.
+     * @param modules Number of swerve modules.
+     */
+    public static synchronized void startRecording(int modules)
+    {
+        if (recording || replaying) return;
+
+        setModuleCount(modules);
+
+        ring = new double[CAPACITY * frameSize];
+        buffer = ByteBuffer.allocateDirect(Math.max(HEADER_BYTES, CAPACITY * frameSize * 8)).order(ByteOrder.LITTLE_ENDIAN);
+
+        try
+        {
+            channel = LogFiles.create("drive", ".dlog", MAX_FILE_BYTES, MAX_TOTAL_BYTES);
+
+            buffer.put(MAGIC).putInt(VERSION).putInt(modules);
+
+            flush();
+        }
+        catch (IOException e)
+        {
+            Util.logException(e);
+            return;
+        }
+
+        recording = true;
+
+        Thread writerThread = new Thread(DriveInputLog::writerLoop, "DriveInputLog");
+
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+    }
+
+    /**
+     * Load a log to replay. Call before the robot is created.
+     * @param file The log.
+     */
+    public static synchronized void startReplay(File file) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[MAGIC.length];
+
+        data.get(magic);
+
+        if (!Arrays.equals(magic, MAGIC)) throw new IOException(file + " is not a drive input log");
+
+        int version = data.getInt();
+
+        if (version != VERSION) throw new IOException(file + " is version " + version + ", expected " + VERSION);
+
+        setModuleCount(data.getInt());
+
+        frameCount = data.remaining() / (frameSize * 8);
+        frames = new double[frameCount * frameSize];
+
+        data.asDoubleBuffer().get(frames);
+
+        frameIndex = -1;
+        replaying = true;
+
+        Util.consoleLog("replaying %s, %d frames", file, frameCount);
+    }
+
+    private static void setModuleCount(int modules)
+    {
+        moduleCount = modules;
+        frameSize = FIRST_MODULE + MODULE_FIELDS * modules;
+        frame = new double[frameSize];
+    }
+
+    public static boolean isRecording()
+    {
+        return recording;
+    }
+
+    public static boolean isReplaying()
+    {
+        return replaying;
+    }
+
+    /**
+     * @return Modules in each frame, zero if not recording or replaying.
+     */
+    public static int getModuleCount()
+    {
+        return moduleCount;
+    }
+
+    /**
+     * @return Frames in the log being replayed.
+     */
+    public static int getFrameCount()
+    {
+        return frameCount;
+    }
+
+    /**
+     * A field of a frame of the log being replayed.
+     * @param frameNumber Frame number, from zero.
+     * @param field CYCLE, TIMESTAMP, MODE, etc.
+     * @return The field's value.
+     */
+    public static double getFrameValue(int frameNumber, int field)
+    {
+        return frames[frameNumber * frameSize + field];
+    }
+
+    /**
+     * Start a robot loop. Recording, clears the frame and records the robot mode.
+     * Replaying, moves to the next frame.
+     */
+    public static void beginCycle()
+    {
+        if (recording)
+        {
+            Arrays.fill(frame, Double.NaN);
+
+            frame[CYCLE] = cycle++;
+            frame[MODE] = (DriverStation.isEnabled() ? ENABLED : 0) | (DriverStation.isAutonomous() ? AUTONOMOUS : 0) |
+                          (DriverStation.isTest() ? TEST : 0);
+        }
+        else if (replaying)
+        {
+            if (frameIndex < frameCount) frameIndex++;
+
+            if (frameIndex < frameCount) System.arraycopy(frames, frameIndex * frameSize, frame, 0, frameSize);
+        }
+    }
+
+    /**
+     * End a robot loop. Recording, queues the frame to be written.
+     */
+    public static void endCycle()
+    {
+        if (!recording) return;
+
+        long index = writeIndex;
+
+        if (index - readIndex >= CAPACITY)
+        {
+            dropped++;
+            return;
+        }
+
+        System.arraycopy(frame, 0, ring, (int) (index % CAPACITY) * frameSize, frameSize);
+
+        // The volatile write orders the copy above before the writer sees the frame.
+        writeIndex = index + 1;
+    }
+
+    /**
+     * @return True if replaying and the current frame is from the log, false before the
+     * first loop or after the last frame.
+     */
+    public static boolean hasReplayFrame()
+    {
+        return replaying && frameIndex >= 0 && frameIndex < frameCount;
+    }
+
+    /**
+     * A field of the current replay frame.
+     * @param field TIMESTAMP, HEADING, etc.
+     * @return The field's value.
+     */
+    public static double get(int field)
+    {
+        return frame[field];
+    }
+
+    /**
+     * Record the drive base's sensor readings for this loop. Does nothing unless recording.
+     * @param timestamp FPGA time the sensors were read in seconds.
+     * @param headingDegrees navX heading in degrees.
+     * @param modules The modules, whose sensor snapshots have been read.
+     */
+    public static void recordSensors(double timestamp, double headingDegrees, SwerveModule[] modules)
+    {
+        if (!recording) return;
+
+        frame[TIMESTAMP] = timestamp;
+        frame[HEADING] = headingDegrees;
+
+        for (int i = 0; i < modules.length && i < moduleCount; i++)
+        {
+            ModuleSensorSnapshot sensors = modules[i].getSensors();
+            int base = FIRST_MODULE + MODULE_FIELDS * i;
+
+            frame[base + DRIVE_POSITION] = sensors.getDrivePosition();
+            frame[base + DRIVE_VELOCITY] = sensors.getDriveVelocity();
+            frame[base + STEER_POSITION] = sensors.getSteerPosition();
+            frame[base + STEER_VELOCITY] = sensors.getSteerVelocity();
+            frame[base + ABSOLUTE_ANGLE] = sensors.getAbsoluteAngle();
+        }
+    }
+
+    /**
+     * Set each module's sensor snapshot from the current replay frame, in place of
+     * reading the devices.
+     * @param modules The modules.
+     * @return False if there is no replay frame, the snapshots were not set.
+     */
+    public static boolean replaySensors(SwerveModule[] modules)
+    {
+        if (!hasReplayFrame()) return false;
+
+        for (int i = 0; i < modules.length && i < moduleCount; i++)
+        {
+            int base = FIRST_MODULE + MODULE_FIELDS * i;
+
+            modules[i].getSensors().set(frame[base + DRIVE_POSITION], frame[base + DRIVE_VELOCITY],
+                                        frame[base + STEER_POSITION], frame[base + STEER_VELOCITY],
+                                        frame[base + ABSOLUTE_ANGLE]);
+        }
+
+        return true;
+    }
+
+    /**
+     * Read a driver input. Recording, reads the supplier and records the value.
+     * Replaying, returns the value recorded this loop instead of reading the supplier.
+     * @param field THROTTLE, STRAFE or ROTATION.
+     * @param supplier The input.
+     * @return The input value.
+     */
+    public static double input(int field, DoubleSupplier supplier)
+    {
+        if (hasReplayFrame())
+        {
+            double value = frame[field];
+
+            // Not read in the recorded loop, so nothing to follow.
+            return Double.isNaN(value) ? 0 : value;
+        }
+
+        double value = supplier.getAsDouble();
+
+        if (recording) frame[field] = value;
+
+        return value;
+    }
+
+    /**
+     * Number of frames dropped because the ring was full. A replay is only cycle for
+     * cycle up to the first drop.
+     */
+    public static long getDroppedCount()
+    {
+        return dropped;
+    }
+
+    private static void writerLoop()
+    {
+        while (true)
+        {
+            try
+            {
+                drain();
+
+                Thread.sleep(DRAIN_PERIOD_MS);
+            }
+            catch (InterruptedException e) { break; }
+            catch (Exception e)
+            {
+                Util.logException(e);
+                break;
+            }
+        }
+    }
+
+    private static void drain() throws IOException
+    {
+        long index = readIndex, end = writeIndex;
+
+        while (index < end)
+        {
+            int base = (int) (index % CAPACITY) * frameSize;
+
+            for (int i = 0; i < frameSize; i++) buffer.putDouble(ring[base + i]);
+
+            index++;
+        }
+
+        // Only once the frames are copied out can the main thread reuse their slots.
+        readIndex = index;
+
+        flush();
+    }
+
+    private static void flush() throws IOException
+    {
+        buffer.flip();
+
+        // Past the size limit the frames are drained and discarded, the loop never notices.
+        if (fileBytes + buffer.remaining() > MAX_FILE_BYTES)
+        {
+            if (fileBytes <= MAX_FILE_BYTES)
+            {
+                Util.consoleLog("drive input log reached %d bytes, no longer recording", fileBytes);
+
+                fileBytes = MAX_FILE_BYTES + 1;
+
+                channel.close();
+            }
+        }
+        else
+        {
+            fileBytes += buffer.remaining();
+
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+}
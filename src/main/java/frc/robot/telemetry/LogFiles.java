@@ -0,0 +1,94 @@
+package frc.robot.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.RobotBase;
+
+/**
+ * Creates the binary log files under /home/lvuser/telemetry (or ./telemetry in
+ * simulation), keeping the logs of each kind within a storage budget.
+ * <p>
+ * The roboRIO's flash is small and the robot may be powered on for hours in the pits,
+ * so before a new log is created the oldest logs of its kind are deleted until the
+ * rest plus the new one at its size limit fit the budget. Files are named from the
+ * wall clock, which is not set until the driver station connects, so two boots can
+ * get the same name. Files are only ever created new, a clash gets a numbered suffix
+ * and an earlier log is never overwritten.
+ */
+final class LogFiles
+{
+    private LogFiles() {}
+
+    /**
+     * Create a new log file, first deleting the oldest logs of its kind past the budget.
+     * @param prefix File name prefix, identifies the kind of log.
+     * @param extension File name extension, with the dot.
+     * @param maxFileBytes Most bytes the new log will be written to.
+     * @param maxTotalBytes Most bytes all logs of this kind may take, the new one included.
+     * @return Channel to write the new log, opened for writing.
+     */
+    static FileChannel create(String prefix, String extension, long maxFileBytes, long maxTotalBytes)
+        throws IOException
+    {
+        File directory = new File(RobotBase.isReal() ? "/home/lvuser/telemetry" : "telemetry");
+
+        directory.mkdirs();
+
+        deleteOldest(directory, prefix, extension, maxTotalBytes - maxFileBytes);
+
+        String name = prefix + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+
+        for (int suffix = 0; ; suffix++)
+        {
+            File file = new File(directory, name + (suffix == 0 ? "" : "-" + suffix) + extension);
+
+            try
+            {
+                FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+                                                       StandardOpenOption.WRITE);
+
+                Util.consoleLog("%s", file.getAbsolutePath());
+
+                return channel;
+            }
+            catch (FileAlreadyExistsException e) {}
+        }
+    }
+
+    /**
+     * Delete the oldest logs of a kind until the rest take at most the given bytes.
+     */
+    private static void deleteOldest(File directory, String prefix, String extension, long maxBytes)
+    {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(prefix + "-") && name.endsWith(extension));
+
+        if (files == null) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+
+        long total = 0;
+
+        for (File file : files) total += file.length();
+
+        for (int i = 0; i < files.length && total > maxBytes; i++)
+        {
+            long length = files[i].length();
+
+            if (files[i].delete())
+            {
+                total -= length;
+
+                Util.consoleLog("deleted %s", files[i].getName());
+            }
+        }
+    }
+}
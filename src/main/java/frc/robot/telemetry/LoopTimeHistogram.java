@@ -0,0 +1,82 @@
+package frc.robot.telemetry;
+
+/**
+ * Fixed bucket histogram of execution times.
+ * <p>
+ * Buckets are 50 microseconds wide covering 0 to 50ms, with anything longer counted
+ * in a final overflow bucket. Recording only increments counters so it does not
+ * allocate. Percentiles are reported as the upper edge of the bucket they fall in.
+ * Not thread safe, record from one thread.
+ */
+public class LoopTimeHistogram
+{
+    public static final long    BUCKET_NANOS = 50_000;
+    public static final int     BUCKET_COUNT = 1000;
+
+    private final long[]    buckets = new long[BUCKET_COUNT + 1];
+
+    private long            count, maxNanos, totalNanos;
+
+    /**
+     * Record one execution time.
+     * @param nanos Execution time in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0) nanos = 0;
+
+        int bucket = (int) Math.min(nanos / BUCKET_NANOS, BUCKET_COUNT);
+
+        buckets[bucket]++;
+        count++;
+        totalNanos += nanos;
+
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the given percentile in milliseconds.
+     * @param percentile Percentile 0 to 100.
+     * @return Time in ms, or 0 if nothing recorded. If the percentile falls in the
+     * overflow bucket the max is returned.
+     */
+    public double getPercentileMs(double percentile)
+    {
+        if (count == 0) return 0;
+
+        long target = (long) Math.ceil(count * percentile / 100.0), seen = 0;
+
+        if (target < 1) target = 1;
+
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            seen += buckets[i];
+
+            if (seen >= target) return (i + 1) * BUCKET_NANOS / 1_000_000.0;
+        }
+
+        return getMaxMs();
+    }
+
+    public double getMaxMs()
+    {
+        return maxNanos / 1_000_000.0;
+    }
+
+    public double getMeanMs()
+    {
+        return count == 0 ? 0 : totalNanos / (double) count / 1_000_000.0;
+    }
+
+    public void reset()
+    {
+        for (int i = 0; i < buckets.length; i++) buckets[i] = 0;
+
+        count = maxNanos = totalNanos = 0;
+    }
+}
@@ -0,0 +1,188 @@
+package frc.robot.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * Records execution time histograms for the phases of the robot loop.
+ * <p>
+ * Get a Phase once (at construction) for each piece of code to be timed and call
+ * start() and stop() around it each cycle. Phases for code run by the command
+ * scheduler (subsystem periodic, command execute) are created with getSchedulerPhase()
+ * so the scheduler's own overhead (button polling) can be computed by subtraction.
+ * Phases whose time can't be bracketed directly can be given a computed time with record(). Call periodic() once per
+ * robot loop to publish p50/p99/max to NetworkTables under LoopTime at a low rate,
+ * and logAll() to dump every phase to the log. All phases are expected to run on
+ * the main robot thread.
+ */
+public final class LoopTimer
+{
+    // Publish every 50 loops (1 second).
+    private static final int            PUBLISH_CYCLES = 50;
+
+    private static final List<Phase>    phases = new ArrayList<>();
+    private static final NetworkTable   table = NetworkTableInstance.getDefault().getTable("LoopTime");
+
+    private static int                  cycles;
+    private static long                 schedulerPhaseNanos;
+
+    private LoopTimer() {}
+
+    /**
+     * Returns the phase with the given name, creating it if needed.
+     * @param name Phase name, shown on the dashboard.
+     * @return The phase.
+     */
+    public static Phase getPhase(String name)
+    {
+        return getPhase(name, false);
+    }
+
+    /**
+     * Returns the phase with the given name for code run by the command scheduler,
+     * creating it if needed.
+     * @param name Phase name, shown on the dashboard.
+     * @return The phase.
+     */
+    public static Phase getSchedulerPhase(String name)
+    {
+        return getPhase(name, true);
+    }
+
+    private static synchronized Phase getPhase(String name, boolean inScheduler)
+    {
+        for (Phase phase : phases) if (phase.name.equals(name)) return phase;
+
+        Phase phase = new Phase(name, inScheduler);
+
+        phases.add(phase);
+
+        return phase;
+    }
+
+    /**
+     * Returns the total time recorded by scheduler phases since the last call.
+     * @return Time in nanoseconds.
+     */
+    public static long takeSchedulerPhaseNanos()
+    {
+        long nanos = schedulerPhaseNanos;
+
+        schedulerPhaseNanos = 0;
+
+        return nanos;
+    }
+
+    /**
+     * Call once per robot loop. Publishes histograms every PUBLISH_CYCLES loops.
+     */
+    public static void periodic()
+    {
+        if (++cycles < PUBLISH_CYCLES) return;
+
+        cycles = 0;
+
+        for (int i = 0; i < phases.size(); i++) phases.get(i).publish();
+    }
+
+    /**
+     * Log the histogram summary of every phase and reset them.
+     */
+    public static void logAll()
+    {
+        for (int i = 0; i < phases.size(); i++)
+        {
+            Phase phase = phases.get(i);
+
+            LoopTimeHistogram histogram = phase.histogram;
+
+            if (histogram.getCount() == 0) continue;
+
+            Util.consoleLog("%s: n=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", phase.name, 
+                            histogram.getCount(), histogram.getMeanMs(), histogram.getPercentileMs(50),
+                            histogram.getPercentileMs(99), histogram.getMaxMs());
+
+            histogram.reset();
+        }
+    }
+
+    /**
+     * A timed piece of the robot loop.
+     */
+    public static class Phase
+    {
+        private final String            name;
+        private final boolean           inScheduler;
+        private final LoopTimeHistogram histogram = new LoopTimeHistogram();
+
+        private final NetworkTableEntry p50Entry, p99Entry, maxEntry;
+
+        private long    startNanos, lastNanos;
+
+        private Phase(String name, boolean inScheduler)
+        {
+            this.name = name;
+            this.inScheduler = inScheduler;
+
+            NetworkTable phaseTable = table.getSubTable(name);
+
+            p50Entry = phaseTable.getEntry("p50");
+            p99Entry = phaseTable.getEntry("p99");
+            maxEntry = phaseTable.getEntry("max");
+        }
+
+        public void start()
+        {
+            startNanos = System.nanoTime();
+        }
+
+        public void stop()
+        {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Record a time for this phase directly.
+         * @param nanos Time in nanoseconds.
+         */
+        public void record(long nanos)
+        {
+            lastNanos = nanos;
+
+            if (inScheduler) schedulerPhaseNanos += nanos;
+
+            histogram.record(nanos);
+        }
+
+        /**
+         * Time recorded for this phase by the most recent stop() or record().
+         * @return Time in nanoseconds.
+         */
+        public long getLastNanos()
+        {
+            return lastNanos;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public LoopTimeHistogram getHistogram()
+        {
+            return histogram;
+        }
+
+        private void publish()
+        {
+            p50Entry.setDouble(histogram.getPercentileMs(50));
+            p99Entry.setDouble(histogram.getPercentileMs(99));
+            maxEntry.setDouble(histogram.getMaxMs());
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package frc.robot.telemetry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Asynchronous binary telemetry log.
+ * <p>
+ * Hot path code records typed events (an event id plus up to MAX_FIELDS doubles)
+ * into a lock-free ring buffer, with no formatting or string building. A background
+ * thread drains the ring to a compact binary file under /home/lvuser/telemetry (or
+ * ./telemetry in simulation). Use TelemetryLogDecoder to convert a log to CSV.
+ * <p>
+ * Events are registered once at startup with their field names, which are written
+ * into the log so it is self describing. Recording never blocks: if the writer falls
+ * behind and the ring fills, new records are dropped and counted.
+ * <p>
+ * The log runs for as long as the robot is on, so each is limited to MAX_FILE_BYTES,
+ * after which records are no longer written, and the oldest logs are deleted to keep
+ * them all within MAX_TOTAL_BYTES (see LogFiles).
+ * <p>
+ * File format (little endian): 8 byte magic "4450TLOG", int version, then records.
+ * Each record starts with a short event id. Id -1 is an event definition: short id,
+ * short name length, name bytes (UTF-8), byte field count, then for each field a short
+ * length and name bytes. Other ids are data: long FPGA time in microseconds, byte
+ * field count, then the doubles.
+ */
+public final class TelemetryLog
+{
+    public static final int     MAX_FIELDS = 6;
+    public static final int     VERSION = 1;
+    public static final byte[]  MAGIC = "4450TLOG".getBytes(StandardCharsets.US_ASCII);
+    public static final short   DEFINITION_ID = -1;
+    /** Most bytes written to one log, and kept in all telemetry logs. */
+    public static final long    MAX_FILE_BYTES = 16L << 20, MAX_TOTAL_BYTES = 64L << 20;
+
+    // Ring slot layout: timestamp, event id, field count, fields.
+    private static final int    SLOT_STRIDE = 3 + MAX_FIELDS;
+    private static final int    CAPACITY = 4096;       // Power of two.
+    private static final int    MASK = CAPACITY - 1;
+    private static final long   DRAIN_PERIOD_MS = 20;
+
+    private static final long[]         slots = new long[CAPACITY * SLOT_STRIDE];
+    private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong     writeIndex = new AtomicLong();
+    private static final AtomicLong     dropped = new AtomicLong();
+
+    private static volatile long        readIndex;
+
+    private static final ConcurrentLinkedQueue<Event>   pendingDefinitions = new ConcurrentLinkedQueue<>();
+
+    private static short                nextEventId;
+    private static Thread               writerThread;
+    private static FileChannel          channel;
+    private static long                 fileBytes;
+
+    private static final ByteBuffer     buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private TelemetryLog() {}
+
+    /**
+     * Register an event type. Do this once, at startup, and keep the returned Event.
+     * @param name Event name.
+     * @param fieldNames Names of the event's fields, at most MAX_FIELDS.
+     * @return The event to record with.
+     */
+    public static synchronized Event registerEvent(String name, String... fieldNames)
+    {
+        if (fieldNames.length > MAX_FIELDS)
+            throw new IllegalArgumentException("Telemetry event " + name + " has more than " + MAX_FIELDS + " fields");
+
+        Event event = new Event(nextEventId++, name, fieldNames);
+
+        pendingDefinitions.add(event);
+
+        return event;
+    }
+
+    /**
+     * Start the background writer thread. Records made before start are kept
+     * (until the ring fills) and written once it starts.
+     */
+    public static synchronized void start()
+    {
+        if (writerThread != null) return;
+
+        try
+        {
+            channel = LogFiles.create("telemetry", ".bin", MAX_FILE_BYTES, MAX_TOTAL_BYTES);
+
+            buffer.put(MAGIC).putInt(VERSION);
+        }
+        catch (IOException e)
+        {
+            Util.logException(e);
+            return;
+        }
+
+        writerThread = new Thread(TelemetryLog::writerLoop, "TelemetryLog");
+
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+    }
+
+    /**
+     * Number of records dropped because the ring was full.
+     */
+    public static long getDroppedCount()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * Claim a ring slot. Returns -1 if the ring is full.
+     */
+    private static long claim()
+    {
+        while (true)
+        {
+            long index = writeIndex.get();
+
+            if (index - readIndex >= CAPACITY)
+            {
+                dropped.incrementAndGet();
+                return -1;
+            }
+
+            if (writeIndex.compareAndSet(index, index + 1)) return index;
+        }
+    }
+
+    private static void record(Event event, int count, double f0, double f1, double f2, double f3, double f4, double f5)
+    {
+        long index = claim();
+
+        if (index < 0) return;
+
+        int base = (int) (index & MASK) * SLOT_STRIDE;
+
+        slots[base] = RobotController.getFPGATime();
+        slots[base + 1] = event.id;
+        slots[base + 2] = count;
+        slots[base + 3] = Double.doubleToRawLongBits(f0);
+        slots[base + 4] = Double.doubleToRawLongBits(f1);
+        slots[base + 5] = Double.doubleToRawLongBits(f2);
+        slots[base + 6] = Double.doubleToRawLongBits(f3);
+        slots[base + 7] = Double.doubleToRawLongBits(f4);
+        slots[base + 8] = Double.doubleToRawLongBits(f5);
+
+        // Publishing the slot's sequence orders the data writes above before it.
+        published.lazySet((int) (index & MASK), index + 1);
+    }
+
+    private static void writerLoop()
+    {
+        while (true)
+        {
+            try
+            {
+                drain();
+
+                Thread.sleep(DRAIN_PERIOD_MS);
+            }
+            catch (InterruptedException e) { break; }
+            catch (Exception e)
+            {
+                Util.logException(e);
+                break;
+            }
+        }
+    }
+
+    private static void drain() throws IOException
+    {
+        Event definition;
+
+        while ((definition = pendingDefinitions.poll()) != null) writeDefinition(definition);
+
+        long index = readIndex;
+
+        while (published.get((int) (index & MASK)) == index + 1)
+        {
+            int base = (int) (index & MASK) * SLOT_STRIDE;
+            int count = (int) slots[base + 2];
+
+            if (buffer.remaining() < 2 + 8 + 1 + count * 8) flush();
+
+            buffer.putShort((short) slots[base + 1]);
+            buffer.putLong(slots[base]);
+            buffer.put((byte) count);
+
+            for (int i = 0; i < count; i++) buffer.putLong(slots[base + 3 + i]);
+
+            index++;
+
+            readIndex = index;
+        }
+
+        flush();
+    }
+
+    private static void writeDefinition(Event event) throws IOException
+    {
+        if (buffer.remaining() < 1024) flush();
+
+        buffer.putShort(DEFINITION_ID);
+        buffer.putShort(event.id);
+        putString(event.name);
+        buffer.put((byte) event.fieldNames.length);
+
+        for (String fieldName : event.fieldNames) putString(fieldName);
+    }
+
+    private static void putString(String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static void flush() throws IOException
+    {
+        buffer.flip();
+
+        // Past the size limit records are drained and discarded, recording never notices.
+        if (fileBytes + buffer.remaining() > MAX_FILE_BYTES)
+        {
+            if (fileBytes <= MAX_FILE_BYTES)
+            {
+                Util.consoleLog("telemetry log reached %d bytes, no longer logging", fileBytes);
+
+                fileBytes = MAX_FILE_BYTES + 1;
+
+                channel.close();
+            }
+        }
+        else
+        {
+            fileBytes += buffer.remaining();
+
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * A registered telemetry event type. Record with one of the record methods
+     * matching the number of fields.
+     */
+    public static class Event
+    {
+        private final short     id;
+        private final String    name;
+        private final String[]  fieldNames;
+
+        private Event(short id, String name, String[] fieldNames)
+        {
+            this.id = id;
+            this.name = name;
+            this.fieldNames = fieldNames;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public void record(double f0)
+        {
+            TelemetryLog.record(this, 1, f0, 0, 0, 0, 0, 0);
+        }
+
+        public void record(double f0, double f1)
+        {
+            TelemetryLog.record(this, 2, f0, f1, 0, 0, 0, 0);
+        }
+
+        public void record(double f0, double f1, double f2)
+        {
+            TelemetryLog.record(this, 3, f0, f1, f2, 0, 0, 0);
+        }
+
+        public void record(double f0, double f1, double f2, double f3)
+        {
+            TelemetryLog.record(this, 4, f0, f1, f2, f3, 0, 0);
+        }
+
+        public void record(double f0, double f1, double f2, double f3, double f4)
+        {
+            TelemetryLog.record(this, 5, f0, f1, f2, f3, f4, 0);
+        }
+
+        public void record(double f0, double f1, double f2, double f3, double f4, double f5)
+        {
+            TelemetryLog.record(this, 6, f0, f1, f2, f3, f4, f5);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package frc.robot.telemetry;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offline decoder for TelemetryLog binary files. Runs on a PC, not the robot.
+ * <p>
+ * Writes one CSV file per event type next to the log (or into the given directory),
+ * named log-event.csv, with a time column in seconds followed by the event's fields.
+ * <p>
+ * Usage: ./gradlew decodeTelemetry --args="telemetry-20220101-120000.bin [outputDir]"
+ */
+public final class TelemetryLogDecoder
+{
+    private TelemetryLogDecoder() {}
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 1)
+        {
+            System.err.println("usage: TelemetryLogDecoder <log file> [output directory]");
+            System.exit(1);
+        }
+
+        File logFile = new File(args[0]);
+        File outputDirectory = args.length > 1 ? new File(args[1]) : logFile.getAbsoluteFile().getParentFile();
+
+        outputDirectory.mkdirs();
+
+        decode(logFile, outputDirectory);
+    }
+
+    /**
+     * Decode a log into per event CSV files.
+     * @param logFile The binary log.
+     * @param outputDirectory Where to write the CSV files.
+     */
+    public static void decode(File logFile, File outputDirectory) throws IOException
+    {
+        String baseName = logFile.getName().replaceFirst("\\.bin$", "");
+
+        Map<Short, String>      names = new HashMap<>();
+        Map<Short, PrintWriter> writers = new HashMap<>();
+        long                    records = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile))))
+        {
+            byte[] magic = new byte[TelemetryLog.MAGIC.length];
+
+            in.readFully(magic);
+
+            if (!Arrays.equals(magic, TelemetryLog.MAGIC))
+                throw new IOException(logFile + " is not a telemetry log");
+
+            int version = Integer.reverseBytes(in.readInt());
+
+            if (version != TelemetryLog.VERSION)
+                throw new IOException("Unsupported telemetry log version " + version);
+
+            // The last record may be cut short if the robot lost power while writing.
+            try
+            {
+                while (true)
+                {
+                    short id = Short.reverseBytes(in.readShort());
+
+                    if (id == TelemetryLog.DEFINITION_ID)
+                        decodeDefinition(in, outputDirectory, baseName, names, writers);
+                    else
+                        records += decodeRecord(in, id, writers);
+                }
+            }
+            catch (EOFException e) {}
+        }
+        finally
+        {
+            for (PrintWriter writer : writers.values()) writer.close();
+        }
+
+        System.out.printf("%s: %d records, events %s%n", logFile.getName(), records, names.values());
+    }
+
+    private static void decodeDefinition(DataInputStream in, File outputDirectory, String baseName,
+                                         Map<Short, String> names, Map<Short, PrintWriter> writers) throws IOException
+    {
+        short eventId = Short.reverseBytes(in.readShort());
+        String name = readString(in);
+        int fieldCount = in.readUnsignedByte();
+
+        StringBuilder header = new StringBuilder("time");
+
+        for (int i = 0; i < fieldCount; i++) header.append(',').append(readString(in));
+
+        PrintWriter writer = new PrintWriter(new File(outputDirectory, baseName + "-" + name + ".csv"),
+                                             StandardCharsets.UTF_8);
+
+        writer.println(header);
+
+        names.put(eventId, name);
+        writers.put(eventId, writer);
+    }
+
+    private static int decodeRecord(DataInputStream in, short id, Map<Short, PrintWriter> writers) throws IOException
+    {
+        long timeMicros = Long.reverseBytes(in.readLong());
+        int fieldCount = in.readUnsignedByte();
+
+        PrintWriter writer = writers.get(id);
+
+        if (writer == null) throw new IOException("Record for undefined event id " + id);
+
+        StringBuilder line = new StringBuilder().append(timeMicros / 1_000_000.0);
+
+        for (int i = 0; i < fieldCount; i++)
+            line.append(',').append(Double.longBitsToDouble(Long.reverseBytes(in.readLong())));
+
+        writer.println(line);
+
+        return 1;
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        byte[] bytes = new byte[Short.reverseBytes(in.readShort())];
+
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
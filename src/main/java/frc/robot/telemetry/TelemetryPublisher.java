@@ -0,0 +1,214 @@
+package frc.robot.telemetry;
+
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardContainer;
+
+/**
+ * Publishes dashboard values at a limited rate, and only when they change.
+ * <p>
+ * Shuffleboard polls every addNumber() supplier on every loop. Entries added here
+ * are instead given a rate budget and an epsilon: publish(), called once per robot
+ * loop, samples an entry only when its period is up and writes it only when the
+ * value moved more than epsilon since it was last written. Entries with the same
+ * rate come due on the same loop, so their writes go out in the same NetworkTables
+ * update rather than being spread over every loop.
+ * <p>
+ * Suppliers should read cached values (such as a module's sensor snapshot), not
+ * devices. Entries are added at startup and published from the main robot thread.
+ */
+public final class TelemetryPublisher
+{
+    /** Rate for diagnostic values watched by people. */
+    public static final double  DIAGNOSTIC_HZ = 10;
+    /** Rate for the robot pose and other values that drive the field display. */
+    public static final double  POSE_HZ = 50;
+
+    private static volatile Entry[] entries = new Entry[0];
+
+    private static long         writes, skips;
+
+    private TelemetryPublisher() {}
+
+    /**
+     * Add a number to a Shuffleboard container, published by this class.
+     * @param container Container (tab or layout) to show the number in.
+     * @param title Title of the number's widget.
+     * @param value Supplies the value.
+     * @param rateHz Maximum times per second the value is sampled and written.
+     * @param epsilon Changes this size or smaller are not written.
+     */
+    public static void addNumber(ShuffleboardContainer container, String title, DoubleSupplier value,
+                                 double rateHz, double epsilon)
+    {
+        addNumber(container.add(title, 0.0).getEntry(), value, rateHz, epsilon);
+    }
+
+    /**
+     * Add a NetworkTables number entry, published by this class.
+     * @param entry The entry.
+     * @param value Supplies the value.
+     * @param rateHz Maximum times per second the value is sampled and written.
+     * @param epsilon Changes this size or smaller are not written.
+     */
+    public static void addNumber(NetworkTableEntry entry, DoubleSupplier value, double rateHz, double epsilon)
+    {
+        add(new NumberEntry(entry, value, rateHz, epsilon));
+    }
+
+    /**
+     * Add a NetworkTables number array entry, published by this class. The array is
+     * owned by the caller, who updates it in place.
+     * @param entry The entry.
+     * @param values The array to publish.
+     * @param rateHz Maximum times per second the array is sampled and written.
+     * @param epsilon The array is written when any element changes more than this.
+     */
+    public static void addDoubleArray(NetworkTableEntry entry, double[] values, double rateHz, double epsilon)
+    {
+        add(new ArrayEntry(entry, values, rateHz, epsilon));
+    }
+
+    private static synchronized void add(Entry entry)
+    {
+        Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+
+        grown[grown.length - 1] = entry;
+
+        entries = grown;
+    }
+
+    /**
+     * Write the entries that are due and have changed. Call once per robot loop.
+     */
+    public static void publish()
+    {
+        long    now = RobotController.getFPGATime();
+        Entry[] current = entries;
+
+        for (int i = 0; i < current.length; i++)
+        {
+            Entry entry = current[i];
+
+            if (now < entry.nextMicros) continue;
+
+            // Align to multiples of the period so entries of equal rate publish together.
+            entry.nextMicros = (now / entry.periodMicros + 1) * entry.periodMicros;
+
+            if (entry.publishIfChanged())
+                writes++;
+            else
+                skips++;
+        }
+    }
+
+    /**
+     * Number of entry writes made since startup.
+     */
+    public static long getWriteCount()
+    {
+        return writes;
+    }
+
+    /**
+     * Number of times an entry was due but had not changed, so was not written.
+     */
+    public static long getSkipCount()
+    {
+        return skips;
+    }
+
+    private static abstract class Entry
+    {
+        protected final NetworkTableEntry   entry;
+        protected final double              epsilon;
+        private final long                  periodMicros;
+
+        private long                        nextMicros;
+        protected boolean                   written;
+
+        private Entry(NetworkTableEntry entry, double rateHz, double epsilon)
+        {
+            if (rateHz <= 0) throw new IllegalArgumentException("Publish rate must be positive");
+
+            this.entry = entry;
+            this.epsilon = epsilon;
+
+            periodMicros = Math.max(1, Math.round(1_000_000 / rateHz));
+        }
+
+        /**
+         * Sample the value and write it if it changed.
+         * @return True if written.
+         */
+        protected abstract boolean publishIfChanged();
+    }
+
+    private static class NumberEntry extends Entry
+    {
+        private final DoubleSupplier    value;
+
+        private double                  lastValue;
+
+        private NumberEntry(NetworkTableEntry entry, DoubleSupplier value, double rateHz, double epsilon)
+        {
+            super(entry, rateHz, epsilon);
+
+            this.value = value;
+        }
+
+        @Override
+        protected boolean publishIfChanged()
+        {
+            double current = value.getAsDouble();
+
+            if (written && Math.abs(current - lastValue) <= epsilon) return false;
+
+            entry.setDouble(current);
+
+            lastValue = current;
+            written = true;
+
+            return true;
+        }
+    }
+
+    private static class ArrayEntry extends Entry
+    {
+        private final double[]  values, lastValues;
+
+        private ArrayEntry(NetworkTableEntry entry, double[] values, double rateHz, double epsilon)
+        {
+            super(entry, rateHz, epsilon);
+
+            this.values = values;
+
+            lastValues = new double[values.length];
+        }
+
+        @Override
+        protected boolean publishIfChanged()
+        {
+            if (written && !changed()) return false;
+
+            entry.setDoubleArray(values);
+
+            System.arraycopy(values, 0, lastValues, 0, values.length);
+
+            written = true;
+
+            return true;
+        }
+
+        private boolean changed()
+        {
+            for (int i = 0; i < values.length; i++)
+                if (Math.abs(values[i] - lastValues[i]) > epsilon) return true;
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * A holonomic trajectory prebuilt by TrajectoryCompiler and read from a memory mapped
+ * file in the deploy directory.
+ * <p>
+ * The file is a fixed size header followed by samples taken at a fixed period, each
+ * the same number of float fields. The sample for a time is found by index
+ * arithmetic and read in place from the mapped buffer into a caller supplied
+ * TrajectorySample, so lookups take constant time and allocate nothing. Nothing is
+ * generated on the robot, so loading a trajectory costs only the file open and map.
+ * <p>
+ * File layout, little endian:
+ * <pre>
+ * header: magic (8 bytes "4450TRAJ"), version (int), sample count (int),
+ *         sample period seconds (float), fields per sample (int), 8 bytes reserved
+ * sample: x, y, vx, vy, ax, ay (field relative meters, m/s, m/s/s),
+ *         rotation (radians CCW), omega (rad/s)
+ * </pre>
+ */
+public final class MappedTrajectory
+{
+    public static final byte[]  MAGIC = "4450TRAJ".getBytes(StandardCharsets.US_ASCII);
+    public static final int     VERSION = 1;
+    public static final int     HEADER_BYTES = 32;
+    public static final String  DIRECTORY = "trajectories", EXTENSION = ".traj";
+
+    // Field order within a sample.
+    public static final int     X = 0, Y = 1, VX = 2, VY = 3, AX = 4, AY = 5, ROTATION = 6, OMEGA = 7;
+    public static final int     FIELDS = 8;
+    public static final int     SAMPLE_BYTES = FIELDS * Float.BYTES;
+
+    private final String        name;
+    private final ByteBuffer    buffer;
+    private final int           sampleCount;
+    private final double        period;
+
+    private MappedTrajectory(String name, ByteBuffer buffer)
+    {
+        this.name = name;
+        this.buffer = buffer;
+
+        for (int i = 0; i < MAGIC.length; i++)
+            if (buffer.get(i) != MAGIC[i]) throw new IllegalArgumentException(name + ": not a trajectory file");
+
+        int version = buffer.getInt(8);
+
+        if (version != VERSION) throw new IllegalArgumentException(name + ": trajectory version " + version);
+
+        sampleCount = buffer.getInt(12);
+        period = buffer.getFloat(16);
+
+        int fields = buffer.getInt(20);
+
+        if (fields != FIELDS || sampleCount < 1 || period <= 0 ||
+            buffer.capacity() < HEADER_BYTES + (long) sampleCount * SAMPLE_BYTES)
+            throw new IllegalArgumentException(name + ": bad trajectory header");
+    }
+
+    /**
+     * Map a trajectory from the deploy directory.
+     * @param name Trajectory name, the waypoint file name without extension.
+     * @return The trajectory.
+     * @throws IOException If the file can't be read.
+     */
+    public static MappedTrajectory load(String name) throws IOException
+    {
+        return load(name, new File(new File(Filesystem.getDeployDirectory(), DIRECTORY), name + EXTENSION));
+    }
+
+    /**
+     * Map a trajectory file.
+     * @param name Name for messages.
+     * @param file The trajectory file.
+     * @return The trajectory.
+     * @throws IOException If the file can't be read.
+     */
+    public static MappedTrajectory load(String name, File file) throws IOException
+    {
+        // The mapping stays valid after the channel is closed.
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+
+            MappedTrajectory trajectory = new MappedTrajectory(name, buffer);
+
+            Util.consoleLog("%s: %d samples, %.2f s", name, trajectory.sampleCount, trajectory.getTotalTimeSeconds());
+
+            return trajectory;
+        }
+    }
+
+    /**
+     * Read the trajectory state at a time, interpolating between the samples either
+     * side of it. Times before the start or after the end give the first or last sample.
+     * @param seconds Time since the start of the trajectory.
+     * @param sample Filled in with the state.
+     * @return The sample passed in.
+     */
+    public TrajectorySample sample(double seconds, TrajectorySample sample)
+    {
+        double position = seconds / period;
+
+        int index = (int) Math.floor(position);
+
+        if (index < 0)
+            fill(sample, 0, 0, 0);
+        else if (index >= sampleCount - 1)
+            fill(sample, sampleCount - 1, sampleCount - 1, 0);
+        else
+            fill(sample, index, index + 1, position - index);
+
+        sample.timeSeconds = Math.max(0, Math.min(seconds, getTotalTimeSeconds()));
+
+        return sample;
+    }
+
+    private void fill(TrajectorySample sample, int index, int next, double fraction)
+    {
+        int a = HEADER_BYTES + index * SAMPLE_BYTES, b = HEADER_BYTES + next * SAMPLE_BYTES;
+
+        sample.x = lerp(a, b, X, fraction);
+        sample.y = lerp(a, b, Y, fraction);
+        sample.vx = lerp(a, b, VX, fraction);
+        sample.vy = lerp(a, b, VY, fraction);
+        sample.ax = lerp(a, b, AX, fraction);
+        sample.ay = lerp(a, b, AY, fraction);
+        sample.omega = lerp(a, b, OMEGA, fraction);
+
+        // Rotation is stored continuous (not wrapped), so it interpolates directly.
+        sample.rotation = lerp(a, b, ROTATION, fraction);
+    }
+
+    private double lerp(int a, int b, int field, double fraction)
+    {
+        double start = buffer.getFloat(a + field * Float.BYTES);
+
+        if (fraction == 0) return start;
+
+        return start + (buffer.getFloat(b + field * Float.BYTES) - start) * fraction;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return Number of samples.
+     */
+    public int getSampleCount()
+    {
+        return sampleCount;
+    }
+
+    /**
+     * @return Time between samples in seconds.
+     */
+    public double getSamplePeriod()
+    {
+        return period;
+    }
+
+    /**
+     * @return Time of the last sample in seconds.
+     */
+    public double getTotalTimeSeconds()
+    {
+        return (sampleCount - 1) * period;
+    }
+}
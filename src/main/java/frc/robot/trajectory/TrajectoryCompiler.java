@@ -0,0 +1,239 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+
+/**
+ * Build time generator for MappedTrajectory files. Runs on a PC, not the robot.
+ * <p>
+ * Reads every waypoint file (name.path) in the input directory, generates a trajectory
+ * through the waypoints with the WPILib TrajectoryGenerator, resamples it at a fixed
+ * period and writes it to name.traj in the output directory. Waypoint files are text:
+ * <pre>
+ * # Comment.
+ * maxVelocity 3.0        m/s
+ * maxAcceleration 2.0    m/s/s
+ * samplePeriod 0.01      seconds, optional
+ * # x y pathDirection robotHeading, meters and degrees CCW, one waypoint per line.
+ * 1.03 2.825 0 0
+ * 4.0  2.825 0 90
+ * </pre>
+ * The path direction is the direction of travel through the waypoint. The robot heading
+ * is independent of it (holonomic) and is eased from each waypoint's heading to the next
+ * over the time between them, turning the short way.
+ * <p>
+ * Usage: ./gradlew generateTrajectories, run before deploy and simulation.
+ */
+public final class TrajectoryCompiler
+{
+    public static final String  WAYPOINT_EXTENSION = ".path";
+
+    private static final double DEFAULT_SAMPLE_PERIOD = 0.01;
+
+    private TrajectoryCompiler() {}
+
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.err.println("usage: TrajectoryCompiler <waypoint directory> <output directory>");
+            System.exit(1);
+        }
+
+        File inputDirectory = new File(args[0]), outputDirectory = new File(args[1]);
+
+        File[] files = inputDirectory.listFiles((directory, name) -> name.endsWith(WAYPOINT_EXTENSION));
+
+        if (files == null || files.length == 0)
+        {
+            System.out.println("no waypoint files in " + inputDirectory);
+            return;
+        }
+
+        outputDirectory.mkdirs();
+
+        Arrays.sort(files);
+
+        for (File file : files)
+        {
+            String name = file.getName().substring(0, file.getName().length() - WAYPOINT_EXTENSION.length());
+
+            compile(file, new File(outputDirectory, name + MappedTrajectory.EXTENSION));
+        }
+    }
+
+    /**
+     * Generate one trajectory file.
+     * @param waypointFile The waypoint file.
+     * @param outputFile The trajectory file to write.
+     */
+    public static void compile(File waypointFile, File outputFile) throws IOException
+    {
+        double          maxVelocity = 0, maxAcceleration = 0, period = DEFAULT_SAMPLE_PERIOD;
+        List<Pose2d>    waypoints = new ArrayList<>();
+        List<Double>    headings = new ArrayList<>();
+        int             lineNumber = 0;
+
+        for (String line : Files.readAllLines(waypointFile.toPath(), StandardCharsets.UTF_8))
+        {
+            lineNumber++;
+
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] tokens = line.split("\\s+");
+
+            try
+            {
+                switch (tokens[0])
+                {
+                    case "maxVelocity": maxVelocity = Double.parseDouble(tokens[1]); break;
+                    case "maxAcceleration": maxAcceleration = Double.parseDouble(tokens[1]); break;
+                    case "samplePeriod": period = Double.parseDouble(tokens[1]); break;
+
+                    default:
+                        if (tokens.length != 4) throw new IllegalArgumentException("expected x y direction heading");
+
+                        waypoints.add(new Pose2d(Double.parseDouble(tokens[0]), Double.parseDouble(tokens[1]),
+                                                 Rotation2d.fromDegrees(Double.parseDouble(tokens[2]))));
+                        headings.add(Math.toRadians(Double.parseDouble(tokens[3])));
+                }
+            }
+            catch (RuntimeException e)
+            {
+                throw new IllegalArgumentException(waypointFile + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (maxVelocity <= 0 || maxAcceleration <= 0 || period <= 0 || waypoints.size() < 2)
+            throw new IllegalArgumentException(waypointFile + ": needs maxVelocity, maxAcceleration and two waypoints");
+
+        Trajectory trajectory = TrajectoryGenerator.generateTrajectory(waypoints,
+                                    new TrajectoryConfig(maxVelocity, maxAcceleration));
+
+        int sampleCount = (int) Math.ceil(trajectory.getTotalTimeSeconds() / period) + 1;
+
+        // Time the path passes each waypoint, for easing the robot heading between them.
+        double[] waypointTimes = findWaypointTimes(trajectory, waypoints, period);
+
+        // Headings made continuous, each turning the short way from the last.
+        double[] continuousHeadings = new double[headings.size()];
+
+        continuousHeadings[0] = headings.get(0);
+
+        for (int i = 1; i < continuousHeadings.length; i++)
+            continuousHeadings[i] = continuousHeadings[i - 1] +
+                                    Math.IEEEremainder(headings.get(i) - headings.get(i - 1), 2 * Math.PI);
+
+        ByteBuffer buffer = ByteBuffer.allocate(MappedTrajectory.HEADER_BYTES + sampleCount * MappedTrajectory.SAMPLE_BYTES)
+                                      .order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.put(MappedTrajectory.MAGIC);
+        buffer.putInt(MappedTrajectory.VERSION);
+        buffer.putInt(sampleCount);
+        buffer.putFloat((float) period);
+        buffer.putInt(MappedTrajectory.FIELDS);
+        buffer.position(MappedTrajectory.HEADER_BYTES);
+
+        double maxOmega = 0;
+
+        for (int i = 0; i < sampleCount; i++)
+        {
+            double time = Math.min(i * period, trajectory.getTotalTimeSeconds());
+
+            Trajectory.State state = trajectory.sample(time);
+
+            double direction = state.poseMeters.getRotation().getRadians();
+            double cos = Math.cos(direction), sin = Math.sin(direction);
+            double velocity = state.velocityMetersPerSecond;
+
+            // Acceleration along the path plus centripetal acceleration across it.
+            double along = state.accelerationMetersPerSecondSq;
+            double across = velocity * velocity * state.curvatureRadPerMeter;
+
+            // Robot heading eased between the waypoints either side of this time.
+            int segment = 0;
+
+            while (segment < waypointTimes.length - 2 && time > waypointTimes[segment + 1]) segment++;
+
+            double start = waypointTimes[segment], length = waypointTimes[segment + 1] - start;
+            double u = length > 0 ? Math.max(0, Math.min(1, (time - start) / length)) : 1;
+            double turn = continuousHeadings[segment + 1] - continuousHeadings[segment];
+
+            double rotation = continuousHeadings[segment] + turn * u * u * (3 - 2 * u);
+            double omega = length > 0 ? turn * 6 * u * (1 - u) / length : 0;
+
+            maxOmega = Math.max(maxOmega, Math.abs(omega));
+
+            buffer.putFloat((float) state.poseMeters.getX());
+            buffer.putFloat((float) state.poseMeters.getY());
+            buffer.putFloat((float) (velocity * cos));
+            buffer.putFloat((float) (velocity * sin));
+            buffer.putFloat((float) (along * cos - across * sin));
+            buffer.putFloat((float) (along * sin + across * cos));
+            buffer.putFloat((float) rotation);
+            buffer.putFloat((float) omega);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(outputFile))
+        {
+            out.write(buffer.array());
+        }
+
+        System.out.printf("%s: %d waypoints, %.2f s, %d samples, max omega %.2f rad/s -> %s%n", waypointFile.getName(),
+                          waypoints.size(), trajectory.getTotalTimeSeconds(), sampleCount, maxOmega, outputFile);
+    }
+
+    /**
+     * Find when the trajectory passes each waypoint. The spline goes through the
+     * waypoints, so for each in turn this walks forward to the closest sample.
+     */
+    private static double[] findWaypointTimes(Trajectory trajectory, List<Pose2d> waypoints, double period)
+    {
+        double[] times = new double[waypoints.size()];
+        double   totalTime = trajectory.getTotalTimeSeconds(), time = 0;
+
+        times[times.length - 1] = totalTime;
+
+        for (int i = 1; i < times.length - 1; i++)
+        {
+            Pose2d waypoint = waypoints.get(i);
+
+            double distance = distance(trajectory, time, waypoint);
+
+            while (time + period <= totalTime)
+            {
+                double next = distance(trajectory, time + period, waypoint);
+
+                if (next > distance) break;
+
+                distance = next;
+                time += period;
+            }
+
+            times[i] = time;
+        }
+
+        return times;
+    }
+
+    private static double distance(Trajectory trajectory, double time, Pose2d waypoint)
+    {
+        return trajectory.sample(time).poseMeters.getTranslation().getDistance(waypoint.getTranslation());
+    }
+}
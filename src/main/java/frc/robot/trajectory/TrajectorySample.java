@@ -0,0 +1,85 @@
+package frc.robot.trajectory;
+
+/**
+ * The state of a holonomic trajectory at one time, filled in by
+ * MappedTrajectory.sample(). Reused from loop to loop so following a trajectory
+ * allocates nothing. All values are field relative.
+ */
+public final class TrajectorySample
+{
+    double  timeSeconds;
+    double  x, y, vx, vy, ax, ay;
+    double  rotation, omega;
+
+    /**
+     * @return Time since the start of the trajectory in seconds.
+     */
+    public double getTimeSeconds()
+    {
+        return timeSeconds;
+    }
+
+    /**
+     * @return X position in meters.
+     */
+    public double getX()
+    {
+        return x;
+    }
+
+    /**
+     * @return Y position in meters.
+     */
+    public double getY()
+    {
+        return y;
+    }
+
+    /**
+     * @return X velocity in m/s.
+     */
+    public double getVx()
+    {
+        return vx;
+    }
+
+    /**
+     * @return Y velocity in m/s.
+     */
+    public double getVy()
+    {
+        return vy;
+    }
+
+    /**
+     * @return X acceleration in m/s/s.
+     */
+    public double getAx()
+    {
+        return ax;
+    }
+
+    /**
+     * @return Y acceleration in m/s/s.
+     */
+    public double getAy()
+    {
+        return ay;
+    }
+
+    /**
+     * @return Robot heading in radians, CCW positive, continuous (not wrapped to a range).
+     */
+    public double getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+     * @return Robot angular velocity in rad/s, CCW positive.
+     */
+    public double getOmega()
+    {
+        return omega;
+    }
+}
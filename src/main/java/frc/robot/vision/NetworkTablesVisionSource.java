@@ -0,0 +1,89 @@
+package frc.robot.vision;
+
+import Team4450.Lib.Util;
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.EntryNotification;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Vision source reading robot poses a coprocessor publishes to NetworkTables.
+ * <p>
+ * The coprocessor writes a number array to the botpose entry of its table for each
+ * image it finds a target in: x meters, y meters, heading degrees, latency ms
+ * (from image capture to publishing), ambiguity (0 to 1) and target distance meters.
+ * An entry listener, on the NetworkTables listener thread, queues each update as it
+ * arrives, timestamped with the time it arrived less the reported latency.
+ */
+public class NetworkTablesVisionSource
+{
+    /** Entry the coprocessor publishes poses to. */
+    public static final String  POSE_ENTRY = "botpose";
+
+    private static final int    POSE_VALUES = 6;
+
+    private final NetworkTableEntry         entry;
+    private final VisionObservationQueue    queue;
+
+    // Used on the listener thread only.
+    private final VisionObservation         observation = new VisionObservation();
+
+    private int                             listenerHandle;
+    private volatile long                   malformedCount;
+
+    /**
+     * Create the source. Call start() to begin queueing observations.
+     * @param table The coprocessor's table.
+     * @param queue Queue to write observations to.
+     */
+    public NetworkTablesVisionSource(NetworkTable table, VisionObservationQueue queue)
+    {
+        Util.consoleLog(table.getPath());
+
+        this.entry = table.getEntry(POSE_ENTRY);
+        this.queue = queue;
+    }
+
+    public void start()
+    {
+        Util.consoleLog();
+
+        if (listenerHandle == 0)
+            listenerHandle = entry.addListener(this::onUpdate, EntryListenerFlags.kNew | EntryListenerFlags.kUpdate);
+    }
+
+    public void stop()
+    {
+        Util.consoleLog();
+
+        if (listenerHandle != 0) entry.removeListener(listenerHandle);
+
+        listenerHandle = 0;
+    }
+
+    private void onUpdate(EntryNotification notification)
+    {
+        double now = Timer.getFPGATimestamp();
+
+        double[] values = notification.value.isDoubleArray() ? notification.value.getDoubleArray() : null;
+
+        if (values == null || values.length < POSE_VALUES)
+        {
+            malformedCount++;
+            return;
+        }
+
+        observation.set(now - values[3] / 1000.0, values[0], values[1], Math.toRadians(values[2]), values[4], values[5]);
+
+        queue.offer(observation);
+    }
+
+    /**
+     * @return Updates that were not a pose array.
+     */
+    public long getMalformedCount()
+    {
+        return malformedCount;
+    }
+}
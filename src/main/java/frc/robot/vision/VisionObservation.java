@@ -0,0 +1,113 @@
+package frc.robot.vision;
+
+/**
+ * One robot pose seen by the vision coprocessor. Mutable and copied in and out of a
+ * VisionObservationQueue so passing observations between threads allocates nothing.
+ * All poses are field relative.
+ */
+public final class VisionObservation
+{
+    double  timestampSeconds;
+    double  x, y, rotation;
+    double  ambiguity, targetDistance;
+    double  translationStdDev, rotationStdDev;
+
+    /**
+     * Set the observation as reported by a source. Standard deviations are cleared,
+     * they are set by VisionPipeline when the observation is accepted.
+     * @param timestampSeconds FPGA time the camera image was taken.
+     * @param x Robot X in meters.
+     * @param y Robot Y in meters.
+     * @param rotation Robot heading in radians, CCW positive.
+     * @param ambiguity Pose ambiguity reported by the coprocessor, 0 (certain) to 1.
+     * @param targetDistance Distance from the camera to the target in meters.
+     */
+    public void set(double timestampSeconds, double x, double y, double rotation, double ambiguity,
+                    double targetDistance)
+    {
+        this.timestampSeconds = timestampSeconds;
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.ambiguity = ambiguity;
+        this.targetDistance = targetDistance;
+
+        translationStdDev = rotationStdDev = Double.NaN;
+    }
+
+    void copyFrom(VisionObservation other)
+    {
+        timestampSeconds = other.timestampSeconds;
+        x = other.x;
+        y = other.y;
+        rotation = other.rotation;
+        ambiguity = other.ambiguity;
+        targetDistance = other.targetDistance;
+        translationStdDev = other.translationStdDev;
+        rotationStdDev = other.rotationStdDev;
+    }
+
+    /**
+     * @return FPGA time the camera image was taken, in seconds.
+     */
+    public double getTimestampSeconds()
+    {
+        return timestampSeconds;
+    }
+
+    /**
+     * @return Robot X in meters.
+     */
+    public double getX()
+    {
+        return x;
+    }
+
+    /**
+     * @return Robot Y in meters.
+     */
+    public double getY()
+    {
+        return y;
+    }
+
+    /**
+     * @return Robot heading in radians, CCW positive.
+     */
+    public double getRotation()
+    {
+        return rotation;
+    }
+
+    /**
+     * @return Pose ambiguity, 0 (certain) to 1.
+     */
+    public double getAmbiguity()
+    {
+        return ambiguity;
+    }
+
+    /**
+     * @return Distance from the camera to the target in meters.
+     */
+    public double getTargetDistance()
+    {
+        return targetDistance;
+    }
+
+    /**
+     * @return Standard deviation of X and Y in meters. NaN until accepted by VisionPipeline.
+     */
+    public double getTranslationStdDev()
+    {
+        return translationStdDev;
+    }
+
+    /**
+     * @return Standard deviation of the heading in radians. NaN until accepted by VisionPipeline.
+     */
+    public double getRotationStdDev()
+    {
+        return rotationStdDev;
+    }
+}
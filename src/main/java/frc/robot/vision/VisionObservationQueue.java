@@ -0,0 +1,85 @@
+package frc.robot.vision;
+
+/**
+ * Bounded queue of vision observations between one producer thread and one consumer
+ * thread. Slots are preallocated and observations are copied in and out, so neither
+ * side allocates, and neither side ever waits on the other. When the queue is full
+ * new observations are dropped and counted, the consumer has fallen behind and the
+ * older observations it has not read are still the more useful ones to apply in order.
+ */
+public final class VisionObservationQueue
+{
+    private final VisionObservation[]   slots;
+
+    // Next slot to read and next slot to write, as counts. Written by one side each.
+    private volatile long               head, tail;
+    private volatile long               dropped;
+
+    /**
+     * Create a queue.
+     * @param capacity Most observations held.
+     */
+    public VisionObservationQueue(int capacity)
+    {
+        slots = new VisionObservation[capacity];
+
+        for (int i = 0; i < capacity; i++) slots[i] = new VisionObservation();
+    }
+
+    /**
+     * Add a copy of an observation. Producer thread only.
+     * @param observation The observation, may be reused by the caller once this returns.
+     * @return False if the queue was full and the observation dropped.
+     */
+    public boolean offer(VisionObservation observation)
+    {
+        long t = tail;
+
+        if (t - head >= slots.length)
+        {
+            dropped++;
+            return false;
+        }
+
+        slots[(int) (t % slots.length)].copyFrom(observation);
+
+        // Volatile write publishes the slot contents to the consumer.
+        tail = t + 1;
+
+        return true;
+    }
+
+    /**
+     * Take the oldest observation. Consumer thread only.
+     * @param observation Set to the observation taken.
+     * @return False if the queue was empty.
+     */
+    public boolean poll(VisionObservation observation)
+    {
+        long h = head;
+
+        if (h == tail) return false;
+
+        observation.copyFrom(slots[(int) (h % slots.length)]);
+
+        head = h + 1;
+
+        return true;
+    }
+
+    /**
+     * Discard everything queued. Consumer thread only.
+     */
+    public void clear()
+    {
+        head = tail;
+    }
+
+    /**
+     * @return Observations dropped because the queue was full.
+     */
+    public long getDroppedCount()
+    {
+        return dropped;
+    }
+}
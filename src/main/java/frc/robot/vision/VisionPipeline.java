@@ -0,0 +1,147 @@
+package frc.robot.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.swervelib.GyroSampleBuffer;
+import frc.robot.swervelib.PoseHistory;
+
+/**
+ * Filters the vision observations sources have queued before they reach the pose
+ * estimator. Called once per robot loop on the main thread, it drains every queued
+ * observation in one batch and rejects those that are ambiguous, of a target too far
+ * away, too old, too far from the pose estimate to be believed (the estimate when the
+ * image was taken, given the pose history), or, given the gyro samples, facing
+ * differently than the gyro says the robot was when the image was taken. Accepted
+ * observations are given standard deviations that grow with the square of the target
+ * distance, since the pose error from a pixel of target error does, and passed on
+ * to the estimator's queue.
+ */
+public class VisionPipeline
+{
+    /** Most ambiguity accepted. */
+    public static final double  MAX_AMBIGUITY = 0.2;
+    /** Farthest target accepted, meters. */
+    public static final double  MAX_TARGET_DISTANCE = 5.0;
+    /** Farthest observed pose accepted from the estimate, meters. */
+    public static final double  MAX_POSE_JUMP = 1.0;
+    /** Oldest observation accepted, seconds. Older is beyond the estimator's history. */
+    public static final double  MAX_AGE = 0.5;
+    /** Most heading difference accepted from the gyro, degrees. */
+    public static final double  MAX_HEADING_ERROR = 10.0;
+
+    // Standard deviations at 1 meter target distance, and the smallest used.
+    private static final double TRANSLATION_STD_DEV = 0.02, MIN_TRANSLATION_STD_DEV = 0.01;
+    private static final double ROTATION_STD_DEV = Math.toRadians(2), MIN_ROTATION_STD_DEV = Math.toRadians(1);
+
+    private final VisionObservationQueue    input;
+    private final GyroSampleBuffer          gyroSamples;
+    private final PoseHistory               poseHistory;
+    private final VisionObservation         observation = new VisionObservation();
+    private final double[]                  historyPose = new double[3];
+
+    private long                            acceptedCount, rejectedCount;
+
+    /**
+     * Create the pipeline.
+     * @param input The queue vision sources write to.
+     */
+    public VisionPipeline(VisionObservationQueue input)
+    {
+        this(input, null, null);
+    }
+
+    /**
+     * Create the pipeline, checking observed headings against the gyro and observed
+     * positions against the pose history.
+     * @param input The queue vision sources write to.
+     * @param gyroSamples Gyro samples, null to not check headings.
+     * @param poseHistory Pose history, null to check positions against the current estimate.
+     */
+    public VisionPipeline(VisionObservationQueue input, GyroSampleBuffer gyroSamples, PoseHistory poseHistory)
+    {
+        this.input = input;
+        this.gyroSamples = gyroSamples;
+        this.poseHistory = poseHistory;
+    }
+
+    /**
+     * Drain the input queue, passing accepted observations to the output.
+     * @param estimate The current pose estimate.
+     * @param now Current FPGA time in seconds.
+     * @param output Queue the pose estimator reads accepted observations from.
+     * @return Number of observations accepted.
+     */
+    public int process(Pose2d estimate, double now, VisionObservationQueue output)
+    {
+        int accepted = 0;
+
+        // Field heading is the gyro heading plus the difference between the two now.
+        double headingOffset = gyroSamples == null ? Double.NaN 
+                               : estimate.getRotation().getDegrees() - gyroSamples.getHeadingAt(now);
+
+        while (input.poll(observation))
+        {
+            if (!accept(observation, estimate, now) || !acceptHeading(observation, headingOffset))
+            {
+                rejectedCount++;
+                continue;
+            }
+
+            double distanceSquared = Math.max(1.0, observation.targetDistance * observation.targetDistance);
+
+            observation.translationStdDev = Math.max(MIN_TRANSLATION_STD_DEV, TRANSLATION_STD_DEV * distanceSquared);
+            observation.rotationStdDev = Math.max(MIN_ROTATION_STD_DEV, ROTATION_STD_DEV * distanceSquared);
+
+            if (output.offer(observation))
+            {
+                accepted++;
+                acceptedCount++;
+            }
+        }
+
+        return accepted;
+    }
+
+    private boolean accept(VisionObservation observation, Pose2d estimate, double now)
+    {
+        if (!Double.isFinite(observation.x) || !Double.isFinite(observation.y) || !Double.isFinite(observation.rotation))
+            return false;
+
+        if (observation.ambiguity > MAX_AMBIGUITY || observation.targetDistance > MAX_TARGET_DISTANCE) return false;
+
+        double age = now - observation.timestampSeconds;
+
+        if (age < 0 || age > MAX_AGE) return false;
+
+        // Where odometry had the robot when the image was taken, so a moving robot's
+        // observations are not judged against where it has since moved to.
+        if (poseHistory != null && poseHistory.getPoseAt(observation.timestampSeconds, historyPose))
+            return Math.hypot(observation.x - historyPose[0], observation.y - historyPose[1]) <= MAX_POSE_JUMP;
+
+        return Math.hypot(observation.x - estimate.getX(), observation.y - estimate.getY()) <= MAX_POSE_JUMP;
+    }
+
+    private boolean acceptHeading(VisionObservation observation, double headingOffset)
+    {
+        if (Double.isNaN(headingOffset)) return true;
+
+        double expected = gyroSamples.getHeadingAt(observation.timestampSeconds) + headingOffset;
+
+        return Math.abs(Math.IEEEremainder(Math.toDegrees(observation.rotation) - expected, 360.0)) <= MAX_HEADING_ERROR;
+    }
+
+    /**
+     * @return Observations accepted since the pipeline was created.
+     */
+    public long getAcceptedCount()
+    {
+        return acceptedCount;
+    }
+
+    /**
+     * @return Observations rejected since the pipeline was created.
+     */
+    public long getRejectedCount()
+    {
+        return rejectedCount;
+    }
+}
@@ -0,0 +1,108 @@
+package frc.robot.vision;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import Team4450.Lib.Util;
+
+/**
+ * Vision source replaying recorded observations from a file, standing in for the
+ * camera and coprocessor in simulation and on the bench. No network or camera needed.
+ * <p>
+ * The file is text, one observation per line, the coprocessor's pose values led by the
+ * time since the replay started:
+ * <pre>
+ * # time seconds, x meters, y meters, heading degrees, latency ms, ambiguity, target distance meters
+ * 0.50 1.03 2.83 0.0 25 0.05 2.1
+ * </pre>
+ * update(), called each loop, queues every observation whose time has come, so replay
+ * follows the robot clock and runs the same way every time under simulation.
+ */
+public class VisionReplaySource
+{
+    private final double[][]                observations;
+    private final VisionObservationQueue    queue;
+    private final VisionObservation         observation = new VisionObservation();
+
+    private double                          startTime = Double.NaN;
+    private int                             next;
+
+    /**
+     * Load a replay file.
+     * @param file The file.
+     * @param queue Queue to write observations to.
+     */
+    public VisionReplaySource(File file, VisionObservationQueue queue) throws IOException
+    {
+        Util.consoleLog(file.toString());
+
+        List<double[]>  lines = new ArrayList<>();
+        int             lineNumber = 0;
+
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8))
+        {
+            lineNumber++;
+
+            line = line.trim();
+
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] tokens = line.split("\\s+");
+
+            if (tokens.length != 7)
+                throw new IOException(file + " line " + lineNumber + ": expected 7 values");
+
+            double[] values = new double[7];
+
+            try
+            {
+                for (int i = 0; i < values.length; i++) values[i] = Double.parseDouble(tokens[i]);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException(file + " line " + lineNumber + ": " + e.getMessage(), e);
+            }
+
+            lines.add(values);
+        }
+
+        lines.sort((a, b) -> Double.compare(a[0], b[0]));
+
+        this.observations = lines.toArray(new double[0][]);
+        this.queue = queue;
+
+        Util.consoleLog("%d observations", observations.length);
+    }
+
+    /**
+     * Queue the observations due by now. The first call starts the replay.
+     * @param now Current FPGA time in seconds.
+     */
+    public void update(double now)
+    {
+        if (Double.isNaN(startTime)) startTime = now;
+
+        while (next < observations.length && observations[next][0] <= now - startTime)
+        {
+            double[] values = observations[next++];
+
+            // As the coprocessor would report it: taken latency before it arrived.
+            observation.set(startTime + values[0] - values[4] / 1000.0, values[1], values[2],
+                            Math.toRadians(values[3]), values[5], values[6]);
+
+            queue.offer(observation);
+        }
+    }
+
+    /**
+     * @return True once every observation has been queued.
+     */
+    public boolean isFinished()
+    {
+        return next >= observations.length;
+    }
+}
@@ -0,0 +1,165 @@
+package frc.robot.sim;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.GenericHIDSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Robot;
+import frc.robot.sim.SimulationScenario.Mode;
+import frc.robot.sim.SimulationScenario.Phase;
+import frc.robot.swervelib.DrivetrainScheduler;
+
+/**
+ * Runs scripted matches in simulation without the GUI or driver station, stepping
+ * simulated time as fast as the robot code can run. Used by the scenario tests
+ * (MatchSimulationTest and the others), which run under ./gradlew test.
+ * <p>
+ * The Robot class runs as it does in the simulator, with the drive base physics model,
+ * but HAL timing is paused and the harness steps it one robot loop at a time with
+ * SimHooks.stepTiming(). Each step waits for the robot loop to finish, so the robot
+ * code sees the same sequence of loops and inputs on every run, whatever the speed
+ * of the computer. Scripted controller inputs and the robot mode are set through the
+ * simulated driver station before each step.
+ * <p>
+ * The HAL and the robot are one per JVM, so each scenario is its own test class and
+ * the test task forks a JVM for every test class, several at once.
+ */
+final class HeadlessSimulation
+{
+    // The drive base zeros the gyro from a drivetrain scheduler task one second (wall
+    // time) after it is created. Wait for the boot tasks to end before stepping, so
+    // it happens at the same point in every run.
+    private static final double BOOT_TIMEOUT_SECONDS = 5;
+
+    /**
+     * How a scenario ended.
+     */
+    static class Result
+    {
+        private final double    maxPoseError;
+        private final boolean   robotStopped;
+
+        private Result(double maxPoseError, boolean robotStopped)
+        {
+            this.maxPoseError = maxPoseError;
+            this.robotStopped = robotStopped;
+        }
+
+        /**
+         * @return Largest distance in meters seen between the odometry pose and the
+         * simulated robot's true pose.
+         */
+        double getMaxPoseError()
+        {
+            return maxPoseError;
+        }
+
+        /**
+         * @return True if the robot code stopped (threw) before the scenario ended.
+         */
+        boolean isRobotStopped()
+        {
+            return robotStopped;
+        }
+    }
+
+    private HeadlessSimulation() {}
+
+    /**
+     * Run a scenario in this JVM. Only one can be run per JVM. Stops early if the robot
+     * code stops or the pose error goes over the scenario's limit.
+     * @param scenario The scenario.
+     * @return How it ended.
+     */
+    static Result run(SimulationScenario scenario) throws InterruptedException
+    {
+        if (!HAL.initialize(500, 0)) throw new IllegalStateException("HAL initialization failed");
+
+        // Time only moves when stepped from here on.
+        SimHooks.pauseTiming();
+
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setEnabled(false);
+        DriverStationSim.notifyNewData();
+
+        GenericHIDSim controller = new GenericHIDSim(0);
+
+        controller.setAxisCount(6);
+        controller.setButtonCount(10);
+        controller.setPOVCount(1);
+
+        Robot robot = new Robot();
+
+        Thread robotThread = new Thread(robot::startCompetition, "Robot");
+
+        robotThread.setDaemon(true);
+        robotThread.start();
+
+        // Returns once robotInit() has run.
+        SimHooks.waitForProgramStart();
+
+        if (!DrivetrainScheduler.getInstance().awaitIdle(BOOT_TIMEOUT_SECONDS))
+            throw new IllegalStateException("drivetrain boot tasks did not end");
+
+        NetworkTableEntry poseErrorEntry = SmartDashboard.getEntry("Sim Pose Error");
+
+        double  period = TimedRobot.kDefaultPeriod, maxPoseError = 0, simulatedSeconds = 0;
+        int     loops = 0;
+        boolean stopped = false;
+
+        long startNanos = System.nanoTime();
+
+        phases:
+        for (Phase phase : scenario.getPhases())
+        {
+            DriverStationSim.setAutonomous(phase.mode == Mode.AUTONOMOUS);
+            DriverStationSim.setEnabled(phase.mode != Mode.DISABLED);
+
+            int phaseLoops = (int) Math.round(phase.seconds / period);
+
+            for (int i = 0; i < phaseLoops; i++)
+            {
+                if (phase.controls != null)
+                    phase.controls.apply(controller, i * period);
+                else
+                    SimulationScenario.setSticks(controller, 0, 0, 0, 0);
+
+                DriverStationSim.notifyNewData();
+
+                // Runs one robot loop, and the odometry notifier, and waits for them.
+                SimHooks.stepTiming(period);
+
+                loops++;
+                simulatedSeconds += period;
+
+                if (!robotThread.isAlive())
+                {
+                    stopped = true;
+                    break phases;
+                }
+
+                maxPoseError = Math.max(maxPoseError, poseErrorEntry.getDouble(0));
+
+                if (maxPoseError > scenario.getMaxPoseError()) break phases;
+            }
+        }
+
+        double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        double[] pose = NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable("Field2d")
+                            .getEntry("Robot").getDoubleArray(new double[3]);
+
+        System.out.printf("%s: %d loops, %.1f s simulated in %.1f s (%.0fx), max pose error %.3f m, " +
+                          "final pose (%.2f, %.2f, %.1f)%s%n",
+                          scenario.getName(), loops, simulatedSeconds, wallSeconds, simulatedSeconds / wallSeconds,
+                          maxPoseError, pose[0], pose[1], pose[2], stopped ? ", robot code stopped" : "");
+
+        robot.endCompetition();
+
+        return new Result(maxPoseError, stopped);
+    }
+}
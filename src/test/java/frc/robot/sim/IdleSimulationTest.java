@@ -0,0 +1,28 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import frc.robot.sim.SimulationScenario.Mode;
+
+/**
+ * Sitting still with the robot enabled, odometry should not drift.
+ */
+public class IdleSimulationTest
+{
+    private static final SimulationScenario SCENARIO = new SimulationScenario("idle", 0.02)
+        .phase(Mode.DISABLED, 2, null)
+        .phase(Mode.TELEOP, 20, null);
+
+    @Test
+    public void odometryDoesNotDrift() throws InterruptedException
+    {
+        HeadlessSimulation.Result result = HeadlessSimulation.run(SCENARIO);
+
+        assertFalse("robot code stopped", result.isRobotStopped());
+        assertTrue(String.format("pose error %.3f m over %.3f m", result.getMaxPoseError(), SCENARIO.getMaxPoseError()),
+                   result.getMaxPoseError() <= SCENARIO.getMaxPoseError());
+    }
+}
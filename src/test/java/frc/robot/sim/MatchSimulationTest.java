@@ -0,0 +1,50 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.wpi.first.wpilibj.simulation.GenericHIDSim;
+import frc.robot.sim.SimulationScenario.Mode;
+
+/**
+ * A full match: autonomous, then two minutes of teleop driving a repeating pattern of
+ * straight runs, strafes, turns and driving while turning.
+ */
+public class MatchSimulationTest
+{
+    private static final SimulationScenario SCENARIO = new SimulationScenario("match", 1.0)
+        .phase(Mode.DISABLED, 2, null)
+        .phase(Mode.AUTONOMOUS, 15, null)
+        .phase(Mode.DISABLED, 1, null)
+        .phase(Mode.TELEOP, 120, MatchSimulationTest::drivePattern);
+
+    /**
+     * Four second segments: forward, strafe right, back, strafe left, turn in place,
+     * forward while turning. Throttle is the left stick Y, strafe the right stick X
+     * and rotation the left stick X.
+     */
+    private static void drivePattern(GenericHIDSim controller, double time)
+    {
+        switch ((int) (time / 4) % 6)
+        {
+            case 0: SimulationScenario.setSticks(controller, 0, -0.8, 0, 0); break;
+            case 1: SimulationScenario.setSticks(controller, 0, 0, 0.8, 0); break;
+            case 2: SimulationScenario.setSticks(controller, 0, 0.8, 0, 0); break;
+            case 3: SimulationScenario.setSticks(controller, 0, 0, -0.8, 0); break;
+            case 4: SimulationScenario.setSticks(controller, 0.7, 0, 0, 0); break;
+            default: SimulationScenario.setSticks(controller, 0.5, -0.5, 0, 0); break;
+        }
+    }
+
+    @Test
+    public void odometryFollowsTruePose() throws InterruptedException
+    {
+        HeadlessSimulation.Result result = HeadlessSimulation.run(SCENARIO);
+
+        assertFalse("robot code stopped", result.isRobotStopped());
+        assertTrue(String.format("pose error %.3f m over %.3f m", result.getMaxPoseError(), SCENARIO.getMaxPoseError()),
+                   result.getMaxPoseError() <= SCENARIO.getMaxPoseError());
+    }
+}
@@ -0,0 +1,117 @@
+package frc.robot.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.XboxController;
+import edu.wpi.first.wpilibj.simulation.GenericHIDSim;
+
+/**
+ * A scripted match for HeadlessSimulation: a list of phases, each a robot mode run
+ * for a time with scripted driver controller inputs, and the pose error it allows.
+ * <pre>
+ * new SimulationScenario("square", 0.5)
+ *     .phase(Mode.DISABLED, 1, null)
+ *     .phase(Mode.TELEOP, 12, (controller, time) -> ...);
+ * </pre>
+ */
+public class SimulationScenario
+{
+    /** Robot mode for a phase. */
+    public enum Mode
+    {
+        DISABLED,
+        AUTONOMOUS,
+        TELEOP
+    }
+
+    /**
+     * Sets the driver controller inputs for one loop.
+     */
+    @FunctionalInterface
+    public interface Controls
+    {
+        /**
+         * @param controller Simulated driver controller (port 0).
+         * @param time Seconds since the start of the phase.
+         */
+        void apply(GenericHIDSim controller, double time);
+    }
+
+    /** One robot mode run for a time. */
+    public static class Phase
+    {
+        public final Mode       mode;
+        public final double     seconds;
+        public final Controls   controls;
+
+        private Phase(Mode mode, double seconds, Controls controls)
+        {
+            this.mode = mode;
+            this.seconds = seconds;
+            this.controls = controls;
+        }
+    }
+
+    private final String        name;
+    private final double        maxPoseError;
+    private final List<Phase>   phases = new ArrayList<>();
+
+    /**
+     * Create a scenario.
+     * @param name Name used in its results.
+     * @param maxPoseError Largest distance in meters allowed between the odometry pose and
+     * the simulated robot's true pose. The scenario fails if it is exceeded.
+     */
+    public SimulationScenario(String name, double maxPoseError)
+    {
+        this.name = name;
+        this.maxPoseError = maxPoseError;
+    }
+
+    /**
+     * Add a phase.
+     * @param mode Robot mode.
+     * @param seconds Length of the phase in simulated seconds.
+     * @param controls Controller inputs, null to leave the sticks centered.
+     * @return This scenario, for chaining.
+     */
+    public SimulationScenario phase(Mode mode, double seconds, Controls controls)
+    {
+        phases.add(new Phase(mode, seconds, controls));
+
+        return this;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public double getMaxPoseError()
+    {
+        return maxPoseError;
+    }
+
+    public List<Phase> getPhases()
+    {
+        return Collections.unmodifiableList(phases);
+    }
+
+    /**
+     * Set all four stick axes. Stick Y is negative pushed forward, as on the controller.
+     * @param controller Simulated controller.
+     * @param leftX Left stick X.
+     * @param leftY Left stick Y.
+     * @param rightX Right stick X.
+     * @param rightY Right stick Y.
+     */
+    public static void setSticks(GenericHIDSim controller, double leftX, double leftY, double rightX, double rightY)
+    {
+        controller.setRawAxis(XboxController.Axis.kLeftX.value, leftX);
+        controller.setRawAxis(XboxController.Axis.kLeftY.value, leftY);
+        controller.setRawAxis(XboxController.Axis.kRightX.value, rightX);
+        controller.setRawAxis(XboxController.Axis.kRightY.value, rightY);
+    }
+}
@@ -0,0 +1,29 @@
+package frc.robot.sim;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import frc.robot.sim.SimulationScenario.Mode;
+
+/**
+ * Full speed forward while spinning, the hardest case for odometry.
+ */
+public class SpinDriveSimulationTest
+{
+    private static final SimulationScenario SCENARIO = new SimulationScenario("spin-drive", 1.0)
+        .phase(Mode.DISABLED, 2, null)
+        .phase(Mode.TELEOP, 30, (controller, time) ->
+            SimulationScenario.setSticks(controller, 0.6, time < 25 ? -1 : 0, 0, 0));
+
+    @Test
+    public void odometryFollowsTruePose() throws InterruptedException
+    {
+        HeadlessSimulation.Result result = HeadlessSimulation.run(SCENARIO);
+
+        assertFalse("robot code stopped", result.isRobotStopped());
+        assertTrue(String.format("pose error %.3f m over %.3f m", result.getMaxPoseError(), SCENARIO.getMaxPoseError()),
+                   result.getMaxPoseError() <= SCENARIO.getMaxPoseError());
+    }
+}
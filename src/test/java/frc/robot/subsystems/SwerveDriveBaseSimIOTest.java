@@ -0,0 +1,99 @@
+package frc.robot.subsystems;
+
+import static frc.robot.subsystems.SwerveDriveBase.SWERVE_MODULES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.swervelib.DrivetrainScheduler;
+import frc.robot.swervelib.SimGyroIO;
+import frc.robot.swervelib.SimModuleIO;
+import frc.robot.swervelib.SwerveModule;
+import frc.robot.swervelib.SwerveModuleFactory;
+
+/**
+ * Runs the drive base loop on SimModuleIO modules and a SimGyroIO, with no navX,
+ * motor controllers or physics model, stepping HAL time one loop at a time.
+ */
+public class SwerveDriveBaseSimIOTest
+{
+    private static final double PERIOD = TimedRobot.kDefaultPeriod;
+
+    private final SimGyroIO         gyro = new SimGyroIO();
+    private final SwerveModule[]    modules = new SwerveModule[SWERVE_MODULES.length];
+    private final ChassisSpeeds     speeds = new ChassisSpeeds();
+
+    private SwerveDriveBase         driveBase;
+
+    private void run(double seconds, double vx, double vy)
+    {
+        speeds.vxMetersPerSecond = vx;
+        speeds.vyMetersPerSecond = vy;
+
+        for (int i = 0; i < Math.round(seconds / PERIOD); i++)
+        {
+            // Runs the odometry notifier over the loop.
+            SimHooks.stepTiming(PERIOD);
+
+            driveBase.drive(speeds);
+            driveBase.periodic();
+        }
+    }
+
+    @Test
+    public void drivesOnSimulatedIO() throws InterruptedException
+    {
+        if (!HAL.initialize(500, 0)) throw new IllegalStateException("HAL initialization failed");
+
+        SimHooks.pauseTiming();
+
+        for (int i = 0; i < modules.length; i++)
+            modules[i] = SwerveModuleFactory.create(new SimModuleIO(PERIOD, SwerveDriveBase.MAX_VELOCITY_METERS_PER_SECOND, 0),
+                                                    0, SWERVE_MODULES[i].getPosition());
+
+        driveBase = new SwerveDriveBase(gyro, modules);
+
+        // The drive base zeros the gyro from a boot task.
+        assertTrue(DrivetrainScheduler.getInstance().awaitIdle(5));
+
+        Pose2d start = driveBase.getPoseMeters();
+
+        // Field forward at 1 m/s, the robot facing forward.
+        run(2, 1, 0);
+
+        for (SwerveModule module : modules)
+        {
+            assertEquals(1.0, module.getDriveVelocity(), 0.05);
+            assertEquals(1.0, Math.cos(module.getSteerAngle()), 0.001);
+        }
+
+        run(1, 0, 0);
+
+        for (SwerveModule module : modules) assertEquals(0.0, module.getDriveVelocity(), 0.05);
+
+        // 2 meters, the distance the modules lag by speeding up made up slowing down.
+        Pose2d pose = driveBase.getPoseMeters();
+
+        assertEquals(start.getX() + 2.0, pose.getX(), 0.15);
+        assertEquals(start.getY(), pose.getY(), 0.05);
+
+        // Facing left, field forward is to the robot's right.
+        gyro.setHeading(90);
+
+        run(1, 1, 0);
+
+        assertEquals(90, driveBase.getHeadingDegrees(), 1e-9);
+
+        for (SwerveModule module : modules)
+        {
+            assertEquals(1.0, Math.abs(module.getDriveVelocity()), 0.05);
+            assertEquals(-1.0, Math.sin(module.getSteerAngle()) * Math.signum(module.getDriveVelocity()), 0.001);
+        }
+    }
+}
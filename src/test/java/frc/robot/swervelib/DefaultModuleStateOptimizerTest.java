@@ -0,0 +1,154 @@
+package frc.robot.swervelib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DefaultModuleStateOptimizerTest
+{
+    private static final double DELTA = 1e-9;
+    private static final double HOLD_DRIVE = 0.1, DRIVE = 2.0;
+
+    private final DefaultModuleStateOptimizer optimizer = new DefaultModuleStateOptimizer(HOLD_DRIVE,
+                                                                                          Math.toRadians(10), true);
+    private final DefaultModuleStateOptimizer unscaled = new DefaultModuleStateOptimizer(HOLD_DRIVE,
+                                                                                         Math.toRadians(10), false);
+    private final ModuleSetpoint setpoint = new ModuleSetpoint();
+
+    private void optimize(DefaultModuleStateOptimizer optimizer, double drive, double targetDegrees,
+                          double currentDegrees)
+    {
+        optimizer.optimize(drive, Math.toRadians(targetDegrees), Math.toRadians(currentDegrees), setpoint);
+    }
+
+    private void assertAngle(double expectedDegrees)
+    {
+        assertEquals(Math.toRadians(expectedDegrees), setpoint.getAngle(), DELTA);
+    }
+
+    @Test
+    public void flipsOnlyPastHysteresis()
+    {
+        // Not reversed: 95 degrees of error is inside 90 + 10, steer the long way.
+        optimize(unscaled, DRIVE, 95, 0);
+
+        assertFalse(setpoint.isReversed());
+        assertAngle(95);
+        assertEquals(1.0, setpoint.getDriveScale(), DELTA);
+
+        // 105 degrees is past it, turn the wheel around and drive backwards.
+        optimize(unscaled, DRIVE, 105, 0);
+
+        assertTrue(setpoint.isReversed());
+        assertAngle(285);
+        assertEquals(-1.0, setpoint.getDriveScale(), DELTA);
+
+        // Reversed, 85 degrees is still past 90 - 10, stay reversed.
+        optimize(unscaled, DRIVE, 85, 0);
+
+        assertTrue(setpoint.isReversed());
+        assertAngle(265);
+
+        // 75 degrees is inside it, drive forwards again.
+        optimize(unscaled, DRIVE, 75, 0);
+
+        assertFalse(setpoint.isReversed());
+        assertAngle(75);
+        assertEquals(1.0, setpoint.getDriveScale(), DELTA);
+    }
+
+    @Test
+    public void flipsAcrossZero()
+    {
+        // 350 to 10 degrees is 20 degrees of error the short way, no flip.
+        optimize(unscaled, DRIVE, 10, 350);
+
+        assertFalse(setpoint.isReversed());
+        assertAngle(10);
+
+        // 180 degrees away, flip and stay where the wheel is.
+        optimize(unscaled, DRIVE, 170, 350);
+
+        assertTrue(setpoint.isReversed());
+        assertAngle(350);
+    }
+
+    @Test
+    public void holdsLastAngleBelowHoldDrive()
+    {
+        optimize(optimizer, DRIVE, 40, 40);
+
+        assertAngle(40);
+
+        // A tiny command pointing elsewhere keeps the last angle.
+        optimize(optimizer, HOLD_DRIVE / 2, 200, 40);
+
+        assertAngle(40);
+
+        optimize(optimizer, 0, 300, 40);
+
+        assertAngle(40);
+
+        // Back above the hold drive, steer to the target.
+        optimize(optimizer, DRIVE, 60, 40);
+
+        assertAngle(60);
+    }
+
+    @Test
+    public void holdKeepsFlipDecision()
+    {
+        optimize(unscaled, DRIVE, 170, 0);
+
+        assertTrue(setpoint.isReversed());
+        assertAngle(350);
+
+        optimize(unscaled, 0, 90, 0);
+
+        assertTrue(setpoint.isReversed());
+        assertAngle(350);
+        assertEquals(-1.0, setpoint.getDriveScale(), DELTA);
+    }
+
+    @Test
+    public void holdsCurrentAngleWithNoSetpoint()
+    {
+        optimize(optimizer, 0, 200, 30);
+
+        assertFalse(setpoint.isReversed());
+        assertAngle(30);
+    }
+
+    @Test
+    public void scalesDriveByCosineOfSteerError()
+    {
+        optimize(optimizer, DRIVE, 0, 0);
+
+        assertEquals(1.0, setpoint.getDriveScale(), DELTA);
+
+        optimize(optimizer, DRIVE, 60, 0);
+
+        assertEquals(0.5, setpoint.getDriveScale(), DELTA);
+
+        // Reversed, the wheel pointing at 0 pushes toward 180, 60 degrees from 120.
+        setpoint.clear();
+
+        optimize(optimizer, DRIVE, 120, 0);
+
+        assertTrue(setpoint.isReversed());
+        assertEquals(-0.5, setpoint.getDriveScale(), DELTA);
+    }
+
+    @Test
+    public void neverDrivesAwayFromTarget()
+    {
+        // Inside the hysteresis the wheel is not flipped, and pointing more than 90
+        // degrees from the target it does not drive at all.
+        optimize(optimizer, DRIVE, 95, 0);
+
+        assertFalse(setpoint.isReversed());
+        assertEquals(0.0, setpoint.getDriveScale(), DELTA);
+    }
+}
@@ -0,0 +1,136 @@
+package frc.robot.swervelib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.Constants.ModulePosition;
+
+/**
+ * Checks the code on the drive base periodic path allocates nothing once warmed up.
+ * Each cycle is run enough times first for the JIT to compile it, then the bytes the
+ * test thread allocates over many more cycles must be zero.
+ */
+public class PeriodicAllocationTest
+{
+    private static final int    WARMUP_CYCLES = 50000, MEASURED_CYCLES = 10000;
+    private static final double PERIOD = 0.02, MAX_SPEED = 4.0;
+
+    private static com.sun.management.ThreadMXBean threadBean;
+
+    private final PrimitiveSwerveKinematics kinematics = new PrimitiveSwerveKinematics(
+        new Translation2d(0.3, 0.3), new Translation2d(0.3, -0.3),
+        new Translation2d(-0.3, 0.3), new Translation2d(-0.3, -0.3));
+
+    private final double[]  speeds = new double[4], angles = new double[4];
+    private double          time, angle;
+
+    @BeforeClass
+    public static void setUpThreadBean()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean &&
+                   ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    /**
+     * Warm a cycle up, then return the bytes allocated over the measured cycles.
+     */
+    private static long allocatedBytes(Runnable cycle)
+    {
+        for (int i = 0; i < WARMUP_CYCLES; i++) cycle.run();
+
+        long threadId = Thread.currentThread().getId();
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < MEASURED_CYCLES; i++) cycle.run();
+
+        return threadBean.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    /**
+     * Sweep the commanded direction so every branch (flips, desaturation) is taken.
+     */
+    private double nextAngle()
+    {
+        angle += 0.1;
+
+        if (angle > 2.0 * Math.PI) angle -= 4.0 * Math.PI;
+
+        return angle;
+    }
+
+    @Test
+    public void kinematicsAllocatesNothing()
+    {
+        assertEquals(0, allocatedBytes(() ->
+        {
+            double direction = nextAngle();
+
+            kinematics.toModuleStates(5.0 * Math.cos(direction), 5.0 * Math.sin(direction), 3.0);
+            kinematics.getDesaturationScale(MAX_SPEED);
+            kinematics.desaturate(MAX_SPEED);
+        }));
+    }
+
+    @Test
+    public void odometryAllocatesNothing()
+    {
+        PrimitiveSwerveOdometry odometry = new PrimitiveSwerveOdometry(kinematics);
+
+        for (int i = 0; i < speeds.length; i++) speeds[i] = 2.0;
+
+        assertEquals(0, allocatedBytes(() ->
+        {
+            double heading = nextAngle();
+
+            for (int i = 0; i < angles.length; i++) angles[i] = heading + i;
+
+            time += PERIOD;
+
+            odometry.update(time, heading, speeds, angles);
+        }));
+    }
+
+    @Test
+    public void discretizeAllocatesNothing()
+    {
+        ChassisSpeeds commanded = new ChassisSpeeds(3.0, 1.0, 2.0), result = new ChassisSpeeds();
+
+        assertEquals(0, allocatedBytes(() ->
+        {
+            commanded.omegaRadiansPerSecond = nextAngle();
+
+            ChassisSpeedsDiscretizer.discretize(commanded, PERIOD, 0.02, result);
+        }));
+    }
+
+    @Test
+    public void moduleSetAllocatesNothing()
+    {
+        SwerveModule module = SwerveModuleFactory.create(new SimModuleIO(PERIOD, MAX_SPEED, 1.0), 0.5,
+                                                         ModulePosition.FL);
+
+        module.setStateOptimizer(new DefaultModuleStateOptimizer(0.05, Math.toRadians(10.0), true));
+
+        assertEquals(0, allocatedBytes(() ->
+        {
+            module.readSensors();
+            module.set(6.0, nextAngle());
+
+            module.readSensors();
+            module.setVelocity(3.0, 1.0, nextAngle());
+        }));
+    }
+}
@@ -0,0 +1,97 @@
+package frc.robot.vision;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Feeds the recorded vision replay used in simulation through the pipeline, and
+ * checks what it rejects and the standard deviations it gives what it accepts.
+ */
+public class VisionReplayPipelineTest
+{
+    private static final File   REPLAY_FILE = new File("src/main/deploy/vision/replay.txt");
+    private static final double PERIOD = 0.02, START_TIME = 10.0;
+
+    // The starting pose the replay was recorded at.
+    private static final Pose2d ESTIMATE = new Pose2d(1.03, 2.825, new Rotation2d());
+
+    private final VisionObservationQueue    input = new VisionObservationQueue(16);
+    private final VisionObservationQueue    output = new VisionObservationQueue(16);
+    private final VisionPipeline            pipeline = new VisionPipeline(input);
+    private final VisionObservation         observation = new VisionObservation();
+
+    @Test
+    public void rejectsOutlierAndAmbiguousObservations() throws IOException
+    {
+        VisionReplaySource replay = new VisionReplaySource(REPLAY_FILE, input);
+
+        double  now = START_TIME;
+        int     accepted = 0;
+
+        while (!replay.isFinished())
+        {
+            replay.update(now);
+            pipeline.process(ESTIMATE, now, output);
+
+            while (output.poll(observation))
+            {
+                accepted++;
+
+                // The outlier is 2.9m from the estimate, the ambiguous one has 0.45 ambiguity.
+                assertEquals(ESTIMATE.getX(), observation.getX(), 0.05);
+                assertEquals(ESTIMATE.getY(), observation.getY(), 0.05);
+                assertTrue(observation.getAmbiguity() <= VisionPipeline.MAX_AMBIGUITY);
+            }
+
+            now += PERIOD;
+        }
+
+        assertEquals(6, accepted);
+        assertEquals(6, pipeline.getAcceptedCount());
+        assertEquals(2, pipeline.getRejectedCount());
+    }
+
+    @Test
+    public void standardDeviationsGrowWithDistance()
+    {
+        double lastTranslationStdDev = 0, lastRotationStdDev = 0;
+
+        for (double distance = 1.0; distance <= VisionPipeline.MAX_TARGET_DISTANCE; distance += 0.5)
+        {
+            observation.set(START_TIME, ESTIMATE.getX(), ESTIMATE.getY(), 0, 0.05, distance);
+            input.offer(observation);
+
+            assertEquals(1, pipeline.process(ESTIMATE, START_TIME, output));
+            assertTrue(output.poll(observation));
+
+            assertTrue(observation.getTranslationStdDev() > lastTranslationStdDev);
+            assertTrue(observation.getRotationStdDev() > lastRotationStdDev);
+
+            lastTranslationStdDev = observation.getTranslationStdDev();
+            lastRotationStdDev = observation.getRotationStdDev();
+        }
+
+        // The pose error from a pixel of target error grows with the square of the distance.
+        observation.set(START_TIME, ESTIMATE.getX(), ESTIMATE.getY(), 0, 0.05, 2.0);
+        input.offer(observation);
+        pipeline.process(ESTIMATE, START_TIME, output);
+        output.poll(observation);
+
+        double nearStdDev = observation.getTranslationStdDev();
+
+        observation.set(START_TIME, ESTIMATE.getX(), ESTIMATE.getY(), 0, 0.05, 4.0);
+        input.offer(observation);
+        pipeline.process(ESTIMATE, START_TIME, output);
+        output.poll(observation);
+
+        assertEquals(4.0 * nearStdDev, observation.getTranslationStdDev(), 1e-9);
+    }
+}